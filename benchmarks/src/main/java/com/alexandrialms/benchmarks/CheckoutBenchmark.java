@@ -0,0 +1,93 @@
+package com.alexandrialms.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alexandrialms.model.Loan;
+import com.alexandrialms.service.impl.LoanServiceImpl;
+
+/**
+ * Circulation desk round trip: one checkout followed by the check-in of the
+ * same copy, so the data set stays in the same state between iterations.
+ * Each benchmark thread works on its own user and range of copies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    static final int BOOKS = 2_000;
+    static final int DESKS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Library {
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            InMemoryDatabase.start(BOOKS, DESKS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            InMemoryDatabase.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Desk {
+        private static int nextDesk;
+
+        int userId;
+        int firstCopy;
+        int copiesPerDesk;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Library library) {
+            int desk;
+            synchronized (Desk.class) {
+                desk = nextDesk++ % DESKS;
+            }
+            // Seeded users are 1..DESKS and copies 1..2 * BOOKS
+            userId = desk + 1;
+            copiesPerDesk = (2 * BOOKS) / DESKS;
+            firstCopy = desk * copiesPerDesk + 1;
+        }
+
+        int nextCopy() {
+            next = (next + 1) % copiesPerDesk;
+            return firstCopy + next;
+        }
+    }
+
+    private final LoanServiceImpl loanService = new LoanServiceImpl();
+
+    @Benchmark
+    public Loan checkoutAndCheckin(Desk desk) {
+        int copyId = desk.nextCopy();
+        loanService.checkout(desk.userId, copyId);
+        return loanService.checkin(copyId);
+    }
+
+    @Benchmark
+    @Threads(DESKS)
+    public Loan checkoutAndCheckinConcurrent(Desk desk) {
+        return checkoutAndCheckin(desk);
+    }
+}
@@ -0,0 +1,181 @@
+package com.alexandrialms.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.PoolConfig;
+
+/**
+ * In-memory H2 database (MariaDB mode) that stands in for the real server
+ * during benchmarks.
+ * <p>
+ * {@link #start(int, int)} creates the schema from {@code schema.sql}, seeds
+ * it with synthetic rows and installs a {@link ConnectionProvider} pointing
+ * at it as the application-wide pool, so DAOs and services run unchanged.
+ * The numbers measure the Java side (mapping, validation, pooling, statement
+ * cache), not MariaDB's query planner or network latency.
+ * </p>
+ */
+public final class InMemoryDatabase {
+
+    static final String[] TITLE_WORDS = { "Shadow", "River", "Garden", "Empire", "Silent", "Winter", "Library",
+            "Glass", "Ocean", "Iron", "Memory", "Forest", "Night", "Crown", "Harbor", "Paper" };
+
+    private static final int CATEGORY_COUNT = 20;
+    private static final int AUTHOR_COUNT = 500;
+
+    private InMemoryDatabase() {
+    }
+
+    /**
+     * Creates and seeds a fresh database and makes it the default pool.
+     *
+     * @param books  number of books, each with two authors and two copies
+     * @param users  number of active reader accounts
+     */
+    public static void start(int books, int users) throws SQLException {
+        String url = "jdbc:h2:mem:alexandria_bench;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+                for (String ddl : readSchema().split(";")) {
+                    if (!ddl.isBlank()) {
+                        stmt.execute(ddl);
+                    }
+                }
+            }
+            seed(conn, books, users);
+        }
+
+        PoolConfig config = new PoolConfig(url, "sa", "");
+        config.setMinIdle(0);
+        config.setUseServerPrepStmts(false);
+        ConnectionProvider.installDefault(new ConnectionProvider(config));
+        CatalogueCache.clear();
+    }
+
+    public static void stop() {
+        ConnectionProvider.shutdownDefault();
+        CatalogueCache.clear();
+    }
+
+    /**
+     * Deterministic ISBN-13 with a valid check digit for seed row {@code n}.
+     */
+    static String isbnFor(int n) {
+        String body = "978" + String.format("%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = body.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return body + ((10 - sum % 10) % 10);
+    }
+
+    static String titleFor(int n) {
+        return "The " + TITLE_WORDS[n % TITLE_WORDS.length] + " of " + TITLE_WORDS[(n / 7) % TITLE_WORDS.length]
+                + " " + n;
+    }
+
+    private static void seed(Connection conn, int books, int users) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstm = conn.prepareStatement(
+                "INSERT INTO categories (name, description) VALUES (?, ?)")) {
+            for (int i = 1; i <= CATEGORY_COUNT; i++) {
+                pstm.setString(1, "Category " + i);
+                pstm.setString(2, "Benchmark category " + i);
+                pstm.addBatch();
+            }
+            pstm.executeBatch();
+        }
+        try (PreparedStatement pstm = conn.prepareStatement(
+                "INSERT INTO authors (first_name, last_name, nationality, birth_date) VALUES (?, ?, ?, DATE '1950-01-01')")) {
+            for (int i = 1; i <= AUTHOR_COUNT; i++) {
+                pstm.setString(1, "Author" + i);
+                pstm.setString(2, TITLE_WORDS[i % TITLE_WORDS.length] + "son");
+                pstm.setString(3, "SPANISH");
+                pstm.addBatch();
+            }
+            pstm.executeBatch();
+        }
+        try (PreparedStatement book = conn.prepareStatement(
+                "INSERT INTO books (title, isbn, isbn13, publication_year, category_id) VALUES (?, ?, ?, ?, ?)");
+                PreparedStatement link = conn.prepareStatement(
+                        "INSERT INTO book_author (book_id, author_id) VALUES (?, ?)");
+                PreparedStatement copy = conn.prepareStatement(
+                        "INSERT INTO copies (book_id, internal_code, status, acquisition_date) VALUES (?, ?, 'AVAILABLE', DATE '2020-01-01')")) {
+            for (int i = 1; i <= books; i++) {
+                book.setString(1, titleFor(i));
+                book.setString(2, isbnFor(i));
+                book.setLong(3, Long.parseLong(isbnFor(i)));
+                book.setInt(4, 1950 + i % 70);
+                book.setInt(5, 1 + i % CATEGORY_COUNT);
+                book.addBatch();
+
+                for (int c = 0; c < 2; c++) {
+                    copy.setInt(1, i);
+                    copy.setString(2, "BK-" + i + "-" + c);
+                    copy.addBatch();
+                }
+            }
+            book.executeBatch();
+            copy.executeBatch();
+
+            for (int i = 1; i <= books; i++) {
+                int first = 1 + i % AUTHOR_COUNT;
+                int second = 1 + (i * 31) % AUTHOR_COUNT;
+                link.setInt(1, i);
+                link.setInt(2, first);
+                link.addBatch();
+                if (second != first) {
+                    link.setInt(1, i);
+                    link.setInt(2, second);
+                    link.addBatch();
+                }
+            }
+            link.executeBatch();
+        }
+        try (PreparedStatement pstm = conn.prepareStatement(
+                "INSERT INTO users (first_name, last_name, email, phone, address, registration_date, role, active) "
+                        + "VALUES (?, ?, ?, '600000000', 'Calle Mayor 1', ?, 'READER', TRUE)")) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 1; i <= users; i++) {
+                pstm.setString(1, "Reader" + i);
+                pstm.setString(2, "Bench");
+                pstm.setString(3, "reader" + i + "@alexandria.test");
+                pstm.setTimestamp(4, now);
+                pstm.addBatch();
+            }
+            pstm.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    private static String readSchema() {
+        try (InputStream is = InMemoryDatabase.class.getClassLoader().getResourceAsStream("schema.sql")) {
+            if (is == null) {
+                throw new IllegalStateException("schema.sql not found on the benchmark classpath");
+            }
+            StringBuilder sql = new StringBuilder();
+            for (String line : new String(is.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            return sql.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read schema.sql", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.alexandrialms.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alexandrialms.util.IsbnParser;
+
+/**
+ * {@link IsbnParser} against the regex validation it replaced.
+ * <p>
+ * Run with {@code -prof gc}: {@code parse} and {@code isValid} should report
+ * {@code gc.alloc.rate.norm} of 0 B/op on valid input.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsbnBenchmark {
+
+    @Param({ "9780306406157", "978-0-306-40615-7", "ISBN-10: 0-8044-2957-X", "978-0-306-40615-8" })
+    public String isbn;
+
+    @Benchmark
+    public long parse() {
+        return IsbnParser.parse(isbn);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return IsbnParser.isValid(isbn);
+    }
+
+    @Benchmark
+    public String toIsbn13() {
+        return IsbnParser.toIsbn13(isbn);
+    }
+
+    @Benchmark
+    public boolean legacyRegex() {
+        return LegacyIsbn.isValidISBN(isbn);
+    }
+
+    /**
+     * Copy of the previous {@code ValidationHelper} implementation, kept as the baseline.
+     */
+    static final class LegacyIsbn {
+        private LegacyIsbn() {
+        }
+
+        static boolean isValidISBN(String isbn) {
+            if (isbn == null)
+                return false;
+            String isbn10Regex = "^(?:ISBN(?:-10)?:? )?(?=[0-9X]{10}$|(?=(?:[0-9]+[- ]){3})[- 0-9X]{13}$)[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9X]$";
+            String isbn13Regex = "^(?:ISBN(?:-13)?:? )?(?=[0-9]{13}$|(?=(?:[0-9]+[- ]){4})[- 0-9]{17}$)97[89][- ]?[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9]$";
+            return (Pattern.compile(isbn10Regex).matcher(isbn).matches()
+                    || Pattern.compile(isbn13Regex).matcher(isbn).matches()) && controlDigit(isbn);
+        }
+
+        private static boolean controlDigit(String isbn) {
+            String clean = isbn.replaceAll("(?i)ISBN(?:-1[03])?:?", "").replaceAll("[-\\s]", "");
+            if (clean.length() == 10) {
+                int sum = 0;
+                for (int i = 0; i < 9; i++) {
+                    char c = clean.charAt(i);
+                    if (!Character.isDigit(c))
+                        return false;
+                    sum += (c - '0') * (i + 1);
+                }
+                char last = clean.charAt(9);
+                int control = (last == 'X' || last == 'x') ? 10 : last - '0';
+                return sum % 11 == control;
+            }
+            if (clean.length() == 13) {
+                int sum = 0;
+                for (int i = 0; i < 12; i++) {
+                    char c = clean.charAt(i);
+                    if (!Character.isDigit(c))
+                        return false;
+                    sum += (i % 2 == 0) ? c - '0' : (c - '0') * 3;
+                }
+                return (10 - sum % 10) % 10 == clean.charAt(12) - '0';
+            }
+            return false;
+        }
+    }
+}
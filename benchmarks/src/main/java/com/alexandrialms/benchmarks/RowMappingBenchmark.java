@@ -0,0 +1,70 @@
+package com.alexandrialms.benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alexandrialms.dao.impl.BookDAO;
+import com.alexandrialms.dao.impl.CopyDAO;
+import com.alexandrialms.model.Book;
+
+/**
+ * Row mapping cost of the DAOs: a full {@code findAll()} materialization
+ * against a lazy {@code streamAll()} pass over the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int books;
+
+    private final BookDAO bookDAO = new BookDAO();
+    private final CopyDAO copyDAO = new CopyDAO();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        InMemoryDatabase.start(books, 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        InMemoryDatabase.stop();
+    }
+
+    @Benchmark
+    public List<Book> findAllBooks() {
+        return bookDAO.findAll();
+    }
+
+    @Benchmark
+    public long streamAllBooks() {
+        try (Stream<Book> rows = bookDAO.streamAll()) {
+            return rows.mapToInt(Book::getPubYear).sum();
+        }
+    }
+
+    @Benchmark
+    public int findAllCopies() {
+        return copyDAO.findAll().size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.alexandrialms.benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alexandrialms.model.Book;
+import com.alexandrialms.model.BookDetails;
+import com.alexandrialms.search.Suggestion;
+import com.alexandrialms.service.impl.BookServiceImpl;
+import com.alexandrialms.util.pagination.Page;
+
+/**
+ * Catalogue search paths of {@link BookServiceImpl} as used by the OPAC
+ * screens: free-text search, a keyset result page, a result page with
+ * authors and category loaded, the ranked search over the in-memory
+ * index (a prefix query, as sent while the user types) and the availability
+ * shown next to each result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int BOOKS = 20_000;
+
+    private final BookServiceImpl bookService = new BookServiceImpl();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        InMemoryDatabase.start(BOOKS, 10);
+        bookService.rebuildSearchIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        InMemoryDatabase.stop();
+    }
+
+    private String nextTerm() {
+        next = (next + 1) % InMemoryDatabase.TITLE_WORDS.length;
+        return InMemoryDatabase.TITLE_WORDS[next];
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        return bookService.searchBooks(nextTerm());
+    }
+
+    @Benchmark
+    public Page<Book> titlePage() {
+        return bookService.getBooksByTitlePage(nextTerm(), 50, null);
+    }
+
+    @Benchmark
+    public List<BookDetails> detailsPage() {
+        return bookService.getBookDetails(bookService.getBooksByTitlePage(nextTerm(), 50, null).getItems());
+    }
+
+    @Benchmark
+    public List<BookDetails> rankedSearch() {
+        String term = nextTerm();
+        return bookService.searchCatalogue(term.substring(0, Math.min(4, term.length())), 50);
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest() {
+        String term = nextTerm();
+        return bookService.suggest(term.substring(0, Math.min(3, term.length())), 10);
+    }
+
+    @Benchmark
+    public int availableCopies() {
+        next = (next + 1) % BOOKS;
+        return bookService.getAvailableCopiesCount(next + 1);
+    }
+
+    @Benchmark
+    public List<Book> availableBooks() {
+        return bookService.getAvailableBooks();
+    }
+}
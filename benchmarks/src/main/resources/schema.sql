@@ -0,0 +1,81 @@
+-- Subset of the AlexandriaLMS schema used by the benchmarks (H2, MariaDB mode)
+CREATE TABLE categories (
+    category_id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE,
+    description VARCHAR(255)
+);
+
+CREATE TABLE authors (
+    author_id INT AUTO_INCREMENT PRIMARY KEY,
+    first_name VARCHAR(100) NOT NULL,
+    last_name VARCHAR(100) NOT NULL,
+    nationality VARCHAR(50),
+    birth_date DATE
+);
+
+CREATE TABLE books (
+    book_id INT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    isbn VARCHAR(20) NOT NULL UNIQUE,
+    isbn13 BIGINT,
+    publication_year INT,
+    category_id INT REFERENCES categories(category_id)
+);
+CREATE INDEX idx_books_title ON books(title, book_id);
+CREATE INDEX idx_books_category ON books(category_id, book_id);
+CREATE INDEX idx_books_isbn13 ON books(isbn13);
+
+CREATE TABLE book_author (
+    book_id INT NOT NULL REFERENCES books(book_id),
+    author_id INT NOT NULL REFERENCES authors(author_id),
+    PRIMARY KEY (book_id, author_id)
+);
+
+CREATE TABLE copies (
+    copy_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT NOT NULL REFERENCES books(book_id),
+    internal_code VARCHAR(50) NOT NULL UNIQUE,
+    status VARCHAR(20) NOT NULL,
+    acquisition_date DATE
+);
+CREATE INDEX idx_copies_book ON copies(book_id, copy_id);
+
+CREATE TABLE users (
+    user_id INT AUTO_INCREMENT PRIMARY KEY,
+    first_name VARCHAR(100) NOT NULL,
+    last_name VARCHAR(100) NOT NULL,
+    email VARCHAR(150) NOT NULL UNIQUE,
+    phone VARCHAR(20),
+    address VARCHAR(255),
+    registration_date TIMESTAMP,
+    role VARCHAR(20) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE loans (
+    loan_id INT AUTO_INCREMENT PRIMARY KEY,
+    copy_id INT NOT NULL REFERENCES copies(copy_id),
+    user_id INT NOT NULL REFERENCES users(user_id),
+    loan_date DATE NOT NULL,
+    due_date DATE,
+    return_date DATE,
+    returned BOOLEAN NOT NULL DEFAULT FALSE,
+    renewals INT NOT NULL DEFAULT 0
+);
+CREATE INDEX idx_loans_user ON loans(user_id, returned);
+CREATE INDEX idx_loans_copy ON loans(copy_id, returned);
+CREATE INDEX idx_loans_due_date ON loans(returned, due_date);
+
+CREATE TABLE holds (
+    hold_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT NOT NULL REFERENCES books(book_id),
+    user_id INT NOT NULL REFERENCES users(user_id),
+    copy_id INT REFERENCES copies(copy_id),
+    status VARCHAR(20) NOT NULL,
+    placed_at TIMESTAMP NOT NULL,
+    ready_date DATE,
+    pickup_deadline DATE
+);
+CREATE INDEX idx_holds_book_status ON holds(book_id, status, hold_id);
+CREATE INDEX idx_holds_user_status ON holds(user_id, status);
+CREATE INDEX idx_holds_copy_status ON holds(copy_id, status);
@@ -0,0 +1,319 @@
+package com.alexandrialms.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.alexandrialms.model.CopyStatus;
+import com.alexandrialms.util.collections.IntBitmap;
+import com.alexandrialms.util.collections.LongIntHashMap;
+
+/**
+ * In-memory availability of every book: per-book counts of total and
+ * available copies, and an {@link IntBitmap} of the IDs of the books with
+ * at least one available copy.
+ * <p>
+ * A copy is available when its status is {@code AVAILABLE} and it has no
+ * open loan, the same condition checkout enforces. Like {@link IsbnIndex}
+ * the index is complete: the first lookup loads every book, copy and open
+ * loan, and from then on {@code CopyDAO}, {@code BookDAO} and the
+ * circulation methods of {@code LoanDAO} update it after each write, so
+ * availability filters and counts never query the database. Writes whose
+ * effect is not known row by row (bulk status updates, generic loan
+ * updates) drop the index and the next lookup reloads it. It is also
+ * reloaded after {@code cache.catalogue.ttlSeconds}, which picks up rows
+ * written by other processes.
+ * </p>
+ * <p>
+ * Lookups return {@code null} or {@link #UNKNOWN} when the index is
+ * disabled or could not be loaded; callers then query the database.
+ * </p>
+ */
+public class AvailabilityIndex {
+
+    /** The index is disabled or could not be loaded; the caller must query the database. */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Books, copies and open loans as read by the loader; owned by the index
+     * once returned.
+     */
+    public static final class Snapshot {
+        private final IntBitmap books = new IntBitmap();
+        private final IntBitmap availableBooks = new IntBitmap();
+        /** copy_id to {@code book_id << 2 | statusAvailable << 1 | onLoan}; 0 means unknown copy. */
+        private final LongIntHashMap copies = new LongIntHashMap();
+        private final LongIntHashMap totalByBook = new LongIntHashMap();
+        private final LongIntHashMap availableByBook = new LongIntHashMap();
+
+        public void addBook(int bookId) {
+            books.add(bookId);
+        }
+
+        /**
+         * @param onLoan whether the copy has a loan with no return date
+         */
+        public void addCopy(int copyId, int bookId, CopyStatus status, boolean onLoan) {
+            putCopy(copyId, pack(bookId, status == CopyStatus.AVAILABLE, onLoan));
+        }
+
+        private void putCopy(int copyId, int state) {
+            removeCopy(copyId);
+            copies.put(copyId, state, 0);
+            int bookId = bookOf(state);
+            increment(totalByBook, bookId, 1);
+            if (isAvailable(state)) {
+                increment(availableByBook, bookId, 1);
+                availableBooks.add(bookId);
+            }
+        }
+
+        private void removeCopy(int copyId) {
+            int state = copies.remove(copyId, 0);
+            if (state == 0) {
+                return;
+            }
+            int bookId = bookOf(state);
+            increment(totalByBook, bookId, -1);
+            if (isAvailable(state) && increment(availableByBook, bookId, -1) == 0) {
+                availableBooks.remove(bookId);
+            }
+        }
+
+        private static int increment(LongIntHashMap counts, int bookId, int delta) {
+            int count = counts.get(bookId, 0) + delta;
+            if (count <= 0) {
+                counts.remove(bookId, 0);
+                return 0;
+            }
+            counts.put(bookId, count, 0);
+            return count;
+        }
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    private Snapshot snapshot;
+    private long loadedAt;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private long invalidations;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every lookup return {@link #UNKNOWN}
+     * @param ttlMillis time before a full reload; 0 means never
+     */
+    public AvailabilityIndex(String name, boolean enabled, long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Index TTL cannot be negative");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the number of available copies of {@code bookId}, or {@link #UNKNOWN}
+     */
+    public int availableCopies(int bookId, Supplier<Snapshot> loader) {
+        Integer count = read(loader, s -> s.availableByBook.get(bookId, 0));
+        return count == null ? UNKNOWN : count;
+    }
+
+    /**
+     * @return the number of copies of {@code bookId}, or {@link #UNKNOWN}
+     */
+    public int totalCopies(int bookId, Supplier<Snapshot> loader) {
+        Integer count = read(loader, s -> s.totalByBook.get(bookId, 0));
+        return count == null ? UNKNOWN : count;
+    }
+
+    /**
+     * @return the available copies of each book in {@code bookIds} (0 for
+     *         unknown books), or {@code null} if the index cannot be used
+     */
+    public Map<Integer, Integer> availableCopies(Collection<Integer> bookIds, Supplier<Snapshot> loader) {
+        return read(loader, s -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Integer bookId : bookIds) {
+                counts.put(bookId, s.availableByBook.get(bookId, 0));
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * @return the IDs of the books with an available copy, ascending, or {@code null}
+     */
+    public int[] availableBookIds(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.availableBooks.toArray());
+    }
+
+    /**
+     * @return the IDs of the books without an available copy (including books
+     *         with no copies), ascending, or {@code null}
+     */
+    public int[] unavailableBookIds(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.books.andNot(s.availableBooks).toArray());
+    }
+
+    public synchronized void bookAdded(int bookId) {
+        generation++;
+        if (snapshot != null) {
+            snapshot.books.add(bookId);
+        }
+    }
+
+    /**
+     * Books with copies cannot be deleted, so only the book itself is dropped.
+     */
+    public synchronized void bookRemoved(int bookId) {
+        generation++;
+        if (snapshot != null) {
+            snapshot.books.remove(bookId);
+        }
+    }
+
+    /**
+     * Records an inserted or updated copy row; whether it is on loan is kept.
+     */
+    public synchronized void copyWritten(int copyId, int bookId, CopyStatus status) {
+        generation++;
+        if (snapshot != null) {
+            boolean onLoan = (snapshot.copies.get(copyId, 0) & 1) != 0;
+            snapshot.putCopy(copyId, pack(bookId, status == CopyStatus.AVAILABLE, onLoan));
+        }
+    }
+
+    public synchronized void copyStatusChanged(int copyId, CopyStatus status) {
+        generation++;
+        if (snapshot == null) {
+            return;
+        }
+        int state = snapshot.copies.get(copyId, 0);
+        if (state == 0) {
+            // Not loaded: the copy was written by another process, reload it all
+            dropSnapshot();
+            return;
+        }
+        snapshot.putCopy(copyId, pack(bookOf(state), status == CopyStatus.AVAILABLE, (state & 1) != 0));
+    }
+
+    public synchronized void copyRemoved(int copyId) {
+        generation++;
+        if (snapshot != null) {
+            snapshot.removeCopy(copyId);
+        }
+    }
+
+    /**
+     * A checkout: the copy is {@code BORROWED} and has an open loan.
+     */
+    public synchronized void loanOpened(int copyId) {
+        setLoanState(copyId, false, true);
+    }
+
+    /**
+     * A check-in: the copy is {@code AVAILABLE} again and its loan is closed.
+     */
+    public synchronized void loanClosed(int copyId) {
+        setLoanState(copyId, true, false);
+    }
+
+    /**
+     * Drops the index; the next lookup reloads it.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        dropSnapshot();
+    }
+
+    public synchronized int size() {
+        return snapshot == null ? 0 : snapshot.books.cardinality();
+    }
+
+    /**
+     * Returns the lookup counters; lookups answered from the database are
+     * reported as misses and full reloads as expirations.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, size(), hits, misses, 0, reloads, invalidations);
+    }
+
+    private void setLoanState(int copyId, boolean statusAvailable, boolean onLoan) {
+        generation++;
+        if (snapshot == null) {
+            return;
+        }
+        int state = snapshot.copies.get(copyId, 0);
+        if (state == 0) {
+            dropSnapshot();
+            return;
+        }
+        snapshot.putCopy(copyId, pack(bookOf(state), statusAvailable, onLoan));
+    }
+
+    /**
+     * Runs {@code query} on the current snapshot, loading it with
+     * {@code loader} if needed. The loader runs outside the index lock and
+     * returns {@code null} on failure.
+     *
+     * @return the result, or {@code null} if the index cannot be used
+     */
+    private <T> T read(Supplier<Snapshot> loader, Function<Snapshot, T> query) {
+        long loadGeneration;
+        synchronized (this) {
+            if (!enabled) {
+                return null;
+            }
+            if (snapshot != null && !isExpired()) {
+                hits++;
+                return query.apply(snapshot);
+            }
+            loadGeneration = generation;
+        }
+
+        Snapshot loaded = loader.get();
+        synchronized (this) {
+            if (loaded == null || generation != loadGeneration) {
+                // Load failed, or a write happened while loading; try again on the next lookup
+                misses++;
+                return null;
+            }
+            snapshot = loaded;
+            loadedAt = System.currentTimeMillis();
+            reloads++;
+            return query.apply(snapshot);
+        }
+    }
+
+    private void dropSnapshot() {
+        if (snapshot != null) {
+            invalidations++;
+        }
+        snapshot = null;
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+
+    private static int pack(int bookId, boolean statusAvailable, boolean onLoan) {
+        return bookId << 2 | (statusAvailable ? 2 : 0) | (onLoan ? 1 : 0);
+    }
+
+    private static int bookOf(int state) {
+        return state >>> 2;
+    }
+
+    private static boolean isAvailable(int state) {
+        return (state & 3) == 2;
+    }
+}
@@ -0,0 +1,69 @@
+package com.alexandrialms.cache;
+
+/**
+ * Immutable snapshot of the counters of one {@link EntityCache}.
+ */
+public class CacheStats {
+
+    private final String name;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    public CacheStats(String name, int size, long hits, long misses, long evictions, long expirations,
+            long invalidations) {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Fraction of lookups answered from memory, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [name=" + name + ", size=" + size + ", hits=" + hits + ", misses=" + misses
+                + ", hitRatio=" + String.format("%.3f", getHitRatio()) + ", evictions=" + evictions
+                + ", expirations=" + expirations + ", invalidations=" + invalidations + "]";
+    }
+}
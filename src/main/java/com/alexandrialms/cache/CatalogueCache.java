@@ -0,0 +1,124 @@
+package com.alexandrialms.cache;
+
+import java.util.List;
+import java.util.Properties;
+
+import com.alexandrialms.model.Author;
+import com.alexandrialms.model.Book;
+import com.alexandrialms.model.Category;
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Shared read-through caches for the catalogue entities.
+ * <p>
+ * {@code BookDAO}, {@code AuthorDAO} and {@code CategoryDAO} read through
+ * these caches in {@code findById} and invalidate them from every write,
+ * including the batch updates. {@code findByISBN} and {@code existsByISBN}
+ * go through the complete {@link IsbnIndex} instead, and the availability
+ * queries through the complete {@link AvailabilityIndex}. Because
+ * the caches are static, every DAO instance created by the services and by
+ * {@code ValidationHelper} sees the same entries.
+ * </p>
+ * <p>
+ * Sizes and TTL come from {@code db.properties}:
+ * {@code cache.catalogue.maxSize} (per entity, 0 disables caching) and
+ * {@code cache.catalogue.ttlSeconds} (0 means no expiry, also used as the
+ * reload interval of the ISBN and availability indexes).
+ * {@code cache.isbnIndex.enabled=false} and
+ * {@code cache.availabilityIndex.enabled=false} turn those indexes off.
+ * </p>
+ */
+public final class CatalogueCache {
+
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private static final EntityCache<Integer, Book> BOOKS;
+    private static final IsbnIndex ISBN_INDEX;
+    private static final AvailabilityIndex AVAILABILITY;
+    private static final EntityCache<Integer, Author> AUTHORS;
+    private static final EntityCache<Integer, Category> CATEGORIES;
+
+    static {
+        Properties properties = DBConnection.getProperties();
+        int maxSize = intProperty(properties, "cache.catalogue.maxSize", DEFAULT_MAX_SIZE);
+        long ttlMillis = intProperty(properties, "cache.catalogue.ttlSeconds", (int) DEFAULT_TTL_SECONDS) * 1000L;
+        BOOKS = new EntityCache<>("books", maxSize, ttlMillis, Book::new);
+        ISBN_INDEX = new IsbnIndex("books.isbn13",
+                !"false".equalsIgnoreCase(properties.getProperty("cache.isbnIndex.enabled", "true").trim()),
+                ttlMillis);
+        AVAILABILITY = new AvailabilityIndex("books.availability",
+                !"false".equalsIgnoreCase(properties.getProperty("cache.availabilityIndex.enabled", "true").trim()),
+                ttlMillis);
+        AUTHORS = new EntityCache<>("authors", maxSize, ttlMillis, Author::new);
+        CATEGORIES = new EntityCache<>("categories", maxSize, ttlMillis, Category::new);
+    }
+
+    private CatalogueCache() {
+    }
+
+    public static EntityCache<Integer, Book> books() {
+        return BOOKS;
+    }
+
+    /**
+     * ISBN-13 key to book ID index. Book entities are only stored once, in {@link #books()}.
+     */
+    public static IsbnIndex isbnIndex() {
+        return ISBN_INDEX;
+    }
+
+    /**
+     * Available and total copies per book, maintained by the copy and loan writes.
+     */
+    public static AvailabilityIndex availability() {
+        return AVAILABILITY;
+    }
+
+    public static EntityCache<Integer, Author> authors() {
+        return AUTHORS;
+    }
+
+    public static EntityCache<Integer, Category> categories() {
+        return CATEGORIES;
+    }
+
+    /**
+     * Drops every cached book, e.g. after a batch update on the books table.
+     * The ISBN index is kept: its stale entries are detected on lookup.
+     */
+    public static void invalidateAllBooks() {
+        BOOKS.invalidateAll();
+    }
+
+    /**
+     * Drops every catalogue entry.
+     */
+    public static void clear() {
+        invalidateAllBooks();
+        ISBN_INDEX.invalidate();
+        AVAILABILITY.invalidate();
+        AUTHORS.invalidateAll();
+        CATEGORIES.invalidateAll();
+    }
+
+    /**
+     * Returns the counters of every catalogue cache.
+     */
+    public static List<CacheStats> getStats() {
+        return List.of(BOOKS.getStats(), ISBN_INDEX.getStats(), AVAILABILITY.getStats(), AUTHORS.getStats(),
+                CATEGORIES.getStats());
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
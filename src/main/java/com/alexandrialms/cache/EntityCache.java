@@ -0,0 +1,148 @@
+package com.alexandrialms.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded read-through cache with LRU eviction and a time-to-live.
+ * <p>
+ * Values are copied on the way in and on the way out, so callers can modify
+ * the entity they receive (as the services do before an update) without
+ * corrupting the cached copy. {@code null} results from the loader are not
+ * cached.
+ * </p>
+ * <p>
+ * Every invalidation bumps a generation counter. A load that started before
+ * an invalidation does not store its result, so a concurrent update cannot
+ * be overwritten by the value read just before it.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the entity type
+ */
+public class EntityCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param maxSize   maximum number of entries; 0 disables caching
+     * @param ttlMillis time an entry stays valid; 0 means no expiry
+     * @param copier    creates a defensive copy of a value
+     */
+    public EntityCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize < 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Cache size and TTL cannot be negative");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+    }
+
+    /**
+     * Returns the cached value for {@code key}, calling {@code loader} on a
+     * miss. The loader runs outside the cache lock.
+     *
+     * @return a copy of the value, or {@code null} if the loader found nothing
+     */
+    public V get(K key, Function<K, V> loader) {
+        if (key == null) {
+            return null;
+        }
+        long startGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry, System.currentTimeMillis())) {
+                    hits++;
+                    return copier.apply(entry.value);
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        V loaded = loader.apply(key);
+        if (loaded == null || maxSize == 0) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(key, new Entry<>(copier.apply(loaded), System.currentTimeMillis()));
+                evictOverflow();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the cached value without loading it, or {@code null}.
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+            return null;
+        }
+        return copier.apply(entry.value);
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        invalidations++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), hits, misses, evictions, expirations, invalidations);
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlMillis > 0 && now - entry.loadedAt >= ttlMillis;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.alexandrialms.cache;
+
+import java.util.function.Supplier;
+
+import com.alexandrialms.util.collections.LongIntHashMap;
+
+/**
+ * In-memory index from the packed ISBN-13 key ({@code IsbnParser.parse}) to
+ * {@code book_id}, backed by a primitive {@link LongIntHashMap}.
+ * <p>
+ * Unlike {@link EntityCache} the index is complete: the first lookup loads
+ * every {@code (isbn13, book_id)} pair, so a miss means "no such ISBN"
+ * without a database round trip. That is what makes duplicate checks during
+ * imports and barcode scans O(1). {@code BookDAO} adds entries on insert and
+ * update. Entries for deleted books or changed ISBNs are left in place and
+ * removed when a lookup finds that the book no longer matches, so callers
+ * must verify positive hits.
+ * </p>
+ * <p>
+ * The whole index is reloaded after {@code cache.catalogue.ttlSeconds}, which
+ * also picks up rows written by other processes.
+ * </p>
+ */
+public class IsbnIndex {
+
+    /** The index is loaded and the key is not in it. */
+    public static final int NOT_FOUND = 0;
+    /** The index is disabled or could not be loaded; the caller must query the database. */
+    public static final int UNKNOWN = -1;
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    private LongIntHashMap map;
+    private long loadedAt;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private long invalidations;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every lookup return {@link #UNKNOWN}
+     * @param ttlMillis time before a full reload; 0 means never
+     */
+    public IsbnIndex(String name, boolean enabled, long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Index TTL cannot be negative");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Looks up the book ID for an ISBN-13 key, loading the index with
+     * {@code loader} if needed. The loader runs outside the index lock and
+     * returns {@code null} on failure.
+     *
+     * @return the book ID, {@link #NOT_FOUND} or {@link #UNKNOWN}
+     */
+    public int lookup(long isbn13, Supplier<LongIntHashMap> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            if (!enabled) {
+                return UNKNOWN;
+            }
+            if (map != null && !isExpired()) {
+                int bookId = map.get(isbn13, NOT_FOUND);
+                if (bookId == NOT_FOUND) {
+                    misses++;
+                } else {
+                    hits++;
+                }
+                return bookId;
+            }
+            loadGeneration = generation;
+        }
+
+        LongIntHashMap loaded = loader.get();
+        if (loaded == null) {
+            return UNKNOWN;
+        }
+        synchronized (this) {
+            if (generation != loadGeneration) {
+                // A write or invalidation happened while loading; try again on the next lookup
+                return UNKNOWN;
+            }
+            map = loaded;
+            loadedAt = System.currentTimeMillis();
+            reloads++;
+            return map.get(isbn13, NOT_FOUND);
+        }
+    }
+
+    /**
+     * Records that {@code isbn13} now belongs to {@code bookId}.
+     */
+    public synchronized void put(long isbn13, int bookId) {
+        generation++;
+        if (map != null) {
+            map.put(isbn13, bookId, NOT_FOUND);
+        }
+    }
+
+    /**
+     * Removes the entry for {@code isbn13} if it still points to {@code bookId}.
+     */
+    public synchronized void remove(long isbn13, int bookId) {
+        generation++;
+        if (map != null && map.get(isbn13, NOT_FOUND) == bookId) {
+            map.remove(isbn13, NOT_FOUND);
+        }
+    }
+
+    /**
+     * Drops the index; the next lookup reloads it.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        if (map != null) {
+            invalidations++;
+        }
+        map = null;
+    }
+
+    public synchronized int size() {
+        return map == null ? 0 : map.size();
+    }
+
+    /**
+     * Returns the lookup counters; full reloads are reported as expirations.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, size(), hits, misses, 0, reloads, invalidations);
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+}
@@ -0,0 +1,306 @@
+package com.alexandrialms.circulation;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.util.collections.IntBitmap;
+import com.alexandrialms.util.collections.LongIntHashMap;
+
+/**
+ * Every open loan, by copy and by user.
+ * <p>
+ * Answers "is this copy on loan, and in which loan" and "how many loans does
+ * this user have open" with a hash lookup, and lists the open loans, the
+ * copies on loan and the users with open loans in ID order, so eligibility
+ * checks repeated by the services never count rows of {@code loans}. An
+ * open loan is one with {@code returned = false}, the flag the circulation
+ * transactions of {@code LoanDAO} lock and write.
+ * </p>
+ * <p>
+ * Only primitive collections are used: the loans of a user form a linked
+ * list threaded through a {@code loan -> next loan} map, so a user with a
+ * handful of loans costs a few map entries rather than a boxed collection.
+ * </p>
+ * <p>
+ * Complete like {@link OverdueIndex}: the first read loads every open loan,
+ * and {@code LoanDAO} reports checkouts and check-ins from then on. Generic
+ * loan writes drop the registry and the next read reloads it, as does
+ * reaching the reload interval. Reads return {@link #UNKNOWN} or
+ * {@code null} when the registry is disabled or could not be loaded;
+ * callers then query the database.
+ * </p>
+ */
+public class ActiveLoanRegistry {
+
+    /** Returned by the {@code int} reads when the registry cannot be used. */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Open loans as read by the loader; owned by the registry once returned.
+     */
+    public static final class Snapshot {
+        private int[] loans = new int[48];
+        private int size;
+
+        public void addOpenLoan(int loanId, int copyId, int userId) {
+            if (size + 3 > loans.length) {
+                loans = Arrays.copyOf(loans, loans.length * 2);
+            }
+            loans[size++] = loanId;
+            loans[size++] = copyId;
+            loans[size++] = userId;
+        }
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    private State state;
+    private long loadedAt;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private long invalidations;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every read return {@link #UNKNOWN} or {@code null}
+     * @param ttlMillis time before a full reload; 0 means never
+     */
+    public ActiveLoanRegistry(String name, boolean enabled, long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Registry TTL cannot be negative");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the open loan of a copy, 0 if it is not on loan, or {@link #UNKNOWN}
+     */
+    public int loanOfCopy(int copyId, Supplier<Snapshot> loader) {
+        Integer loanId = read(loader, s -> s.loanByCopy.get(copyId, 0));
+        return loanId != null ? loanId : UNKNOWN;
+    }
+
+    /**
+     * @return the number of open loans of a user, or {@link #UNKNOWN}
+     */
+    public int activeLoanCount(int userId, Supplier<Snapshot> loader) {
+        Integer count = read(loader, s -> s.countByUser.get(userId, 0));
+        return count != null ? count : UNKNOWN;
+    }
+
+    /**
+     * @return the IDs of the open loans of a user, ascending, or {@code null}
+     */
+    public int[] activeLoanIds(int userId, Supplier<Snapshot> loader) {
+        return read(loader, s -> s.loansOf(userId));
+    }
+
+    /**
+     * @return the IDs of every open loan, ascending, or {@code null}
+     */
+    public int[] activeLoanIds(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.loans.toArray());
+    }
+
+    /**
+     * @return the IDs of the copies on loan, ascending, or {@code null}
+     */
+    public int[] copyIdsOnLoan(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.copies.toArray());
+    }
+
+    /**
+     * @return the IDs of the users with an open loan, ascending, or {@code null}
+     */
+    public int[] userIdsWithLoans(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.users.toArray());
+    }
+
+    /**
+     * A checkout.
+     */
+    public synchronized void loanOpened(int loanId, int copyId, int userId) {
+        generation++;
+        if (state != null) {
+            state.open(loanId, copyId, userId);
+        }
+    }
+
+    /**
+     * A check-in.
+     */
+    public synchronized void loanClosed(int loanId) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        if (!state.loans.contains(loanId)) {
+            // Loan opened by another process: reload everything
+            dropState();
+            return;
+        }
+        state.close(loanId);
+    }
+
+    /**
+     * Drops the registry; the next read reloads it.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        dropState();
+    }
+
+    /**
+     * @return the number of open loans tracked, 0 if not loaded
+     */
+    public synchronized int size() {
+        return state == null ? 0 : state.loans.cardinality();
+    }
+
+    /**
+     * Returns the read counters; reads answered from the database are
+     * reported as misses and full reloads as expirations.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, size(), hits, misses, 0, reloads, invalidations);
+    }
+
+    /**
+     * Runs {@code query} on the registry, loading it with {@code loader} if
+     * needed. The loader runs outside the lock and returns {@code null} on
+     * failure.
+     */
+    private <T> T read(Supplier<Snapshot> loader, Function<State, T> query) {
+        long loadGeneration;
+        synchronized (this) {
+            if (!enabled) {
+                return null;
+            }
+            if (state != null && !isExpired()) {
+                hits++;
+                return query.apply(state);
+            }
+            loadGeneration = generation;
+        }
+
+        Snapshot loaded = loader.get();
+        synchronized (this) {
+            if (loaded == null || generation != loadGeneration) {
+                // Load failed, or a write happened while loading; try again on the next read
+                misses++;
+                return null;
+            }
+            state = new State(loaded);
+            loadedAt = System.currentTimeMillis();
+            reloads++;
+            return query.apply(state);
+        }
+    }
+
+    private void dropState() {
+        if (state != null) {
+            invalidations++;
+        }
+        state = null;
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+
+    /**
+     * Loaded registry. Guarded by the {@link ActiveLoanRegistry} monitor.
+     */
+    private static final class State {
+        private final IntBitmap loans = new IntBitmap();
+        private final IntBitmap copies = new IntBitmap();
+        private final IntBitmap users = new IntBitmap();
+        private final LongIntHashMap loanByCopy;
+        private final LongIntHashMap copyByLoan;
+        private final LongIntHashMap userByLoan;
+        private final LongIntHashMap countByUser;
+        /** First loan of each user's list; 0 ends a list. */
+        private final LongIntHashMap firstLoanByUser;
+        private final LongIntHashMap nextLoanOfUser;
+
+        State(Snapshot snapshot) {
+            int loanCount = snapshot.size / 3;
+            loanByCopy = new LongIntHashMap(loanCount);
+            copyByLoan = new LongIntHashMap(loanCount);
+            userByLoan = new LongIntHashMap(loanCount);
+            countByUser = new LongIntHashMap(loanCount);
+            firstLoanByUser = new LongIntHashMap(loanCount);
+            nextLoanOfUser = new LongIntHashMap(loanCount);
+            for (int i = 0; i < snapshot.size; i += 3) {
+                open(snapshot.loans[i], snapshot.loans[i + 1], snapshot.loans[i + 2]);
+            }
+        }
+
+        void open(int loanId, int copyId, int userId) {
+            if (!loans.add(loanId)) {
+                return;
+            }
+            copies.add(copyId);
+            users.add(userId);
+            loanByCopy.put(copyId, loanId, 0);
+            copyByLoan.put(loanId, copyId, 0);
+            userByLoan.put(loanId, userId, 0);
+            countByUser.put(userId, countByUser.get(userId, 0) + 1, 0);
+            nextLoanOfUser.put(loanId, firstLoanByUser.get(userId, 0), 0);
+            firstLoanByUser.put(userId, loanId, 0);
+        }
+
+        void close(int loanId) {
+            loans.remove(loanId);
+            int copyId = copyByLoan.remove(loanId, 0);
+            if (loanByCopy.get(copyId, 0) == loanId) {
+                loanByCopy.remove(copyId, 0);
+                copies.remove(copyId);
+            }
+            int userId = userByLoan.remove(loanId, 0);
+            int next = nextLoanOfUser.remove(loanId, 0);
+            int first = firstLoanByUser.get(userId, 0);
+            if (first == loanId) {
+                if (next == 0) {
+                    firstLoanByUser.remove(userId, 0);
+                } else {
+                    firstLoanByUser.put(userId, next, 0);
+                }
+            } else {
+                int previous = first;
+                while (previous != 0 && nextLoanOfUser.get(previous, 0) != loanId) {
+                    previous = nextLoanOfUser.get(previous, 0);
+                }
+                if (previous != 0) {
+                    nextLoanOfUser.put(previous, next, 0);
+                }
+            }
+            int count = countByUser.get(userId, 0) - 1;
+            if (count <= 0) {
+                countByUser.remove(userId, 0);
+                users.remove(userId);
+            } else {
+                countByUser.put(userId, count, 0);
+            }
+        }
+
+        int[] loansOf(int userId) {
+            int[] result = new int[countByUser.get(userId, 0)];
+            int size = 0;
+            for (int loanId = firstLoanByUser.get(userId, 0); loanId != 0 && size < result.length;
+                    loanId = nextLoanOfUser.get(loanId, 0)) {
+                result[size++] = loanId;
+            }
+            Arrays.sort(result, 0, size);
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+    }
+}
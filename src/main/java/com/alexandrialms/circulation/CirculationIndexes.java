@@ -0,0 +1,124 @@
+package com.alexandrialms.circulation;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Shared in-memory state of the open loans and waiting holds, kept current
+ * by the circulation methods of {@code LoanDAO} and {@code HoldDAO}.
+ * <p>
+ * Configured in {@code db.properties}: {@code circulation.overdueIndex.enabled}
+ * and {@code circulation.activeLoans.enabled} (default true),
+ * {@code circulation.reloadSeconds}, the age at which the
+ * indexes are reloaded to pick up loans written by other processes (default
+ * 3600, 0 never), and {@code circulation.tickSeconds}, how often a daemon
+ * thread moves the {@link OverdueIndex} to the current day so its listeners
+ * hear about new overdue loans without waiting for a read (default 60, 0
+ * disables it). The {@link HoldQueues} are configured with
+ * {@code circulation.holdQueues.enabled} (default true) and
+ * {@code circulation.holdQueues.stripes}, the number of locks the books
+ * are spread over (default 64), and held copies wait
+ * {@code circulation.holds.pickupDays} days to be collected (default 3).
+ * </p>
+ */
+public final class CirculationIndexes {
+
+    private static final int DEFAULT_RELOAD_SECONDS = 3600;
+    private static final int DEFAULT_TICK_SECONDS = 60;
+    private static final int DEFAULT_HOLD_STRIPES = 64;
+    private static final int DEFAULT_PICKUP_DAYS = 3;
+
+    private static final OverdueIndex OVERDUE;
+    private static final ActiveLoanRegistry ACTIVE_LOANS;
+    private static final HoldQueues HOLDS;
+    private static final int PICKUP_DAYS;
+
+    static {
+        Properties properties = DBConnection.getProperties();
+        long reloadMillis = intProperty(properties, "circulation.reloadSeconds", DEFAULT_RELOAD_SECONDS) * 1000L;
+        OVERDUE = new OverdueIndex("circulation.overdueLoans",
+                booleanProperty(properties, "circulation.overdueIndex.enabled"), reloadMillis);
+        ACTIVE_LOANS = new ActiveLoanRegistry("circulation.activeLoans",
+                booleanProperty(properties, "circulation.activeLoans.enabled"), reloadMillis);
+        HOLDS = new HoldQueues("circulation.holdQueues",
+                booleanProperty(properties, "circulation.holdQueues.enabled"), reloadMillis,
+                Math.max(1, intProperty(properties, "circulation.holdQueues.stripes", DEFAULT_HOLD_STRIPES)));
+        PICKUP_DAYS = intProperty(properties, "circulation.holds.pickupDays", DEFAULT_PICKUP_DAYS);
+
+        int tickSeconds = intProperty(properties, "circulation.tickSeconds", DEFAULT_TICK_SECONDS);
+        if (tickSeconds > 0) {
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "alexandria-circulation-ticker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(CirculationIndexes::tick, tickSeconds, tickSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private CirculationIndexes() {
+    }
+
+    public static OverdueIndex overdue() {
+        return OVERDUE;
+    }
+
+    public static ActiveLoanRegistry activeLoans() {
+        return ACTIVE_LOANS;
+    }
+
+    public static HoldQueues holds() {
+        return HOLDS;
+    }
+
+    /**
+     * @return the days a patron has to collect a copy kept for their hold
+     */
+    public static int holdPickupDays() {
+        return PICKUP_DAYS;
+    }
+
+    /**
+     * Drops the loan indexes, for loan writes whose effect is not known.
+     * Loan writes never change holds, so the hold queues are kept.
+     */
+    public static void invalidateAll() {
+        OVERDUE.invalidate();
+        ACTIVE_LOANS.invalidate();
+    }
+
+    public static List<CacheStats> getStats() {
+        return List.of(OVERDUE.getStats(), ACTIVE_LOANS.getStats(), HOLDS.getStats());
+    }
+
+    private static void tick() {
+        try {
+            OVERDUE.tick();
+        } catch (RuntimeException e) {
+            // Keep the thread alive; the next tick catches up
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean booleanProperty(Properties properties, String key) {
+        return !"false".equalsIgnoreCase(properties.getProperty(key, "true").trim());
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.alexandrialms.circulation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import com.alexandrialms.cache.CacheStats;
+
+/**
+ * FIFO queue of the {@code WAITING} holds of each book, used to pick the
+ * patron a returned copy goes to without scanning the holds table.
+ * <p>
+ * Books are spread over a fixed number of stripes, each with its own lock,
+ * so returns and new holds for different books do not wait for each other;
+ * only operations on books of the same stripe are serialized, and only for
+ * the few map operations they perform. The queue of a book is loaded from
+ * the database the first time it is needed, outside the stripe lock, and
+ * discarded if a hold of an unloaded book of the same stripe was written
+ * meanwhile; it is reloaded once older than the reload interval to pick up
+ * holds placed by other processes.
+ * </p>
+ * <p>
+ * The queue only says which hold to try next: {@code HoldDAO} locks the hold
+ * row and checks it is still waiting before assigning a copy to it, so a
+ * stale entry costs one extra query, never a wrong assignment. A hold taken
+ * with {@link #poll} belongs to the caller until it either assigns it or
+ * puts it back with {@link #requeue}. Reads return {@link #UNKNOWN} or
+ * {@code null} when the queue is disabled or could not be loaded; callers
+ * then query the database.
+ * </p>
+ */
+public class HoldQueues {
+
+    /** Returned by {@link #poll} when the queue of the book cannot be used. */
+    public static final int UNKNOWN = -1;
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Stripe[] stripes;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every read return {@link #UNKNOWN} or {@code null}
+     * @param ttlMillis age at which the queue of a book is reloaded; 0 means never
+     * @param stripes   number of locks the books are spread over
+     */
+    public HoldQueues(String name, boolean enabled, long ttlMillis, int stripes) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Queue TTL cannot be negative");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Removes and returns the oldest waiting hold of a book.
+     *
+     * @param loader reads the IDs of the book's waiting holds; returns
+     *               {@code null} on a database error
+     * @return the hold ID, 0 if no hold is waiting, or {@link #UNKNOWN}
+     */
+    public int poll(int bookId, IntFunction<int[]> loader) {
+        Stripe stripe = stripeOf(bookId);
+        long loadGeneration;
+        synchronized (stripe) {
+            if (!enabled) {
+                return UNKNOWN;
+            }
+            Queue queue = stripe.current(bookId);
+            if (queue != null) {
+                stripe.hits++;
+                return queue.pollFirst();
+            }
+            loadGeneration = stripe.generation;
+        }
+        Queue loaded = load(bookId, loader);
+        synchronized (stripe) {
+            Queue queue = stripe.install(bookId, loaded, loadGeneration);
+            return queue != null ? queue.pollFirst() : UNKNOWN;
+        }
+    }
+
+    /**
+     * @return the IDs of the waiting holds of a book, oldest first, or {@code null}
+     */
+    public int[] waitingHoldIds(int bookId, IntFunction<int[]> loader) {
+        Stripe stripe = stripeOf(bookId);
+        long loadGeneration;
+        synchronized (stripe) {
+            if (!enabled) {
+                return null;
+            }
+            Queue queue = stripe.current(bookId);
+            if (queue != null) {
+                stripe.hits++;
+                return queue.toArray();
+            }
+            loadGeneration = stripe.generation;
+        }
+        Queue loaded = load(bookId, loader);
+        synchronized (stripe) {
+            Queue queue = stripe.install(bookId, loaded, loadGeneration);
+            return queue != null ? queue.toArray() : null;
+        }
+    }
+
+    /**
+     * Puts back holds taken with {@link #poll} that were not assigned, in
+     * their place in the queue.
+     */
+    public void requeue(int bookId, Collection<Integer> holdIds) {
+        if (holdIds.isEmpty()) {
+            return;
+        }
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Queue queue = stripe.written(bookId);
+            if (queue != null) {
+                queue.holdIds.addAll(holdIds);
+            }
+        }
+    }
+
+    /**
+     * A new waiting hold.
+     */
+    public void holdPlaced(int bookId, int holdId) {
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Queue queue = stripe.written(bookId);
+            if (queue != null) {
+                queue.holdIds.add(holdId);
+            }
+        }
+    }
+
+    /**
+     * A hold that no longer waits: assigned a copy, cancelled or deleted.
+     */
+    public void holdRemoved(int bookId, int holdId) {
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Queue queue = stripe.written(bookId);
+            if (queue != null) {
+                queue.holdIds.remove(holdId);
+            }
+        }
+    }
+
+    /**
+     * Drops the queue of a book, for hold writes whose effect is not known.
+     */
+    public void invalidate(int bookId) {
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            stripe.generation++;
+            if (stripe.queues.remove(bookId) != null) {
+                stripe.invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Drops every queue; the next read of each book reloads it.
+     */
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.generation++;
+                stripe.invalidations += stripe.queues.size();
+                stripe.queues.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of waiting holds in the loaded queues
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Queue queue : stripe.queues.values()) {
+                    size += queue.holdIds.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the read counters summed over the stripes; reads answered from
+     * the database are reported as misses and queue reloads as expirations.
+     */
+    public CacheStats getStats() {
+        long hits = 0;
+        long misses = 0;
+        long reloads = 0;
+        long invalidations = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                hits += stripe.hits;
+                misses += stripe.misses;
+                reloads += stripe.reloads;
+                invalidations += stripe.invalidations;
+            }
+        }
+        return new CacheStats(name, size(), hits, misses, 0, reloads, invalidations);
+    }
+
+    private Stripe stripeOf(int bookId) {
+        // Spread consecutive book IDs, which tend to be read together, over different stripes
+        int hash = bookId * 0x9E3779B9;
+        return stripes[((hash >>> 16 ^ hash) & 0x7FFFFFFF) % stripes.length];
+    }
+
+    private static Queue load(int bookId, IntFunction<int[]> loader) {
+        int[] holdIds = loader.apply(bookId);
+        if (holdIds == null) {
+            return null;
+        }
+        Queue queue = new Queue(System.currentTimeMillis());
+        for (int holdId : holdIds) {
+            queue.holdIds.add(holdId);
+        }
+        return queue;
+    }
+
+    /**
+     * Queues of the books of one stripe. Guarded by its own monitor.
+     */
+    private final class Stripe {
+        private final Map<Integer, Queue> queues = new HashMap<>();
+        /**
+         * Incremented by writes to books without a current queue, whose
+         * queue may be loading, so a load that overlapped one is discarded.
+         * Writes to loaded queues are applied to them and leave other books
+         * of the stripe free to load.
+         */
+        private long generation;
+        private long hits;
+        private long misses;
+        private long reloads;
+        private long invalidations;
+
+        /**
+         * @return the queue of {@code bookId} if loaded and not expired
+         */
+        Queue current(int bookId) {
+            Queue queue = queues.get(bookId);
+            if (queue == null || ttlMillis > 0 && System.currentTimeMillis() - queue.loadedAt >= ttlMillis) {
+                return null;
+            }
+            return queue;
+        }
+
+        /**
+         * Called before a write to the queue of {@code bookId}.
+         *
+         * @return the queue to apply the write to, or {@code null} if there is none
+         */
+        Queue written(int bookId) {
+            Queue queue = current(bookId);
+            if (queue == null) {
+                generation++;
+            }
+            return queue;
+        }
+
+        /**
+         * Installs a queue loaded while the stripe was at {@code loadGeneration}.
+         *
+         * @return the queue now current for {@code bookId}, which is the one
+         *         another thread installed meanwhile, if any; {@code null},
+         *         counting a miss, if the load failed or a write happened
+         *         while loading
+         */
+        Queue install(int bookId, Queue loaded, long loadGeneration) {
+            Queue queue = current(bookId);
+            if (queue != null) {
+                hits++;
+                return queue;
+            }
+            if (loaded == null || generation != loadGeneration) {
+                misses++;
+                return null;
+            }
+            queues.put(bookId, loaded);
+            reloads++;
+            return loaded;
+        }
+    }
+
+    private static final class Queue {
+        /** Hold IDs grow with the time holds are placed, so ascending order is FIFO. */
+        private final TreeSet<Integer> holdIds = new TreeSet<>();
+        private final long loadedAt;
+
+        Queue(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * @return the oldest hold ID, removed from the queue, or 0 if empty
+         */
+        int pollFirst() {
+            Integer holdId = holdIds.pollFirst();
+            return holdId != null ? holdId : 0;
+        }
+
+        int[] toArray() {
+            int[] result = new int[holdIds.size()];
+            int i = 0;
+            for (Integer holdId : holdIds) {
+                result[i++] = holdId;
+            }
+            return result;
+        }
+    }
+}
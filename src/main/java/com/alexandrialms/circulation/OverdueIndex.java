@@ -0,0 +1,368 @@
+package com.alexandrialms.circulation;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.util.collections.IntBitmap;
+import com.alexandrialms.util.collections.LongIntHashMap;
+import com.alexandrialms.util.collections.TimingWheel;
+
+/**
+ * Open loans by due date, with the set of loans (and users) that are
+ * overdue today.
+ * <p>
+ * Each open loan is scheduled in a {@link TimingWheel} of days at the day
+ * after its due date. Moving the wheel to the current day fires exactly the
+ * loans that become overdue, which are added to the overdue sets and passed
+ * to the registered {@link Listener}s; listing the overdue loans then costs
+ * the size of the result, not a scan of the open loans. The wheel is moved
+ * on every read and by the ticker of {@link CirculationIndexes}.
+ * </p>
+ * <p>
+ * Complete like {@code AvailabilityIndex}: the first read loads every open
+ * loan with a due date, and {@code LoanDAO} reports checkouts, check-ins
+ * and renewals from then on. Generic loan writes drop the index and the
+ * next read reloads it, as does reaching the reload interval. Reads return
+ * {@code null} when the index is disabled or could not be loaded; callers
+ * then query the database.
+ * </p>
+ */
+public class OverdueIndex {
+
+    /**
+     * Notified once when a loan becomes overdue, after the index lock is
+     * released. Loans already overdue when the index is loaded are not
+     * reported.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void loanOverdue(int loanId, int userId, LocalDate dueDate);
+    }
+
+    /**
+     * Open loans as read by the loader; owned by the index once returned.
+     */
+    public static final class Snapshot {
+        private int[] loans = new int[64];
+        private int size;
+
+        public void addOpenLoan(int loanId, int userId, LocalDate dueDate) {
+            if (size + 3 > loans.length) {
+                loans = Arrays.copyOf(loans, loans.length * 2);
+            }
+            loans[size++] = loanId;
+            loans[size++] = userId;
+            loans[size++] = (int) dueDate.toEpochDay();
+        }
+    }
+
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private State state;
+    private long loadedAt;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private long invalidations;
+    private long transitions;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every read return {@code null}
+     * @param ttlMillis time before a full reload; 0 means never
+     */
+    public OverdueIndex(String name, boolean enabled, long ttlMillis) {
+        this(name, enabled, ttlMillis, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock gives the current day, which decides the overdue loans
+     */
+    public OverdueIndex(String name, boolean enabled, long ttlMillis, Clock clock) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Index TTL cannot be negative");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the IDs of the open loans whose due date has passed, ascending, or {@code null}
+     */
+    public int[] overdueLoanIds(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.overdueLoans.toArray());
+    }
+
+    /**
+     * @return the IDs of the users with an overdue loan, ascending, or {@code null}
+     */
+    public int[] overdueUserIds(Supplier<Snapshot> loader) {
+        return read(loader, s -> s.overdueUsers.toArray());
+    }
+
+    /**
+     * A checkout, or an open loan inserted with a due date.
+     */
+    public void loanOpened(int loanId, int userId, LocalDate dueDate) {
+        List<int[]> fired;
+        synchronized (this) {
+            generation++;
+            if (state == null) {
+                return;
+            }
+            fired = state.advanceTo(today());
+            state.userByLoan.put(loanId, userId, 0);
+            state.schedule(loanId, (int) dueDate.toEpochDay());
+        }
+        notifyOverdue(fired);
+    }
+
+    /**
+     * A check-in: the loan is no longer tracked, nor overdue.
+     */
+    public synchronized void loanClosed(int loanId) {
+        generation++;
+        if (state != null) {
+            state.close(loanId);
+        }
+    }
+
+    /**
+     * A renewal: the loan is due on {@code dueDate} instead.
+     */
+    public void dueDateChanged(int loanId, LocalDate dueDate) {
+        List<int[]> fired;
+        synchronized (this) {
+            generation++;
+            if (state == null) {
+                return;
+            }
+            if (!state.userByLoan.containsKey(loanId)) {
+                // Loan written by another process: reload everything
+                dropState();
+                return;
+            }
+            fired = state.advanceTo(today());
+            state.markReturnedOrRenewed(loanId);
+            state.schedule(loanId, (int) dueDate.toEpochDay());
+        }
+        notifyOverdue(fired);
+    }
+
+    /**
+     * Moves the index to the current day, notifying the loans that became
+     * overdue. Does nothing if the index is not loaded.
+     */
+    public void tick() {
+        List<int[]> fired;
+        synchronized (this) {
+            if (state == null) {
+                return;
+            }
+            fired = state.advanceTo(today());
+        }
+        notifyOverdue(fired);
+    }
+
+    /**
+     * Drops the index; the next read reloads it.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        dropState();
+    }
+
+    /**
+     * @return the number of open loans tracked, 0 if not loaded
+     */
+    public synchronized int size() {
+        return state == null ? 0 : state.userByLoan.size();
+    }
+
+    /**
+     * Returns the read counters; reads answered from the database are
+     * reported as misses, full reloads as expirations and loans that became
+     * overdue as evictions.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, size(), hits, misses, transitions, reloads, invalidations);
+    }
+
+    /**
+     * Runs {@code query} on the index moved to the current day, loading it
+     * with {@code loader} if needed. The loader runs outside the lock and
+     * returns {@code null} on failure.
+     */
+    private <T> T read(Supplier<Snapshot> loader, Function<State, T> query) {
+        long loadGeneration;
+        List<int[]> fired;
+        T result;
+        synchronized (this) {
+            if (!enabled) {
+                return null;
+            }
+            if (state != null && !isExpired()) {
+                hits++;
+                fired = state.advanceTo(today());
+                result = query.apply(state);
+            } else {
+                fired = null;
+                result = null;
+            }
+            loadGeneration = generation;
+        }
+        if (fired != null) {
+            notifyOverdue(fired);
+            return result;
+        }
+
+        Snapshot loaded = loader.get();
+        synchronized (this) {
+            if (loaded == null || generation != loadGeneration) {
+                // Load failed, or a write happened while loading; try again on the next read
+                misses++;
+                return null;
+            }
+            state = new State(loaded, today());
+            loadedAt = System.currentTimeMillis();
+            reloads++;
+            return query.apply(state);
+        }
+    }
+
+    private void notifyOverdue(List<int[]> fired) {
+        for (int[] loan : fired) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.loanOverdue(loan[0], loan[1], LocalDate.ofEpochDay(loan[2]));
+                } catch (RuntimeException e) {
+                    // One failing listener must not stop the others
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void dropState() {
+        if (state != null) {
+            invalidations++;
+        }
+        state = null;
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    /**
+     * Loaded index. Guarded by the {@link OverdueIndex} monitor.
+     */
+    private final class State {
+        private final LongIntHashMap userByLoan;
+        private final LongIntHashMap dueDayByLoan;
+        /** Fires each loan on the day after its due date. */
+        private final TimingWheel wheel;
+        private final IntBitmap overdueLoans = new IntBitmap();
+        private final IntBitmap overdueUsers = new IntBitmap();
+        private final LongIntHashMap overdueCountByUser = new LongIntHashMap();
+
+        State(Snapshot snapshot, long today) {
+            userByLoan = new LongIntHashMap(snapshot.size / 3);
+            dueDayByLoan = new LongIntHashMap(snapshot.size / 3);
+            wheel = new TimingWheel(today);
+            for (int i = 0; i < snapshot.size; i += 3) {
+                userByLoan.put(snapshot.loans[i], snapshot.loans[i + 1], 0);
+                schedule(snapshot.loans[i], snapshot.loans[i + 2]);
+            }
+        }
+
+        /**
+         * Tracks {@code loanId} as due on {@code dueDay}: overdue now if the
+         * day has passed, otherwise fired by the wheel the day after.
+         */
+        void schedule(int loanId, int dueDay) {
+            dueDayByLoan.put(loanId, dueDay, NONE);
+            if (!wheel.schedule(loanId, dueDay + 1L)) {
+                markOverdue(loanId);
+            }
+        }
+
+        void close(int loanId) {
+            markReturnedOrRenewed(loanId);
+            userByLoan.remove(loanId, 0);
+            dueDayByLoan.remove(loanId, NONE);
+        }
+
+        /**
+         * Removes {@code loanId} from the overdue sets; its pending firing,
+         * if any, becomes stale.
+         */
+        void markReturnedOrRenewed(int loanId) {
+            dueDayByLoan.remove(loanId, NONE);
+            if (!overdueLoans.remove(loanId)) {
+                return;
+            }
+            int userId = userByLoan.get(loanId, 0);
+            int count = overdueCountByUser.get(userId, 0) - 1;
+            if (count <= 0) {
+                overdueCountByUser.remove(userId, 0);
+                overdueUsers.remove(userId);
+            } else {
+                overdueCountByUser.put(userId, count, 0);
+            }
+        }
+
+        /**
+         * @return {@code {loanId, userId, dueDay}} of each loan that became overdue
+         */
+        List<int[]> advanceTo(long today) {
+            List<int[]> fired = new ArrayList<>();
+            wheel.advanceTo(today, (loanId, deadline) -> {
+                int dueDay = dueDayByLoan.get(loanId, NONE);
+                if (dueDay != NONE && dueDay + 1L == deadline && markOverdue(loanId)) {
+                    transitions++;
+                    fired.add(new int[] { loanId, userByLoan.get(loanId, 0), dueDay });
+                }
+            });
+            return fired;
+        }
+
+        private boolean markOverdue(int loanId) {
+            if (!overdueLoans.add(loanId)) {
+                return false;
+            }
+            int userId = userByLoan.get(loanId, 0);
+            overdueCountByUser.put(userId, overdueCountByUser.get(userId, 0) + 1, 0);
+            overdueUsers.add(userId);
+            return true;
+        }
+    }
+}
@@ -2,21 +2,33 @@ package com.alexandrialms.dao.impl;
 
 import com.alexandrialms.dao.interfaces.AuthorDAOInterface;
 import com.alexandrialms.model.Author;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.search.SearchIndexes;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.stats.LoanRankings;
+import com.alexandrialms.util.db.BatchWriter;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.StreamingQuery;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class AuthorDAO implements AuthorDAOInterface {
+
+    private final LoanDAO loanDAO = new LoanDAO();
+
     @Override
     public List<Author> findAll() {
         List<Author> authors = new ArrayList<>();
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -33,10 +45,24 @@ public class AuthorDAO implements AuthorDAOInterface {
         return authors;
     }
 
+    @Override
+    public Stream<Author> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT author_id, first_name, last_name, nationality, birth_date FROM authors", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     @Override
     public Author findById(Integer authorID) {
+        return CatalogueCache.authors().get(authorID, this::loadById);
+    }
+
+    private Author loadById(Integer authorID) {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors WHERE author_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, authorID);
@@ -57,7 +83,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public boolean insert(Author author) {
         String sql = "INSERT INTO Authors (first_name, last_name, nationality, birth_date) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, author.getFirstName());
@@ -79,6 +105,7 @@ public class AuthorDAO implements AuthorDAOInterface {
                     author.setAuthorID(generatedKeys.getInt(1));
                 }
             }
+            SearchIndexes.authorAdded(author.getAuthorID());
 
             return true;
 
@@ -93,7 +120,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public boolean update(Author author) {
         String sql = "UPDATE authors SET first_name = ?, last_name = ?, nationality = ?, birth_date = ? WHERE author_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, author.getFirstName());
@@ -103,6 +130,8 @@ public class AuthorDAO implements AuthorDAOInterface {
             pstm.setInt(5, author.getAuthorID());
 
             pstm.executeUpdate();
+            CatalogueCache.authors().invalidate(author.getAuthorID());
+            SearchIndexes.authorChanged(author.getAuthorID());
             return true;
 
         } catch (SQLException e) {
@@ -115,12 +144,15 @@ public class AuthorDAO implements AuthorDAOInterface {
     public boolean delete(Integer authorID) {
         String sql = "DELETE FROM authors WHERE author_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, authorID);
 
             pstm.executeUpdate();
+            CatalogueCache.authors().invalidate(authorID);
+            LibraryStatistics.loanRankings().invalidate();
+            SearchIndexes.authorChanged(authorID);
             return true;
 
         } catch (SQLException e) {
@@ -129,6 +161,59 @@ public class AuthorDAO implements AuthorDAOInterface {
         return false;
     }
 
+    @Override
+    public int insertAll(Collection<Author> authors) {
+        return insertAll(authors, BatchWriter.configuredBatchSize());
+    }
+
+    /**
+     * Batch insert; generated IDs are stored in each author. Authors that could
+     * not be inserted keep an ID of 0.
+     */
+    public int insertAll(Collection<Author> authors, int batchSize) {
+        String sql = "INSERT INTO authors (first_name, last_name, nationality, birth_date) VALUES (?, ?, ?, ?)";
+        int inserted = BatchWriter.insert(sql, authors, batchSize, (pstmt, author) -> {
+            pstmt.setString(1, author.getFirstName());
+            pstmt.setString(2, author.getLastName());
+            pstmt.setString(3, author.getNationality());
+            if (author.getBirthDate() != null) {
+                pstmt.setDate(4, Date.valueOf(author.getBirthDate()));
+            } else {
+                pstmt.setNull(4, Types.DATE);
+            }
+        }, Author::setAuthorID);
+        for (Author author : authors) {
+            if (author.getAuthorID() > 0) {
+                SearchIndexes.authorAdded(author.getAuthorID());
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateAll(Collection<Author> authors) {
+        String sql = "UPDATE authors SET first_name = ?, last_name = ?, nationality = ?, birth_date = ? WHERE author_id = ?";
+        boolean[] written = BatchWriter.update(sql, authors, BatchWriter.configuredBatchSize(), (pstm, author) -> {
+            pstm.setString(1, author.getFirstName());
+            pstm.setString(2, author.getLastName());
+            pstm.setString(3, author.getNationality());
+            if (author.getBirthDate() != null) {
+                pstm.setDate(4, Date.valueOf(author.getBirthDate()));
+            } else {
+                pstm.setNull(4, Types.DATE);
+            }
+            pstm.setInt(5, author.getAuthorID());
+        });
+        CatalogueCache.authors().invalidateAll();
+        int i = 0;
+        for (Author author : authors) {
+            if (written[i++]) {
+                SearchIndexes.authorChanged(author.getAuthorID());
+            }
+        }
+        return BatchWriter.count(written);
+    }
+
     Author mapResultSet(ResultSet rs) throws SQLException { // Visible a nivel de package para que BookDAO pueda usarlo
         Author author = new Author();
         author.setAuthorID(rs.getInt("author_id"));
@@ -149,7 +234,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors WHERE LOWER (last_name) LIKE LOWER (?)";
         List<Author> authors = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + lastName + "%");
@@ -171,7 +256,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM Authors WHERE LOWER (nationality) LIKE LOWER (?)";
         List<Author> authors = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + nationality + "%");
@@ -194,7 +279,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors WHERE LOWER (first_name) LIKE LOWER (?)";
         List<Author> authors = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + firstName + "%");
@@ -216,7 +301,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors WHERE LOWER(first_name) = LOWER(?) AND LOWER(last_name) = LOWER(?);";
         List<Author> authors = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, firstName.trim());
@@ -238,7 +323,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<Author> findByNameContaining(String name) {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors WHERE LOWER(first_name) LIKE LOWER(?) OR LOWER(last_name) LIKE LOWER(?);";
         List<Author> authors = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, "%" + name.trim() + "%");
             pstmt.setString(2, "%" + name.trim() + "%");
@@ -258,7 +343,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<Author> findByBirthYear(int year) {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors where YEAR(birth_date ) = ?;";
         List<Author> authors = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, year);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -278,7 +363,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<Author> findByBirthDateRange(LocalDate startDate, LocalDate endDate) {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM authors where birth_date BETWEEN ? AND ?;";
         List<Author> authors = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setDate(1, java.sql.Date.valueOf(startDate));
             pstmt.setDate(2, java.sql.Date.valueOf(endDate));
@@ -308,7 +393,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         List<Author> authors = new ArrayList<>();
         String searchPattern = "%" + searchTerm.trim() + "%";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, searchPattern);
@@ -330,7 +415,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<Author> findAuthorsWithBooks() {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM author_books_summary WHERE total_books > 0;";
         List<Author> authors = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstmt = conn.prepareStatement(sql);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -348,7 +433,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<Author> findAuthorsWithMoreThanXBooks(int minBooks) {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date FROM author_books_summary WHERE total_books >= ?;";
         List<Author> authors = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, minBooks);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -373,7 +458,7 @@ public class AuthorDAO implements AuthorDAOInterface {
                 "FROM author_books_summary WHERE total_books > 0 " +
                 "ORDER BY total_books DESC LIMIT ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, limit);
@@ -391,13 +476,75 @@ public class AuthorDAO implements AuthorDAOInterface {
         }
     }
 
+    /**
+     * Authors whose books have the most loans in {@code window}, most
+     * borrowed first and ties by {@code author_id}. A loan of a book with
+     * several authors counts for each of them. Served from the
+     * {@link LoanRankings} when they are loaded.
+     */
+    @Override
+    public List<Author> findMostBorrowedAuthors(int limit, PopularityWindow window) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        int[] authorIds = LibraryStatistics.loanRankings().topAuthors(window, limit,
+                loanDAO::loadRankingSnapshot);
+        if (authorIds == null) {
+            return loadMostBorrowedAuthors(limit, window);
+        }
+        List<Author> authors = new ArrayList<>(authorIds.length);
+        for (int authorId : authorIds) {
+            Author author = findById(authorId);
+            if (author != null) {
+                authors.add(author);
+            }
+        }
+        return authors;
+    }
+
+    private List<Author> loadMostBorrowedAuthors(int limit, PopularityWindow window) {
+        LocalDate from = window.startingFrom(LocalDate.now());
+        String sql = "SELECT a.author_id, a.first_name, a.last_name, a.nationality, a.birth_date, " +
+                "COUNT(l.loan_id) AS loan_count " +
+                "FROM authors a " +
+                "JOIN book_author ba ON a.author_id = ba.author_id " +
+                "JOIN copies c ON ba.book_id = c.book_id " +
+                "JOIN loans l ON c.copy_id = l.copy_id " +
+                (from == null ? "" : "WHERE l.loan_date >= ? ") +
+                "GROUP BY a.author_id, a.first_name, a.last_name, a.nationality, a.birth_date " +
+                "ORDER BY loan_count DESC, a.author_id LIMIT ?";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (from != null) {
+                pstmt.setDate(index++, Date.valueOf(from));
+            }
+            pstmt.setInt(index, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Author> authors = new ArrayList<>();
+                while (rs.next()) {
+                    authors.add(mapResultSet(rs));
+                }
+                return authors;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
     @Override
     public int deleteAuthorsWithNoBooks() {
         String sql = "DELETE FROM authors WHERE author_id IN (SELECT author_id FROM author_books_summary WHERE total_books = 0)";
         int affectedRows = 0;
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstmt = conn.prepareStatement(sql);
             affectedRows = pstmt.executeUpdate();
+            CatalogueCache.authors().invalidateAll();
+            SearchIndexes.allAuthorsChanged();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -420,13 +567,14 @@ public class AuthorDAO implements AuthorDAOInterface {
 
         String sql = "UPDATE authors SET nationality = ? WHERE LOWER(nationality) = LOWER(?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, newNationality.trim());
             pstmt.setString(2, oldNationality.trim());
 
             int affectedRows = pstmt.executeUpdate();
+            CatalogueCache.authors().invalidateAll();
             return affectedRows;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -443,7 +591,7 @@ public class AuthorDAO implements AuthorDAOInterface {
 
         String sql = "SELECT 1 FROM authors WHERE LOWER(first_name) = LOWER(?) AND LOWER(last_name) = LOWER(?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, firstName.trim());
@@ -459,6 +607,19 @@ public class AuthorDAO implements AuthorDAOInterface {
         }
     }
 
+    @Override
+    public int countAllAuthors() {
+        String sql = "SELECT COUNT(*) as author_count FROM authors";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt("author_count") : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
     @Override
     public int countByNationality(String nationality) {
         try {
@@ -468,7 +629,7 @@ public class AuthorDAO implements AuthorDAOInterface {
 
             String sql = "SELECT COUNT(*) as author_count FROM authors WHERE LOWER(nationality) = LOWER(?)";
 
-            try (Connection conn = DBConnection.getConnection();
+            try (Connection conn = ConnectionProvider.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
                 pstmt.setString(1, nationality.trim());
@@ -487,7 +648,7 @@ public class AuthorDAO implements AuthorDAOInterface {
     public List<String> findAllNationalities() {
         String sql = "SELECT DISTINCT nationality FROM authors WHERE nationality IS NOT NULL ORDER BY nationality";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql);
                 ResultSet rs = pstmt.executeQuery()) {
 
@@ -512,7 +673,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date " +
                 "FROM authors WHERE birth_date < ? ORDER BY birth_date DESC";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setDate(1, java.sql.Date.valueOf(date));
@@ -540,7 +701,7 @@ public class AuthorDAO implements AuthorDAOInterface {
         String sql = "SELECT author_id, first_name, last_name, nationality, birth_date " +
                 "FROM authors WHERE birth_date > ? ORDER BY birth_date ASC";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setDate(1, java.sql.Date.valueOf(date));
@@ -567,7 +728,7 @@ public class AuthorDAO implements AuthorDAOInterface {
                 "FROM authors WHERE birth_date IS NOT NULL AND birth_date > ? " +
                 "ORDER BY birth_date DESC";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setDate(1, java.sql.Date.valueOf(cutoffDate));
@@ -1,24 +1,45 @@
 package com.alexandrialms.dao.impl;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import com.alexandrialms.dao.interfaces.BookDAOInterface;
 import com.alexandrialms.model.Author;
 import com.alexandrialms.model.Book;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.model.CopyStatus;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.cache.AvailabilityIndex;
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.cache.IsbnIndex;
+import com.alexandrialms.search.SearchIndexes;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.stats.LoanRankings;
+import com.alexandrialms.util.IsbnParser;
+import com.alexandrialms.util.collections.LongIntHashMap;
+import com.alexandrialms.util.db.BatchWriter;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
+import com.alexandrialms.util.db.UncheckedSQLException;
 
 public class BookDAO implements BookDAOInterface {
 
     private final AuthorDAO authorDAO = new AuthorDAO();
+    private final LoanDAO loanDAO = new LoanDAO();
 
     @Override
     public List<Book> findAll() {
         List<Book> books = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement statement = conn.createStatement();
                 ResultSet rs = statement
                         .executeQuery("SELECT book_id, title, isbn, publication_year, category_id FROM books;");) {
@@ -31,11 +52,25 @@ public class BookDAO implements BookDAOInterface {
         return books;
     }
 
+    @Override
+    public Stream<Book> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT book_id, title, isbn, publication_year, category_id FROM books", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     @Override
     public Book findById(Integer bookID) {
+        return CatalogueCache.books().get(bookID, this::loadById);
+    }
+
+    private Book loadById(Integer bookID) {
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where book_id = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookID);
             ResultSet rs = pstm.executeQuery();
@@ -50,14 +85,21 @@ public class BookDAO implements BookDAOInterface {
 
     @Override
     public boolean insert(Book book) {
-        String sql = "INSERT INTO books (title, isbn, publication_year, category_id) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-                PreparedStatement pstm = conn.prepareStatement(sql);) {
-            pstm.setString(1, book.getTitle());
-            pstm.setString(2, book.getIsbn());
-            pstm.setInt(3, book.getPubYear());
-            pstm.setInt(4, book.getCategoryId());
+        String sql = "INSERT INTO books (title, isbn, isbn13, publication_year, category_id) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);) {
+            bindBook(pstm, book);
             pstm.executeUpdate();
+            try (ResultSet keys = pstm.getGeneratedKeys()) {
+                if (keys.next()) {
+                    book.setBookID(keys.getInt(1));
+                    indexIsbn(book);
+                    CatalogueCache.availability().bookAdded(book.getBookID());
+                    LibraryStatistics.bookAdded(book);
+                    LibraryStatistics.loanRankings().bookWritten(book.getBookID(), book.getCategoryId());
+                    SearchIndexes.bookChanged(book.getBookID());
+                }
+            }
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -67,16 +109,20 @@ public class BookDAO implements BookDAOInterface {
 
     @Override
     public boolean update(Book book) {
-        String sql = "UPDATE Book SET title = ?, isbn = ?, publication_year = ?, category_id = ? WHERE book_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "UPDATE books SET title = ?, isbn = ?, isbn13 = ?, publication_year = ?, category_id = ? WHERE book_id = ?;";
+        Book before = findById(book.getBookID());
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
-            pstm.setString(1, book.getTitle());
-            pstm.setString(2, book.getIsbn());
-            pstm.setInt(3, book.getPubYear());
-            pstm.setInt(4, book.getCategoryId());
-            pstm.setInt(5, book.getBookID());
+            bindBook(pstm, book);
+            pstm.setInt(6, book.getBookID());
 
-            pstm.executeUpdate();
+            if (pstm.executeUpdate() > 0) {
+                LibraryStatistics.bookChanged(before, book);
+                LibraryStatistics.loanRankings().bookWritten(book.getBookID(), book.getCategoryId());
+            }
+            CatalogueCache.books().invalidate(book.getBookID());
+            indexIsbn(book);
+            SearchIndexes.bookChanged(book.getBookID());
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -87,10 +133,16 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public boolean delete(Integer bookID) {
         String sql = "DELETE FROM books WHERE book_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        Book before = findById(bookID);
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookID);
-            pstm.executeUpdate();
+            if (pstm.executeUpdate() > 0 && before != null) {
+                LibraryStatistics.bookRemoved(before);
+            }
+            CatalogueCache.books().invalidate(bookID);
+            CatalogueCache.availability().bookRemoved(bookID);
+            SearchIndexes.bookChanged(bookID);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -98,6 +150,72 @@ public class BookDAO implements BookDAOInterface {
         return false;
     }
 
+    @Override
+    public int insertAll(Collection<Book> books) {
+        return insertAll(books, BatchWriter.configuredBatchSize());
+    }
+
+    /**
+     * Batch insert; generated IDs are stored in each book. Books that could not
+     * be inserted keep an ID of 0.
+     */
+    public int insertAll(Collection<Book> books, int batchSize) {
+        String sql = "INSERT INTO books (title, isbn, isbn13, publication_year, category_id) VALUES (?, ?, ?, ?, ?)";
+        int inserted = BatchWriter.insert(sql, books, batchSize, BookDAO::bindBook, Book::setBookID);
+        for (Book book : books) {
+            if (book.getBookID() > 0) {
+                indexIsbn(book);
+                CatalogueCache.availability().bookAdded(book.getBookID());
+                LibraryStatistics.bookAdded(book);
+                LibraryStatistics.loanRankings().bookWritten(book.getBookID(), book.getCategoryId());
+                SearchIndexes.bookChanged(book.getBookID());
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateAll(Collection<Book> books) {
+        return updateAll(books, BatchWriter.configuredBatchSize());
+    }
+
+    public int updateAll(Collection<Book> books, int batchSize) {
+        return BatchWriter.count(updateEach(books, batchSize));
+    }
+
+    /**
+     * Batch update reporting each book.
+     *
+     * @return whether each book was updated, in the iteration order of {@code books}
+     */
+    public boolean[] updateEach(Collection<Book> books) {
+        return updateEach(books, BatchWriter.configuredBatchSize());
+    }
+
+    public boolean[] updateEach(Collection<Book> books, int batchSize) {
+        String sql = "UPDATE books SET title = ?, isbn = ?, isbn13 = ?, publication_year = ?, category_id = ? WHERE book_id = ?";
+        List<Integer> bookIds = new ArrayList<>(books.size());
+        for (Book book : books) {
+            bookIds.add(book.getBookID());
+        }
+        Map<Integer, Book> before = findByIds(bookIds);
+        boolean[] written = BatchWriter.update(sql, books, batchSize, (pstm, book) -> {
+            bindBook(pstm, book);
+            pstm.setInt(6, book.getBookID());
+        });
+        CatalogueCache.invalidateAllBooks();
+        int i = 0;
+        for (Book book : books) {
+            if (written[i++]) {
+                LibraryStatistics.bookChanged(before.get(book.getBookID()), book);
+                LibraryStatistics.loanRankings().bookWritten(book.getBookID(), book.getCategoryId());
+                indexIsbn(book);
+                SearchIndexes.bookChanged(book.getBookID());
+            }
+        }
+        return written;
+    }
+
     private Book mapResultSet(ResultSet rs) throws SQLException {
         Book book = new Book();
         book.setBookID(rs.getInt("book_id"));
@@ -109,11 +227,139 @@ public class BookDAO implements BookDAOInterface {
         return book;
     }
 
+    /**
+     * Binds title, isbn, isbn13, publication year and category (parameters 1-5).
+     * {@code isbn13} is the canonical key from {@link IsbnParser}, or NULL when
+     * the ISBN does not parse.
+     */
+    private static void bindBook(PreparedStatement pstm, Book book) throws SQLException {
+        pstm.setString(1, book.getTitle());
+        pstm.setString(2, book.getIsbn());
+        long isbn13 = IsbnParser.parse(book.getIsbn());
+        if (isbn13 != IsbnParser.INVALID) {
+            pstm.setLong(3, isbn13);
+        } else {
+            pstm.setNull(3, Types.BIGINT);
+        }
+        pstm.setInt(4, book.getPubYear());
+        pstm.setInt(5, book.getCategoryId());
+    }
+
+    private static void indexIsbn(Book book) {
+        long isbn13 = IsbnParser.parse(book.getIsbn());
+        if (isbn13 != IsbnParser.INVALID) {
+            CatalogueCache.isbnIndex().put(isbn13, book.getBookID());
+        }
+    }
+
+    /**
+     * Finds a book by ISBN in any accepted notation: "978-84-376-0494-7",
+     * "9788437604947" and the ISBN-10 "84-376-0494-X" all find the same row
+     * through the {@code isbn13} key. Input that does not parse falls back to
+     * an exact match on the {@code isbn} column.
+     */
     @Override
     public Book findByISBN(String isbn) {
+        long isbn13 = IsbnParser.parse(isbn);
+        if (isbn13 == IsbnParser.INVALID) {
+            return isbn == null ? null : loadByISBN(isbn);
+        }
+        return findByIsbn13(isbn13);
+    }
+
+    /**
+     * Finds a book by its packed ISBN-13 key. Answered from the in-memory
+     * {@code IsbnIndex} when it is loaded, so unknown ISBNs cost no query.
+     */
+    public Book findByIsbn13(long isbn13) {
+        int bookID = CatalogueCache.isbnIndex().lookup(isbn13, this::loadIsbnIndex);
+        if (bookID == IsbnIndex.NOT_FOUND) {
+            return null;
+        }
+        if (bookID != IsbnIndex.UNKNOWN) {
+            Book book = findById(bookID);
+            if (book != null && IsbnParser.parse(book.getIsbn()) == isbn13) {
+                return book;
+            }
+            // El ISBN cambió o el libro se borró: la entrada del índice ya no vale
+            CatalogueCache.isbnIndex().remove(isbn13, bookID);
+        }
+        Book book = loadByIsbn13(isbn13);
+        if (book != null) {
+            CatalogueCache.isbnIndex().put(isbn13, book.getBookID());
+        }
+        return book;
+    }
+
+    private Book loadByIsbn13(long isbn13) {
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id FROM books WHERE isbn13 = ? ORDER BY book_id LIMIT 1;";
+        try (
+                Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql);) {
+            pstm.setLong(1, isbn13);
+            ResultSet rs = pstm.executeQuery();
+            if (rs.next()) {
+                return mapResultSet(rs);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Reads every {@code (isbn13, book_id)} pair for the {@code IsbnIndex}.
+     *
+     * @return the index contents, or {@code null} on a database error
+     */
+    private LongIntHashMap loadIsbnIndex() {
+        String sql = "SELECT isbn13, book_id FROM books WHERE isbn13 IS NOT NULL ORDER BY book_id DESC";
+        LongIntHashMap index = new LongIntHashMap(1024);
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    // Descending order: with duplicated ISBNs the lowest book_id wins, as in loadByIsbn13
+                    index.put(rs.getLong(1), rs.getInt(2), IsbnIndex.NOT_FOUND);
+                }
+            }
+            return index;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Fills {@code isbn13} for rows written before the column existed (or with
+     * a NULL key). Rows whose ISBN does not parse are left NULL.
+     *
+     * @return number of rows updated
+     */
+    public int backfillIsbn13() {
+        List<Book> pending = new ArrayList<>();
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id FROM books WHERE isbn13 IS NULL";
+        try (Stream<Book> rows = StreamingQuery.stream(sql, this::mapResultSet)) {
+            rows.filter(book -> IsbnParser.isValid(book.getIsbn())).forEach(pending::add);
+        } catch (SQLException | UncheckedSQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+        String update = "UPDATE books SET isbn13 = ? WHERE book_id = ?";
+        int updated = BatchWriter.count(BatchWriter.update(update, pending, BatchWriter.configuredBatchSize(), (pstm, book) -> {
+            pstm.setLong(1, IsbnParser.parse(book.getIsbn()));
+            pstm.setInt(2, book.getBookID());
+        }));
+        CatalogueCache.isbnIndex().invalidate();
+        return updated;
+    }
+
+    private Book loadByISBN(String isbn) {
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where isbn = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, isbn);
             ResultSet rs = pstm.executeQuery();
@@ -131,7 +377,7 @@ public class BookDAO implements BookDAOInterface {
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where LOWER(title) LIKE LOWER(?);";
         List<Book> books = new ArrayList<>();
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, "%" + partialTitle + "%");
             ResultSet rs = pstm.executeQuery();
@@ -149,7 +395,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where publication_year = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, year);
             ResultSet rs = pstm.executeQuery();
@@ -168,7 +414,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where publication_year BETWEEN ? AND ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, startYear);
             pstm.setInt(2, endYear);
@@ -188,7 +434,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where category_id = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, categoryId);
             ResultSet rs = pstm.executeQuery();
@@ -212,7 +458,7 @@ public class BookDAO implements BookDAOInterface {
                 WHERE LOWER(c.name) = LOWER(?);
                 """;
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, categoryName);
             ResultSet rs = pstm.executeQuery();
@@ -231,7 +477,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where LOWER(title) LIKE LOWER(?) OR LOWER(isbn) LIKE LOWER(?);";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             String likeTerm = "%" + searchTerm + "%";
             pstm.setString(1, likeTerm);
@@ -252,7 +498,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where LOWER(title) LIKE LOWER(?) AND publication_year = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, "%" + title + "%");
             pstm.setInt(2, year);
@@ -272,7 +518,7 @@ public class BookDAO implements BookDAOInterface {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where category_id = ? AND publication_year = ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, categoryId);
             pstm.setInt(2, year);
@@ -291,9 +537,9 @@ public class BookDAO implements BookDAOInterface {
     public List<Book> findByTitlePaginated(String partialTitle, int limit, int offset) {// Usar LIMIT y OFFSET para
                                                                                         // paginación
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where LOWER(title) LIKE LOWER(?) LIMIT ? OFFSET ?;";
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where LOWER(title) LIKE LOWER(?) ORDER BY title, book_id LIMIT ? OFFSET ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, "%" + partialTitle + "%");
             pstm.setInt(2, limit);
@@ -312,9 +558,9 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public List<Book> findByCategoryPaginated(int categoryId, int limit, int offset) {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where category_id = ? LIMIT ? OFFSET ?;";
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books where category_id = ? ORDER BY book_id LIMIT ? OFFSET ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, categoryId);
             pstm.setInt(2, limit);
@@ -333,9 +579,9 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public List<Book> findAllPaginated(int limit, int offset) {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books LIMIT ? OFFSET ?;";
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id from books ORDER BY book_id LIMIT ? OFFSET ?;";
         try (
-                Connection conn = DBConnection.getConnection();
+                Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, limit);
             pstm.setInt(2, offset);
@@ -350,10 +596,87 @@ public class BookDAO implements BookDAOInterface {
         return books;
     }
 
+    @Override
+    public List<Book> findAllAfter(int afterBookId, int limit) {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id FROM books WHERE book_id > ? ORDER BY book_id LIMIT ?;";
+        try (
+                Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql);) {
+            pstm.setInt(1, afterBookId);
+            pstm.setInt(2, limit);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                books.add(mapResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+
+        }
+        return books;
+    }
+
+    @Override
+    public List<Book> findByTitleAfter(String partialTitle, String afterTitle, int afterBookId, int limit) {
+        List<Book> books = new ArrayList<>();
+        String firstPage = """
+                SELECT book_id, title, isbn, publication_year, category_id FROM books
+                WHERE LOWER(title) LIKE LOWER(?)
+                ORDER BY title, book_id LIMIT ?;
+                """;
+        String nextPage = """
+                SELECT book_id, title, isbn, publication_year, category_id FROM books
+                WHERE LOWER(title) LIKE LOWER(?)
+                AND (title > ? OR (title = ? AND book_id > ?))
+                ORDER BY title, book_id LIMIT ?;
+                """;
+        try (
+                Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(afterTitle == null ? firstPage : nextPage);) {
+            int i = 1;
+            pstm.setString(i++, "%" + partialTitle + "%");
+            if (afterTitle != null) {
+                pstm.setString(i++, afterTitle);
+                pstm.setString(i++, afterTitle);
+                pstm.setInt(i++, afterBookId);
+            }
+            pstm.setInt(i, limit);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                books.add(mapResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+
+        }
+        return books;
+    }
+
+    @Override
+    public List<Book> findByCategoryAfter(int categoryId, int afterBookId, int limit) {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT book_id, title, isbn, publication_year, category_id FROM books WHERE category_id = ? AND book_id > ? ORDER BY book_id LIMIT ?;";
+        try (
+                Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql);) {
+            pstm.setInt(1, categoryId);
+            pstm.setInt(2, afterBookId);
+            pstm.setInt(3, limit);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                books.add(mapResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+
+        }
+        return books;
+    }
+
     @Override
     public int countBooksByCategory(int categoryId) {
         String sql = "SELECT COUNT(*) AS cuenta FROM books WHERE category_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, categoryId);
             ResultSet rs = pstm.executeQuery();
@@ -369,7 +692,7 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public int countBooksByPublicationYear(int year) {
         String sql = "SELECT COUNT(*) AS cuenta FROM books WHERE publication_year = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, year);
             ResultSet rs = pstm.executeQuery();
@@ -382,8 +705,24 @@ public class BookDAO implements BookDAOInterface {
         return 0;
     }
 
+    /**
+     * Served from the counters in {@link LibraryStatistics}, kept current by
+     * the writes of this DAO; the query below only runs to load and
+     * reconcile them.
+     */
     @Override
     public Map<Integer, Integer> getBooksCountByYear() {
+        Map<Integer, Integer> counts = LibraryStatistics.booksByYear().read(this::loadBooksCountByYear);
+        return counts == null ? new HashMap<>() : counts;
+    }
+
+    @Override
+    public Map<Integer, Integer> getBooksCountByCategory() {
+        Map<Integer, Integer> counts = LibraryStatistics.booksByCategory().read(this::loadBooksCountByCategory);
+        return counts == null ? new HashMap<>() : counts;
+    }
+
+    private Map<Integer, Integer> loadBooksCountByYear() {
         Map<Integer, Integer> booksMap = new HashMap<>();
         String sql = """
                 SELECT publication_year, COUNT(*) libros
@@ -392,7 +731,7 @@ public class BookDAO implements BookDAOInterface {
                 ORDER BY 1;
                 """;
         ;
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstm = conn.prepareStatement(sql);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -400,12 +739,12 @@ public class BookDAO implements BookDAOInterface {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return booksMap;
     }
 
-    @Override
-    public Map<Integer, Integer> getBooksCountByCategory() {
+    private Map<Integer, Integer> loadBooksCountByCategory() {
         Map<Integer, Integer> booksMap = new HashMap<>();
         String sql = """
                 SELECT category_id, COUNT(*) libros
@@ -413,7 +752,7 @@ public class BookDAO implements BookDAOInterface {
                 GROUP BY category_id
                 ORDER BY 1;
                 """;
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = ConnectionProvider.getConnection()) {
             PreparedStatement pstm = conn.prepareStatement(sql);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -421,27 +760,165 @@ public class BookDAO implements BookDAOInterface {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return booksMap;
     }
 
+    /**
+     * Books with at least one copy that is {@code AVAILABLE} and not on loan,
+     * in {@code book_id} order. Served from the {@link AvailabilityIndex}
+     * when it is loaded.
+     */
     @Override
     public List<Book> findAvailableBooks() {
+        int[] bookIds = CatalogueCache.availability().availableBookIds(this::loadAvailabilitySnapshot);
+        return bookIds == null ? loadAvailableBooks() : findInOrder(bookIds);
+    }
+
+    /**
+     * Books with no copy that can be lent right now, including books with no
+     * copies, in {@code book_id} order.
+     */
+    @Override
+    public List<Book> findUnavailableBooks() {
+        int[] bookIds = CatalogueCache.availability().unavailableBookIds(this::loadAvailabilitySnapshot);
+        return bookIds == null ? loadUnavailableBooks() : findInOrder(bookIds);
+    }
+
+    @Override
+    public int getAvailableCopiesCount(int bookId) {
+        int count = CatalogueCache.availability().availableCopies(bookId, this::loadAvailabilitySnapshot);
+        return count == AvailabilityIndex.UNKNOWN ? loadAvailableCopiesCount(bookId) : count;
+    }
+
+    @Override
+    public int getTotalCopiesCount(int bookId) {
+        int count = CatalogueCache.availability().totalCopies(bookId, this::loadAvailabilitySnapshot);
+        return count == AvailabilityIndex.UNKNOWN ? loadTotalCopiesCount(bookId) : count;
+    }
+
+    @Override
+    public Map<Integer, Integer> getAvailableCopiesCounts(Collection<Integer> bookIds) {
+        Map<Integer, Integer> counts = CatalogueCache.availability().availableCopies(bookIds,
+                this::loadAvailabilitySnapshot);
+        return counts == null ? loadAvailableCopiesCounts(bookIds) : counts;
+    }
+
+    @Override
+    public Map<Integer, Book> findByIds(Collection<Integer> bookIds) {
+        Map<Integer, Book> books = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer bookId : bookIds) {
+            if (bookId == null || books.containsKey(bookId)) {
+                continue;
+            }
+            Book cached = CatalogueCache.books().peek(bookId);
+            if (cached != null) {
+                books.put(bookId, cached);
+            } else {
+                missing.add(bookId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return books;
+        }
+
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(missing)) {
+                String sql = "SELECT book_id, title, isbn, publication_year, category_id FROM books WHERE book_id IN ("
+                        + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstm.executeQuery();
+                    while (rs.next()) {
+                        Book book = mapResultSet(rs);
+                        books.put(book.getBookID(), book);
+                        CatalogueCache.books().get(book.getBookID(), id -> book);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return books;
+    }
+
+    private List<Book> findInOrder(int[] bookIds) {
+        List<Integer> ids = new ArrayList<>(bookIds.length);
+        for (int bookId : bookIds) {
+            ids.add(bookId);
+        }
+        Map<Integer, Book> found = findByIds(ids);
+        List<Book> books = new ArrayList<>(found.size());
+        for (Integer bookId : ids) {
+            Book book = found.get(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Reads every book, copy and open loan for the {@code AvailabilityIndex}.
+     *
+     * @return the index contents, or {@code null} on a database error
+     */
+    private AvailabilityIndex.Snapshot loadAvailabilitySnapshot() {
+        AvailabilityIndex.Snapshot snapshot = new AvailabilityIndex.Snapshot();
+        String booksSql = "SELECT book_id FROM books";
+        String copiesSql = """
+                SELECT c.copy_id, c.book_id, c.status,
+                EXISTS (SELECT 1 FROM loans l WHERE l.copy_id = c.copy_id AND l.returned = false) AS on_loan
+                FROM copies c
+                """;
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            try (PreparedStatement pstm = conn.prepareStatement(booksSql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addBook(rs.getInt(1));
+                    }
+                }
+            }
+            try (PreparedStatement pstm = conn.prepareStatement(copiesSql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addCopy(rs.getInt("copy_id"), rs.getInt("book_id"),
+                                CopyStatus.valueOf(rs.getString("status")), rs.getBoolean("on_loan"));
+                    }
+                }
+            }
+            return snapshot;
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private List<Book> loadAvailableBooks() {
         List<Book> books = new ArrayList<>();
         String sql = """
                 SELECT b.book_id, b.title, b.isbn, b.publication_year, b.category_id
                 FROM books b
                 WHERE EXISTS (
                 SELECT 1 FROM copies c
-                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.return_date IS NULL
-                WHERE c.book_id = b.book_id AND l.loan_id IS NULL
-                );
+                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.returned = false
+                WHERE c.book_id = b.book_id AND c.status = 'AVAILABLE' AND l.loan_id IS NULL
+                )
+                ORDER BY b.book_id;
                 """;// En esta sentencia uso el 1 en el SELECT porque no me interesa seleccionar
                     // ningun campo
                     // concreto, solo ver si existe alguna fila que cumpla la condición.Y el left join
                     // es para que me traiga todas las copias, aunque no tengan prestamos asociados.
         try (
-                Connection conn = DBConnection.getConnection();) {
+                Connection conn = ConnectionProvider.getConnection();) {
             PreparedStatement pstm = conn.prepareStatement(sql);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -453,23 +930,23 @@ public class BookDAO implements BookDAOInterface {
         return books;
     }
 
-    @Override
-    public List<Book> findUnavailableBooks() {
+    private List<Book> loadUnavailableBooks() {
         List<Book> books = new ArrayList<>();
         String sql = """
                 SELECT b.book_id, b.title, b.isbn, b.publication_year, b.category_id
                 FROM books b
                 WHERE NOT EXISTS (
                 SELECT 1 FROM copies c
-                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.return_date IS NULL
-                WHERE c.book_id = b.book_id AND l.loan_id IS NULL
-                );
+                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.returned = false
+                WHERE c.book_id = b.book_id AND c.status = 'AVAILABLE' AND l.loan_id IS NULL
+                )
+                ORDER BY b.book_id;
                 """;// En esta sentencia uso el 1 en el SELECT porque no me interesa seleccionar
                     // ningun campo
                     // concreto, solo ver si existe alguna fila que cumpla la condición. Y el left join
                     // es para que me traiga todas las copias, aunque no tengan prestamos asociados.
         try (
-                Connection conn = DBConnection.getConnection();) {
+                Connection conn = ConnectionProvider.getConnection();) {
             PreparedStatement pstm = conn.prepareStatement(sql);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -481,15 +958,14 @@ public class BookDAO implements BookDAOInterface {
         return books;
     }
 
-    @Override
-    public int getAvailableCopiesCount(int bookId) {
+    private int loadAvailableCopiesCount(int bookId) {
         String sql = """
                 SELECT COUNT(*) AS available_count
                 FROM copies c
-                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.return_date IS NULL
-                WHERE c.book_id = ? AND l.loan_id IS NULL;
+                LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.returned = false
+                WHERE c.book_id = ? AND c.status = 'AVAILABLE' AND l.loan_id IS NULL;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             ResultSet rs = pstm.executeQuery();
@@ -502,10 +978,9 @@ public class BookDAO implements BookDAOInterface {
         return 0;
     }
 
-    @Override
-    public int getTotalCopiesCount(int bookId) {
+    private int loadTotalCopiesCount(int bookId) {
         String sql = "SELECT COUNT(*) AS total_count FROM copies WHERE book_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             ResultSet rs = pstm.executeQuery();
@@ -518,21 +993,81 @@ public class BookDAO implements BookDAOInterface {
         return 0;
     }
 
+    private Map<Integer, Integer> loadAvailableCopiesCounts(Collection<Integer> bookIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Integer bookId : bookIds) {
+            if (bookId != null) {
+                counts.put(bookId, 0);
+            }
+        }
+        if (counts.isEmpty()) {
+            return counts;
+        }
+
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(counts.keySet())) {
+                String sql = """
+                        SELECT c.book_id, COUNT(*) AS available_count
+                        FROM copies c
+                        LEFT JOIN loans l ON c.copy_id = l.copy_id AND l.returned = false
+                        WHERE c.book_id IN (%s) AND c.status = 'AVAILABLE' AND l.loan_id IS NULL
+                        GROUP BY c.book_id;
+                        """.formatted(InClause.placeholders(chunk.size()));
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstm.executeQuery();
+                    while (rs.next()) {
+                        counts.put(rs.getInt("book_id"), rs.getInt("available_count"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return counts;
+    }
+
     @Override
     public List<Book> findMostBorrowedBooks(int limit) {
+        return findMostBorrowedBooks(limit, PopularityWindow.ALL_TIME);
+    }
+
+    /**
+     * Books with the most loans in {@code window}, most borrowed first and
+     * ties by {@code book_id}. Served from the {@link LoanRankings} when they
+     * are loaded.
+     */
+    @Override
+    public List<Book> findMostBorrowedBooks(int limit, PopularityWindow window) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int[] bookIds = LibraryStatistics.loanRankings().topBooks(window, limit, loanDAO::loadRankingSnapshot);
+        return bookIds == null ? loadMostBorrowedBooks(limit, window) : findInOrder(bookIds);
+    }
+
+    private List<Book> loadMostBorrowedBooks(int limit, PopularityWindow window) {
         List<Book> books = new ArrayList<>();
+        LocalDate from = window.startingFrom(LocalDate.now());
         String sql = """
                 SELECT b.book_id, b.title, b.isbn, b.publication_year, b.category_id, COUNT(l.loan_id) AS borrow_count
                 FROM books b
                 JOIN copies c ON b.book_id = c.book_id
                 JOIN loans l ON c.copy_id = l.copy_id
+                """ + (from == null ? "" : "WHERE l.loan_date >= ?\n") + """
                 GROUP BY b.book_id, b.title, b.isbn, b.publication_year, b.category_id
-                ORDER BY borrow_count DESC
+                ORDER BY borrow_count DESC, b.book_id
                 LIMIT ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
-            pstm.setInt(1, limit);
+            int index = 1;
+            if (from != null) {
+                pstm.setDate(index++, Date.valueOf(from));
+            }
+            pstm.setInt(index, limit);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
                 books.add(mapResultSet(rs));
@@ -543,6 +1078,27 @@ public class BookDAO implements BookDAOInterface {
         return books;
     }
 
+    @Override
+    public Map<Integer, Integer> getLoanCountsByBook() {
+        Map<Integer, Integer> loanCounts = new HashMap<>();
+        String sql = """
+                SELECT c.book_id, COUNT(l.loan_id) AS borrow_count
+                FROM copies c
+                JOIN loans l ON c.copy_id = l.copy_id
+                GROUP BY c.book_id;
+                """;
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql);) {
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                loanCounts.put(rs.getInt("book_id"), rs.getInt("borrow_count"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return loanCounts;
+    }
+
     @Override
     public List<Book> findRecentlyAddedBooks(int limit) {
         List<Book> books = new ArrayList<>();
@@ -552,7 +1108,7 @@ public class BookDAO implements BookDAOInterface {
                 ORDER BY book_id DESC
                 LIMIT ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, limit);
             ResultSet rs = pstm.executeQuery();
@@ -567,8 +1123,12 @@ public class BookDAO implements BookDAOInterface {
 
     @Override
     public boolean existsByISBN(String isbn) {
+        long isbn13 = IsbnParser.parse(isbn);
+        if (isbn13 != IsbnParser.INVALID) {
+            return findByIsbn13(isbn13) != null;
+        }
         String sql = "SELECT 1 FROM books WHERE isbn = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, isbn);
             ResultSet rs = pstm.executeQuery();
@@ -582,7 +1142,7 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public boolean existsByTitleAndYear(String title, int year) {
         String sql = "SELECT 1 FROM books WHERE LOWER(title) = LOWER(?) AND publication_year = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setString(1, title);
             pstm.setInt(2, year);
@@ -594,10 +1154,38 @@ public class BookDAO implements BookDAOInterface {
         return false;
     }
 
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT book_id FROM books WHERE book_id IN (%s)";
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            return InClause.selectExisting(conn, sql, bookIds, Integer.class);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new HashSet<>();
+    }
+
+    @Override
+    public Set<Long> findExistingIsbn13(Collection<Long> isbn13Keys) {
+        if (isbn13Keys.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT DISTINCT isbn13 FROM books WHERE isbn13 IN (%s)";
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            return InClause.selectExisting(conn, sql, isbn13Keys, Long.class);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new HashSet<>();
+    }
+
     @Override
     public int countAllBooks() {
         String sql = "SELECT COUNT(*) AS total FROM books;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             ResultSet rs = pstm.executeQuery();
             if (rs.next()) {
@@ -612,10 +1200,16 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public int deleteBooksByCategory(int categoryId) {
         String sql = "DELETE FROM books WHERE category_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, categoryId);
-            return pstm.executeUpdate();
+            int affectedRows = pstm.executeUpdate();
+            LibraryStatistics.booksByCategory().add(categoryId, -affectedRows);
+            LibraryStatistics.booksByYear().markStale();
+            CatalogueCache.invalidateAllBooks();
+            CatalogueCache.availability().invalidate();
+            SearchIndexes.categoryChanged(categoryId);
+            return affectedRows;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -625,11 +1219,19 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public int updateBooksCategory(int oldCategoryId, int newCategoryId) {
         String sql = "UPDATE books SET category_id = ? WHERE category_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, newCategoryId);
             pstm.setInt(2, oldCategoryId);
-            return pstm.executeUpdate();
+            int affectedRows = pstm.executeUpdate();
+            LibraryStatistics.booksByCategory().add(oldCategoryId, -affectedRows);
+            LibraryStatistics.booksByCategory().add(newCategoryId, affectedRows);
+            if (affectedRows > 0) {
+                LibraryStatistics.loanRankings().invalidate();
+            }
+            CatalogueCache.invalidateAllBooks();
+            SearchIndexes.categoryChanged(oldCategoryId);
+            return affectedRows;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -642,9 +1244,14 @@ public class BookDAO implements BookDAOInterface {
                 DELETE FROM books
                 WHERE book_id NOT IN (SELECT DISTINCT book_id FROM copies);
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
-            return pstm.executeUpdate();
+            int affectedRows = pstm.executeUpdate();
+            LibraryStatistics.allBooksChanged();
+            CatalogueCache.invalidateAllBooks();
+            CatalogueCache.availability().invalidate();
+            SearchIndexes.allBooksChanged();
+            return affectedRows;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -656,11 +1263,15 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public boolean addAuthorToBook(int bookId, int authorId) {
         String sql = "INSERT INTO book_author (book_id, author_id) VALUES (?, ?);";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             pstm.setInt(2, authorId);
             int rowsAffected = pstm.executeUpdate();
+            if (rowsAffected > 0) {
+                LibraryStatistics.loanRankings().authorAdded(bookId, authorId);
+            }
+            SearchIndexes.bookChanged(bookId);
             return rowsAffected > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -671,11 +1282,15 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public boolean removeAuthorFromBook(int bookId, int authorId) {
         String sql = "DELETE FROM book_author WHERE book_id = ? AND author_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             pstm.setInt(2, authorId);
             int rowsAffected = pstm.executeUpdate();
+            if (rowsAffected > 0) {
+                LibraryStatistics.loanRankings().authorRemoved(bookId, authorId);
+            }
+            SearchIndexes.bookChanged(bookId);
             return rowsAffected > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -690,7 +1305,7 @@ public class BookDAO implements BookDAOInterface {
 
         Connection conn = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = ConnectionProvider.getConnection();
             conn.setAutoCommit(false);
 
             try (PreparedStatement deletePstm = conn.prepareStatement(deleteSql)) {
@@ -708,6 +1323,8 @@ public class BookDAO implements BookDAOInterface {
             }
 
             conn.commit();
+            LibraryStatistics.loanRankings().authorsSet(bookId, authorIds);
+            SearchIndexes.bookChanged(bookId);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -740,7 +1357,7 @@ public class BookDAO implements BookDAOInterface {
                 JOIN book_author ba ON a.author_id = ba.author_id
                 WHERE ba.book_id = ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             ResultSet rs = pstm.executeQuery();
@@ -754,6 +1371,43 @@ public class BookDAO implements BookDAOInterface {
         return authors;
     }
 
+    @Override
+    public Map<Integer, List<Author>> getAuthorsForBooks(Collection<Integer> bookIds) {
+        Map<Integer, List<Author>> authorsByBook = new LinkedHashMap<>();
+        for (Integer bookId : bookIds) {
+            if (bookId != null) {
+                authorsByBook.put(bookId, new ArrayList<>());
+            }
+        }
+        if (authorsByBook.isEmpty()) {
+            return authorsByBook;
+        }
+
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(authorsByBook.keySet())) {
+                String sql = """
+                        SELECT ba.book_id, a.author_id, a.first_name, a.last_name, a.birth_date, a.nationality
+                        FROM book_author ba
+                        JOIN authors a ON a.author_id = ba.author_id
+                        WHERE ba.book_id IN (%s)
+                        ORDER BY ba.book_id, a.last_name, a.first_name;
+                        """.formatted(InClause.placeholders(chunk.size()));
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstm.executeQuery();
+                    while (rs.next()) {
+                        authorsByBook.get(rs.getInt("book_id")).add(authorDAO.mapResultSet(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return authorsByBook;
+    }
+
     @Override
     public List<Book> findByAuthor(int authorId) {
         List<Book> books = new ArrayList<>();
@@ -763,7 +1417,7 @@ public class BookDAO implements BookDAOInterface {
                 JOIN book_author ba ON b.book_id = ba.book_id
                 WHERE ba.author_id = ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, authorId);
             ResultSet rs = pstm.executeQuery();
@@ -786,7 +1440,7 @@ public class BookDAO implements BookDAOInterface {
                 JOIN authors a ON ba.author_id = a.author_id
                 WHERE LOWER(a.first_name) LIKE LOWER(?) OR LOWER(a.last_name) LIKE LOWER(?);
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             String likeTerm = "%" + authorName + "%";
             pstm.setString(1, likeTerm);
@@ -810,7 +1464,7 @@ public class BookDAO implements BookDAOInterface {
                 JOIN book_author ba ON b.book_id = ba.book_id
                 WHERE ba.author_id = ? AND b.category_id = ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, authorId);
             pstm.setInt(2, categoryId);
@@ -827,7 +1481,7 @@ public class BookDAO implements BookDAOInterface {
     @Override
     public boolean hasAuthor(int bookId, int authorId) {
         String sql = "SELECT 1 FROM book_author WHERE book_id = ? AND author_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, bookId);
             pstm.setInt(2, authorId);
@@ -846,7 +1500,7 @@ public class BookDAO implements BookDAOInterface {
                 FROM book_author
                 WHERE author_id = ?;
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             pstm.setInt(1, authorId);
             ResultSet rs = pstm.executeQuery();
@@ -881,7 +1535,7 @@ public class BookDAO implements BookDAOInterface {
         }
         sql.append(");");
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql.toString());) {
 
             for (int i = 0; i < authorIds.size(); i++) {
@@ -911,7 +1565,7 @@ public class BookDAO implements BookDAOInterface {
                 OR LOWER(a.first_name) LIKE LOWER(?)
                 OR LOWER(a.last_name) LIKE LOWER(?);
                 """;
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);) {
             String likeTerm = "%" + searchTerm + "%";
             pstm.setString(1, likeTerm);
@@ -1,21 +1,36 @@
 package com.alexandrialms.dao.impl;
 
+import com.alexandrialms.cache.CatalogueCache;
 import com.alexandrialms.dao.interfaces.CategoryDAOInterface;
 import com.alexandrialms.model.Category;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.search.SearchIndexes;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.stats.LoanRankings;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class CategoryDAO implements CategoryDAOInterface {
 
+    private final LoanDAO loanDAO = new LoanDAO();
+
     @Override
     public boolean insert(Category category) {
         String sql = "INSERT INTO categories (name, description) VALUES (?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, category.getName());
@@ -34,7 +49,7 @@ public class CategoryDAO implements CategoryDAOInterface {
     public boolean update(Category category) {
         String sql = "UPDATE categories SET name = ?, description = ? WHERE category_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, category.getName());
@@ -42,6 +57,8 @@ public class CategoryDAO implements CategoryDAOInterface {
             pstm.setInt(3, category.getCategoryID());
 
             pstm.executeUpdate();
+            CatalogueCache.categories().invalidate(category.getCategoryID());
+            SearchIndexes.categoryChanged(category.getCategoryID());
             return true;
 
         } catch (SQLException e) {
@@ -54,12 +71,16 @@ public class CategoryDAO implements CategoryDAOInterface {
     public boolean delete(Integer categoryID) {
         String sql = "DELETE FROM categories WHERE category_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, categoryID);
 
             pstm.executeUpdate();
+            CatalogueCache.categories().invalidate(categoryID);
+            // Los libros pueden haber cambiado por las reglas ON DELETE de la FK
+            CatalogueCache.invalidateAllBooks();
+            SearchIndexes.categoryChanged(categoryID);
             return true;
 
         } catch (SQLException e) {
@@ -70,9 +91,13 @@ public class CategoryDAO implements CategoryDAOInterface {
 
     @Override
     public Category findById(Integer categoryID) {
+        return CatalogueCache.categories().get(categoryID, this::loadById);
+    }
+
+    private Category loadById(Integer categoryID) {
         String sql = "SELECT * FROM categories WHERE category_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, categoryID);
@@ -88,12 +113,53 @@ public class CategoryDAO implements CategoryDAOInterface {
         return null;
     }
 
+    @Override
+    public Map<Integer, Category> findByIds(Collection<Integer> categoryIds) {
+        Map<Integer, Category> categories = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer categoryId : categoryIds) {
+            if (categoryId == null || categories.containsKey(categoryId)) {
+                continue;
+            }
+            Category cached = CatalogueCache.categories().peek(categoryId);
+            if (cached != null) {
+                categories.put(categoryId, cached);
+            } else {
+                missing.add(categoryId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return categories;
+        }
+
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(missing)) {
+                String sql = "SELECT * FROM categories WHERE category_id IN ("
+                        + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstm.executeQuery();
+                    while (rs.next()) {
+                        Category category = mapResultSet(rs);
+                        categories.put(category.getCategoryID(), category);
+                        CatalogueCache.categories().get(category.getCategoryID(), id -> category);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return categories;
+    }
+
     @Override
     public List<Category> findAll() {
         List<Category> categories = new ArrayList<>();
         String sql = "SELECT * FROM categories";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -107,6 +173,16 @@ public class CategoryDAO implements CategoryDAOInterface {
         return categories;
     }
 
+    @Override
+    public Stream<Category> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT * FROM categories", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     private Category mapResultSet(ResultSet rs) throws SQLException {
         Category category = new Category();
         category.setCategoryID(rs.getInt("category_id"));
@@ -119,7 +195,7 @@ public class CategoryDAO implements CategoryDAOInterface {
     public Category findByName(String name) {
         String sql = "SELECT * FROM categories WHERE name = ?;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, name);
@@ -139,7 +215,7 @@ public class CategoryDAO implements CategoryDAOInterface {
         String sql = "SELECT * FROM categories WHERE name LIKE ?;";
         List<Category> categories = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, "%" + name + "%");
@@ -159,7 +235,7 @@ public class CategoryDAO implements CategoryDAOInterface {
         String sql = "SELECT * FROM categories WHERE description LIKE ?;";
         List<Category> categories = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, "%" + description + "%");
@@ -177,7 +253,7 @@ public class CategoryDAO implements CategoryDAOInterface {
     @Override
     public int countBooksInCategory(int categoryId) {
         String sql = "SELECT COUNT(*) AS book_count FROM books WHERE category_id = ?;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, categoryId);
@@ -192,11 +268,19 @@ public class CategoryDAO implements CategoryDAOInterface {
         return 0;
     }
 
+    /**
+     * Served from the same counters as {@code BookDAO.getBooksCountByCategory()}.
+     */
     @Override
     public Map<Integer, Integer> getBooksCountPerCategory() {
+        Map<Integer, Integer> counts = LibraryStatistics.booksByCategory().read(this::loadBooksCountPerCategory);
+        return counts == null ? new HashMap<>() : counts;
+    }
+
+    private Map<Integer, Integer> loadBooksCountPerCategory() {
         Map <Integer, Integer> booksCountMap = new java.util.HashMap<>();
         String sql = "SELECT category_id, COUNT(*) AS book_count FROM books GROUP BY category_id;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -205,7 +289,8 @@ public class CategoryDAO implements CategoryDAOInterface {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();}
+            e.printStackTrace();
+            return null;}
         return booksCountMap;
 
     }
@@ -215,7 +300,7 @@ public class CategoryDAO implements CategoryDAOInterface {
         List<Category> categories = new ArrayList<>();
         String sql = "SELECT DISTINCT c.* FROM categories c " +
                      "JOIN books b ON c.category_id = b.category_id;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
@@ -232,7 +317,7 @@ public class CategoryDAO implements CategoryDAOInterface {
         String sql = "SELECT c.* FROM categories c " +
                      "LEFT JOIN books b ON c.category_id = b.category_id " +
                      "WHERE b.book_id IS NULL;";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
@@ -247,7 +332,7 @@ public class CategoryDAO implements CategoryDAOInterface {
     public boolean existsByName(String name) {
         String sql = "SELECT 1 FROM categories WHERE name = ? LIMIT 1;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, name);
@@ -260,11 +345,25 @@ public class CategoryDAO implements CategoryDAOInterface {
         return false;
     }
 
+    @Override
+    public Set<String> findExistingNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT name FROM categories WHERE name IN (%s)";
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            return InClause.selectExisting(conn, sql, names, String.class);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new HashSet<>();
+    }
+
     @Override
     public int countAllCategories() {
         String sql = "SELECT COUNT(*) AS total FROM categories;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -280,10 +379,12 @@ public class CategoryDAO implements CategoryDAOInterface {
     @Override
     public int deleteEmptyCategories() {
         String sql = "DELETE FROM categories WHERE category_id NOT IN (SELECT DISTINCT category_id FROM books);";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement()) {
 
-            return stmt.executeUpdate(sql);
+            int affectedRows = stmt.executeUpdate(sql);
+            CatalogueCache.categories().invalidateAll();
+            return affectedRows;
 
         } catch (SQLException e) {
             e.printStackTrace();}
@@ -294,13 +395,15 @@ public class CategoryDAO implements CategoryDAOInterface {
     public boolean updateCategoryName(int categoryId, String newName) {
         String sql = "UPDATE categories SET name = ? WHERE category_id = ?;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, newName);
             pstm.setInt(2, categoryId);
 
             int affectedRows = pstm.executeUpdate();
+            CatalogueCache.categories().invalidate(categoryId);
+            SearchIndexes.categoryChanged(categoryId);
             return affectedRows > 0;
 
         } catch (SQLException e) {
@@ -313,7 +416,7 @@ public class CategoryDAO implements CategoryDAOInterface {
         String sql = "SELECT * FROM categories WHERE name LIKE ? OR description LIKE ?;";
         List<Category> categories = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             String likeTerm = "%" + searchTerm + "%";
@@ -330,6 +433,69 @@ public class CategoryDAO implements CategoryDAOInterface {
         return categories;
     }
 
+    /**
+     * Categories whose books have the most loans in {@code window}, most
+     * borrowed first and ties by {@code category_id}. Served from the
+     * {@link LoanRankings} when they are loaded.
+     */
+    @Override
+    public List<Category> findMostBorrowedCategories(int limit, PopularityWindow window) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int[] categoryIds = LibraryStatistics.loanRankings().topCategories(window, limit,
+                loanDAO::loadRankingSnapshot);
+        if (categoryIds == null) {
+            return loadMostBorrowedCategories(limit, window);
+        }
+        List<Integer> ids = new ArrayList<>(categoryIds.length);
+        for (int categoryId : categoryIds) {
+            ids.add(categoryId);
+        }
+        Map<Integer, Category> found = findByIds(ids);
+        List<Category> categories = new ArrayList<>(found.size());
+        for (Integer categoryId : ids) {
+            Category category = found.get(categoryId);
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    private List<Category> loadMostBorrowedCategories(int limit, PopularityWindow window) {
+        LocalDate from = window.startingFrom(LocalDate.now());
+        String sql = "SELECT cat.*, COUNT(l.loan_id) AS loan_count " +
+                     "FROM categories cat " +
+                     "JOIN books b ON cat.category_id = b.category_id " +
+                     "JOIN copies c ON b.book_id = c.book_id " +
+                     "JOIN loans l ON c.copy_id = l.copy_id " +
+                     (from == null ? "" : "WHERE l.loan_date >= ? ") +
+                     "GROUP BY cat.category_id " +
+                     "ORDER BY loan_count DESC, cat.category_id " +
+                     "LIMIT ?;";
+        List<Category> categories = new ArrayList<>();
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (from != null) {
+                pstm.setDate(index++, Date.valueOf(from));
+            }
+            pstm.setInt(index, limit);
+
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                categories.add(mapResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return categories;
+    }
+
     @Override
     public List<Category> findMostPopularCategories(int limit) {
         String sql = "SELECT c.*, COUNT(b.book_id) AS book_count " +
@@ -340,7 +506,7 @@ public class CategoryDAO implements CategoryDAOInterface {
                      "LIMIT ?;";
         List<Category> categories = new ArrayList<>();
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, limit);
@@ -6,22 +6,36 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.circulation.CirculationIndexes;
 import com.alexandrialms.dao.interfaces.CopyDAOInterface;
 import com.alexandrialms.dao.interfaces.GenericDAO;
 import com.alexandrialms.model.Copy;
 import com.alexandrialms.model.CopyStatus;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.util.db.BatchWriter;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
 
 public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
+    private final LoanDAO loanDAO = new LoanDAO();
+
     @Override
 
     public List<Copy> findAll() {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
 
@@ -35,11 +49,21 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return copies;
     }
 
+    @Override
+    public Stream<Copy> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT * FROM copies", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     @Override
 
     public Copy findById(Integer id) {
         String sql = "SELECT * FROM copies WHERE copy_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -59,7 +83,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public boolean insert(Copy copy) {
         String sql = "INSERT INTO copies (book_id, internal_code, status) VALUES (?, ?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, copy.getBook_id());
@@ -72,6 +96,8 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     copy.setCopyID(generatedKeys.getInt(1));
+                    CatalogueCache.availability().copyWritten(copy.getCopyID(), copy.getBook_id(), copy.getStatus());
+                    LibraryStatistics.loanRankings().copyWritten(copy.getCopyID(), copy.getBook_id());
                 }
                 return true;
             }
@@ -87,7 +113,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public boolean update(Copy copy) {
         String sql = "UPDATE copies SET book_id = ?, internal_code = ?, status = ? WHERE copy_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, copy.getBook_id());
@@ -95,7 +121,12 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
             stmt.setString(3, copy.getStatus().name());
             stmt.setInt(4, copy.getCopyID());
 
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                CatalogueCache.availability().copyWritten(copy.getCopyID(), copy.getBook_id(), copy.getStatus());
+                LibraryStatistics.loanRankings().copyWritten(copy.getCopyID(), copy.getBook_id());
+            }
+            return updated;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -108,11 +139,15 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public boolean delete(Integer id) {
         String sql = "DELETE FROM copies WHERE copy_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                CatalogueCache.availability().copyRemoved(id);
+            }
+            return deleted;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -121,6 +156,67 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return false;
     }
 
+    @Override
+    public int insertAll(Collection<Copy> copies) {
+        return insertAll(copies, BatchWriter.configuredBatchSize());
+    }
+
+    /**
+     * Batch insert; generated IDs are stored in each copy. Copies that could not
+     * be inserted keep an ID of 0.
+     */
+    public int insertAll(Collection<Copy> copies, int batchSize) {
+        String sql = "INSERT INTO copies (book_id, internal_code, status) VALUES (?, ?, ?)";
+        int inserted = BatchWriter.insert(sql, copies, batchSize, (stmt, copy) -> {
+            stmt.setInt(1, copy.getBook_id());
+            stmt.setString(2, copy.getInternal_code());
+            stmt.setString(3, copy.getStatus().name());
+        }, Copy::setCopyID);
+        for (Copy copy : copies) {
+            if (copy.getCopyID() > 0) {
+                CatalogueCache.availability().copyWritten(copy.getCopyID(), copy.getBook_id(), copy.getStatus());
+                LibraryStatistics.loanRankings().copyWritten(copy.getCopyID(), copy.getBook_id());
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateAll(Collection<Copy> copies) {
+        return updateAll(copies, BatchWriter.configuredBatchSize());
+    }
+
+    public int updateAll(Collection<Copy> copies, int batchSize) {
+        return BatchWriter.count(updateEach(copies, batchSize));
+    }
+
+    /**
+     * Batch update reporting each copy.
+     *
+     * @return whether each copy was updated, in the iteration order of {@code copies}
+     */
+    public boolean[] updateEach(Collection<Copy> copies) {
+        return updateEach(copies, BatchWriter.configuredBatchSize());
+    }
+
+    public boolean[] updateEach(Collection<Copy> copies, int batchSize) {
+        String sql = "UPDATE copies SET book_id = ?, internal_code = ?, status = ? WHERE copy_id = ?";
+        boolean[] written = BatchWriter.update(sql, copies, batchSize, (stmt, copy) -> {
+            stmt.setInt(1, copy.getBook_id());
+            stmt.setString(2, copy.getInternal_code());
+            stmt.setString(3, copy.getStatus().name());
+            stmt.setInt(4, copy.getCopyID());
+        });
+        int i = 0;
+        for (Copy copy : copies) {
+            if (written[i++]) {
+                CatalogueCache.availability().copyWritten(copy.getCopyID(), copy.getBook_id(), copy.getStatus());
+                LibraryStatistics.loanRankings().copyWritten(copy.getCopyID(), copy.getBook_id());
+            }
+        }
+        return written;
+    }
+
     private Copy mapResultSet(ResultSet rs) throws SQLException {
         Copy copy = new Copy();
         copy.setCopyID(rs.getInt("copy_id"));
@@ -135,7 +231,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE book_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -155,7 +251,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findAvailableByBookId(int bookId) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE book_id = ? AND status = 'AVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -175,7 +271,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findUnavailableByBookId(int bookId) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE book_id = ? AND status = 'UNAVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -195,7 +291,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findAvailableCopies() {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE status = 'AVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
 
@@ -213,7 +309,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findUnavailableCopies() {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE status = 'UNAVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
 
@@ -230,7 +326,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public boolean isCopyAvailable(int copyId) {
         String sql = "SELECT status FROM copies WHERE copy_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, copyId);
@@ -250,13 +346,21 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public boolean setCopyStatus(int copyId, String status) {
         String sql = "UPDATE copies SET status = ? WHERE copy_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, status);
             stmt.setInt(2, copyId);
 
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                try {
+                    CatalogueCache.availability().copyStatusChanged(copyId, CopyStatus.valueOf(status));
+                } catch (IllegalArgumentException e) {
+                    CatalogueCache.availability().invalidate();
+                }
+            }
+            return updated;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -267,7 +371,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public int countCopiesByBook(int bookId) {
         String sql = "SELECT COUNT(*) AS total FROM copies WHERE book_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -286,7 +390,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public int countAvailableCopiesByBook(int bookId) {
         String sql = "SELECT COUNT(*) AS total FROM copies WHERE book_id = ? AND status = 'AVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -305,7 +409,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public int countUnavailableCopiesByBook(int bookId) {
         String sql = "SELECT COUNT(*) AS total FROM copies WHERE book_id = ? AND status = 'UNAVAILABLE'";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -321,11 +425,20 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return 0;
     }
 
+    /**
+     * Copies on loan in {@code copy_id} order, with the IDs taken from the
+     * {@code ActiveLoanRegistry} when it is loaded.
+     */
     @Override
     public List<Copy> findCopiesWithActiveLoans() {
+        int[] copyIds = CirculationIndexes.activeLoans().copyIdsOnLoan(loanDAO::loadActiveLoanSnapshot);
+        if (copyIds != null) {
+            return findInOrder(copyIds);
+        }
         List<Copy> copies = new ArrayList<>();
-        String sql = "SELECT c.* FROM copies c JOIN loans l ON c.copy_id = l.copy_id WHERE l.return_date IS NULL";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT c.* FROM copies c WHERE EXISTS (SELECT 1 FROM loans l WHERE l.copy_id = c.copy_id "
+                + "AND l.returned = false) ORDER BY c.copy_id";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -337,11 +450,48 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return copies;
     }
 
+    /**
+     * @return the copies with the given IDs in the same order, skipping IDs that no longer exist
+     */
+    private List<Copy> findInOrder(int[] copyIds) {
+        List<Integer> ids = new ArrayList<>(copyIds.length);
+        for (int copyId : copyIds) {
+            ids.add(copyId);
+        }
+        Map<Integer, Copy> found = new HashMap<>();
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(ids)) {
+                String sql = "SELECT * FROM copies WHERE copy_id IN (" + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstm.executeQuery()) {
+                        while (rs.next()) {
+                            Copy copy = mapResultSet(rs);
+                            found.put(copy.getCopyID(), copy);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        List<Copy> copies = new ArrayList<>(found.size());
+        for (Integer copyId : ids) {
+            Copy copy = found.get(copyId);
+            if (copy != null) {
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
     @Override
     public List<Copy> findCopiesByLoanStatus(String loanStatus) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT c.* FROM copies c JOIN loans l ON c.copy_id = l.copy_id WHERE l.status = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, loanStatus);
@@ -361,7 +511,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> searchCopiesByInternalCode(String inventoryNumber) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE internal_code LIKE ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, "%" + inventoryNumber + "%");
@@ -381,7 +531,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findCopiesByAcquisitionYear(int year) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE YEAR(acquisition_date) = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, year);
@@ -401,7 +551,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findCopiesByAcquisitionYearRange(int startYear, int endYear) {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT * FROM copies WHERE YEAR(acquisition_date) BETWEEN ? AND ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, startYear);
@@ -421,7 +571,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public boolean existsByInternalCode(String inventoryNumber) {
         String sql = "SELECT 1 FROM copies WHERE internal_code = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, inventoryNumber);
@@ -435,10 +585,24 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return false;
     }
 
+    @Override
+    public Set<String> findExistingInternalCodes(Collection<String> internalCodes) {
+        if (internalCodes.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT internal_code FROM copies WHERE internal_code IN (%s)";
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            return InClause.selectExisting(conn, sql, internalCodes, String.class);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new HashSet<>();
+    }
+
     @Override
     public int countAllCopies() {
         String sql = "SELECT COUNT(*) AS total FROM copies";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             ResultSet rs = stmt.executeQuery();
@@ -456,11 +620,13 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public int deleteCopiesByBook(int bookId) {
         String sql = "DELETE FROM copies WHERE book_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
-            return stmt.executeUpdate();
+            int deleted = stmt.executeUpdate();
+            CatalogueCache.availability().invalidate();
+            return deleted;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -471,12 +637,14 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public int updateCopiesStatusByBook(int bookId, String newStatus) {
         String sql = "UPDATE copies SET status = ? WHERE book_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, newStatus);
             stmt.setInt(2, bookId);
-            return stmt.executeUpdate();
+            int updated = stmt.executeUpdate();
+            CatalogueCache.availability().invalidate();
+            return updated;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -488,7 +656,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     public List<Copy> findOrphanedCopies() {
         List<Copy> copies = new ArrayList<>();
         String sql = "SELECT c.* FROM copies c LEFT JOIN books b ON c.book_id = b.book_id WHERE b.book_id IS NULL";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
 
@@ -505,8 +673,8 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public List<Copy> findByBookIdPaginated(int bookId, int limit, int offset) {
         List<Copy> copies = new ArrayList<>();
-        String sql = "SELECT * FROM copies WHERE book_id = ? LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT * FROM copies WHERE book_id = ? ORDER BY copy_id LIMIT ? OFFSET ?";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
@@ -524,11 +692,33 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
         return copies;
     }
 
+    @Override
+    public List<Copy> findByBookIdAfter(int bookId, int afterCopyId, int limit) {
+        List<Copy> copies = new ArrayList<>();
+        String sql = "SELECT * FROM copies WHERE book_id = ? AND copy_id > ? ORDER BY copy_id LIMIT ?";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, bookId);
+            stmt.setInt(2, afterCopyId);
+            stmt.setInt(3, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                copies.add(mapResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return copies;
+    }
+
     @Override
     public List<Copy> findAvailableCopiesPaginated(int limit, int offset) {
         List<Copy> copies = new ArrayList<>();
-        String sql = "SELECT * FROM copies WHERE status = 'AVAILABLE' LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT * FROM copies WHERE status = 'AVAILABLE' ORDER BY copy_id LIMIT ? OFFSET ?";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, limit);
@@ -548,7 +738,7 @@ public class CopyDAO implements CopyDAOInterface, GenericDAO<Copy, Integer> {
     @Override
     public Copy findByInternalCode(String internalCode) {
         String sql = "SELECT * FROM copies WHERE internal_code = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, internalCode);
@@ -0,0 +1,727 @@
+package com.alexandrialms.dao.impl;
+
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.circulation.CirculationIndexes;
+import com.alexandrialms.circulation.HoldQueues;
+import com.alexandrialms.dao.interfaces.HoldDAOInterface;
+import com.alexandrialms.model.CirculationResult;
+import com.alexandrialms.model.CirculationResult.Status;
+import com.alexandrialms.model.CopyStatus;
+import com.alexandrialms.model.Hold;
+import com.alexandrialms.model.HoldStatus;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Holds placed by patrons on books with no copy on the shelf.
+ * <p>
+ * A hold waits in the FIFO queue of its book until a copy of the book is
+ * returned: {@code LoanDAO.checkin} then calls {@link #passOnCopy} in its
+ * transaction, which keeps the copy ({@code RESERVED}) for the oldest
+ * waiting hold of an active patron and marks that hold {@code READY}. The
+ * patron borrows the copy through the normal checkout, which fulfils the
+ * hold, or loses it when the hold is cancelled or not collected in time;
+ * the copy then passes to the next hold the same way.
+ * </p>
+ * <p>
+ * The next hold comes from the in-memory {@link HoldQueues}, so concurrent
+ * returns of different books never contend on a shared lock and returns of
+ * the same book each take a different hold. Transactions lock copy rows
+ * before hold rows, like check-ins.
+ * </p>
+ */
+public class HoldDAO implements HoldDAOInterface {
+
+    private static final String HOLD_COLUMNS =
+            "hold_id, book_id, user_id, copy_id, status, placed_at, ready_date, pickup_deadline";
+
+    @Override
+    public boolean insert(Hold hold) {
+        String sql = "INSERT INTO holds (book_id, user_id, copy_id, status, placed_at, ready_date, pickup_deadline) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            bindHold(pstm, hold);
+
+            pstm.executeUpdate();
+            try (ResultSet keys = pstm.getGeneratedKeys()) {
+                if (keys.next()) {
+                    hold.setHoldID(keys.getInt(1));
+                }
+            }
+            if (hold.getStatus() == HoldStatus.WAITING) {
+                CirculationIndexes.holds().holdPlaced(hold.getBookID(), hold.getHoldID());
+            }
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean update(Hold hold) {
+        String sql = "UPDATE holds SET book_id = ?, user_id = ?, copy_id = ?, status = ?, placed_at = ?, ready_date = ?, pickup_deadline = ? WHERE hold_id = ?";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+
+            bindHold(pstm, hold);
+            pstm.setInt(8, hold.getHoldID());
+
+            pstm.executeUpdate();
+            // Not a circulation write: the previous book and status of the hold are not known here
+            CirculationIndexes.holds().invalidateAll();
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(Integer holdID) {
+        String sql = "DELETE FROM holds WHERE hold_id = ?";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+
+            pstm.setInt(1, holdID);
+
+            pstm.executeUpdate();
+            CirculationIndexes.holds().invalidateAll();
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public Hold findById(Integer holdID) {
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE hold_id = ?";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+
+            pstm.setInt(1, holdID);
+
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSet(rs);
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public List<Hold> findAll() {
+        List<Hold> holds = new ArrayList<>();
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                holds.add(mapResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return holds;
+    }
+
+    @Override
+    public Stream<Hold> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT " + HOLD_COLUMNS + " FROM holds", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    private Hold mapResultSet(ResultSet rs) throws SQLException {
+        Hold hold = new Hold();
+        hold.setHoldID(rs.getInt("hold_id"));
+        hold.setBookID(rs.getInt("book_id"));
+        hold.setUserID(rs.getInt("user_id"));
+
+        int copyId = rs.getInt("copy_id");
+        hold.setCopyID(rs.wasNull() ? null : copyId);
+
+        hold.setStatus(HoldStatus.valueOf(rs.getString("status")));
+
+        Timestamp placedAt = rs.getTimestamp("placed_at");
+        if (placedAt != null) {
+            hold.setPlacedAt(placedAt.toLocalDateTime());
+        }
+
+        Date readyDate = rs.getDate("ready_date");
+        if (readyDate != null) {
+            hold.setReadyDate(readyDate.toLocalDate());
+        }
+
+        Date pickupDeadline = rs.getDate("pickup_deadline");
+        if (pickupDeadline != null) {
+            hold.setPickupDeadline(pickupDeadline.toLocalDate());
+        }
+
+        return hold;
+    }
+
+    /**
+     * Binds every column but {@code hold_id}, in table order, to parameters 1 to 7.
+     */
+    private static void bindHold(PreparedStatement pstm, Hold hold) throws SQLException {
+        pstm.setInt(1, hold.getBookID());
+        pstm.setInt(2, hold.getUserID());
+        if (hold.getCopyID() != null) {
+            pstm.setInt(3, hold.getCopyID());
+        } else {
+            pstm.setNull(3, Types.INTEGER);
+        }
+        pstm.setString(4, hold.getStatus().name());
+        pstm.setTimestamp(5, Timestamp.valueOf(hold.getPlacedAt()));
+        setNullableDate(pstm, 6, hold.getReadyDate());
+        setNullableDate(pstm, 7, hold.getPickupDeadline());
+    }
+
+    private static void setNullableDate(PreparedStatement pstm, int index, LocalDate date) throws SQLException {
+        if (date != null) {
+            pstm.setDate(index, Date.valueOf(date));
+        } else {
+            pstm.setNull(index, Types.DATE);
+        }
+    }
+
+    @Override
+    public List<Hold> findByUser(int userID) {
+        List<Hold> holds = new ArrayList<>();
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE user_id = ? ORDER BY hold_id";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userID);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    holds.add(mapResultSet(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return holds;
+    }
+
+    // ||--------------------------- QUEUES ----------------------------||
+
+    /**
+     * The waiting holds of a book in the order they will be served. Served
+     * from the {@link HoldQueues} when the book's queue is loaded.
+     */
+    @Override
+    public List<Hold> findWaitingByBook(int bookID) {
+        int[] holdIds = CirculationIndexes.holds().waitingHoldIds(bookID, this::loadWaitingHoldIds);
+        return holdIds == null ? loadWaitingHolds(bookID) : findInOrder(holdIds);
+    }
+
+    /**
+     * Reads the IDs of the waiting holds of a book for its {@link HoldQueues} queue.
+     *
+     * @return the IDs in ascending order, or {@code null} on a database error
+     */
+    public int[] loadWaitingHoldIds(int bookID) {
+        String sql = "SELECT hold_id FROM holds WHERE book_id = ? AND status = ? ORDER BY hold_id";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setInt(1, bookID);
+            pstm.setString(2, HoldStatus.WAITING.name());
+            List<Integer> holdIds = new ArrayList<>();
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    holdIds.add(rs.getInt("hold_id"));
+                }
+            }
+            return holdIds.stream().mapToInt(Integer::intValue).toArray();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private List<Hold> loadWaitingHolds(int bookID) {
+        List<Hold> holds = new ArrayList<>();
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE book_id = ? AND status = ? ORDER BY hold_id";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, bookID);
+            pstmt.setString(2, HoldStatus.WAITING.name());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    holds.add(mapResultSet(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return holds;
+    }
+
+    /**
+     * @return the holds with the given IDs in the same order, skipping IDs that no longer exist
+     */
+    private List<Hold> findInOrder(int[] holdIds) {
+        List<Integer> ids = new ArrayList<>(holdIds.length);
+        for (int holdId : holdIds) {
+            ids.add(holdId);
+        }
+        Map<Integer, Hold> found = new HashMap<>();
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(ids)) {
+                String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE hold_id IN ("
+                        + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstm.executeQuery()) {
+                        while (rs.next()) {
+                            Hold hold = mapResultSet(rs);
+                            found.put(hold.getHoldID(), hold);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        List<Hold> holds = new ArrayList<>(found.size());
+        for (Integer holdId : ids) {
+            Hold hold = found.get(holdId);
+            if (hold != null) {
+                holds.add(hold);
+            }
+        }
+        return holds;
+    }
+
+    // ||--------------------------- CIRCULATION ----------------------------||
+
+    /**
+     * Puts a user in the queue of a book, in one transaction with the user
+     * row locked so the same user cannot place two holds on the book at
+     * once. Rejected if the book has a copy available, since the user can
+     * borrow it straight away.
+     *
+     * @return the outcome with the new hold, or {@code null} if a database error occurred
+     */
+    @Override
+    public CirculationResult place(int userId, int bookId, LocalDateTime placedAt) {
+        for (int attempt = 1;; attempt++) {
+            try (Connection conn = ConnectionProvider.getConnection()) {
+                CirculationResult result = LoanDAO.inTransaction(conn, () -> doPlace(conn, userId, bookId, placedAt));
+                if (result.isOk()) {
+                    CirculationIndexes.holds().holdPlaced(bookId, result.getHold().getHoldID());
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!LoanDAO.isRetryable(e) || attempt >= LoanDAO.MAX_CIRCULATION_ATTEMPTS) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Withdraws a waiting or ready hold. A copy kept for it passes to the
+     * next waiting hold of the book in the same transaction, or goes back
+     * on the shelf.
+     *
+     * @return the outcome with the cancelled hold, or {@code null} if a database error occurred
+     */
+    @Override
+    public CirculationResult cancel(int holdId, LocalDate today) {
+        return release(holdId, HoldStatus.CANCELLED, today);
+    }
+
+    /**
+     * Expires the {@code READY} holds whose pickup deadline is before
+     * {@code today}, passing each kept copy on as {@link #cancel} does. Each
+     * hold is released in its own transaction.
+     *
+     * @return the number of holds expired
+     */
+    @Override
+    public int expireUncollected(LocalDate today) {
+        List<Integer> holdIds = new ArrayList<>();
+        String sql = "SELECT hold_id FROM holds WHERE status = ? AND pickup_deadline < ? ORDER BY hold_id";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setString(1, HoldStatus.READY.name());
+            pstm.setDate(2, Date.valueOf(today));
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    holdIds.add(rs.getInt("hold_id"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+
+        int expired = 0;
+        for (int holdId : holdIds) {
+            CirculationResult result = release(holdId, HoldStatus.EXPIRED, today);
+            if (result != null && result.isOk()) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private CirculationResult release(int holdId, HoldStatus outcome, LocalDate today) {
+        for (int attempt = 1;; attempt++) {
+            QueueClaim claim = new QueueClaim();
+            boolean committed = false;
+            try (Connection conn = ConnectionProvider.getConnection()) {
+                CirculationResult result = LoanDAO.inTransaction(conn,
+                        () -> doRelease(conn, holdId, outcome, today, claim));
+                committed = result.isOk();
+                if (committed) {
+                    Hold hold = result.getHold();
+                    if (claim.copyId != 0) {
+                        // Only a copy still kept for this hold changed status; one already lent out did not
+                        CatalogueCache.availability().copyStatusChanged(claim.copyId,
+                                claim.assigned != null ? CopyStatus.RESERVED : CopyStatus.AVAILABLE);
+                    } else if (hold.getCopyID() == null) {
+                        CirculationIndexes.holds().holdRemoved(hold.getBookID(), holdId);
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!LoanDAO.isRetryable(e) || attempt >= LoanDAO.MAX_CIRCULATION_ATTEMPTS) {
+                    e.printStackTrace();
+                    return null;
+                }
+            } finally {
+                claim.settle(committed);
+            }
+        }
+    }
+
+    private CirculationResult doPlace(Connection conn, int userId, int bookId, LocalDateTime placedAt)
+            throws SQLException {
+        try (PreparedStatement pstm = conn.prepareStatement("SELECT active FROM users WHERE user_id = ? FOR UPDATE")) {
+            pstm.setInt(1, userId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.USER_NOT_FOUND);
+                }
+                if (!rs.getBoolean("active")) {
+                    return CirculationResult.rejected(Status.USER_INACTIVE);
+                }
+            }
+        }
+
+        // Only the user row is locked: holds placed by other users on the same book do not wait for each other
+        String checkSql = "SELECT "
+                + "(SELECT COUNT(*) FROM copies c WHERE c.book_id = b.book_id AND c.status = ?) AS available_copies, "
+                + "(SELECT COUNT(*) FROM holds h WHERE h.book_id = b.book_id AND h.user_id = ? "
+                + "AND h.status IN (?, ?)) AS active_holds "
+                + "FROM books b WHERE b.book_id = ?";
+        try (PreparedStatement pstm = conn.prepareStatement(checkSql)) {
+            pstm.setString(1, CopyStatus.AVAILABLE.name());
+            pstm.setInt(2, userId);
+            pstm.setString(3, HoldStatus.WAITING.name());
+            pstm.setString(4, HoldStatus.READY.name());
+            pstm.setInt(5, bookId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.BOOK_NOT_FOUND);
+                }
+                if (rs.getInt("active_holds") > 0) {
+                    return CirculationResult.rejected(Status.HOLD_ALREADY_PLACED);
+                }
+                if (rs.getInt("available_copies") > 0) {
+                    return CirculationResult.rejected(Status.BOOK_AVAILABLE);
+                }
+            }
+        }
+
+        Hold hold = new Hold(bookId, userId, placedAt);
+        String insertSql = "INSERT INTO holds (book_id, user_id, copy_id, status, placed_at, ready_date, pickup_deadline) "
+                + "VALUES (?, ?, NULL, ?, ?, NULL, NULL)";
+        try (PreparedStatement pstm = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+            pstm.setInt(1, bookId);
+            pstm.setInt(2, userId);
+            pstm.setString(3, HoldStatus.WAITING.name());
+            pstm.setTimestamp(4, Timestamp.valueOf(placedAt));
+            pstm.executeUpdate();
+            try (ResultSet keys = pstm.getGeneratedKeys()) {
+                if (keys.next()) {
+                    hold.setHoldID(keys.getInt(1));
+                }
+            }
+        }
+        return CirculationResult.ok(hold);
+    }
+
+    private CirculationResult doRelease(Connection conn, int holdId, HoldStatus outcome, LocalDate today,
+            QueueClaim claim) throws SQLException {
+        // Copies are locked before holds: find the kept copy, if any, without locking the hold yet
+        Integer lockedCopyId = null;
+        try (PreparedStatement pstm = conn.prepareStatement("SELECT copy_id FROM holds WHERE hold_id = ?")) {
+            pstm.setInt(1, holdId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.HOLD_NOT_FOUND);
+                }
+                int copyId = rs.getInt("copy_id");
+                if (!rs.wasNull()) {
+                    lockedCopyId = copyId;
+                }
+            }
+        }
+        boolean copyReserved = lockedCopyId != null && isReserved(conn, lockedCopyId);
+
+        Hold hold = lockHold(conn, holdId);
+        if (hold == null) {
+            return CirculationResult.rejected(Status.HOLD_NOT_FOUND);
+        }
+        boolean releasable = outcome == HoldStatus.EXPIRED
+                ? hold.getStatus() == HoldStatus.READY && hold.getPickupDeadline() != null
+                        && hold.getPickupDeadline().isBefore(today)
+                : hold.getStatus().isActive();
+        if (!releasable) {
+            return CirculationResult.rejected(Status.HOLD_NOT_ACTIVE);
+        }
+        if (hold.getCopyID() != null && !hold.getCopyID().equals(lockedCopyId)) {
+            // Became ready since the first read; a deadlock here is retried by the caller
+            copyReserved = isReserved(conn, hold.getCopyID());
+        }
+
+        try (PreparedStatement pstm = conn.prepareStatement("UPDATE holds SET status = ? WHERE hold_id = ?")) {
+            pstm.setString(1, outcome.name());
+            pstm.setInt(2, holdId);
+            pstm.executeUpdate();
+        }
+        hold.setStatus(outcome);
+
+        if (hold.getCopyID() != null && copyReserved) {
+            passOnCopy(conn, hold.getBookID(), hold.getCopyID(), today, claim);
+        }
+        return CirculationResult.ok(hold);
+    }
+
+    /**
+     * Keeps a copy that became free (returned, or released by a hold) for
+     * the oldest waiting hold of its book whose patron is still active, or
+     * makes it available if there is none. Runs in the caller's transaction,
+     * with the copy row already locked; the chosen hold is marked
+     * {@code READY} with a pickup deadline
+     * {@link CirculationIndexes#holdPickupDays()} days from {@code today}.
+     * <p>
+     * Holds of inactive patrons keep their place for when the patron is
+     * reactivated; holds that are no longer waiting are dropped from the
+     * queue. The holds taken from the {@link HoldQueues}, and the copy, are
+     * recorded in {@code claim}, which the caller settles once the
+     * transaction ends.
+     * </p>
+     *
+     * @return the hold the copy is now kept for, or {@code null} if it is available
+     */
+    Hold passOnCopy(Connection conn, int bookId, int copyId, LocalDate today, QueueClaim claim)
+            throws SQLException {
+        claim.bookId = bookId;
+        claim.copyId = copyId;
+        Hold hold = null;
+        while (hold == null) {
+            int holdId = CirculationIndexes.holds().poll(bookId, this::loadWaitingHoldIds);
+            if (holdId == HoldQueues.UNKNOWN) {
+                holdId = lockOldestEligibleHold(conn, bookId);
+            } else if (holdId != 0) {
+                claim.taken.add(holdId);
+            }
+            if (holdId == 0) {
+                break;
+            }
+            Hold candidate = lockHold(conn, holdId);
+            if (candidate == null || candidate.getStatus() != HoldStatus.WAITING) {
+                continue;
+            }
+            if (!isUserActive(conn, candidate.getUserID())) {
+                claim.passedOver.add(holdId);
+                continue;
+            }
+            hold = candidate;
+        }
+
+        if (hold != null) {
+            hold.setStatus(HoldStatus.READY);
+            hold.setCopyID(copyId);
+            hold.setReadyDate(today);
+            hold.setPickupDeadline(today.plusDays(CirculationIndexes.holdPickupDays()));
+            String readySql = "UPDATE holds SET status = ?, copy_id = ?, ready_date = ?, pickup_deadline = ? "
+                    + "WHERE hold_id = ?";
+            try (PreparedStatement pstm = conn.prepareStatement(readySql)) {
+                pstm.setString(1, HoldStatus.READY.name());
+                pstm.setInt(2, copyId);
+                pstm.setDate(3, Date.valueOf(today));
+                pstm.setDate(4, Date.valueOf(hold.getPickupDeadline()));
+                pstm.setInt(5, hold.getHoldID());
+                pstm.executeUpdate();
+            }
+            claim.assigned = hold;
+        }
+
+        try (PreparedStatement pstm = conn.prepareStatement("UPDATE copies SET status = ? WHERE copy_id = ?")) {
+            pstm.setString(1, (hold != null ? CopyStatus.RESERVED : CopyStatus.AVAILABLE).name());
+            pstm.setInt(2, copyId);
+            pstm.executeUpdate();
+        }
+        return hold;
+    }
+
+    /**
+     * Marks the {@code READY} hold a {@code RESERVED} copy is kept for as
+     * fulfilled, if it belongs to {@code userId}. Runs in the checkout
+     * transaction of {@code LoanDAO}, with the copy row already locked.
+     *
+     * @return the fulfilled hold, or {@code null} if the copy is kept for someone else
+     */
+    Hold fulfil(Connection conn, int copyId, int userId) throws SQLException {
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE copy_id = ? AND status = ? FOR UPDATE";
+        Hold hold = null;
+        try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setInt(1, copyId);
+            pstm.setString(2, HoldStatus.READY.name());
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (rs.next()) {
+                    hold = mapResultSet(rs);
+                }
+            }
+        }
+        if (hold == null || hold.getUserID() != userId) {
+            return null;
+        }
+
+        try (PreparedStatement pstm = conn.prepareStatement("UPDATE holds SET status = ? WHERE hold_id = ?")) {
+            pstm.setString(1, HoldStatus.FULFILLED.name());
+            pstm.setInt(2, hold.getHoldID());
+            pstm.executeUpdate();
+        }
+        hold.setStatus(HoldStatus.FULFILLED);
+        return hold;
+    }
+
+    private Hold lockHold(Connection conn, int holdId) throws SQLException {
+        String sql = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE hold_id = ? FOR UPDATE";
+        try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setInt(1, holdId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? mapResultSet(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Fallback of {@link #passOnCopy} when the book's queue is not loaded.
+     *
+     * @return the ID of the oldest waiting hold of an active patron, locked, or 0
+     */
+    private static int lockOldestEligibleHold(Connection conn, int bookId) throws SQLException {
+        String sql = "SELECT h.hold_id FROM holds h WHERE h.book_id = ? AND h.status = ? "
+                + "AND EXISTS (SELECT 1 FROM users u WHERE u.user_id = h.user_id AND u.active = true) "
+                + "ORDER BY h.hold_id LIMIT 1 FOR UPDATE";
+        try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setInt(1, bookId);
+            pstm.setString(2, HoldStatus.WAITING.name());
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? rs.getInt("hold_id") : 0;
+            }
+        }
+    }
+
+    private static boolean isUserActive(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement pstm = conn.prepareStatement("SELECT active FROM users WHERE user_id = ?")) {
+            pstm.setInt(1, userId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() && rs.getBoolean("active");
+            }
+        }
+    }
+
+    private static boolean isReserved(Connection conn, int copyId) throws SQLException {
+        try (PreparedStatement pstm = conn.prepareStatement("SELECT status FROM copies WHERE copy_id = ? FOR UPDATE")) {
+            pstm.setInt(1, copyId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() && CopyStatus.RESERVED.name().equals(rs.getString("status"));
+            }
+        }
+    }
+
+    /**
+     * Holds taken from the {@link HoldQueues} by {@link #passOnCopy} during
+     * one transaction, settled by the caller once it ends: after a commit
+     * the holds passed over go back to the queue, after a rollback every
+     * hold taken does.
+     */
+    static final class QueueClaim {
+        private final List<Integer> taken = new ArrayList<>();
+        private final List<Integer> passedOver = new ArrayList<>();
+        private int bookId;
+        // The copy whose status was changed, 0 if none
+        private int copyId;
+        private Hold assigned;
+
+        /**
+         * @return the hold the copy was kept for, or {@code null}
+         */
+        Hold assigned() {
+            return assigned;
+        }
+
+        void settle(boolean committed) {
+            if (taken.isEmpty() && assigned == null) {
+                return;
+            }
+            HoldQueues queues = CirculationIndexes.holds();
+            if (!committed) {
+                queues.requeue(bookId, taken);
+                return;
+            }
+            queues.requeue(bookId, passedOver);
+            if (assigned != null) {
+                // Taken from the database when the queue was not loaded: drop it from the queue if loaded since
+                queues.holdRemoved(bookId, assigned.getHoldID());
+            }
+        }
+    }
+}
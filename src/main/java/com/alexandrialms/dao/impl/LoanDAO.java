@@ -1,34 +1,47 @@
 package com.alexandrialms.dao.impl;
 
+import com.alexandrialms.cache.CatalogueCache;
+import com.alexandrialms.circulation.ActiveLoanRegistry;
+import com.alexandrialms.circulation.CirculationIndexes;
+import com.alexandrialms.circulation.OverdueIndex;
 import com.alexandrialms.dao.interfaces.LoanDAOInterface;
+import com.alexandrialms.model.CirculationResult;
+import com.alexandrialms.model.CirculationResult.Status;
+import com.alexandrialms.model.CopyStatus;
+import com.alexandrialms.model.Hold;
+import com.alexandrialms.model.LibraryRole;
 import com.alexandrialms.model.Loan;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.stats.LoanRankings;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class LoanDAO implements LoanDAOInterface {
+    private final HoldDAO holdDAO = new HoldDAO();
+
     @Override
     public boolean insert(Loan loan) {
-        String sql = "INSERT INTO Loans (copy_id, user_id, loan_date, return_date, returned) VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO Loans (copy_id, user_id, loan_date, due_date, return_date, returned, renewals) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
-            pstm.setInt(1, loan.getCopyID());
-            pstm.setInt(2, loan.getUserID());
-            pstm.setDate(3, Date.valueOf(loan.getLoanDate()));
-
-            if (loan.getReturnDate() != null) {
-                pstm.setDate(4, Date.valueOf(loan.getReturnDate()));
-            } else {
-                pstm.setNull(4, Types.DATE);
-            }
-
-            pstm.setBoolean(5, loan.isReturned());
+            bindLoan(pstm, loan);
 
             pstm.executeUpdate();
+            CatalogueCache.availability().invalidate();
+            CirculationIndexes.invalidateAll();
+            LibraryStatistics.loanRankings().loanRecorded(loan.getCopyID(), loan.getLoanDate());
             return true;
 
         } catch (SQLException e) {
@@ -39,25 +52,20 @@ public class LoanDAO implements LoanDAOInterface {
 
     @Override
     public boolean update(Loan loan) {
-        String sql = "UPDATE Loans SET copy_id = ?, user_id = ?, loan_date = ?, return_date = ?, returned = ? WHERE loan_id = ?";
+        String sql = "UPDATE Loans SET copy_id = ?, user_id = ?, loan_date = ?, due_date = ?, return_date = ?, returned = ?, renewals = ? WHERE loan_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
-            pstm.setInt(1, loan.getCopyID());
-            pstm.setInt(2, loan.getUserID());
-            pstm.setDate(3, Date.valueOf(loan.getLoanDate()));
-
-            if (loan.getReturnDate() != null) {
-                pstm.setDate(4, Date.valueOf(loan.getReturnDate()));
-            } else {
-                pstm.setNull(4, Types.DATE);
-            }
-
-            pstm.setBoolean(5, loan.isReturned());
-            pstm.setInt(6, loan.getLoanID());
+            bindLoan(pstm, loan);
+            pstm.setInt(8, loan.getLoanID());
 
             pstm.executeUpdate();
+            // Not a circulation write: the copy's status is not known here
+            CatalogueCache.availability().invalidate();
+            CirculationIndexes.invalidateAll();
+            // Nor are the previous copy and date of the loan
+            LibraryStatistics.loanRankings().invalidate();
             return true;
 
         } catch (SQLException e) {
@@ -70,12 +78,15 @@ public class LoanDAO implements LoanDAOInterface {
     public boolean delete(Integer loanID) {
         String sql = "DELETE FROM Loans WHERE loan_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, loanID);
 
             pstm.executeUpdate();
+            CatalogueCache.availability().invalidate();
+            CirculationIndexes.invalidateAll();
+            LibraryStatistics.loanRankings().invalidate();
             return true;
 
         } catch (SQLException e) {
@@ -88,7 +99,7 @@ public class LoanDAO implements LoanDAOInterface {
     public Loan findById(Integer loanID) {
         String sql = "SELECT * FROM Loans WHERE loan_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, loanID);
@@ -109,7 +120,7 @@ public class LoanDAO implements LoanDAOInterface {
         List<Loan> loans = new ArrayList<>();
         String sql = "SELECT * FROM Loans";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -123,6 +134,16 @@ public class LoanDAO implements LoanDAOInterface {
         return loans;
     }
 
+    @Override
+    public Stream<Loan> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT * FROM Loans", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     private Loan mapResultSet(ResultSet rs) throws SQLException {
         Loan loan = new Loan();
         loan.setLoanID(rs.getInt("loan_id"));
@@ -134,22 +155,57 @@ public class LoanDAO implements LoanDAOInterface {
             loan.setLoanDate(loanDate.toLocalDate());
         }
 
+        Date dueDate = rs.getDate("due_date");
+        if (dueDate != null) {
+            loan.setDueDate(dueDate.toLocalDate());
+        }
+
         Date returnDate = rs.getDate("return_date");
         if (returnDate != null) {
             loan.setReturnDate(returnDate.toLocalDate());
         }
 
         loan.setReturned(rs.getBoolean("returned"));
+        loan.setRenewals(rs.getInt("renewals"));
 
         return loan;
     }
 
+    /**
+     * Binds every column but {@code loan_id}, in table order, to parameters 1 to 7.
+     */
+    private static void bindLoan(PreparedStatement pstm, Loan loan) throws SQLException {
+        pstm.setInt(1, loan.getCopyID());
+        pstm.setInt(2, loan.getUserID());
+        pstm.setDate(3, Date.valueOf(loan.getLoanDate()));
+        setNullableDate(pstm, 4, loan.getDueDate());
+        setNullableDate(pstm, 5, loan.getReturnDate());
+        pstm.setBoolean(6, loan.isReturned());
+        pstm.setInt(7, loan.getRenewals());
+    }
+
+    private static void setNullableDate(PreparedStatement pstm, int index, LocalDate date) throws SQLException {
+        if (date != null) {
+            pstm.setDate(index, Date.valueOf(date));
+        } else {
+            pstm.setNull(index, Types.DATE);
+        }
+    }
+
+    /**
+     * Open loans in {@code loan_id} order, with the IDs taken from the
+     * {@link ActiveLoanRegistry} when it is loaded.
+     */
     @Override
     public List<Loan> findActiveLoans() {
+        int[] loanIds = CirculationIndexes.activeLoans().activeLoanIds(this::loadActiveLoanSnapshot);
+        if (loanIds != null) {
+            return findInOrder(loanIds);
+        }
         List<Loan> activeLoans = new ArrayList<>();
-        String sql = "SELECT loan_id, copy_id, user_id, loan_date, return_date, returned FROM loans WHERE returned = false;";
+        String sql = "SELECT loan_id, copy_id, user_id, loan_date, due_date, return_date, returned, renewals FROM loans WHERE returned = false ORDER BY loan_id";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -167,9 +223,9 @@ public class LoanDAO implements LoanDAOInterface {
     @Override
     public List<Loan> findByUser(int userID) {
         List<Loan> userLoans = new ArrayList<>();
-        String sql = "SELECT loan_id, copy_id, user_id, loan_date, return_date, returned FROM loans WHERE user_id = ?;";
+        String sql = "SELECT loan_id, copy_id, user_id, loan_date, due_date, return_date, returned, renewals FROM loans WHERE user_id = ?;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userID);
@@ -185,4 +241,546 @@ public class LoanDAO implements LoanDAOInterface {
 
         return userLoans;
     }
-}
\ No newline at end of file
+
+    /**
+     * The open loan of a copy, or {@code null} if the copy is not on loan.
+     * Whether it is on loan is answered by the {@link ActiveLoanRegistry}
+     * when it is loaded, so copies on the shelf cost no query.
+     */
+    @Override
+    public Loan findActiveLoanByCopy(int copyID) {
+        int loanId = CirculationIndexes.activeLoans().loanOfCopy(copyID, this::loadActiveLoanSnapshot);
+        if (loanId == 0) {
+            return null;
+        }
+        if (loanId != ActiveLoanRegistry.UNKNOWN) {
+            Loan loan = findById(loanId);
+            if (loan != null && !loan.isReturned()) {
+                return loan;
+            }
+        }
+        String sql = "SELECT loan_id, copy_id, user_id, loan_date, due_date, return_date, returned, renewals "
+                + "FROM loans WHERE copy_id = ? AND returned = false ORDER BY loan_id LIMIT 1";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, copyID);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSet(rs);
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Reads every open loan for the {@link ActiveLoanRegistry}.
+     *
+     * @return the registry contents, or {@code null} on a database error
+     */
+    public ActiveLoanRegistry.Snapshot loadActiveLoanSnapshot() {
+        ActiveLoanRegistry.Snapshot snapshot = new ActiveLoanRegistry.Snapshot();
+        String sql = "SELECT loan_id, copy_id, user_id FROM loans WHERE returned = false";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    snapshot.addOpenLoan(rs.getInt("loan_id"), rs.getInt("copy_id"), rs.getInt("user_id"));
+                }
+            }
+            return snapshot;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ||--------------------------- DUE DATES ----------------------------||
+
+    /**
+     * Open loans past their due date, in {@code loan_id} order. Served from
+     * the {@link OverdueIndex} when it is loaded, so the cost follows the
+     * number of overdue loans rather than the number of open ones.
+     */
+    @Override
+    public List<Loan> findOverdueLoans() {
+        int[] loanIds = CirculationIndexes.overdue().overdueLoanIds(this::loadOverdueSnapshot);
+        return loanIds == null ? loadOverdueLoans() : findInOrder(loanIds);
+    }
+
+    /**
+     * Reads every open loan with a due date for the {@link OverdueIndex}.
+     *
+     * @return the index contents, or {@code null} on a database error
+     */
+    public OverdueIndex.Snapshot loadOverdueSnapshot() {
+        OverdueIndex.Snapshot snapshot = new OverdueIndex.Snapshot();
+        String sql = "SELECT loan_id, user_id, due_date FROM loans WHERE returned = false AND due_date IS NOT NULL";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    snapshot.addOpenLoan(rs.getInt("loan_id"), rs.getInt("user_id"),
+                            rs.getDate("due_date").toLocalDate());
+                }
+            }
+            return snapshot;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private List<Loan> loadOverdueLoans() {
+        List<Loan> loans = new ArrayList<>();
+        String sql = "SELECT loan_id, copy_id, user_id, loan_date, due_date, return_date, returned, renewals "
+                + "FROM loans WHERE returned = false AND due_date < ? ORDER BY loan_id";
+
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(LocalDate.now()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    loans.add(mapResultSet(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return loans;
+    }
+
+    /**
+     * @return the loans with the given IDs in the same order, skipping IDs that no longer exist
+     */
+    private List<Loan> findInOrder(int[] loanIds) {
+        List<Integer> ids = new ArrayList<>(loanIds.length);
+        for (int loanId : loanIds) {
+            ids.add(loanId);
+        }
+        Map<Integer, Loan> found = new HashMap<>();
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(ids)) {
+                String sql = "SELECT loan_id, copy_id, user_id, loan_date, due_date, return_date, returned, renewals "
+                        + "FROM loans WHERE loan_id IN (" + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstm.executeQuery()) {
+                        while (rs.next()) {
+                            Loan loan = mapResultSet(rs);
+                            found.put(loan.getLoanID(), loan);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        List<Loan> loans = new ArrayList<>(found.size());
+        for (Integer loanId : ids) {
+            Loan loan = found.get(loanId);
+            if (loan != null) {
+                loans.add(loan);
+            }
+        }
+        return loans;
+    }
+
+    // ||--------------------------- RANKINGS ----------------------------||
+
+    /**
+     * Reads what the {@link LoanRankings} need: the book of every copy, the
+     * category and authors of every book, the loans per book and day for the
+     * longest {@link PopularityWindow}, and the loans per book since the
+     * beginning.
+     *
+     * @return the rankings contents, or {@code null} on a database error
+     */
+    public LoanRankings.Snapshot loadRankingSnapshot() {
+        LoanRankings.Snapshot snapshot = new LoanRankings.Snapshot();
+        String copiesSql = "SELECT copy_id, book_id FROM copies";
+        String booksSql = "SELECT book_id, category_id FROM books";
+        String authorsSql = "SELECT book_id, author_id FROM book_author";
+        String dailySql = """
+                SELECT c.book_id, l.loan_date, COUNT(*) AS loans
+                FROM loans l
+                JOIN copies c ON l.copy_id = c.copy_id
+                WHERE l.loan_date >= ?
+                GROUP BY c.book_id, l.loan_date
+                """;
+        String allTimeSql = """
+                SELECT c.book_id, COUNT(*) AS loans
+                FROM loans l
+                JOIN copies c ON l.copy_id = c.copy_id
+                GROUP BY c.book_id
+                """;
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            try (PreparedStatement pstm = conn.prepareStatement(copiesSql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addCopy(rs.getInt("copy_id"), rs.getInt("book_id"));
+                    }
+                }
+            }
+            try (PreparedStatement pstm = conn.prepareStatement(booksSql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addBook(rs.getInt("book_id"), rs.getInt("category_id"));
+                    }
+                }
+            }
+            try (PreparedStatement pstm = conn.prepareStatement(authorsSql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pstm.setFetchSize(StreamingQuery.DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addAuthor(rs.getInt("book_id"), rs.getInt("author_id"));
+                    }
+                }
+            }
+            try (PreparedStatement pstm = conn.prepareStatement(dailySql)) {
+                pstm.setDate(1, Date.valueOf(PopularityWindow.LAST_365_DAYS.startingFrom(LocalDate.now())));
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        snapshot.addLoans(rs.getInt("book_id"), rs.getDate("loan_date").toLocalDate(),
+                                rs.getInt("loans"));
+                    }
+                }
+            }
+            try (PreparedStatement pstm = conn.prepareStatement(allTimeSql);
+                    ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    snapshot.addAllTimeLoans(rs.getInt("book_id"), rs.getInt("loans"));
+                }
+            }
+            return snapshot;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ||--------------------------- CIRCULATION ----------------------------||
+
+    static final int MAX_CIRCULATION_ATTEMPTS = 3;
+
+    /**
+     * Lends a copy to a user in one transaction.
+     * <p>
+     * The first statement locks the user and copy rows ({@code FOR UPDATE}) and
+     * reads everything needed to decide: the user's role, whether they are
+     * active, how many loans they have open and the copy status. Two desks
+     * lending the same copy, or the same user borrowing at two desks, are
+     * serialized on those locks instead of racing between separate reads and
+     * writes. If the checks pass, the copy is marked {@code BORROWED} and the
+     * loan is inserted before committing. A deadlock or lock wait timeout is
+     * retried.
+     * </p>
+     * <p>
+     * A {@code RESERVED} copy can only be lent to the user whose hold it is
+     * kept for; that hold is fulfilled in the same transaction and returned
+     * in the result.
+     * </p>
+     *
+     * @return the outcome, or {@code null} if a database error occurred
+     */
+    @Override
+    public CirculationResult checkout(int userId, int copyId, LocalDate loanDate) {
+        for (int attempt = 1;; attempt++) {
+            try (Connection conn = ConnectionProvider.getConnection()) {
+                CirculationResult result = inTransaction(conn, () -> doCheckout(conn, userId, copyId, loanDate));
+                if (result.isOk()) {
+                    Loan loan = result.getLoan();
+                    CatalogueCache.availability().loanOpened(copyId);
+                    CirculationIndexes.activeLoans().loanOpened(loan.getLoanID(), copyId, userId);
+                    CirculationIndexes.overdue().loanOpened(loan.getLoanID(), userId, loan.getDueDate());
+                    LibraryStatistics.loanRankings().loanRecorded(copyId, loanDate);
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= MAX_CIRCULATION_ATTEMPTS) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the open loan of a copy, in one transaction. The copy row and its
+     * open loan are locked by the first statement, so two check-ins of the
+     * same copy cannot both succeed. If a patron is waiting for the book, the
+     * copy is kept for the oldest waiting hold ({@link HoldDAO#passOnCopy})
+     * and the result carries that hold; otherwise it is available again.
+     * Returns of the same book running at once each serve a different hold.
+     *
+     * @return the outcome, or {@code null} if a database error occurred
+     */
+    @Override
+    public CirculationResult checkin(int copyId, LocalDate returnDate) {
+        for (int attempt = 1;; attempt++) {
+            HoldDAO.QueueClaim claim = new HoldDAO.QueueClaim();
+            boolean committed = false;
+            try (Connection conn = ConnectionProvider.getConnection()) {
+                CirculationResult result = inTransaction(conn, () -> doCheckin(conn, copyId, returnDate, claim));
+                committed = result.isOk();
+                if (committed) {
+                    CatalogueCache.availability().loanClosed(copyId);
+                    if (result.getHold() != null) {
+                        CatalogueCache.availability().copyStatusChanged(copyId, CopyStatus.RESERVED);
+                    }
+                    CirculationIndexes.activeLoans().loanClosed(result.getLoan().getLoanID());
+                    CirculationIndexes.overdue().loanClosed(result.getLoan().getLoanID());
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= MAX_CIRCULATION_ATTEMPTS) {
+                    e.printStackTrace();
+                    return null;
+                }
+            } finally {
+                claim.settle(committed);
+            }
+        }
+    }
+
+    /**
+     * Extends the open loan of a copy, in one transaction with the loan row
+     * locked. The new due date is one loan period of the borrower's role
+     * from {@code today}, and never earlier than the current one. Overdue
+     * loans and loans already renewed {@link LibraryRole#getMaxRenewals()}
+     * times are rejected.
+     *
+     * @return the outcome, or {@code null} if a database error occurred
+     */
+    @Override
+    public CirculationResult renew(int copyId, LocalDate today) {
+        for (int attempt = 1;; attempt++) {
+            try (Connection conn = ConnectionProvider.getConnection()) {
+                CirculationResult result = inTransaction(conn, () -> doRenew(conn, copyId, today));
+                if (result.isOk()) {
+                    Loan loan = result.getLoan();
+                    CirculationIndexes.overdue().dueDateChanged(loan.getLoanID(), loan.getDueDate());
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= MAX_CIRCULATION_ATTEMPTS) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+        }
+    }
+
+    private CirculationResult doCheckout(Connection conn, int userId, int copyId, LocalDate loanDate)
+            throws SQLException {
+        String lockSql = "SELECT u.role, u.active, c.copy_id, c.status, "
+                + "(SELECT COUNT(*) FROM loans l WHERE l.user_id = u.user_id AND l.returned = false) AS open_loans "
+                + "FROM users u LEFT JOIN copies c ON c.copy_id = ? WHERE u.user_id = ? FOR UPDATE";
+        LibraryRole role;
+        String copyStatus;
+        try (PreparedStatement pstm = conn.prepareStatement(lockSql)) {
+            pstm.setInt(1, copyId);
+            pstm.setInt(2, userId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.USER_NOT_FOUND);
+                }
+                if (!rs.getBoolean("active")) {
+                    return CirculationResult.rejected(Status.USER_INACTIVE);
+                }
+                role = roleOf(rs.getString("role"));
+                if (role == null || rs.getInt("open_loans") >= role.getLoanLimit()) {
+                    return CirculationResult.rejected(Status.LOAN_LIMIT_REACHED);
+                }
+                rs.getInt("copy_id");
+                if (rs.wasNull()) {
+                    return CirculationResult.rejected(Status.COPY_NOT_FOUND);
+                }
+                copyStatus = rs.getString("status");
+            }
+        }
+
+        Hold hold = null;
+        if (CopyStatus.RESERVED.name().equals(copyStatus)) {
+            hold = holdDAO.fulfil(conn, copyId, userId);
+            if (hold == null) {
+                return CirculationResult.rejected(Status.COPY_NOT_AVAILABLE);
+            }
+        } else if (!CopyStatus.AVAILABLE.name().equals(copyStatus)) {
+            return CirculationResult.rejected(Status.COPY_NOT_AVAILABLE);
+        }
+
+        try (PreparedStatement pstm = conn.prepareStatement("UPDATE copies SET status = ? WHERE copy_id = ?")) {
+            pstm.setString(1, CopyStatus.BORROWED.name());
+            pstm.setInt(2, copyId);
+            pstm.executeUpdate();
+        }
+
+        Loan loan = new Loan(0, copyId, userId, loanDate, null, false);
+        loan.setDueDate(role.dueDateFrom(loanDate));
+        String insertSql = "INSERT INTO loans (copy_id, user_id, loan_date, due_date, return_date, returned, renewals) "
+                + "VALUES (?, ?, ?, ?, NULL, false, 0)";
+        try (PreparedStatement pstm = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+            pstm.setInt(1, copyId);
+            pstm.setInt(2, userId);
+            pstm.setDate(3, Date.valueOf(loanDate));
+            pstm.setDate(4, Date.valueOf(loan.getDueDate()));
+            pstm.executeUpdate();
+            try (ResultSet keys = pstm.getGeneratedKeys()) {
+                if (keys.next()) {
+                    loan.setLoanID(keys.getInt(1));
+                }
+            }
+        }
+        return CirculationResult.ok(loan, hold);
+    }
+
+    private CirculationResult doCheckin(Connection conn, int copyId, LocalDate returnDate, HoldDAO.QueueClaim claim)
+            throws SQLException {
+        String lockSql = "SELECT c.copy_id, c.book_id, l.loan_id, l.user_id, l.loan_date, l.due_date, l.renewals FROM copies c "
+                + "LEFT JOIN loans l ON l.copy_id = c.copy_id AND l.returned = false "
+                + "WHERE c.copy_id = ? ORDER BY l.loan_id LIMIT 1 FOR UPDATE";
+        Loan loan;
+        int bookId;
+        try (PreparedStatement pstm = conn.prepareStatement(lockSql)) {
+            pstm.setInt(1, copyId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.COPY_NOT_FOUND);
+                }
+                int loanId = rs.getInt("loan_id");
+                if (rs.wasNull()) {
+                    return CirculationResult.rejected(Status.NO_ACTIVE_LOAN);
+                }
+                bookId = rs.getInt("book_id");
+                Date loanDate = rs.getDate("loan_date");
+                loan = new Loan(loanId, copyId, rs.getInt("user_id"),
+                        loanDate != null ? loanDate.toLocalDate() : null, returnDate, true);
+                Date dueDate = rs.getDate("due_date");
+                loan.setDueDate(dueDate != null ? dueDate.toLocalDate() : null);
+                loan.setRenewals(rs.getInt("renewals"));
+            }
+        }
+
+        String closeSql = "UPDATE loans SET return_date = ?, returned = true WHERE loan_id = ?";
+        try (PreparedStatement pstm = conn.prepareStatement(closeSql)) {
+            pstm.setDate(1, Date.valueOf(returnDate));
+            pstm.setInt(2, loan.getLoanID());
+            pstm.executeUpdate();
+        }
+
+        Hold hold = holdDAO.passOnCopy(conn, bookId, copyId, returnDate, claim);
+        return CirculationResult.ok(loan, hold);
+    }
+
+    private CirculationResult doRenew(Connection conn, int copyId, LocalDate today) throws SQLException {
+        String lockSql = "SELECT c.copy_id, l.loan_id, l.user_id, l.loan_date, l.due_date, l.renewals, u.role "
+                + "FROM copies c "
+                + "LEFT JOIN loans l ON l.copy_id = c.copy_id AND l.returned = false "
+                + "LEFT JOIN users u ON u.user_id = l.user_id "
+                + "WHERE c.copy_id = ? ORDER BY l.loan_id LIMIT 1 FOR UPDATE";
+        Loan loan;
+        try (PreparedStatement pstm = conn.prepareStatement(lockSql)) {
+            pstm.setInt(1, copyId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return CirculationResult.rejected(Status.COPY_NOT_FOUND);
+                }
+                int loanId = rs.getInt("loan_id");
+                if (rs.wasNull()) {
+                    return CirculationResult.rejected(Status.NO_ACTIVE_LOAN);
+                }
+                Date loanDate = rs.getDate("loan_date");
+                Date dueDate = rs.getDate("due_date");
+                loan = new Loan(loanId, copyId, rs.getInt("user_id"),
+                        loanDate != null ? loanDate.toLocalDate() : null, null, false);
+                loan.setDueDate(dueDate != null ? dueDate.toLocalDate() : null);
+                loan.setRenewals(rs.getInt("renewals"));
+                if (loan.isOverdue(today)) {
+                    return CirculationResult.rejected(Status.LOAN_OVERDUE);
+                }
+                LibraryRole role = roleOf(rs.getString("role"));
+                if (role == null || loan.getRenewals() >= role.getMaxRenewals()) {
+                    return CirculationResult.rejected(Status.RENEWAL_LIMIT_REACHED);
+                }
+                LocalDate renewedDueDate = role.dueDateFrom(today);
+                if (loan.getDueDate() != null && loan.getDueDate().isAfter(renewedDueDate)) {
+                    renewedDueDate = loan.getDueDate();
+                }
+                loan.setDueDate(renewedDueDate);
+                loan.setRenewals(loan.getRenewals() + 1);
+            }
+        }
+
+        String renewSql = "UPDATE loans SET due_date = ?, renewals = ? WHERE loan_id = ?";
+        try (PreparedStatement pstm = conn.prepareStatement(renewSql)) {
+            pstm.setDate(1, Date.valueOf(loan.getDueDate()));
+            pstm.setInt(2, loan.getRenewals());
+            pstm.setInt(3, loan.getLoanID());
+            pstm.executeUpdate();
+        }
+        return CirculationResult.ok(loan);
+    }
+
+    private static LibraryRole roleOf(String role) {
+        for (LibraryRole libraryRole : LibraryRole.values()) {
+            if (libraryRole.name().equals(role)) {
+                return libraryRole;
+            }
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    interface TransactionWork {
+        CirculationResult run() throws SQLException;
+    }
+
+    /**
+     * Runs {@code work} with auto-commit disabled. A rejected result is rolled
+     * back so the row locks are released straight away. Shared with
+     * {@link HoldDAO}.
+     */
+    static CirculationResult inTransaction(Connection conn, TransactionWork work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            CirculationResult result = work.run();
+            if (result.isOk()) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Deadlocks (SQLState 40001) and lock wait timeouts (MariaDB error 1205).
+     */
+    static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1205;
+    }
+}
@@ -2,18 +2,21 @@ package com.alexandrialms.dao.impl;
 
 import com.alexandrialms.dao.interfaces.PasswordDAOInterface;
 import com.alexandrialms.model.Password;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.security.Credentials;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.StreamingQuery;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class PasswordDAO implements PasswordDAOInterface {
     @Override
     public boolean insert(Password password) {
         String sql = "INSERT INTO passwords (user_id, password_hash, created_at, updated_at) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, password.getUserID());
@@ -32,6 +35,8 @@ public class PasswordDAO implements PasswordDAOInterface {
             }
 
             pstm.executeUpdate();
+            // A new password ends the sessions opened with the old one
+            Credentials.sessions().revokeUser(password.getUserID());
             return true;
 
         } catch (SQLException e) {
@@ -44,7 +49,7 @@ public class PasswordDAO implements PasswordDAOInterface {
     public boolean update(Password password) {
         String sql = "UPDATE passwords SET user_id = ?, password_hash = ?, created_at = ?, updated_at = ? WHERE password_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, password.getUserID());
@@ -76,12 +81,16 @@ public class PasswordDAO implements PasswordDAOInterface {
     @Override
     public boolean delete(Integer passwordID) {
         String sql = "DELETE FROM passwords WHERE password_id = ?";
+        // Deleting the current password makes an older one current again
+        Password before = findById(passwordID);
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, passwordID);
-            pstm.executeUpdate();
+            if (pstm.executeUpdate() > 0 && before != null) {
+                Credentials.sessions().revokeUser(before.getUserID());
+            }
             return true;
 
         } catch (SQLException e) {
@@ -94,7 +103,7 @@ public class PasswordDAO implements PasswordDAOInterface {
     public Password findById(Integer passwordID) {
         String sql = "SELECT * FROM passwords WHERE password_id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, passwordID);
@@ -115,7 +124,7 @@ public class PasswordDAO implements PasswordDAOInterface {
         List<Password> passwords = new ArrayList<>();
         String sql = "SELECT * FROM passwords";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -129,6 +138,16 @@ public class PasswordDAO implements PasswordDAOInterface {
         return passwords;
     }
 
+    @Override
+    public Stream<Password> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT * FROM passwords", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     private Password mapResultSet(ResultSet rs) throws SQLException {
         Password password = new Password();
         password.setPasswordID(rs.getInt("password_id"));
@@ -150,9 +169,9 @@ public class PasswordDAO implements PasswordDAOInterface {
 
     @Override
     public Password findByUserID(int userID) {
-        String sql = "SELECT password_id, user_id, password_hash, created_at, updated_at FROM passwords WHERE user_id = ? ORDER BY created_at DESC LIMIT 1;";
+        String sql = "SELECT password_id, user_id, password_hash, created_at, updated_at FROM passwords WHERE user_id = ? ORDER BY created_at DESC, password_id DESC LIMIT 1;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userID);
@@ -172,9 +191,9 @@ public class PasswordDAO implements PasswordDAOInterface {
     @Override
     public List<Password> getPasswordHistory(int userID){
         List<Password> history = new ArrayList<>();
-        String sql = "SELECT password_id, user_id, password_hash, created_at, updated_at FROM passwords WHERE user_id = ? ORDER BY created_at DESC;";
+        String sql = "SELECT password_id, user_id, password_hash, created_at, updated_at FROM passwords WHERE user_id = ? ORDER BY created_at DESC, password_id DESC;";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userID);
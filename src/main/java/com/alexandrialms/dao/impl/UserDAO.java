@@ -1,24 +1,38 @@
 package com.alexandrialms.dao.impl;
 
 import com.alexandrialms.model.User;
+import com.alexandrialms.circulation.ActiveLoanRegistry;
+import com.alexandrialms.circulation.CirculationIndexes;
 import com.alexandrialms.dao.interfaces.UserDAOInterface;
 import com.alexandrialms.model.LibraryRole;
-import com.alexandrialms.util.DBConnection;
+import com.alexandrialms.security.Credentials;
+import com.alexandrialms.stats.LibraryStatistics;
+import com.alexandrialms.util.ProgressListener;
+import com.alexandrialms.util.db.BatchWriter;
+import com.alexandrialms.util.db.ConnectionProvider;
+import com.alexandrialms.util.db.InClause;
+import com.alexandrialms.util.db.StreamingQuery;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class UserDAO implements UserDAOInterface {
 
+    private final LoanDAO loanDAO = new LoanDAO();
+
     public boolean insert(User user) {
         String sql = "INSERT INTO users (first_name, last_name, email, phone, address, registration_date, role, active) "
                 +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, user.getFirstName());
@@ -39,6 +53,7 @@ public class UserDAO implements UserDAOInterface {
             pstm.setBoolean(8, user.isActive());
 
             pstm.executeUpdate();
+            LibraryStatistics.userAdded(user);
             return true;
 
         } catch (SQLException e) {
@@ -51,8 +66,9 @@ public class UserDAO implements UserDAOInterface {
         String sql = "UPDATE users SET first_name = ?, last_name = ?, email = ?, phone = ?, address = ?, registration_date = ?, role = ?, active = ? "
                 +
                 "WHERE user_id = ?";
+        User before = findForStatistics(user.getUserID());
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, user.getFirstName());
@@ -71,7 +87,13 @@ public class UserDAO implements UserDAOInterface {
             pstm.setBoolean(8, user.isActive());
             pstm.setInt(9, user.getUserID());
 
-            pstm.executeUpdate();
+            if (pstm.executeUpdate() > 0) {
+                LibraryStatistics.userChanged(before, user);
+                if (before == null || before.getRole() != user.getRole() || !user.isActive()) {
+                    // Sessions carry the role and are only valid for active users
+                    Credentials.sessions().revokeUser(user.getUserID());
+                }
+            }
             return true;
 
         } catch (SQLException e) {
@@ -82,12 +104,18 @@ public class UserDAO implements UserDAOInterface {
 
     public boolean delete(int userID) {
         String sql = "DELETE FROM users WHERE user_id = ?";
+        User before = findForStatistics(userID);
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, userID);
-            pstm.executeUpdate();
+            if (pstm.executeUpdate() > 0) {
+                if (before != null) {
+                    LibraryStatistics.userRemoved(before);
+                }
+                Credentials.sessions().revokeUser(userID);
+            }
             return true;
 
         } catch (SQLException e) {
@@ -100,7 +128,7 @@ public class UserDAO implements UserDAOInterface {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -114,6 +142,16 @@ public class UserDAO implements UserDAOInterface {
         return users;
     }
 
+    @Override
+    public Stream<User> streamAll() {
+        try {
+            return StreamingQuery.stream("SELECT * FROM users", this::mapResultSet);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
     private User mapResultSet(ResultSet rs) throws SQLException {
         User user = new User();
         user.setUserID(rs.getInt("user_id"));
@@ -141,7 +179,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public User findById(Integer id) throws SQLException {
         String sql = "SELECT * FROM users WHERE user_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, id);
@@ -165,7 +203,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public User findByEmail(String email) throws SQLException {
         String sql = "SELECT * FROM users WHERE email = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, email);
@@ -185,7 +223,7 @@ public class UserDAO implements UserDAOInterface {
     public List<User> findByRole(String role) throws SQLException {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users WHERE role = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setString(1, role);
             ResultSet rs = pstm.executeQuery();
@@ -202,7 +240,7 @@ public class UserDAO implements UserDAOInterface {
     public List<User> findActiveUsers() throws SQLException {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users WHERE active = TRUE";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
             while (rs.next()) {
@@ -218,7 +256,7 @@ public class UserDAO implements UserDAOInterface {
     public List<User> searchUsersByName(String name) throws SQLException {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users WHERE first_name LIKE ? OR last_name LIKE ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             String searchPattern = "%" + name + "%";
             pstm.setString(1, searchPattern);
@@ -237,7 +275,7 @@ public class UserDAO implements UserDAOInterface {
     public List<User> findByRegistrationDateRange(Date startDate, Date endDate) throws SQLException {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users WHERE registration_date BETWEEN ? AND ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setTimestamp(1, new Timestamp(startDate.getTime()));
@@ -256,8 +294,8 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public List<User> findAllPaginated(int limit, int offset) throws SQLException {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT * FROM users ORDER BY user_id LIMIT ? OFFSET ?";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setInt(1, limit);
             pstm.setInt(2, offset);
@@ -274,8 +312,8 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public List<User> findByRolePaginated(String role, int limit, int offset) throws SQLException {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users WHERE role = ? LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT * FROM users WHERE role = ? ORDER BY user_id LIMIT ? OFFSET ?";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setString(1, role);
             pstm.setInt(2, limit);
@@ -293,8 +331,8 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public List<User> searchUsersByNamePaginated(String name, int limit, int offset) throws SQLException {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users WHERE first_name LIKE ? OR last_name LIKE ? LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT * FROM users WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY user_id LIMIT ? OFFSET ?";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             String searchPattern = "%" + name + "%";
             pstm.setString(1, searchPattern);
@@ -311,10 +349,47 @@ public class UserDAO implements UserDAOInterface {
         return users;
     }
 
+    @Override
+    public List<User> findAllAfter(int afterUserId, int limit) throws SQLException {
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setInt(1, afterUserId);
+            pstm.setInt(2, limit);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                users.add(mapResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findByRoleAfter(String role, int afterUserId, int limit) throws SQLException {
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM users WHERE role = ? AND user_id > ? ORDER BY user_id LIMIT ?";
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setString(1, role);
+            pstm.setInt(2, afterUserId);
+            pstm.setInt(3, limit);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                users.add(mapResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
     @Override
     public int countUsersByRole(String role) throws SQLException {
         String sql = "SELECT COUNT(*) AS count FROM users WHERE role = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setString(1, role);
             ResultSet rs = pstm.executeQuery();
@@ -330,7 +405,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public int countActiveUsers() throws SQLException {
         String sql = "SELECT COUNT(*) AS count FROM users WHERE active = TRUE";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
             if (rs.next()) {
@@ -345,7 +420,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public int countUsersRegisteredInPeriod(Date startDate, Date endDate) throws SQLException {
         String sql = "SELECT COUNT(*) AS count FROM users WHERE registration_date BETWEEN ? AND ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setDate(1, startDate);
             pstm.setDate(2, endDate);
@@ -359,11 +434,21 @@ public class UserDAO implements UserDAOInterface {
         return 0;
     }
 
+    /**
+     * Users with at least one open loan, once each and in {@code user_id}
+     * order. The IDs come from the {@code ActiveLoanRegistry} when it is
+     * loaded.
+     */
     @Override
     public List<User> findUsersWithActiveLoans() throws SQLException {
+        int[] userIds = CirculationIndexes.activeLoans().userIdsWithLoans(loanDAO::loadActiveLoanSnapshot);
+        if (userIds != null) {
+            return findInOrder(userIds);
+        }
         List<User> users = new ArrayList<>();
-        String sql = "SELECT u.* FROM users u JOIN loans l ON u.user_id = l.user_id WHERE l.return_date IS NULL";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT u.* FROM users u WHERE EXISTS (SELECT 1 FROM loans l WHERE l.user_id = u.user_id "
+                + "AND l.returned = false) ORDER BY u.user_id";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
             while (rs.next()) {
@@ -375,11 +460,21 @@ public class UserDAO implements UserDAOInterface {
         return users;
     }
 
+    /**
+     * Users with at least one open loan past its due date, once each and in
+     * {@code user_id} order. The IDs come from the {@code OverdueIndex} when
+     * it is loaded.
+     */
     @Override
     public List<User> findUsersWithOverdueLoans() throws SQLException {
+        int[] userIds = CirculationIndexes.overdue().overdueUserIds(loanDAO::loadOverdueSnapshot);
+        if (userIds != null) {
+            return findInOrder(userIds);
+        }
         List<User> users = new ArrayList<>();
-        String sql = "SELECT u.* FROM users u JOIN loans l ON u.user_id = l.user_id WHERE l.due_date < CURRENT_DATE AND l.return_date IS NULL";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT u.* FROM users u WHERE EXISTS (SELECT 1 FROM loans l WHERE l.user_id = u.user_id "
+                + "AND l.due_date < CURRENT_DATE AND l.returned = false) ORDER BY u.user_id";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
             while (rs.next()) {
@@ -391,10 +486,51 @@ public class UserDAO implements UserDAOInterface {
         return users;
     }
 
+    private List<User> findInOrder(int[] userIds) {
+        List<Integer> ids = new ArrayList<>(userIds.length);
+        for (int userId : userIds) {
+            ids.add(userId);
+        }
+        Map<Integer, User> found = new HashMap<>();
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : InClause.chunks(ids)) {
+                String sql = "SELECT * FROM users WHERE user_id IN (" + InClause.placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstm.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstm.executeQuery()) {
+                        while (rs.next()) {
+                            User user = mapResultSet(rs);
+                            found.put(user.getUserID(), user);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        List<User> users = new ArrayList<>(found.size());
+        for (Integer userId : ids) {
+            User user = found.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Answered by the {@code ActiveLoanRegistry} without a query when it is loaded.
+     */
     @Override
     public int countActiveLoansByUser(Integer userId) throws SQLException {
-        String sql = "SELECT COUNT(*) AS count FROM loans WHERE user_id = ? AND return_date IS NULL";
-        try (Connection conn = DBConnection.getConnection();
+        int count = CirculationIndexes.activeLoans().activeLoanCount(userId, loanDAO::loadActiveLoanSnapshot);
+        if (count != ActiveLoanRegistry.UNKNOWN) {
+            return count;
+        }
+        String sql = "SELECT COUNT(*) AS count FROM loans WHERE user_id = ? AND returned = false";
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
             pstm.setInt(1, userId);
             ResultSet rs = pstm.executeQuery();
@@ -410,7 +546,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public boolean existsByEmail(String email) throws SQLException {
         String sql = "SELECT 1 FROM users WHERE email = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, email);
@@ -427,7 +563,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public boolean existsByPhone(String phone) throws SQLException {
         String sql = "SELECT 1 FROM users WHERE phone = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setString(1, phone);
@@ -441,10 +577,32 @@ public class UserDAO implements UserDAOInterface {
         }
     }
 
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) throws SQLException {
+        return findExisting("SELECT email FROM users WHERE email IN (%s)", emails);
+    }
+
+    @Override
+    public Set<String> findExistingPhones(Collection<String> phones) throws SQLException {
+        return findExisting("SELECT phone FROM users WHERE phone IN (%s)", phones);
+    }
+
+    private Set<String> findExisting(String sqlTemplate, Collection<String> values) {
+        if (values.isEmpty()) {
+            return new HashSet<>();
+        }
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            return InClause.selectExisting(conn, sqlTemplate, values, String.class);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new HashSet<>();
+        }
+    }
+
     @Override
     public int countAllUsers() throws SQLException {
         String sql = "SELECT COUNT(*) AS count FROM users";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
             if (rs.next()) {
@@ -459,11 +617,18 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public boolean deactivateUser(Integer userId) throws SQLException {
         String sql = "UPDATE users SET active = 0 WHERE user_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        User before = findForStatistics(userId);
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, userId);
             int rowsAffected = pstm.executeUpdate();
+            if (rowsAffected > 0 && before != null) {
+                LibraryStatistics.userRemoved(before);
+            }
+            if (rowsAffected > 0) {
+                Credentials.sessions().revokeUser(userId);
+            }
             return rowsAffected > 0;
 
         } catch (SQLException e) {
@@ -475,11 +640,16 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public boolean activateUser(Integer userId) throws SQLException {
         String sql = "UPDATE users SET active = 1 WHERE user_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        User before = findForStatistics(userId);
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             pstm.setInt(1, userId);
             int rowsAffected = pstm.executeUpdate();
+            if (rowsAffected > 0 && before != null && !before.isActive()) {
+                before.setActive(true);
+                LibraryStatistics.userAdded(before);
+            }
             return rowsAffected > 0;
 
         } catch (SQLException e) {
@@ -490,10 +660,15 @@ public class UserDAO implements UserDAOInterface {
 
         public int deactivateInactiveUsers() throws SQLException {
         String sql = "UPDATE users SET active = 0 WHERE last_login < NOW() - INTERVAL 1 YEAR";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             int rowsAffected = pstm.executeUpdate();
+            if (rowsAffected > 0) {
+                LibraryStatistics.allUsersChanged();
+                // The deactivated users are not known: end every session rather than read them first
+                Credentials.sessions().revokeAll();
+            }
             return rowsAffected;
 
         } catch (SQLException e) {
@@ -505,7 +680,7 @@ public class UserDAO implements UserDAOInterface {
     @Override
     public int deleteInactiveUsers() throws SQLException {
         String sql = "DELETE FROM users WHERE active = 0";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql)) {
 
             return pstm.executeUpdate();
@@ -518,49 +693,141 @@ public class UserDAO implements UserDAOInterface {
 
     @Override
     public int updateUserRole(List<Integer> userIds, String newRole) throws SQLException {
-        String sql = "UPDATE users SET role = ? WHERE user_id = ?";
-        int totalUpdated = 0;
+        return updateUserRole(userIds, newRole, ProgressListener.NONE);
+    }
 
-        try (Connection conn = DBConnection.getConnection();
-                PreparedStatement pstm = conn.prepareStatement(sql)) {
+    @Override
+    public int updateUserRole(List<Integer> userIds, String newRole, ProgressListener listener)
+            throws SQLException {
+        int updated = updateInChunks("UPDATE users SET role = ? WHERE role <> ? AND user_id IN (%s)", userIds,
+                listener, newRole, newRole);
+        if (updated > 0) {
+            Credentials.sessions().revokeUsers(userIds);
+        }
+        return updated;
+    }
 
-            for (Integer userId : userIds) {
-                pstm.setString(1, newRole);
-                pstm.setInt(2, userId);
-                totalUpdated += pstm.executeUpdate();
-            }
+    @Override
+    public int bulkDeactivateUsers(List<Integer> userIds) throws SQLException {
+        return bulkDeactivateUsers(userIds, ProgressListener.NONE);
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    @Override
+    public int bulkDeactivateUsers(List<Integer> userIds, ProgressListener listener) throws SQLException {
+        int updated = updateInChunks("UPDATE users SET active = 0 WHERE active <> 0 AND user_id IN (%s)", userIds,
+                listener);
+        if (updated > 0) {
+            Credentials.sessions().revokeUsers(userIds);
         }
-        return totalUpdated;
+        return updated;
     }
 
     @Override
-    public int bulkDeactivateUsers(List<Integer> userIds) throws SQLException {
-        String sql = "UPDATE users SET active = 0 WHERE user_id = ?";
-        int totalUpdated = 0;
+    public int bulkActivateUsers(List<Integer> userIds) throws SQLException {
+        return bulkActivateUsers(userIds, ProgressListener.NONE);
+    }
 
-        try (Connection conn = DBConnection.getConnection();
-                PreparedStatement pstm = conn.prepareStatement(sql)) {
+    @Override
+    public int bulkActivateUsers(List<Integer> userIds, ProgressListener listener) throws SQLException {
+        return updateInChunks("UPDATE users SET active = 1 WHERE active = 0 AND user_id IN (%s)", userIds,
+                listener);
+    }
+
+    /**
+     * Runs a set-based UPDATE over {@code userIds}, one {@code IN (...)} chunk of
+     * {@code db.batch.size} IDs per statement. Each chunk commits on its own so
+     * row locks are held only for one chunk, not for the whole list.
+     *
+     * @param sqlTemplate  statement with a {@code %s} where the placeholders go
+     * @param leadingParams values bound before the IDs
+     * @return rows changed
+     */
+    private int updateInChunks(String sqlTemplate, List<Integer> userIds, ProgressListener listener,
+            Object... leadingParams) {
+        List<List<Integer>> chunks = InClause.chunks(userIds, BatchWriter.configuredBatchSize());
+        int total = chunks.stream().mapToInt(List::size).sum();
+        int processed = 0;
+        int totalUpdated = 0;
 
-            for (Integer userId : userIds) {
-                pstm.setInt(1, userId);
-                totalUpdated += pstm.executeUpdate();
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            for (List<Integer> chunk : chunks) {
+                String sql = String.format(sqlTemplate, InClause.placeholders(chunk.size()));
+                try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    for (Object param : leadingParams) {
+                        pstm.setObject(index++, param);
+                    }
+                    for (Integer userId : chunk) {
+                        pstm.setInt(index++, userId);
+                    }
+                    totalUpdated += pstm.executeUpdate();
+                }
+                processed += chunk.size();
+                listener.onProgress(processed, total, totalUpdated);
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        if (totalUpdated > 0) {
+            // Role and active changes over a list of IDs: recount rather than read every row first
+            LibraryStatistics.allUsersChanged();
+        }
         return totalUpdated;
     }
 
+    /**
+     * Reads a user before a write so the statistics can be adjusted.
+     * Runs before the write borrows its connection.
+     *
+     * @return the user, or {@code null} if it does not exist or could not be read
+     */
+    private User findForStatistics(int userId) {
+        try {
+            return findById(userId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     @Override
     public Map<String, Integer> getUsersCountByAllRoles() throws SQLException {
+        Map<String, Integer> roleCounts = LibraryStatistics.activeUsersByRole().read(this::loadUsersCountByRole);
+        if (roleCounts == null) {
+            throw new SQLException("Could not count users by role");
+        }
+
+        for (LibraryRole role : LibraryRole.values()) {
+            roleCounts.putIfAbsent(role.name(), 0);
+        }
+
+        return roleCounts;
+    }
+
+    /**
+     * Active users registered in each month of {@code year}, served from the
+     * counters in {@link LibraryStatistics} (all years are counted at once).
+     */
+    @Override
+    public Map<Integer, Integer> getRegistrationsByMonth(int year) throws SQLException {
+        Map<Integer, Integer> allMonths = LibraryStatistics.activeUsersByMonth().read(this::loadRegistrationsByMonth);
+        if (allMonths == null) {
+            throw new SQLException("Could not count registrations by month");
+        }
+
+        Map<Integer, Integer> monthlyRegistrations = new HashMap<>();
+        for (int month = 1; month <= 12; month++) {
+            monthlyRegistrations.put(month, allMonths.getOrDefault(LibraryStatistics.monthKey(year, month), 0));
+        }
+
+        return monthlyRegistrations;
+    }
+
+    private Map<String, Integer> loadUsersCountByRole() {
         Map<String, Integer> roleCounts = new HashMap<>();
         String sql = "SELECT role, COUNT(*) as count FROM users WHERE active = true GROUP BY role";
 
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = ConnectionProvider.getConnection();
                 PreparedStatement pstm = conn.prepareStatement(sql);
                 ResultSet rs = pstm.executeQuery()) {
 
@@ -571,43 +838,30 @@ public class UserDAO implements UserDAOInterface {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            throw e;
-        }
-
-        for (LibraryRole role : LibraryRole.values()) {
-            roleCounts.putIfAbsent(role.name(), 0);
+            return null;
         }
 
         return roleCounts;
     }
 
-    @Override
-    public Map<Integer, Integer> getRegistrationsByMonth(int year) throws SQLException {
+    private Map<Integer, Integer> loadRegistrationsByMonth() {
         Map<Integer, Integer> monthlyRegistrations = new HashMap<>();
-        String sql = "SELECT MONTH(registration_date) as month, COUNT(*) as count " +
+        String sql = "SELECT YEAR(registration_date) as reg_year, MONTH(registration_date) as reg_month, COUNT(*) as count " +
                 "FROM users " +
-                "WHERE YEAR(registration_date) = ? AND active = true " +
-                "GROUP BY MONTH(registration_date)";
-
-        try (Connection conn = DBConnection.getConnection();
-                PreparedStatement pstm = conn.prepareStatement(sql)) {
+                "WHERE registration_date IS NOT NULL AND active = true " +
+                "GROUP BY YEAR(registration_date), MONTH(registration_date)";
 
-            pstm.setInt(1, year);
+        try (Connection conn = ConnectionProvider.getConnection();
+                PreparedStatement pstm = conn.prepareStatement(sql);
+                ResultSet rs = pstm.executeQuery()) {
 
-            try (ResultSet rs = pstm.executeQuery()) {
-                while (rs.next()) {
-                    int month = rs.getInt("month");
-                    int count = rs.getInt("count");
-                    monthlyRegistrations.put(month, count);
-                }
+            while (rs.next()) {
+                int key = LibraryStatistics.monthKey(rs.getInt("reg_year"), rs.getInt("reg_month"));
+                monthlyRegistrations.put(key, rs.getInt("count"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            throw e;
-        }
-
-        for (int month = 1; month <= 12; month++) {
-            monthlyRegistrations.putIfAbsent(month, 0);
+            return null;
         }
 
         return monthlyRegistrations;
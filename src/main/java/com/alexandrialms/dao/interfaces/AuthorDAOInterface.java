@@ -1,6 +1,7 @@
 package com.alexandrialms.dao.interfaces;
 
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.PopularityWindow;
 import java.util.List;
 
 public interface AuthorDAOInterface extends GenericDAO<Author, Integer> {
@@ -22,6 +23,7 @@ public interface AuthorDAOInterface extends GenericDAO<Author, Integer> {
     List<Author> findAuthorsWithBooks();
     List<Author> findAuthorsWithMoreThanXBooks(int minBooks);
     List<Author> findMostProlificAuthors(int limit); 
+    List<Author> findMostBorrowedAuthors(int limit, PopularityWindow window); // Loans of the author's books, served by the in-memory LoanRankings
     
     // BATCH OPERATIONS
     int deleteAuthorsWithNoBooks();
@@ -30,6 +32,7 @@ public interface AuthorDAOInterface extends GenericDAO<Author, Integer> {
     // VALIDATION & UTILITY METHODS
     boolean existsByFullName(String firstName, String lastName);
     int countByNationality(String nationality);
+    int countAllAuthors();
     List<String> findAllNationalities();
     
     // BIRTHDATE RELATED METHODS
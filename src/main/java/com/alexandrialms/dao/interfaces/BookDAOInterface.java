@@ -2,13 +2,17 @@ package com.alexandrialms.dao.interfaces;
 
 import com.alexandrialms.model.Author;
 import com.alexandrialms.model.Book;
+import com.alexandrialms.model.PopularityWindow;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface BookDAOInterface extends GenericDAO<Book, Integer> {
         
     // EXISTING METHODS
     Book findByISBN(String isbn);
+    Book findByIsbn13(long isbn13); // Packed key from IsbnParser.parse
     List<Book> findByTitle(String partialTitle);
     
     // BASIC SEARCH METHODS
@@ -26,6 +30,11 @@ public interface BookDAOInterface extends GenericDAO<Book, Integer> {
     List<Book> findByTitlePaginated(String partialTitle, int limit, int offset); //Estos se usan para cuando en una web hay muchos resultados y se muestra estilo: « 1 2 3 4 5 ... »
     List<Book> findByCategoryPaginated(int categoryId, int limit, int offset);
     List<Book> findAllPaginated(int limit, int offset);
+
+    // KEYSET PAGINATION METHODS (seek on the ORDER BY key instead of OFFSET)
+    List<Book> findAllAfter(int afterBookId, int limit); // ORDER BY book_id
+    List<Book> findByTitleAfter(String partialTitle, String afterTitle, int afterBookId, int limit); // ORDER BY title, book_id; afterTitle null = first page
+    List<Book> findByCategoryAfter(int categoryId, int afterBookId, int limit); // ORDER BY book_id
     
     // STATISTICS METHODS
     int countBooksByCategory(int categoryId);
@@ -33,25 +42,32 @@ public interface BookDAOInterface extends GenericDAO<Book, Integer> {
     Map<Integer, Integer> getBooksCountByYear();
     Map<Integer, Integer> getBooksCountByCategory();
     
-    // AVAILABILITY METHODS (REQUIRES JOIN WITH COPY AND LOAN TABLES)
+    // AVAILABILITY METHODS (SERVED BY THE IN-MEMORY AvailabilityIndex, SQL FALLBACK)
     List<Book> findAvailableBooks();
     List<Book> findUnavailableBooks();
     int getAvailableCopiesCount(int bookId);
     int getTotalCopiesCount(int bookId);
+    Map<Integer, Integer> getAvailableCopiesCounts(Collection<Integer> bookIds); // book_id -> available copies, 0 for none
+    Map<Integer, Book> findByIds(Collection<Integer> bookIds); // Bulk lookup: cached books first, one IN query per 500 IDs
     
     // POPULARITY METHODS (REQUIRES JOIN WITH LOAN TABLE)
-    List<Book> findMostBorrowedBooks(int limit);
+    List<Book> findMostBorrowedBooks(int limit); // All-time loans
+    List<Book> findMostBorrowedBooks(int limit, PopularityWindow window); // Served by the in-memory LoanRankings, SQL fallback
     List<Book> findRecentlyAddedBooks(int limit);
+    Map<Integer, Integer> getLoanCountsByBook(); // book_id -> number of loans, never-borrowed books absent
     
     // VALIDATION AND EXISTENCE METHODS
     boolean existsByISBN(String isbn);
     boolean existsByTitleAndYear(String title, int year);
+    Set<Integer> findExistingIds(Collection<Integer> bookIds); // Bulk existence check: one IN query per 500 IDs
+    Set<Long> findExistingIsbn13(Collection<Long> isbn13Keys); // Same, on the packed ISBN-13 key
     int countAllBooks();
     
     // BATCH OPERATIONS
     int deleteBooksByCategory(int categoryId);
     int updateBooksCategory(int oldCategoryId, int newCategoryId);
     int deleteBooksWithNoCopies();
+    int backfillIsbn13(); // Fills the isbn13 key of rows written before the column existed
     
     // --- METHODS USING book_author TABLE ---
     
@@ -60,6 +76,7 @@ public interface BookDAOInterface extends GenericDAO<Book, Integer> {
     boolean removeAuthorFromBook(int bookId, int authorId); // DELETE from book_author
     boolean setBookAuthors(int bookId, List<Integer> authorIds); // Manages multiple authors
     List<Author> getBookAuthors(int bookId); // JOIN with author via book_author
+    Map<Integer, List<Author>> getAuthorsForBooks(Collection<Integer> bookIds); // Bulk version: one IN query per 500 books
     
     // AUTHOR-BASED SEARCHES (REQUIRE JOIN WITH book_author)
     List<Book> findByAuthor(int authorId); // JOIN with book_author
@@ -1,8 +1,11 @@
 package com.alexandrialms.dao.interfaces;
 
 import com.alexandrialms.model.Category;
+import com.alexandrialms.model.PopularityWindow;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface CategoryDAOInterface extends GenericDAO<Category, Integer> {
     
@@ -10,15 +13,18 @@ public interface CategoryDAOInterface extends GenericDAO<Category, Integer> {
     Category findByName(String name);
     List<Category> findByNameContaining(String name);
     List<Category> findByDescriptionContaining(String description);
+    Map<Integer, Category> findByIds(Collection<Integer> categoryIds); // Bulk lookup, uses the catalogue cache first
     
     // STATISTICAL QUERIES
     int countBooksInCategory(int categoryId);
     Map<Integer, Integer> getBooksCountPerCategory();
     List<Category> findCategoriesWithBooks();
     List<Category> findEmptyCategories();
+    List<Category> findMostBorrowedCategories(int limit, PopularityWindow window); // Loans of the category's books, served by the in-memory LoanRankings
     
     // VALIDATION METHODS
     boolean existsByName(String name);
+    Set<String> findExistingNames(Collection<String> names); // Bulk existsByName
     int countAllCategories();
     
     // MAINTENANCE METHODS
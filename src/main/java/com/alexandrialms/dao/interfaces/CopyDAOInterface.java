@@ -1,6 +1,8 @@
 package com.alexandrialms.dao.interfaces;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import com.alexandrialms.model.Copy;
 
@@ -33,6 +35,7 @@ public interface CopyDAOInterface {
     
     // VALIDATION METHODS
     boolean existsByInternalCode(String inventoryNumber);
+    Set<String> findExistingInternalCodes(Collection<String> internalCodes); // Bulk existsByInternalCode
     int countAllCopies();
     
     // MAINTENANCE OPERATIONS
@@ -43,4 +46,5 @@ public interface CopyDAOInterface {
     // PAGINATION SUPPORT
     List<Copy> findByBookIdPaginated(int bookId, int limit, int offset);
     List<Copy> findAvailableCopiesPaginated(int limit, int offset);
+    List<Copy> findByBookIdAfter(int bookId, int afterCopyId, int limit); // Keyset: ORDER BY copy_id
 }
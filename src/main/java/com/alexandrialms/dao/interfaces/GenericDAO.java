@@ -1,12 +1,21 @@
 package com.alexandrialms.dao.interfaces;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface GenericDAO<T, ID> {
 
     List<T> findAll() throws SQLException;
 
+    /**
+     * Streams every row without loading the table into memory. The stream
+     * holds a pooled connection until it is closed or fully consumed, so use
+     * it in a try-with-resources block.
+     */
+    Stream<T> streamAll() throws SQLException;
+
     T findById(ID id) throws SQLException;
 
     boolean insert(T entity) throws SQLException;
@@ -14,5 +23,36 @@ public interface GenericDAO<T, ID> {
     boolean update(T entity) throws SQLException;
 
     boolean delete(ID id) throws SQLException;
+
+    /**
+     * Inserts many entities. DAOs used for bulk imports override this with a
+     * JDBC batch; the default simply calls {@link #insert(Object)} per entity.
+     *
+     * @return number of entities inserted
+     */
+    default int insertAll(Collection<T> entities) throws SQLException {
+        int inserted = 0;
+        for (T entity : entities) {
+            if (insert(entity)) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Updates many entities. Same contract as {@link #insertAll(Collection)}.
+     *
+     * @return number of entities updated
+     */
+    default int updateAll(Collection<T> entities) throws SQLException {
+        int updated = 0;
+        for (T entity : entities) {
+            if (update(entity)) {
+                updated++;
+            }
+        }
+        return updated;
+    }
 }
 
@@ -0,0 +1,18 @@
+package com.alexandrialms.dao.interfaces;
+
+import com.alexandrialms.model.CirculationResult;
+import com.alexandrialms.model.Hold;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HoldDAOInterface extends GenericDAO<Hold, Integer> {
+    List<Hold> findByUser(int userID) throws SQLException;
+    List<Hold> findWaitingByBook(int bookID); // Oldest first, served by the in-memory HoldQueues
+
+    // CIRCULATION (single transaction, rows locked for the duration)
+    CirculationResult place(int userId, int bookId, LocalDateTime placedAt);
+    CirculationResult cancel(int holdId, LocalDate today); // A kept copy passes to the next waiting hold
+    int expireUncollected(LocalDate today); // READY holds past their pickup deadline
+}
@@ -1,10 +1,19 @@
 package com.alexandrialms.dao.interfaces;
 
+import com.alexandrialms.model.CirculationResult;
 import com.alexandrialms.model.Loan;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface LoanDAOInterface extends GenericDAO<Loan, Integer> {
-    List<Loan> findActiveLoans() throws SQLException;
+    List<Loan> findActiveLoans() throws SQLException; // By loan ID, served by the in-memory ActiveLoanRegistry
+    Loan findActiveLoanByCopy(int copyID); // null if the copy is not on loan
     List<Loan> findByUser(int userID) throws SQLException;
+    List<Loan> findOverdueLoans(); // Open loans past due_date, served by the in-memory OverdueIndex
+
+    // CIRCULATION (single transaction, rows locked for the duration)
+    CirculationResult checkout(int userId, int copyId, LocalDate loanDate);
+    CirculationResult checkin(int copyId, LocalDate returnDate);
+    CirculationResult renew(int copyId, LocalDate today); // New due date from the borrower's LibraryRole
 }
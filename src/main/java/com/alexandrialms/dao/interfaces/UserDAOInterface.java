@@ -1,9 +1,12 @@
 package com.alexandrialms.dao.interfaces;
 
 import com.alexandrialms.model.User;
+import com.alexandrialms.util.ProgressListener;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface UserDAOInterface extends GenericDAO<User, Integer> {
 
@@ -26,6 +29,11 @@ public interface UserDAOInterface extends GenericDAO<User, Integer> {
 
     List<User> searchUsersByNamePaginated(String name, int limit, int offset) throws SQLException;
 
+    // KEYSET PAGINATION METHODS (ORDER BY user_id)
+    List<User> findAllAfter(int afterUserId, int limit) throws SQLException;
+
+    List<User> findByRoleAfter(String role, int afterUserId, int limit) throws SQLException;
+
     // STATISTICS METHODS
     int countUsersByRole(String role) throws SQLException;
 
@@ -45,6 +53,10 @@ public interface UserDAOInterface extends GenericDAO<User, Integer> {
 
     boolean existsByPhone(String phone) throws SQLException;
 
+    Set<String> findExistingEmails(Collection<String> emails) throws SQLException; // Bulk existsByEmail: one IN query per 500 values
+
+    Set<String> findExistingPhones(Collection<String> phones) throws SQLException;
+
     int countAllUsers() throws SQLException;
 
     // MAINTENANCE OPERATIONS
@@ -54,11 +66,19 @@ public interface UserDAOInterface extends GenericDAO<User, Integer> {
 
     int deleteInactiveUsers() throws SQLException;
 
-    // BATCH OPERATIONS
+    // BATCH OPERATIONS (chunked UPDATE ... WHERE user_id IN (...), returns rows changed)
     int updateUserRole(List<Integer> userIds, String newRole) throws SQLException;
 
+    int updateUserRole(List<Integer> userIds, String newRole, ProgressListener listener) throws SQLException;
+
     int bulkDeactivateUsers(List<Integer> userIds) throws SQLException;
 
+    int bulkDeactivateUsers(List<Integer> userIds, ProgressListener listener) throws SQLException;
+
+    int bulkActivateUsers(List<Integer> userIds) throws SQLException;
+
+    int bulkActivateUsers(List<Integer> userIds, ProgressListener listener) throws SQLException;
+
     Map<String, Integer> getUsersCountByAllRoles() throws SQLException;
 
     Map<Integer, Integer> getRegistrationsByMonth(int year) throws SQLException;
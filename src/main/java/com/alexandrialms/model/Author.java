@@ -61,6 +61,14 @@ public class Author {
         this.birthDate = birthDate;
     }
 
+    public Author(Author other) {
+        this.authorID = other.authorID;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.nationality = other.nationality;
+        this.birthDate = other.birthDate;
+    }
+
     @Override
     public String toString() {
         return "Author [authorID=" + authorID + ", firstName=" + firstName + ", lastName=" + lastName + ", nationality="
@@ -0,0 +1,107 @@
+package com.alexandrialms.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alexandrialms.exception.ValidationException;
+
+/**
+ * Outcome of a bulk operation such as a catalogue import.
+ * <p>
+ * Rows that fail validation or are rejected by the database are reported in
+ * {@link #getErrors()} with their position in the input list, and the rest
+ * of the batch is still written.
+ * </p>
+ *
+ * @param <T> the entity type
+ */
+public class BatchResult<T> {
+
+    private final int submitted;
+    private final List<T> succeeded = new ArrayList<>();
+    private final List<RowError> errors = new ArrayList<>();
+
+    public BatchResult(int submitted) {
+        this.submitted = submitted;
+    }
+
+    public void addSucceeded(T entity) {
+        succeeded.add(entity);
+    }
+
+    public void addError(int index, ValidationException e) {
+        errors.add(new RowError(index, e.getField(), e.getErrorCode(), e.getMessage()));
+    }
+
+    public void addError(int index, String field, String errorCode, String message) {
+        errors.add(new RowError(index, field, errorCode, message));
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Entities written, with their generated IDs when they were inserted.
+     */
+    public List<T> getSucceeded() {
+        return Collections.unmodifiableList(succeeded);
+    }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult [submitted=" + submitted + ", succeeded=" + succeeded.size() + ", errors="
+                + errors.size() + "]";
+    }
+
+    /**
+     * Why one input row was not written.
+     */
+    public static class RowError {
+        private final int index;
+        private final String field;
+        private final String errorCode;
+        private final String message;
+
+        public RowError(int index, String field, String errorCode, String message) {
+            this.index = index;
+            this.field = field;
+            this.errorCode = errorCode;
+            this.message = message;
+        }
+
+        /**
+         * Position of the row in the submitted list, starting at 0.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "RowError [index=" + index + ", field=" + field + ", errorCode=" + errorCode + ", message="
+                    + message + "]";
+        }
+    }
+}
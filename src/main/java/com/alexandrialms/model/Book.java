@@ -83,6 +83,16 @@ public class Book {
 
 
 
+    public Book(Book other) {
+        this.bookID = other.bookID;
+        this.title = other.title;
+        this.isbn = other.isbn;
+        this.pubYear = other.pubYear;
+        this.categoryId = other.categoryId;
+    }
+
+
+
     @Override
     public String toString() {
         return "Book [bookID=" + bookID + ", title=" + title + ", isbn=" + isbn + ", pubYear=" + pubYear
@@ -0,0 +1,43 @@
+package com.alexandrialms.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A book together with its category and authors, as shown on a catalogue
+ * result page. Built by {@code BookServiceImpl} with bulk queries instead of
+ * one authors query per book.
+ */
+public class BookDetails {
+
+    private final Book book;
+    private final Category category;
+    private final List<Author> authors;
+
+    public BookDetails(Book book, Category category, List<Author> authors) {
+        this.book = book;
+        this.category = category;
+        this.authors = Collections.unmodifiableList(authors);
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * @return the category, or {@code null} if the book has none
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+
+    @Override
+    public String toString() {
+        return "BookDetails [book=" + book + ", category=" + (category == null ? null : category.getName())
+                + ", authors=" + authors.size() + "]";
+    }
+}
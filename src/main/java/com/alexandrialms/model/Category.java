@@ -35,6 +35,11 @@ public class Category {
         this.name = name;
         this.description = description;
     }
+    public Category(Category other) {
+        this.categoryID = other.categoryID;
+        this.name = other.name;
+        this.description = other.description;
+    }
     @Override
     public String toString() {
         return "Category [categoryID=" + categoryID + ", name=" + name + ", description=" + description + "]";
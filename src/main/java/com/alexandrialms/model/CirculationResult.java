@@ -0,0 +1,79 @@
+package com.alexandrialms.model;
+
+/**
+ * Outcome of a checkout, check-in or renewal performed by {@code LoanDAO},
+ * or of a hold placed, cancelled or expired by {@code HoldDAO}.
+ * <p>
+ * On success {@link #getLoan()} holds the loan that was created, closed or
+ * renewed, and {@link #getHold()} the hold that was written: the hold
+ * placed or released, or for a check-in the hold the returned copy is now
+ * kept for ({@code null} if it went back on the shelf). Otherwise the
+ * transaction was rolled back and {@link #getStatus()} says why.
+ * </p>
+ */
+public class CirculationResult {
+
+    public enum Status {
+        OK,
+        USER_NOT_FOUND,
+        USER_INACTIVE,
+        LOAN_LIMIT_REACHED,
+        COPY_NOT_FOUND,
+        COPY_NOT_AVAILABLE,
+        NO_ACTIVE_LOAN,
+        LOAN_OVERDUE,
+        RENEWAL_LIMIT_REACHED,
+        BOOK_NOT_FOUND,
+        BOOK_AVAILABLE,
+        HOLD_ALREADY_PLACED,
+        HOLD_NOT_FOUND,
+        HOLD_NOT_ACTIVE
+    }
+
+    private final Status status;
+    private final Loan loan;
+    private final Hold hold;
+
+    private CirculationResult(Status status, Loan loan, Hold hold) {
+        this.status = status;
+        this.loan = loan;
+        this.hold = hold;
+    }
+
+    public static CirculationResult ok(Loan loan) {
+        return new CirculationResult(Status.OK, loan, null);
+    }
+
+    public static CirculationResult ok(Loan loan, Hold hold) {
+        return new CirculationResult(Status.OK, loan, hold);
+    }
+
+    public static CirculationResult ok(Hold hold) {
+        return new CirculationResult(Status.OK, null, hold);
+    }
+
+    public static CirculationResult rejected(Status status) {
+        return new CirculationResult(status, null, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Loan getLoan() {
+        return loan;
+    }
+
+    public Hold getHold() {
+        return hold;
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    @Override
+    public String toString() {
+        return "CirculationResult [status=" + status + ", loan=" + loan + ", hold=" + hold + "]";
+    }
+}
@@ -0,0 +1,85 @@
+package com.alexandrialms.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class Hold {
+    private int holdID;
+    private int bookID;
+    private int userID;
+    private Integer copyID;
+    private HoldStatus status;
+    private LocalDateTime placedAt;
+    private LocalDate readyDate;
+    private LocalDate pickupDeadline;
+
+    public int getHoldID() {
+        return holdID;
+    }
+    public void setHoldID(int holdID) {
+        this.holdID = holdID;
+    }
+    public int getBookID() {
+        return bookID;
+    }
+    public void setBookID(int bookID) {
+        this.bookID = bookID;
+    }
+    public int getUserID() {
+        return userID;
+    }
+    public void setUserID(int userID) {
+        this.userID = userID;
+    }
+    /**
+     * @return the copy kept for the patron, or {@code null} while the hold is waiting
+     */
+    public Integer getCopyID() {
+        return copyID;
+    }
+    public void setCopyID(Integer copyID) {
+        this.copyID = copyID;
+    }
+    public HoldStatus getStatus() {
+        return status;
+    }
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+    public LocalDateTime getPlacedAt() {
+        return placedAt;
+    }
+    public void setPlacedAt(LocalDateTime placedAt) {
+        this.placedAt = placedAt;
+    }
+    public LocalDate getReadyDate() {
+        return readyDate;
+    }
+    public void setReadyDate(LocalDate readyDate) {
+        this.readyDate = readyDate;
+    }
+    /**
+     * @return the last day a {@code READY} hold can be collected
+     */
+    public LocalDate getPickupDeadline() {
+        return pickupDeadline;
+    }
+    public void setPickupDeadline(LocalDate pickupDeadline) {
+        this.pickupDeadline = pickupDeadline;
+    }
+
+    public Hold(int bookID, int userID, LocalDateTime placedAt) {
+        this.bookID = bookID;
+        this.userID = userID;
+        this.placedAt = placedAt;
+        this.status = HoldStatus.WAITING;
+    }
+    public Hold() {
+    }
+    @Override
+    public String toString() {
+        return "Hold [holdID=" + holdID + ", bookID=" + bookID + ", userID=" + userID + ", copyID=" + copyID
+                + ", status=" + status + ", placedAt=" + placedAt + ", readyDate=" + readyDate
+                + ", pickupDeadline=" + pickupDeadline + "]";
+    }
+}
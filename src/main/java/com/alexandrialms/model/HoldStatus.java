@@ -0,0 +1,22 @@
+package com.alexandrialms.model;
+
+/**
+ * Life cycle of a {@link Hold}: {@code WAITING} in the queue of its book,
+ * {@code READY} once a returned copy is kept for the patron, then
+ * {@code FULFILLED} when they borrow it, or {@code CANCELLED} /
+ * {@code EXPIRED} if they withdraw or do not collect it in time.
+ */
+public enum HoldStatus {
+    WAITING,
+    READY,
+    FULFILLED,
+    CANCELLED,
+    EXPIRED;
+
+    /**
+     * @return whether the hold still waits for, or keeps, a copy
+     */
+    public boolean isActive() {
+        return this == WAITING || this == READY;
+    }
+}
@@ -1,17 +1,41 @@
 package com.alexandrialms.model;
 
+import java.time.LocalDate;
+
 public enum LibraryRole {
-    READER(5),
-    LIBRARIAN(10),
-    ADMIN(20);
+    READER(5, 14, 2),
+    LIBRARIAN(10, 30, 3),
+    ADMIN(20, 30, 3);
     
     private final int loanLimit;
+    private final int loanPeriodDays;
+    private final int maxRenewals;
     
-    LibraryRole(int loanLimit) {
+    LibraryRole(int loanLimit, int loanPeriodDays, int maxRenewals) {
         this.loanLimit = loanLimit;
+        this.loanPeriodDays = loanPeriodDays;
+        this.maxRenewals = maxRenewals;
     }
     
     public int getLoanLimit() {
         return loanLimit;
     }
+
+    /**
+     * @return the days a loan lasts, and the days each renewal adds
+     */
+    public int getLoanPeriodDays() {
+        return loanPeriodDays;
+    }
+
+    public int getMaxRenewals() {
+        return maxRenewals;
+    }
+
+    /**
+     * @return the due date of a loan (or renewal) starting on {@code start}
+     */
+    public LocalDate dueDateFrom(LocalDate start) {
+        return start.plusDays(loanPeriodDays);
+    }
 }
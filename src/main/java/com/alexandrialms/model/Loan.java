@@ -7,8 +7,10 @@ public class Loan {
     private int copyID;      
     private int userID;       
     private LocalDate loanDate;
+    private LocalDate dueDate;
     private LocalDate returnDate;
     private boolean returned;
+    private int renewals;
     
     public int getLoanID() {
         return loanID;
@@ -22,6 +24,28 @@ public class Loan {
     public void setLoanDate(LocalDate loanDate) {
         this.loanDate = loanDate;
     }
+    /**
+     * @return the last day the copy can be kept, or {@code null} for loans
+     *         written before due dates were recorded
+     */
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+    }
+    /**
+     * @return whether the loan is still open after its due date on {@code today}
+     */
+    public boolean isOverdue(LocalDate today) {
+        return !returned && dueDate != null && dueDate.isBefore(today);
+    }
+    public int getRenewals() {
+        return renewals;
+    }
+    public void setRenewals(int renewals) {
+        this.renewals = renewals;
+    }
     public LocalDate getReturnDate() {
         return returnDate;
     }
@@ -60,7 +84,8 @@ public class Loan {
     @Override
     public String toString() {
         return "Loan [loanID=" + loanID + ", copyID=" + copyID + ", userID=" + userID + ", loanDate=" + loanDate
-                + ", returnDate=" + returnDate + ", returned=" + returned + "]";
+                + ", dueDate=" + dueDate + ", returnDate=" + returnDate + ", returned=" + returned
+                + ", renewals=" + renewals + "]";
     } 
     
     
@@ -0,0 +1,33 @@
+package com.alexandrialms.model;
+
+import java.time.LocalDate;
+
+/**
+ * Period over which loans are counted for the most borrowed rankings.
+ */
+public enum PopularityWindow {
+    LAST_7_DAYS(7),
+    LAST_30_DAYS(30),
+    LAST_365_DAYS(365),
+    ALL_TIME(0);
+
+    private final int days;
+
+    PopularityWindow(int days) {
+        this.days = days;
+    }
+
+    /**
+     * @return the number of days counted, today included; 0 for {@link #ALL_TIME}
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * @return the first day counted if the ranking is taken on {@code today}, or {@code null} for {@link #ALL_TIME}
+     */
+    public LocalDate startingFrom(LocalDate today) {
+        return days == 0 ? null : today.minusDays(days - 1);
+    }
+}
@@ -0,0 +1,221 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alexandrialms.model.Author;
+
+/**
+ * In-memory directory of author names for duplicate detection and "did you
+ * mean" lookups.
+ * <p>
+ * Full names are folded with {@link TextAnalyzer} ("García Márquez" and
+ * "garcia marquez" give the same key) and stored in a {@link FuzzyIndex},
+ * so names a few typos apart are found without scanning the authors table.
+ * The number of edits tolerated grows with the length of the name (see
+ * {@link FuzzyIndex#maxDistanceFor(int)}).
+ * </p>
+ * <p>
+ * Kept current like {@link BookSearchIndex}: {@code AuthorDAO} reports
+ * writes through {@link SearchIndexes} and the next
+ * {@link #refresh(AuthorSource)} reloads those authors.
+ * </p>
+ */
+public class AuthorDirectory {
+
+    /**
+     * Loads authors for the directory.
+     */
+    public interface AuthorSource {
+
+        /**
+         * @return every author, or {@code null} on a database error
+         */
+        List<Author> loadAll();
+
+        /**
+         * @return the authors in {@code authorIds} that still exist, or {@code null} on a database error
+         */
+        List<Author> load(Collection<Integer> authorIds);
+    }
+
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Names current = new Names();
+
+    private final Object refreshMonitor = new Object();
+    private volatile boolean built;
+    private final ChangeTracker changes = new ChangeTracker();
+
+    /**
+     * @param enabled false makes {@link #refresh(AuthorSource)} return false so callers fall back to SQL
+     */
+    public AuthorDirectory(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void markAuthorChanged(int authorId) {
+        changes.authorChanged(authorId);
+    }
+
+    /**
+     * Schedules a full reload, for writes that affect an unknown set of authors.
+     */
+    public void markAllChanged() {
+        changes.allChanged();
+    }
+
+    /**
+     * Brings the directory up to date: loads it on first use, then reloads
+     * the authors changed since the last refresh.
+     *
+     * @return true if the directory can be queried, false if it is disabled
+     *         or has never been loaded
+     */
+    public boolean refresh(AuthorSource source) {
+        if (!enabled) {
+            return false;
+        }
+        if (built && changes.isEmpty()) {
+            return true;
+        }
+        synchronized (refreshMonitor) {
+            if (!built || changes.isRebuildRequested()) {
+                return rebuild(source) >= 0 || built;
+            }
+            Set<Integer> authorIds = changes.drainAuthors();
+            if (authorIds.isEmpty()) {
+                return true;
+            }
+            List<Author> authors = source.load(authorIds);
+            if (authors == null) {
+                for (Integer authorId : authorIds) {
+                    changes.authorChanged(authorId);
+                }
+                return true;
+            }
+            lock.writeLock().lock();
+            try {
+                for (Integer authorId : authorIds) {
+                    current.remove(authorId);
+                }
+                for (Author author : authors) {
+                    current.add(author);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reloads every author from {@code source} and replaces the directory.
+     *
+     * @return the number of authors, or -1 if the source failed (the
+     *         previous directory is kept)
+     */
+    public int rebuild(AuthorSource source) {
+        synchronized (refreshMonitor) {
+            changes.reset();
+            List<Author> authors = source.loadAll();
+            if (authors == null) {
+                changes.allChanged();
+                return -1;
+            }
+            Names names = new Names();
+            for (Author author : authors) {
+                names.add(author);
+            }
+            lock.writeLock().lock();
+            try {
+                current = names;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            built = true;
+            return names.nameById.size();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} authors whose folded full name is within
+     * the tolerated number of edits of the given name, closest first.
+     */
+    public List<NameMatch> findSimilar(String firstName, String lastName, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
+        List<NameMatch> matches = new ArrayList<>();
+        String key = key(firstName, lastName);
+        if (key.isEmpty()) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            for (FuzzyIndex.Match match : current.index.find(key, FuzzyIndex.maxDistanceFor(key.length()), limit)) {
+                for (Integer authorId : current.idsByName.get(match.getKey())) {
+                    if (matches.size() == limit) {
+                        return matches;
+                    }
+                    matches.add(new NameMatch(authorId, match.getKey(), match.getDistance()));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Folded full name: first name, then last name, words separated by one space.
+     */
+    static String key(String firstName, String lastName) {
+        List<String> tokens = new ArrayList<>(TextAnalyzer.tokenize(firstName));
+        tokens.addAll(TextAnalyzer.tokenize(lastName));
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * One version of the directory. Mutated under the write lock, read under the read lock.
+     */
+    private static final class Names {
+        private final FuzzyIndex index = new FuzzyIndex();
+        private final Map<String, Set<Integer>> idsByName = new HashMap<>();
+        private final Map<Integer, String> nameById = new HashMap<>();
+
+        void add(Author author) {
+            int authorId = author.getAuthorID();
+            remove(authorId);
+            String name = key(author.getFirstName(), author.getLastName());
+            if (name.isEmpty()) {
+                return;
+            }
+            nameById.put(authorId, name);
+            idsByName.computeIfAbsent(name, n -> new HashSet<>()).add(authorId);
+            index.add(name);
+        }
+
+        void remove(int authorId) {
+            String name = nameById.remove(authorId);
+            if (name == null) {
+                return;
+            }
+            Set<Integer> ids = idsByName.get(name);
+            if (ids != null && ids.remove(authorId) && ids.isEmpty()) {
+                idsByName.remove(name);
+                index.remove(name);
+            }
+        }
+    }
+}
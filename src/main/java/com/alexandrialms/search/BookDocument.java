@@ -0,0 +1,58 @@
+package com.alexandrialms.search;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.alexandrialms.model.Author;
+
+/**
+ * The searchable text of one book: title, ISBN, author names and category
+ * name, plus the IDs needed to find the book again when an author or
+ * category is renamed.
+ */
+public class BookDocument {
+
+    private final int bookId;
+    private final String title;
+    private final String isbn;
+    private final int categoryId;
+    private final String categoryName;
+    private final List<Author> authors;
+
+    public BookDocument(int bookId, String title, String isbn, int categoryId, String categoryName,
+            List<Author> authors) {
+        this.bookId = bookId;
+        this.title = title;
+        this.isbn = isbn;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.authors = authors == null ? Collections.emptyList() : authors;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * @return the category name, or {@code null} if the book has no category
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+}
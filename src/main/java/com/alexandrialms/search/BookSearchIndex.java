@@ -0,0 +1,570 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alexandrialms.model.Author;
+import com.alexandrialms.util.IsbnParser;
+
+/**
+ * In-process inverted index over the catalogue, ranked with BM25.
+ * <p>
+ * Every book is indexed with the terms of its title, author names, category
+ * name and ISBN (see {@link TextAnalyzer}). Title terms weigh
+ * {@value #TITLE_WEIGHT}, author terms {@value #AUTHOR_WEIGHT} and the rest
+ * 1, both for term frequency and document length, so a query word found in
+ * the title outranks the same word in a category name. A book matches when
+ * it contains every query term; the last query term also matches as a
+ * prefix (at least {@value #MIN_PREFIX_LENGTH} characters), so results can
+ * be shown while the user types. A query that is a whole ISBN in any
+ * notation is looked up by its ISBN-13.
+ * </p>
+ * <p>
+ * The index is built from a {@link DocumentSource} on the first
+ * {@link #refresh(DocumentSource)}. The DAOs report writes through
+ * {@link SearchIndexes}, which only records the IDs; the next
+ * {@code refresh} reloads the affected books, so writes stay cheap and
+ * searches see them as soon as they run. Searches take a read lock and run
+ * in parallel; refreshes are serialized and a full rebuild is prepared
+ * off-lock and swapped in.
+ * </p>
+ * <p>
+ * The vocabulary is also kept in a {@link FuzzyIndex}, so a query with a
+ * misspelled word can be corrected to the nearest indexed terms
+ * ({@link #suggestCorrection(String)}).
+ * </p>
+ */
+public class BookSearchIndex {
+
+    /**
+     * Loads books for the index.
+     */
+    public interface DocumentSource {
+
+        /**
+         * @return a document for every book, or {@code null} on a database error
+         */
+        List<BookDocument> loadAll();
+
+        /**
+         * @return documents for the books in {@code bookIds} that still exist, or {@code null} on a database error
+         */
+        List<BookDocument> load(Collection<Integer> bookIds);
+    }
+
+    static final float TITLE_WEIGHT = 3.0f;
+    static final float AUTHOR_WEIGHT = 2.0f;
+    static final float CATEGORY_WEIGHT = 1.0f;
+    static final float ISBN_WEIGHT = 1.0f;
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /** Score factor for a term reached by prefix expansion rather than an exact match. */
+    private static final double PREFIX_FACTOR = 0.6;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MAX_CORRECTION_CANDIDATES = 8;
+
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index current = new Index();
+
+    private final Object refreshMonitor = new Object();
+    private volatile boolean built;
+    private final ChangeTracker changes = new ChangeTracker();
+
+    /**
+     * @param enabled false makes {@link #refresh(DocumentSource)} return false so callers fall back to SQL
+     */
+    public BookSearchIndex(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * @return the number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return current.books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void markBookChanged(int bookId) {
+        changes.bookChanged(bookId);
+    }
+
+    public void markAuthorChanged(int authorId) {
+        changes.authorChanged(authorId);
+    }
+
+    public void markCategoryChanged(int categoryId) {
+        changes.categoryChanged(categoryId);
+    }
+
+    /**
+     * Schedules a full rebuild, for writes that affect an unknown set of books.
+     */
+    public void markAllChanged() {
+        changes.allChanged();
+    }
+
+    /**
+     * Brings the index up to date: builds it on first use, then reloads the
+     * books changed since the last refresh.
+     *
+     * @return true if the index can be searched, false if it is disabled or
+     *         has never been loaded
+     */
+    public boolean refresh(DocumentSource source) {
+        if (!enabled) {
+            return false;
+        }
+        if (built && changes.isEmpty()) {
+            return true;
+        }
+        synchronized (refreshMonitor) {
+            if (!built || changes.isRebuildRequested()) {
+                return rebuild(source) >= 0 || built;
+            }
+            Set<Integer> bookIds = drainChanges();
+            if (bookIds.isEmpty()) {
+                return true;
+            }
+            List<BookDocument> documents = source.load(bookIds);
+            if (documents == null) {
+                // Keep serving the previous version of these books and retry on the next search
+                changes.retry(bookIds);
+                return true;
+            }
+            lock.writeLock().lock();
+            try {
+                for (Integer bookId : bookIds) {
+                    current.remove(bookId);
+                }
+                for (BookDocument document : documents) {
+                    current.add(document);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reloads every book from {@code source} and replaces the index.
+     *
+     * @return the number of indexed books, or -1 if the source failed (the
+     *         previous index is kept)
+     */
+    public int rebuild(DocumentSource source) {
+        synchronized (refreshMonitor) {
+            changes.reset();
+            List<BookDocument> documents = source.loadAll();
+            if (documents == null) {
+                changes.allChanged();
+                return -1;
+            }
+            Index index = new Index();
+            for (BookDocument document : documents) {
+                index.add(document);
+            }
+            lock.writeLock().lock();
+            try {
+                current = index;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            built = true;
+            return index.books.size();
+        }
+    }
+
+    /**
+     * Returns the best {@code limit} books for {@code query}, highest score
+     * first; ties are broken by book ID.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
+        List<String> terms;
+        long isbn13 = IsbnParser.parse(query);
+        if (isbn13 != IsbnParser.INVALID) {
+            terms = List.of(IsbnParser.format(isbn13));
+        } else {
+            terms = TextAnalyzer.tokenize(query);
+        }
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Index index = current;
+            if (index.books.isEmpty()) {
+                return new ArrayList<>();
+            }
+            Map<Integer, Double> scores = null;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                boolean prefix = isbn13 == IsbnParser.INVALID && t == terms.size() - 1
+                        && term.length() >= MIN_PREFIX_LENGTH;
+                Map<Integer, Double> termScores = index.score(term, prefix);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((bookId, score) -> score + termScores.get(bookId));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a "did you mean" query: every word that matches no indexed term
+     * (for the last word, not even as a prefix) is replaced by the closest
+     * term within the tolerated number of edits, preferring terms found in
+     * more books.
+     *
+     * @return the corrected query, or {@code null} if every word already
+     *         matches or some word has no close term
+     */
+    public String suggestCorrection(String query) {
+        if (IsbnParser.parse(query) != IsbnParser.INVALID) {
+            return null;
+        }
+        List<String> terms = TextAnalyzer.tokenize(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Index index = current;
+            List<String> corrected = new ArrayList<>(terms.size());
+            boolean changed = false;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                boolean prefix = t == terms.size() - 1 && term.length() >= MIN_PREFIX_LENGTH;
+                if (index.matches(term, prefix)) {
+                    corrected.add(term);
+                    continue;
+                }
+                String correction = index.closestTerm(term);
+                if (correction == null) {
+                    return null;
+                }
+                corrected.add(correction);
+                changed = true;
+            }
+            return changed ? String.join(" ", corrected) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the IDs of the books whose title equals {@code title} once
+     *         folded ("Cien Años de Soledad" finds "cien anos de soledad")
+     */
+    public Set<Integer> findByTitle(String title) {
+        String key = String.join(" ", TextAnalyzer.tokenize(title));
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(current.booksByTitle.getOrDefault(key, Collections.emptySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<SearchHit> top(Map<Integer, Double> scores, int limit) {
+        Comparator<SearchHit> best = Comparator.comparingDouble(SearchHit::getScore).reversed()
+                .thenComparingInt(SearchHit::getBookId);
+        // Min-heap on "best", so the head is the weakest hit kept so far
+        PriorityQueue<SearchHit> heap = new PriorityQueue<>(limit + 1, best.reversed());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            heap.add(new SearchHit(entry.getKey(), entry.getValue()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(heap);
+        hits.sort(best);
+        return hits;
+    }
+
+    private Set<Integer> drainChanges() {
+        Set<Integer> bookIds = changes.drainBooks();
+        Set<Integer> authorIds = changes.drainAuthors();
+        Set<Integer> categoryIds = changes.drainCategories();
+        if (authorIds.isEmpty() && categoryIds.isEmpty()) {
+            return bookIds;
+        }
+        lock.readLock().lock();
+        try {
+            for (Integer authorId : authorIds) {
+                bookIds.addAll(current.booksByAuthor.getOrDefault(authorId, Collections.emptySet()));
+            }
+            for (Integer categoryId : categoryIds) {
+                bookIds.addAll(current.booksByCategory.getOrDefault(categoryId, Collections.emptySet()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bookIds;
+    }
+
+    /**
+     * One version of the index. Mutated under the write lock, read under the read lock.
+     */
+    private static final class Index {
+        private final NavigableMap<String, Postings> postings = new TreeMap<>();
+        private final Map<Integer, IndexedBook> books = new HashMap<>();
+        private final Map<Integer, Set<Integer>> booksByAuthor = new HashMap<>();
+        private final Map<Integer, Set<Integer>> booksByCategory = new HashMap<>();
+        private final Map<String, Set<Integer>> booksByTitle = new HashMap<>();
+        /** Indexed terms without digits, for spelling corrections. */
+        private final FuzzyIndex vocabulary = new FuzzyIndex();
+        private double totalLength;
+
+        void add(BookDocument document) {
+            int bookId = document.getBookId();
+            remove(bookId);
+
+            Map<String, Float> weights = new HashMap<>();
+            float length = addField(weights, document.getTitle(), TITLE_WEIGHT);
+            int[] authorIds = new int[document.getAuthors().size()];
+            for (int i = 0; i < authorIds.length; i++) {
+                Author author = document.getAuthors().get(i);
+                authorIds[i] = author.getAuthorID();
+                length += addField(weights, author.getFirstName(), AUTHOR_WEIGHT);
+                length += addField(weights, author.getLastName(), AUTHOR_WEIGHT);
+            }
+            length += addField(weights, document.getCategoryName(), CATEGORY_WEIGHT);
+            // The ISBN is indexed as its ISBN-13 digits and as entered, so partial ISBN-10s also match
+            long isbn13 = IsbnParser.parse(document.getIsbn());
+            if (isbn13 != IsbnParser.INVALID) {
+                weights.merge(IsbnParser.format(isbn13), ISBN_WEIGHT, Float::sum);
+                length += ISBN_WEIGHT;
+            }
+            String isbn = TextAnalyzer.fold(IsbnParser.clean(document.getIsbn()));
+            if (!isbn.isEmpty() && !weights.containsKey(isbn)) {
+                weights.put(isbn, ISBN_WEIGHT);
+                length += ISBN_WEIGHT;
+            }
+
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                Postings list = postings.get(entry.getKey());
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(entry.getKey(), list);
+                    if (isWord(entry.getKey())) {
+                        vocabulary.add(entry.getKey());
+                    }
+                }
+                list.add(bookId, entry.getValue());
+            }
+            String titleKey = String.join(" ", TextAnalyzer.tokenize(document.getTitle()));
+            books.put(bookId, new IndexedBook(weights.keySet().toArray(new String[0]), length, authorIds,
+                    document.getCategoryId(), titleKey));
+            booksByTitle.computeIfAbsent(titleKey, key -> new HashSet<>()).add(bookId);
+            for (int authorId : authorIds) {
+                booksByAuthor.computeIfAbsent(authorId, id -> new HashSet<>()).add(bookId);
+            }
+            booksByCategory.computeIfAbsent(document.getCategoryId(), id -> new HashSet<>()).add(bookId);
+            totalLength += length;
+        }
+
+        void remove(int bookId) {
+            IndexedBook book = books.remove(bookId);
+            if (book == null) {
+                return;
+            }
+            for (String term : book.terms) {
+                Postings list = postings.get(term);
+                if (list != null && list.remove(bookId) && list.size == 0) {
+                    postings.remove(term);
+                    vocabulary.remove(term);
+                }
+            }
+            Set<Integer> sameTitle = booksByTitle.get(book.titleKey);
+            if (sameTitle != null && sameTitle.remove(bookId) && sameTitle.isEmpty()) {
+                booksByTitle.remove(book.titleKey);
+            }
+            for (int authorId : book.authorIds) {
+                removeLink(booksByAuthor, authorId, bookId);
+            }
+            removeLink(booksByCategory, book.categoryId, bookId);
+            totalLength -= book.length;
+        }
+
+        /**
+         * BM25 score of every book containing {@code term} (or, with
+         * {@code prefix}, a term starting with it; a book keeps its best match).
+         */
+        Map<Integer, Double> score(String term, boolean prefix) {
+            Map<Integer, Double> scores = new HashMap<>();
+            double avgLength = totalLength / books.size();
+            addScores(scores, term, 1.0, avgLength);
+            if (prefix) {
+                int expansions = 0;
+                for (String candidate : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+                    if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    addScores(scores, candidate, PREFIX_FACTOR, avgLength);
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * @return true if {@code term} is indexed (or, with {@code prefix}, starts an indexed term)
+         */
+        boolean matches(String term, boolean prefix) {
+            if (postings.containsKey(term)) {
+                return true;
+            }
+            return prefix && !postings.subMap(term, false, term + Character.MAX_VALUE, false).isEmpty();
+        }
+
+        /**
+         * @return the indexed term closest to {@code term}, found in the most
+         *         books on ties, or {@code null} if none is close enough
+         */
+        String closestTerm(String term) {
+            String best = null;
+            int bestDistance = Integer.MAX_VALUE;
+            int bestFrequency = 0;
+            List<FuzzyIndex.Match> candidates = vocabulary.find(term, FuzzyIndex.maxDistanceFor(term.length()),
+                    MAX_CORRECTION_CANDIDATES);
+            for (FuzzyIndex.Match candidate : candidates) {
+                int frequency = postings.get(candidate.getKey()).size;
+                if (candidate.getDistance() < bestDistance
+                        || (candidate.getDistance() == bestDistance && frequency > bestFrequency)) {
+                    best = candidate.getKey();
+                    bestDistance = candidate.getDistance();
+                    bestFrequency = frequency;
+                }
+            }
+            return best;
+        }
+
+        private static boolean isWord(String term) {
+            for (int i = 0; i < term.length(); i++) {
+                if (Character.isDigit(term.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addScores(Map<Integer, Double> scores, String term, double factor, double avgLength) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return;
+            }
+            int documents = books.size();
+            double idf = Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int bookId = list.bookIds[i];
+                double tf = list.weights[i];
+                double norm = K1 * (1 - B + B * books.get(bookId).length / avgLength);
+                double score = factor * idf * tf * (K1 + 1) / (tf + norm);
+                scores.merge(bookId, score, Math::max);
+            }
+        }
+
+        private static float addField(Map<String, Float> weights, String text, float weight) {
+            float length = 0;
+            for (String term : TextAnalyzer.tokenize(text)) {
+                weights.merge(term, weight, Float::sum);
+                length += weight;
+            }
+            return length;
+        }
+
+        private static void removeLink(Map<Integer, Set<Integer>> links, int key, int bookId) {
+            Set<Integer> bookIds = links.get(key);
+            if (bookIds != null && bookIds.remove(bookId) && bookIds.isEmpty()) {
+                links.remove(key);
+            }
+        }
+    }
+
+    private static final class IndexedBook {
+        private final String[] terms;
+        private final float length;
+        private final int[] authorIds;
+        private final int categoryId;
+        private final String titleKey;
+
+        IndexedBook(String[] terms, float length, int[] authorIds, int categoryId, String titleKey) {
+            this.terms = terms;
+            this.length = length;
+            this.authorIds = authorIds;
+            this.categoryId = categoryId;
+            this.titleKey = titleKey;
+        }
+    }
+
+    /**
+     * Unordered posting list with the weighted term frequency of each book.
+     */
+    private static final class Postings {
+        private int[] bookIds = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int bookId, float weight) {
+            if (size == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            bookIds[size] = bookId;
+            weights[size] = weight;
+            size++;
+        }
+
+        boolean remove(int bookId) {
+            for (int i = 0; i < size; i++) {
+                if (bookIds[i] == bookId) {
+                    size--;
+                    bookIds[i] = bookIds[size];
+                    weights[i] = weights[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
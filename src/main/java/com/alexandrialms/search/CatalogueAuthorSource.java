@@ -0,0 +1,39 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.alexandrialms.dao.impl.AuthorDAO;
+import com.alexandrialms.model.Author;
+
+/**
+ * Reads authors for the {@link AuthorDirectory} through {@link AuthorDAO};
+ * changed authors are reloaded with {@code findById}, which goes through
+ * the catalogue cache.
+ */
+public class CatalogueAuthorSource implements AuthorDirectory.AuthorSource {
+
+    private final AuthorDAO authorDAO;
+
+    public CatalogueAuthorSource(AuthorDAO authorDAO) {
+        this.authorDAO = authorDAO;
+    }
+
+    @Override
+    public List<Author> loadAll() {
+        return authorDAO.findAll();
+    }
+
+    @Override
+    public List<Author> load(Collection<Integer> authorIds) {
+        List<Author> authors = new ArrayList<>(authorIds.size());
+        for (Integer authorId : authorIds) {
+            Author author = authorDAO.findById(authorId);
+            if (author != null) {
+                authors.add(author);
+            }
+        }
+        return authors;
+    }
+}
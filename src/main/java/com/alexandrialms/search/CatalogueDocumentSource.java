@@ -0,0 +1,74 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.alexandrialms.dao.impl.BookDAO;
+import com.alexandrialms.dao.impl.CategoryDAO;
+import com.alexandrialms.model.Author;
+import com.alexandrialms.model.Book;
+import com.alexandrialms.model.Category;
+
+/**
+ * Reads {@link BookDocument}s through the catalogue DAOs, with the authors
+ * and categories of a whole set of books loaded by bulk {@code IN} queries,
+ * and the loan counts that rank {@link Typeahead} suggestions.
+ */
+public class CatalogueDocumentSource implements BookSearchIndex.DocumentSource, Typeahead.PopularitySource {
+
+    private final BookDAO bookDAO;
+    private final CategoryDAO categoryDAO;
+
+    public CatalogueDocumentSource(BookDAO bookDAO, CategoryDAO categoryDAO) {
+        this.bookDAO = bookDAO;
+        this.categoryDAO = categoryDAO;
+    }
+
+    @Override
+    public List<BookDocument> loadAll() {
+        return toDocuments(bookDAO.findAll());
+    }
+
+    @Override
+    public List<BookDocument> load(Collection<Integer> bookIds) {
+        List<Book> books = new ArrayList<>(bookIds.size());
+        for (Integer bookId : bookIds) {
+            Book book = bookDAO.findById(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return toDocuments(books);
+    }
+
+    @Override
+    public Map<Integer, Integer> loadLoanCounts() {
+        return bookDAO.getLoanCountsByBook();
+    }
+
+    private List<BookDocument> toDocuments(List<Book> books) {
+        List<BookDocument> documents = new ArrayList<>(books.size());
+        if (books.isEmpty()) {
+            return documents;
+        }
+        Set<Integer> bookIds = new LinkedHashSet<>();
+        Set<Integer> categoryIds = new LinkedHashSet<>();
+        for (Book book : books) {
+            bookIds.add(book.getBookID());
+            categoryIds.add(book.getCategoryId());
+        }
+        Map<Integer, List<Author>> authorsByBook = bookDAO.getAuthorsForBooks(bookIds);
+        Map<Integer, Category> categories = categoryDAO.findByIds(categoryIds);
+        for (Book book : books) {
+            Category category = categories.get(book.getCategoryId());
+            documents.add(new BookDocument(book.getBookID(), book.getTitle(), book.getIsbn(), book.getCategoryId(),
+                    category == null ? null : category.getName(),
+                    authorsByBook.getOrDefault(book.getBookID(), List.of())));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,89 @@
+package com.alexandrialms.search;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalogue writes recorded since an in-memory structure was last
+ * refreshed. Recording is lock-free so it can be called from every DAO
+ * write; the owner drains the IDs when it refreshes.
+ */
+final class ChangeTracker {
+
+    /** Past this many pending book changes a full rebuild is cheaper than reloading them one by one. */
+    private static final int MAX_PENDING_CHANGES = 5_000;
+
+    private final Set<Integer> books = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> authors = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> categories = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuildRequested;
+
+    void bookChanged(int bookId) {
+        books.add(bookId);
+        if (books.size() > MAX_PENDING_CHANGES) {
+            rebuildRequested = true;
+        }
+    }
+
+    void authorChanged(int authorId) {
+        authors.add(authorId);
+    }
+
+    void categoryChanged(int categoryId) {
+        categories.add(categoryId);
+    }
+
+    void allChanged() {
+        rebuildRequested = true;
+    }
+
+    boolean isRebuildRequested() {
+        return rebuildRequested;
+    }
+
+    boolean isEmpty() {
+        return !rebuildRequested && books.isEmpty() && authors.isEmpty() && categories.isEmpty();
+    }
+
+    /**
+     * Forgets every recorded change before a full rebuild; changes recorded
+     * from here on are applied by the next refresh.
+     */
+    void reset() {
+        rebuildRequested = false;
+        books.clear();
+        authors.clear();
+        categories.clear();
+    }
+
+    Set<Integer> drainBooks() {
+        return drain(books);
+    }
+
+    Set<Integer> drainAuthors() {
+        return drain(authors);
+    }
+
+    Set<Integer> drainCategories() {
+        return drain(categories);
+    }
+
+    /**
+     * Records books again after a failed reload so the next refresh retries them.
+     */
+    void retry(Set<Integer> bookIds) {
+        books.addAll(bookIds);
+    }
+
+    private static Set<Integer> drain(Set<Integer> from) {
+        Set<Integer> drained = new HashSet<>();
+        Iterator<Integer> it = from.iterator();
+        while (it.hasNext()) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,249 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alexandrialms.util.collections.LongIntHashMap;
+
+/**
+ * Typo-tolerant lookup over a set of normalized strings.
+ * <p>
+ * Every key is split into padded trigrams, with an inverted list per
+ * trigram. A key within edit distance {@code k} of a query of length
+ * {@code n} shares at least {@code n + 2 - 4k} of the query's {@code n + 2}
+ * trigrams (an edit breaks at most three, a transposition four). So a key
+ * that shares none of the query's rarest trigrams, up to the point where
+ * the others add up to fewer than that bound, cannot match: a lookup only
+ * reads the lists of those rare trigrams and computes the exact distance
+ * for the keys found there that pass the length filter. The cost depends
+ * on how many keys share the query's rarest trigrams, not on the number of
+ * keys.
+ * </p>
+ * <p>
+ * Distances are optimal string alignment distances: insertions, deletions,
+ * substitutions and transpositions of adjacent characters each count 1.
+ * Keys should already be folded (see {@link TextAnalyzer}). Not
+ * thread-safe; owners guard it with their own lock.
+ * </p>
+ */
+final class FuzzyIndex {
+
+    /**
+     * A key found by {@link FuzzyIndex#find(String, int, int)}.
+     */
+    static final class Match {
+        private final String key;
+        private final int distance;
+
+        Match(String key, int distance) {
+            this.key = key;
+            this.distance = distance;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        int getDistance() {
+            return distance;
+        }
+    }
+
+    private static final int Q = 3;
+    /** Trigrams broken by one edit at most; a transposition of adjacent characters breaks four. */
+    private static final int GRAMS_PER_EDIT = Q + 1;
+    private static final char PAD = '\u0001';
+    private static final Comparator<Match> CLOSEST = Comparator.comparingInt(Match::getDistance)
+            .thenComparing(Match::getKey);
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, GramList> grams = new HashMap<>();
+
+    /**
+     * Edit distance allowed for a query of {@code length} characters: none
+     * below 4, one below 8, two from there. Short strings have too few
+     * trigrams to tell a typo from a different word.
+     */
+    static int maxDistanceFor(int length) {
+        return length < 4 ? 0 : length < 8 ? 1 : 2;
+    }
+
+    void add(String key) {
+        if (slots.containsKey(key)) {
+            return;
+        }
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = keys.size();
+            keys.add(key);
+        } else {
+            slot = freeSlots.pop();
+            keys.set(slot, key);
+        }
+        slots.put(key, slot);
+        for (String gram : trigrams(key).keySet()) {
+            grams.computeIfAbsent(gram, g -> new GramList()).add(slot);
+        }
+    }
+
+    void remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return;
+        }
+        for (String gram : trigrams(key).keySet()) {
+            GramList list = grams.get(gram);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                grams.remove(gram);
+            }
+        }
+        keys.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Returns up to {@code limit} keys within {@code maxDistance} edits of
+     * {@code query}, closest first, then alphabetical.
+     */
+    List<Match> find(String query, int maxDistance, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (query.isEmpty() || slots.isEmpty()) {
+            return matches;
+        }
+        int required = query.length() + Q - 1 - GRAMS_PER_EDIT * maxDistance;
+        if (required <= 0) {
+            // Too short for the trigram filter to prune anything: compare with every key
+            for (String key : keys) {
+                addIfClose(matches, key, query, maxDistance);
+            }
+        } else {
+            List<Map.Entry<String, Integer>> queryGrams = new ArrayList<>(trigrams(query).entrySet());
+            queryGrams.sort(Comparator.comparingInt(gram -> listSize(gram.getKey())));
+            int unread = query.length() + Q - 1;
+            LongIntHashMap seen = new LongIntHashMap();
+            for (Map.Entry<String, Integer> gram : queryGrams) {
+                if (unread < required) {
+                    // Keys not seen so far share too few trigrams to match
+                    break;
+                }
+                unread -= gram.getValue();
+                GramList list = grams.get(gram.getKey());
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    if (seen.putIfAbsent(list.slots[i], 1, 0) == 0) {
+                        addIfClose(matches, keys.get(list.slots[i]), query, maxDistance);
+                    }
+                }
+            }
+        }
+        matches.sort(CLOSEST);
+        return matches.size() <= limit ? matches : new ArrayList<>(matches.subList(0, limit));
+    }
+
+    private int listSize(String gram) {
+        GramList list = grams.get(gram);
+        return list == null ? 0 : list.size;
+    }
+
+    private static void addIfClose(List<Match> matches, String key, String query, int maxDistance) {
+        if (key == null || Math.abs(key.length() - query.length()) > maxDistance) {
+            return;
+        }
+        int distance = distance(key, query, maxDistance);
+        if (distance <= maxDistance) {
+            matches.add(new Match(key, distance));
+        }
+    }
+
+    /**
+     * Optimal string alignment distance, or {@code max + 1} as soon as it
+     * is known to exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] row = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            row[0] = i;
+            int rowMin = row[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = row;
+            row = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+
+    /**
+     * Trigrams of {@code key} padded with two marks on each side, with their
+     * number of occurrences.
+     */
+    private static Map<String, Integer> trigrams(String key) {
+        StringBuilder padded = new StringBuilder(key.length() + 2 * (Q - 1));
+        padded.append(PAD).append(PAD).append(key).append(PAD).append(PAD);
+        Map<String, Integer> trigrams = new HashMap<>();
+        for (int i = 0; i + Q <= padded.length(); i++) {
+            trigrams.merge(padded.substring(i, i + Q), 1, Integer::sum);
+        }
+        return trigrams;
+    }
+
+    /**
+     * Unordered list of the slots whose key contains one trigram.
+     */
+    private static final class GramList {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
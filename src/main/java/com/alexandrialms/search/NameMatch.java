@@ -0,0 +1,39 @@
+package com.alexandrialms.search;
+
+/**
+ * An author found by {@link AuthorDirectory#findSimilar(String, String, int)},
+ * with the number of edits between the folded names (0 when they only
+ * differ in case, accents or punctuation).
+ */
+public class NameMatch {
+
+    private final int authorId;
+    private final String name;
+    private final int distance;
+
+    public NameMatch(int authorId, String name, int distance) {
+        this.authorId = authorId;
+        this.name = name;
+        this.distance = distance;
+    }
+
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * @return the folded full name that matched
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "NameMatch [author " + authorId + " '" + name + "', distance=" + distance + "]";
+    }
+}
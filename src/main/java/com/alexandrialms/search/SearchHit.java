@@ -0,0 +1,28 @@
+package com.alexandrialms.search;
+
+/**
+ * A book matched by {@link BookSearchIndex#search(String, int)} and its BM25 score.
+ */
+public class SearchHit {
+
+    private final int bookId;
+    private final double score;
+
+    public SearchHit(int bookId, double score) {
+        this.bookId = bookId;
+        this.score = score;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit [bookId=" + bookId + ", score=" + String.format("%.3f", score) + "]";
+    }
+}
@@ -0,0 +1,110 @@
+package com.alexandrialms.search;
+
+import java.util.Properties;
+
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Shared in-memory search structures over the catalogue and the author names.
+ * <p>
+ * {@code BookDAO}, {@code AuthorDAO} and {@code CategoryDAO} report every
+ * write through the {@code *Changed} methods, which record the IDs in each
+ * structure; the structures reload those entries the next time they are
+ * used. Because they are static, every service instance sees the same
+ * index.
+ * </p>
+ * <p>
+ * Configured in {@code db.properties}: {@code search.index.enabled},
+ * {@code search.suggest.enabled} and {@code search.authors.enabled} (all
+ * default true) and {@code search.suggest.popularityRefreshSeconds}, the age at which loan
+ * counts used to rank suggestions are reloaded (0 never reloads them).
+ * </p>
+ */
+public final class SearchIndexes {
+
+    private static final int DEFAULT_POPULARITY_REFRESH_SECONDS = 3600;
+
+    private static final BookSearchIndex BOOKS;
+    private static final Typeahead TYPEAHEAD;
+    private static final AuthorDirectory AUTHORS;
+
+    static {
+        Properties properties = DBConnection.getProperties();
+        BOOKS = new BookSearchIndex(booleanProperty(properties, "search.index.enabled"));
+        TYPEAHEAD = new Typeahead(booleanProperty(properties, "search.suggest.enabled"),
+                intProperty(properties, "search.suggest.popularityRefreshSeconds",
+                        DEFAULT_POPULARITY_REFRESH_SECONDS) * 1000L);
+        AUTHORS = new AuthorDirectory(booleanProperty(properties, "search.authors.enabled"));
+    }
+
+    private SearchIndexes() {
+    }
+
+    public static BookSearchIndex books() {
+        return BOOKS;
+    }
+
+    public static Typeahead typeahead() {
+        return TYPEAHEAD;
+    }
+
+    public static AuthorDirectory authors() {
+        return AUTHORS;
+    }
+
+    public static void bookChanged(int bookId) {
+        BOOKS.markBookChanged(bookId);
+        TYPEAHEAD.markBookChanged(bookId);
+    }
+
+    public static void authorChanged(int authorId) {
+        BOOKS.markAuthorChanged(authorId);
+        TYPEAHEAD.markAuthorChanged(authorId);
+        AUTHORS.markAuthorChanged(authorId);
+    }
+
+    /**
+     * A new author has no books yet, so only the author directory needs it.
+     */
+    public static void authorAdded(int authorId) {
+        AUTHORS.markAuthorChanged(authorId);
+    }
+
+    /**
+     * Schedules a reload of the author directory, for deletes that affect an unknown set of authors.
+     */
+    public static void allAuthorsChanged() {
+        AUTHORS.markAllChanged();
+    }
+
+    /**
+     * Category names are only indexed for search, not suggested.
+     */
+    public static void categoryChanged(int categoryId) {
+        BOOKS.markCategoryChanged(categoryId);
+    }
+
+    /**
+     * Schedules a full rebuild of every structure, for writes that affect an unknown set of books.
+     */
+    public static void allBooksChanged() {
+        BOOKS.markAllChanged();
+        TYPEAHEAD.markAllChanged();
+    }
+
+    private static boolean booleanProperty(Properties properties, String key) {
+        return !"false".equalsIgnoreCase(properties.getProperty(key, "true").trim());
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
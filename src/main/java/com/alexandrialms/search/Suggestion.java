@@ -0,0 +1,54 @@
+package com.alexandrialms.search;
+
+/**
+ * One autocomplete entry returned by {@link Typeahead}: a book title or an
+ * author name, with the loan count it was ranked by.
+ */
+public class Suggestion {
+
+    public enum Kind {
+        TITLE, AUTHOR
+    }
+
+    private final Kind kind;
+    private final int id;
+    private final String text;
+    private final int popularity;
+
+    public Suggestion(Kind kind, int id, String text, int popularity) {
+        this.kind = kind;
+        this.id = id;
+        this.text = text;
+        this.popularity = popularity;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the book ID for {@link Kind#TITLE}, the author ID for {@link Kind#AUTHOR}
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the title or full name, as stored
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return loans of the book, or of all the author's books
+     */
+    public int getPopularity() {
+        return popularity;
+    }
+
+    @Override
+    public String toString() {
+        return "Suggestion [" + kind + " " + id + " '" + text + "', loans=" + popularity + "]";
+    }
+}
@@ -0,0 +1,259 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radix trie from normalized keys to {@link Suggestion}s that keeps, in
+ * every node, the best {@code capacity} suggestions of its subtree.
+ * <p>
+ * Edges carry string labels and nodes only exist where keys branch or end,
+ * so the trie has at most two nodes per key. Because each node already
+ * holds its top list, a completion is a walk down the prefix and a copy of
+ * at most {@code capacity} references, independent of how many keys share
+ * the prefix. Inserts and removals recompute the top lists along the path
+ * only. The same suggestion can be stored under several keys; top lists
+ * contain it once.
+ * </p>
+ * <p>
+ * Not thread-safe; {@link Typeahead} guards it with a read-write lock.
+ * </p>
+ */
+final class SuggestionTrie {
+
+    /** Most loans first, then shorter text, then alphabetical. */
+    static final Comparator<Suggestion> RANKING = Comparator.comparingInt(Suggestion::getPopularity).reversed()
+            .thenComparingInt((Suggestion s) -> s.getText().length())
+            .thenComparing(Suggestion::getText)
+            .thenComparing(Suggestion::getKind)
+            .thenComparingInt(Suggestion::getId);
+
+    private static final Suggestion[] NONE = new Suggestion[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int capacity;
+    private final Node root = new Node("");
+
+    SuggestionTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds {@code suggestion} under {@code key}. With {@code updateTops}
+     * false the top lists are left stale, for bulk loading followed by
+     * {@link #computeTops()}.
+     */
+    void insert(String key, Suggestion suggestion, boolean updateTops) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int pos = 0;
+        while (pos < key.length()) {
+            int index = node.childIndex(key.charAt(pos));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(pos));
+                node.insertChild(-index - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, pos);
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[] { child };
+                middle.top = child.top;
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            pos += common;
+        }
+        node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+        node.terminals[node.terminals.length - 1] = suggestion;
+        if (updateTops) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                recompute(path.get(i));
+            }
+        }
+    }
+
+    /**
+     * Removes {@code suggestion} (compared by identity) from {@code key}.
+     *
+     * @return false if it was not stored under that key
+     */
+    boolean remove(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int pos = 0;
+        while (pos < key.length()) {
+            int index = node.childIndex(key.charAt(pos));
+            if (index < 0 || !key.startsWith(node.children[index].label, pos)) {
+                return false;
+            }
+            node = node.children[index];
+            path.add(node);
+            pos += node.label.length();
+        }
+        int found = -1;
+        for (int i = 0; i < node.terminals.length && found < 0; i++) {
+            if (node.terminals[i] == suggestion) {
+                found = i;
+            }
+        }
+        if (found < 0) {
+            return false;
+        }
+        Suggestion[] terminals = new Suggestion[node.terminals.length - 1];
+        System.arraycopy(node.terminals, 0, terminals, 0, found);
+        System.arraycopy(node.terminals, found + 1, terminals, found, terminals.length - found);
+        node.terminals = terminals.length == 0 ? NONE : terminals;
+
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            if (current.terminals.length == 0 && current.children.length == 0) {
+                path.get(i - 1).removeChild(current);
+            } else {
+                recompute(current);
+            }
+        }
+        recompute(root);
+        return true;
+    }
+
+    /**
+     * @return up to {@code limit} suggestions for keys starting with {@code prefix}, best first
+     */
+    List<Suggestion> complete(String prefix, int limit) {
+        Node node = root;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(pos));
+            if (index < 0) {
+                return new ArrayList<>();
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, pos);
+            if (pos + common == prefix.length()) {
+                // The prefix ends on or inside this edge: everything below matches
+                node = child;
+                break;
+            }
+            if (common < child.label.length()) {
+                return new ArrayList<>();
+            }
+            node = child;
+            pos += common;
+        }
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, node.top.length));
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            suggestions.add(node.top[i]);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Recomputes every top list bottom-up after bulk inserts.
+     */
+    void computeTops() {
+        computeTops(root);
+    }
+
+    private void computeTops(Node node) {
+        for (Node child : node.children) {
+            computeTops(child);
+        }
+        recompute(node);
+    }
+
+    private void recompute(Node node) {
+        List<Suggestion> candidates = new ArrayList<>(node.terminals.length + node.children.length * capacity);
+        candidates.addAll(Arrays.asList(node.terminals));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        if (candidates.isEmpty()) {
+            node.top = NONE;
+            return;
+        }
+        candidates.sort(RANKING);
+        Map<Suggestion, Boolean> seen = new IdentityHashMap<>();
+        List<Suggestion> top = new ArrayList<>(capacity);
+        for (Suggestion candidate : candidates) {
+            if (top.size() == capacity) {
+                break;
+            }
+            if (seen.put(candidate, Boolean.TRUE) == null) {
+                top.add(candidate);
+            }
+        }
+        node.top = top.toArray(NONE);
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int max = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] terminals = NONE;
+        private Suggestion[] top = NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Binary search on the first character of the child labels.
+         *
+         * @return the child index, or {@code -(insertionPoint + 1)}
+         */
+        int childIndex(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int at, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int at = childIndex(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, shrunk.length - at);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+    }
+}
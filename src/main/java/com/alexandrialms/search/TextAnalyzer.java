@@ -0,0 +1,76 @@
+package com.alexandrialms.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns titles, names and queries into index terms.
+ * <p>
+ * Text is lower-cased and accent-folded ("Márquez" and "marquez" give the
+ * same term, "Ñandú" gives "nandu"), then split on every character that is
+ * not a letter or digit. A hyphen between two digits does not split, so
+ * "978-84-376" stays one term and partly typed ISBNs still match as a
+ * prefix.
+ * </p>
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * @return the terms of {@code text} in order, possibly repeated; empty for {@code null}
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String folded = fold(text);
+        StringBuilder term = new StringBuilder();
+        int length = folded.length();
+        for (int i = 0; i < length; i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (c == '-' && isDigitAt(folded, i - 1) && isDigitAt(folded, i + 1)) {
+                continue;
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cases {@code text} and removes diacritics.
+     */
+    public static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isDigitAt(String s, int index) {
+        return index >= 0 && index < s.length() && s.charAt(index) >= '0' && s.charAt(index) <= '9';
+    }
+}
@@ -0,0 +1,424 @@
+package com.alexandrialms.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alexandrialms.model.Author;
+
+/**
+ * Autocomplete over book titles and author names, ranked by loan count.
+ * <p>
+ * Titles and names are stored in a {@link SuggestionTrie} under their
+ * normalized text (see {@link TextAnalyzer}) and under the suffixes that
+ * start at each later word of at least {@value #MIN_WORD_LENGTH}
+ * characters, so "soled" completes "Cien años de soledad" and "marq"
+ * completes "Gabriel García Márquez". Each trie node keeps its best
+ * {@value #MAX_SUGGESTIONS} entries, so a lookup costs a walk down the
+ * typed prefix whatever the size of the catalogue. A title ranks by the
+ * loans of its book, an author by the loans of all their books.
+ * </p>
+ * <p>
+ * Writes reach it the same way as {@link BookSearchIndex}: the DAOs report
+ * changed IDs through {@link SearchIndexes} and the next
+ * {@link #refresh(BookSearchIndex.DocumentSource, PopularitySource)}
+ * reloads those books. Loans are not reported, so loan counts are reloaded
+ * by a full rebuild once they are older than the configured refresh
+ * interval. Once built, rebuilds run on a background thread and callers keep
+ * getting the current suggestions meanwhile; no {@link #refresh} waits for
+ * another one.
+ * </p>
+ */
+public class Typeahead {
+
+    /**
+     * Loads loan counts for ranking.
+     */
+    public interface PopularitySource {
+
+        /**
+         * @return the number of loans per book ID (books never borrowed may be absent), or
+         *         {@code null} on a database error
+         */
+        Map<Integer, Integer> loadLoanCounts();
+    }
+
+    public static final int MAX_SUGGESTIONS = 10;
+    static final int MIN_WORD_LENGTH = 3;
+    /** Keys and queries are cut here; longer prefixes add little and cost trie depth. */
+    static final int MAX_KEY_LENGTH = 48;
+    private static final int MAX_KEYS_PER_ENTRY = 6;
+
+    private final boolean enabled;
+    private final long popularityRefreshMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Entries current = new Entries(Collections.emptyMap());
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    /** Runs background rebuilds; its thread exits when idle. */
+    private final ThreadPoolExecutor rebuilder = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "alexandria-typeahead-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private volatile boolean built;
+    private volatile long builtAt;
+    private final ChangeTracker changes = new ChangeTracker();
+
+    /**
+     * @param enabled                 false makes {@link #refresh} return false
+     * @param popularityRefreshMillis age after which loan counts are reloaded by a full rebuild; 0 or less never reloads them
+     */
+    public Typeahead(boolean enabled, long popularityRefreshMillis) {
+        this.enabled = enabled;
+        this.popularityRefreshMillis = popularityRefreshMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public void markBookChanged(int bookId) {
+        changes.bookChanged(bookId);
+    }
+
+    public void markAuthorChanged(int authorId) {
+        changes.authorChanged(authorId);
+    }
+
+    /**
+     * Schedules a full rebuild, for writes that affect an unknown set of books.
+     */
+    public void markAllChanged() {
+        changes.allChanged();
+    }
+
+    /**
+     * Brings the suggestions up to date: builds them on first use, schedules
+     * a background rebuild when loan counts are stale or a rebuild was
+     * requested, otherwise reloads the books changed since the last refresh.
+     * Only the first build makes the caller wait; later calls return at once
+     * if another refresh or a rebuild is running. Category changes are
+     * ignored since categories are not suggested.
+     *
+     * @return true if suggestions can be served, false if disabled or never loaded
+     */
+    public boolean refresh(BookSearchIndex.DocumentSource source, PopularitySource popularity) {
+        if (!enabled) {
+            return false;
+        }
+        if (built && !isPopularityStale() && changes.isEmpty()) {
+            return true;
+        }
+        if (!built) {
+            refreshLock.lock();
+            try {
+                if (!built) {
+                    return rebuild(source, popularity) >= 0;
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        if (changes.isRebuildRequested() || isPopularityStale()) {
+            rebuildInBackground(source, popularity);
+            return true;
+        }
+        if (!refreshLock.tryLock()) {
+            // Another refresh or a rebuild is running: serve the current suggestions
+            return true;
+        }
+        try {
+            if (changes.isRebuildRequested()) {
+                rebuildInBackground(source, popularity);
+                return true;
+            }
+            changes.drainCategories();
+            Set<Integer> bookIds = drainChanges();
+            if (bookIds.isEmpty()) {
+                return true;
+            }
+            List<BookDocument> documents = source.load(bookIds);
+            if (documents == null) {
+                changes.retry(bookIds);
+                return true;
+            }
+            lock.writeLock().lock();
+            try {
+                Set<Integer> touchedAuthors = new HashSet<>();
+                for (Integer bookId : bookIds) {
+                    current.removeBook(bookId, touchedAuthors);
+                }
+                for (BookDocument document : documents) {
+                    current.addBook(document, true, touchedAuthors);
+                }
+                for (Integer authorId : touchedAuthors) {
+                    current.syncAuthor(authorId, true);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Reloads every book and loan count and replaces the suggestions, on the
+     * caller's thread.
+     *
+     * @return the number of titles, or -1 if the source failed (the previous
+     *         suggestions are kept)
+     */
+    public int rebuild(BookSearchIndex.DocumentSource source, PopularitySource popularity) {
+        refreshLock.lock();
+        try {
+            changes.reset();
+            List<BookDocument> documents = source.loadAll();
+            Map<Integer, Integer> loanCounts = popularity.loadLoanCounts();
+            if (documents == null || loanCounts == null) {
+                changes.allChanged();
+                return -1;
+            }
+            Entries entries = new Entries(loanCounts);
+            Set<Integer> authorIds = new HashSet<>();
+            for (BookDocument document : documents) {
+                entries.addBook(document, false, authorIds);
+            }
+            for (Integer authorId : authorIds) {
+                entries.syncAuthor(authorId, false);
+            }
+            entries.trie.computeTops();
+            lock.writeLock().lock();
+            try {
+                current = entries;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            builtAt = System.currentTimeMillis();
+            built = true;
+            return entries.titles.size();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a {@link #rebuild} on the background thread unless one is
+     * already scheduled or running.
+     */
+    private void rebuildInBackground(BookSearchIndex.DocumentSource source, PopularitySource popularity) {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            try {
+                rebuild(source, popularity);
+            } catch (RuntimeException e) {
+                // The current suggestions stay; the next refresh schedules another rebuild
+                e.printStackTrace();
+            } finally {
+                rebuildScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} titles and authors whose text, or one of
+     * its later words, starts with {@code prefix}; most borrowed first. A
+     * trailing space restricts the last word to whole-word matches.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        List<String> tokens = TextAnalyzer.tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String key = String.join(" ", tokens);
+        if (!Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            key = key + " ";
+        }
+        key = truncate(key);
+
+        lock.readLock().lock();
+        try {
+            return current.trie.complete(key, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isPopularityStale() {
+        return built && popularityRefreshMillis > 0
+                && System.currentTimeMillis() - builtAt >= popularityRefreshMillis;
+    }
+
+    private Set<Integer> drainChanges() {
+        Set<Integer> bookIds = changes.drainBooks();
+        Set<Integer> authorIds = changes.drainAuthors();
+        if (authorIds.isEmpty()) {
+            return bookIds;
+        }
+        lock.readLock().lock();
+        try {
+            for (Integer authorId : authorIds) {
+                AuthorEntry author = current.authors.get(authorId);
+                if (author != null) {
+                    bookIds.addAll(author.bookIds);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bookIds;
+    }
+
+    /**
+     * Trie keys for {@code text}: the whole normalized text and the suffixes
+     * starting at later words of at least {@value #MIN_WORD_LENGTH} characters,
+     * each followed by a space.
+     */
+    static Set<String> keys(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        for (int i = 0; i < tokens.size() && keys.size() < MAX_KEYS_PER_ENTRY; i++) {
+            if (i == 0 || tokens.get(i).length() >= MIN_WORD_LENGTH) {
+                // The trailing space lets "soledad " match the last word as a whole word
+                keys.add(truncate(String.join(" ", tokens.subList(i, tokens.size())) + " "));
+            }
+        }
+        return keys;
+    }
+
+    private static String truncate(String key) {
+        return key.length() <= MAX_KEY_LENGTH ? key : key.substring(0, MAX_KEY_LENGTH);
+    }
+
+    private static String fullName(Author author) {
+        String first = author.getFirstName() == null ? "" : author.getFirstName().trim();
+        String last = author.getLastName() == null ? "" : author.getLastName().trim();
+        return first.isEmpty() ? last : last.isEmpty() ? first : first + " " + last;
+    }
+
+    /**
+     * One version of the suggestions. Mutated under the write lock, read under the read lock.
+     */
+    private static final class Entries {
+        private final SuggestionTrie trie = new SuggestionTrie(MAX_SUGGESTIONS);
+        private final Map<Integer, Integer> loanCounts;
+        private final Map<Integer, TitleEntry> titles = new HashMap<>();
+        private final Map<Integer, AuthorEntry> authors = new HashMap<>();
+
+        Entries(Map<Integer, Integer> loanCounts) {
+            this.loanCounts = loanCounts;
+        }
+
+        /**
+         * Adds the title of {@code document} and links it to its authors,
+         * whose IDs are collected in {@code touchedAuthors} for
+         * {@link #syncAuthor(int, boolean)}.
+         */
+        void addBook(BookDocument document, boolean updateTops, Set<Integer> touchedAuthors) {
+            int bookId = document.getBookId();
+            Suggestion title = new Suggestion(Suggestion.Kind.TITLE, bookId, document.getTitle(),
+                    loanCounts.getOrDefault(bookId, 0));
+            for (String key : keys(title.getText())) {
+                trie.insert(key, title, updateTops);
+            }
+            int[] authorIds = new int[document.getAuthors().size()];
+            for (int i = 0; i < authorIds.length; i++) {
+                Author author = document.getAuthors().get(i);
+                authorIds[i] = author.getAuthorID();
+                AuthorEntry entry = authors.computeIfAbsent(author.getAuthorID(), id -> new AuthorEntry());
+                entry.name = fullName(author);
+                entry.bookIds.add(bookId);
+                touchedAuthors.add(author.getAuthorID());
+            }
+            titles.put(bookId, new TitleEntry(title, authorIds));
+        }
+
+        void removeBook(int bookId, Set<Integer> touchedAuthors) {
+            TitleEntry entry = titles.remove(bookId);
+            if (entry == null) {
+                return;
+            }
+            for (String key : keys(entry.suggestion.getText())) {
+                trie.remove(key, entry.suggestion);
+            }
+            for (int authorId : entry.authorIds) {
+                AuthorEntry author = authors.get(authorId);
+                if (author != null) {
+                    author.bookIds.remove(bookId);
+                    touchedAuthors.add(authorId);
+                }
+            }
+        }
+
+        /**
+         * Replaces the suggestion of an author after their name or books
+         * changed; an author left without books is dropped.
+         */
+        void syncAuthor(int authorId, boolean updateTops) {
+            AuthorEntry entry = authors.get(authorId);
+            if (entry == null) {
+                return;
+            }
+            if (entry.suggestion != null) {
+                for (String key : keys(entry.suggestion.getText())) {
+                    trie.remove(key, entry.suggestion);
+                }
+                entry.suggestion = null;
+            }
+            if (entry.bookIds.isEmpty() || entry.name.isEmpty()) {
+                if (entry.bookIds.isEmpty()) {
+                    authors.remove(authorId);
+                }
+                return;
+            }
+            int loans = 0;
+            for (Integer bookId : entry.bookIds) {
+                loans += loanCounts.getOrDefault(bookId, 0);
+            }
+            entry.suggestion = new Suggestion(Suggestion.Kind.AUTHOR, authorId, entry.name, loans);
+            for (String key : keys(entry.name)) {
+                trie.insert(key, entry.suggestion, updateTops);
+            }
+        }
+    }
+
+    private static final class TitleEntry {
+        private final Suggestion suggestion;
+        private final int[] authorIds;
+
+        TitleEntry(Suggestion suggestion, int[] authorIds) {
+            this.suggestion = suggestion;
+            this.authorIds = authorIds;
+        }
+    }
+
+    private static final class AuthorEntry {
+        private final Set<Integer> bookIds = new HashSet<>();
+        private String name = "";
+        private Suggestion suggestion;
+    }
+}
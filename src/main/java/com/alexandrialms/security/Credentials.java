@@ -0,0 +1,118 @@
+package com.alexandrialms.security;
+
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Shared password hasher, the pool it runs on, and the session store.
+ * <p>
+ * Configured in {@code db.properties}: {@code security.pbkdf2.iterations},
+ * the cost of new hashes (default 600000; existing hashes are upgraded at
+ * their owner's next login), {@code security.kdf.threads}, the hashes run
+ * at once (default half the cores), {@code security.kdf.queueCapacity}, the
+ * hashes allowed to wait (default 64), {@code security.kdf.timeoutMillis},
+ * how long a login waits for its hash (default 5000, 0 forever), and
+ * {@code security.passwordHistory}, the number of previous passwords a new
+ * one must differ from (default 5, 0 allows any). Sessions expire after
+ * {@code security.sessions.idleMinutes} without use (default 30), at most
+ * {@code security.sessions.maxSessions} are kept (default 100000), and a
+ * daemon thread removes expired ones every
+ * {@code security.sessions.sweepSeconds} (default 60, 0 disables it).
+ * </p>
+ */
+public final class Credentials {
+
+    private static final int DEFAULT_ITERATIONS = 600_000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_PASSWORD_HISTORY = 5;
+    private static final int DEFAULT_SESSION_IDLE_MINUTES = 30;
+    private static final int DEFAULT_MAX_SESSIONS = 100_000;
+    private static final int DEFAULT_SWEEP_SECONDS = 60;
+    private static final int SESSION_STRIPES = 32;
+
+    private static final PasswordHasher HASHER;
+    private static final KdfExecutor EXECUTOR;
+    private static final int PASSWORD_HISTORY;
+    private static final SessionStore SESSIONS;
+
+    static {
+        Properties properties = DBConnection.getProperties();
+        HASHER = new PasswordHasher(Math.max(1, intProperty(properties, "security.pbkdf2.iterations",
+                DEFAULT_ITERATIONS)));
+        int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        EXECUTOR = new KdfExecutor(Math.max(1, intProperty(properties, "security.kdf.threads", defaultThreads)),
+                Math.max(1, intProperty(properties, "security.kdf.queueCapacity", DEFAULT_QUEUE_CAPACITY)),
+                intProperty(properties, "security.kdf.timeoutMillis", DEFAULT_TIMEOUT_MILLIS));
+        PASSWORD_HISTORY = intProperty(properties, "security.passwordHistory", DEFAULT_PASSWORD_HISTORY);
+        SESSIONS = new SessionStore("security.sessions",
+                Math.max(1, intProperty(properties, "security.sessions.idleMinutes", DEFAULT_SESSION_IDLE_MINUTES))
+                        * 60_000L,
+                Math.max(1, intProperty(properties, "security.sessions.maxSessions", DEFAULT_MAX_SESSIONS)),
+                SESSION_STRIPES);
+
+        int sweepSeconds = intProperty(properties, "security.sessions.sweepSeconds", DEFAULT_SWEEP_SECONDS);
+        if (sweepSeconds > 0) {
+            ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "alexandria-session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(Credentials::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private Credentials() {
+    }
+
+    public static PasswordHasher hasher() {
+        return HASHER;
+    }
+
+    public static KdfExecutor executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * @return the number of most recent passwords a new password may not repeat
+     */
+    public static int passwordHistory() {
+        return PASSWORD_HISTORY;
+    }
+
+    public static SessionStore sessions() {
+        return SESSIONS;
+    }
+
+    /**
+     * @return latency, queue depth and rejection counters of the hashing pool
+     */
+    public static KdfStats getStats() {
+        return EXECUTOR.getStats();
+    }
+
+    private static void sweep() {
+        try {
+            SESSIONS.sweep();
+        } catch (RuntimeException e) {
+            // Keep the thread alive; the next sweep catches up
+            e.printStackTrace();
+        }
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.alexandrialms.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small fixed pool that runs the password hashing of {@link PasswordHasher}.
+ * <p>
+ * Each hash burns a core for tens to hundreds of milliseconds, so a burst of
+ * logins run on the callers' threads would take every core from checkouts,
+ * returns and searches. Here at most {@code threads} hashes run at once, on
+ * threads of slightly lower priority, and at most {@code queueCapacity} wait;
+ * beyond that {@link #run} fails at once rather than letting the backlog
+ * grow, and a caller that waited longer than the timeout gives up on its
+ * task, which is skipped if it has not started. Both cases throw
+ * {@link RejectedExecutionException}, which the services report as busy.
+ * </p>
+ */
+public class KdfExecutor {
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param threads       hashes run at once
+     * @param queueCapacity hashes allowed to wait for a thread
+     * @param timeoutMillis time a caller waits for its hash, queueing included; 0 means forever
+     */
+    public KdfExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "alexandria-kdf-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Under load, circulation threads get the CPU first
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs {@code task} on the pool and waits for its result.
+     *
+     * @throws RejectedExecutionException if the queue is full, the wait timed
+     *                                    out or the caller was interrupted
+     */
+    public <T> T run(Callable<T> task) {
+        Future<T> future = submit(task);
+        try {
+            return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            abandon(future);
+            timedOut.increment();
+            throw new RejectedExecutionException("Password hashing timed out after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Runs {@code task} on the pool without waiting for it, counting it as a
+     * rehash. Dropped if the queue is full; the next login tries again.
+     *
+     * @return true if the task was queued
+     */
+    public boolean rehashLater(Runnable task) {
+        try {
+            submit(() -> {
+                task.run();
+                rehashed.increment();
+                return null;
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public KdfStats getStats() {
+        return new KdfStats(pool.getCorePoolSize(), pool.getActiveCount(), pool.getQueue().size(), queueCapacity,
+                submitted.sum(), completed.sum(), rejected.sum(), timedOut.sum(), rehashed.sum(),
+                totalWaitNanos.sum(), totalRunNanos.sum(), maxLatencyNanos.get());
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        submitted.increment();
+        try {
+            return pool.submit(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    long finishedAt = System.nanoTime();
+                    totalWaitNanos.add(startedAt - queuedAt);
+                    totalRunNanos.add(finishedAt - startedAt);
+                    maxLatencyNanos.accumulateAndGet(finishedAt - queuedAt, Math::max);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException("Password hashing queue is full (" + queueCapacity + " waiting)");
+        }
+    }
+
+    /**
+     * Stops a task nobody waits for: a queued task is removed so it no longer
+     * takes a queue slot; a running one is left to finish.
+     */
+    private void abandon(Future<?> future) {
+        if (future.cancel(false) && future instanceof Runnable) {
+            pool.remove((Runnable) future);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.alexandrialms.security;
+
+/**
+ * Immutable snapshot of the {@link KdfExecutor} counters.
+ */
+public class KdfStats {
+
+    private final int threads;
+    private final int activeThreads;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long submitted;
+    private final long completed;
+    private final long rejected;
+    private final long timedOut;
+    private final long rehashed;
+    private final long totalWaitNanos;
+    private final long totalRunNanos;
+    private final long maxLatencyNanos;
+
+    public KdfStats(int threads, int activeThreads, int queueDepth, int queueCapacity, long submitted,
+            long completed, long rejected, long timedOut, long rehashed, long totalWaitNanos, long totalRunNanos,
+            long maxLatencyNanos) {
+        this.threads = threads;
+        this.activeThreads = activeThreads;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.submitted = submitted;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.timedOut = timedOut;
+        this.rehashed = rehashed;
+        this.totalWaitNanos = totalWaitNanos;
+        this.totalRunNanos = totalRunNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public long getRehashed() {
+        return rehashed;
+    }
+
+    /**
+     * @return mean time a completed task waited in the queue, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        return completed == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / completed;
+    }
+
+    /**
+     * @return mean time a completed task took to run, in milliseconds
+     */
+    public double getAverageRunMillis() {
+        return completed == 0 ? 0.0 : totalRunNanos / 1_000_000.0 / completed;
+    }
+
+    /**
+     * @return longest queue wait plus run time of a completed task, in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+
+    public double getRejectionRatio() {
+        return submitted == 0 ? 0.0 : (double) rejected / submitted;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "KdfStats [threads=%d, active=%d, queue=%d/%d, submitted=%d, completed=%d, rejected=%d, "
+                        + "timedOut=%d, rehashed=%d, avgWait=%.1fms, avgRun=%.1fms, maxLatency=%.1fms]",
+                threads, activeThreads, queueDepth, queueCapacity, submitted, completed, rejected, timedOut,
+                rehashed, getAverageWaitMillis(), getAverageRunMillis(), getMaxLatencyMillis());
+    }
+}
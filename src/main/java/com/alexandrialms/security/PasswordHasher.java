@@ -0,0 +1,139 @@
+package com.alexandrialms.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 password hashes, as stored in {@code passwords.password_hash}.
+ * <p>
+ * A hash is stored as {@code pbkdf2-sha256$<iterations>$<salt>$<key>}, salt
+ * and key in Base64, so it carries the cost it was computed with: hashes
+ * made before the iteration count was raised still verify, and
+ * {@link #needsRehash} tells the caller to store a new one. Values in any
+ * other format never verify.
+ * </p>
+ * <p>
+ * Hashing is deliberately slow and CPU bound; callers run it on the
+ * {@link KdfExecutor} rather than on request or circulation threads.
+ * </p>
+ */
+public class PasswordHasher {
+
+    public static final String ALGORITHM = "pbkdf2-sha256";
+
+    private static final String JCA_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    /** Salt of the derivation done for missing hashes, so they take as long to reject as a wrong password. */
+    private final byte[] dummySalt = new byte[SALT_BYTES];
+
+    /**
+     * @param iterations PBKDF2 iteration count of new hashes
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iteration count must be positive");
+        }
+        this.iterations = iterations;
+        random.nextBytes(dummySalt);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return a new salted hash of {@code password} at the current cost
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations, KEY_BYTES);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return ALGORITHM + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(key);
+    }
+
+    /**
+     * Compares {@code password} with a stored hash in constant time.
+     *
+     * @param encoded the stored hash; {@code null} or a value that is not a
+     *                hash never matches, after the same work as a real check
+     */
+    public boolean verify(String password, String encoded) {
+        Parsed parsed = encoded != null ? Parsed.of(encoded) : null;
+        if (parsed == null) {
+            derive(password, dummySalt, iterations, KEY_BYTES);
+            return false;
+        }
+        byte[] key = derive(password, parsed.salt, parsed.iterations, parsed.key.length);
+        return MessageDigest.isEqual(key, parsed.key);
+    }
+
+    /**
+     * @return true if {@code encoded} was not made with the current cost
+     *         parameters, or is not a hash this class understands
+     */
+    public boolean needsRehash(String encoded) {
+        Parsed parsed = encoded != null ? Parsed.of(encoded) : null;
+        return parsed == null || parsed.iterations != iterations
+                || parsed.salt.length != SALT_BYTES || parsed.key.length != KEY_BYTES;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int keyBytes) {
+        char[] chars = password != null ? password.toCharArray() : new char[0];
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, keyBytes * 8);
+        try {
+            // SecretKeyFactory is not thread safe; the lookup is negligible next to the derivation
+            return SecretKeyFactory.getInstance(JCA_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(JCA_ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    private static final class Parsed {
+        private final int iterations;
+        private final byte[] salt;
+        private final byte[] key;
+
+        private Parsed(int iterations, byte[] salt, byte[] key) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.key = key;
+        }
+
+        /**
+         * @return the parts of {@code encoded}, or {@code null} if it is not a PBKDF2 hash
+         */
+        static Parsed of(String encoded) {
+            String[] parts = encoded.split("\\$");
+            if (parts.length != 4 || !ALGORITHM.equals(parts[0])) {
+                return null;
+            }
+            try {
+                int iterations = Integer.parseInt(parts[1]);
+                Base64.Decoder decoder = Base64.getDecoder();
+                byte[] salt = decoder.decode(parts[2].getBytes(StandardCharsets.US_ASCII));
+                byte[] key = decoder.decode(parts[3].getBytes(StandardCharsets.US_ASCII));
+                if (iterations <= 0 || salt.length == 0 || key.length == 0) {
+                    return null;
+                }
+                return new Parsed(iterations, salt, key);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
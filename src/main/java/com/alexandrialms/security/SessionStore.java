@@ -0,0 +1,315 @@
+package com.alexandrialms.security;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.model.LibraryRole;
+
+/**
+ * Sessions of logged-in users, so a request carrying a token is
+ * authenticated with a hash lookup instead of a password check and a query
+ * of {@code passwords}.
+ * <p>
+ * A token is 32 random bytes, URL-safe Base64, and means nothing by itself:
+ * it maps to the user ID and role recorded at login. A session expires
+ * after {@code idleMillis} without use, and each use pushes the expiry back.
+ * </p>
+ * <p>
+ * Tokens are spread over stripes like {@code HoldQueues}, each with its own
+ * lock and an access-ordered map, so the least recently used session of a
+ * stripe is always first: removing the expired sessions with
+ * {@link #sweep} only looks at sessions that are actually expired, and a
+ * full stripe makes room by dropping its least recently used session. The
+ * store never holds more than about {@code maxSessions} sessions.
+ * </p>
+ * <p>
+ * Sessions are not re-checked against the database: the DAOs revoke the
+ * sessions of a user whose password, role or active flag changes.
+ * </p>
+ */
+public class SessionStore {
+
+    /**
+     * A logged-in user. Immutable apart from the last use, which is guarded
+     * by the stripe holding it.
+     */
+    public static final class Session {
+        private final int userId;
+        private final LibraryRole role;
+        private final long createdAt;
+        private long lastUsedAt;
+
+        private Session(int userId, LibraryRole role, long createdAt) {
+            this.userId = userId;
+            this.role = role;
+            this.createdAt = createdAt;
+            this.lastUsedAt = createdAt;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public LibraryRole getRole() {
+            return role;
+        }
+
+        /**
+         * @return when the session was created, in epoch milliseconds
+         */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final String name;
+    private final long idleMillis;
+    private final int maxPerStripe;
+    private final Stripe[] stripes;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param name        name reported in {@link CacheStats}
+     * @param idleMillis  time without use after which a session expires
+     * @param maxSessions sessions kept before the least recently used are dropped
+     * @param stripes     number of locks the sessions are spread over
+     */
+    public SessionStore(String name, long idleMillis, int maxSessions, int stripes) {
+        if (idleMillis <= 0) {
+            throw new IllegalArgumentException("Session idle time must be positive");
+        }
+        if (maxSessions <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Session limit and stripe count must be positive");
+        }
+        this.name = name;
+        this.idleMillis = idleMillis;
+        this.maxPerStripe = Math.max(1, (maxSessions + stripes - 1) / stripes);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Starts a session.
+     *
+     * @return the token the user presents on later requests
+     */
+    public String create(int userId, LibraryRole role) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeOf(token);
+        synchronized (stripe) {
+            stripe.sweep(now);
+            stripe.sessions.put(token, new Session(userId, role, now));
+            stripe.evictOverflow();
+        }
+        return token;
+    }
+
+    /**
+     * Looks up a session and extends it.
+     *
+     * @return the session, or {@code null} if the token is unknown, expired or revoked
+     */
+    public Session validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeOf(token);
+        synchronized (stripe) {
+            // Access order: a hit also moves the session to the end of the LRU order
+            Session session = stripe.sessions.get(token);
+            if (session == null) {
+                stripe.misses++;
+                return null;
+            }
+            if (isExpired(session, now)) {
+                stripe.sessions.remove(token);
+                stripe.expirations++;
+                stripe.misses++;
+                return null;
+            }
+            session.lastUsedAt = now;
+            stripe.hits++;
+            return session;
+        }
+    }
+
+    /**
+     * Ends a session, as on logout.
+     *
+     * @return true if the session existed
+     */
+    public boolean revoke(String token) {
+        if (token == null) {
+            return false;
+        }
+        Stripe stripe = stripeOf(token);
+        synchronized (stripe) {
+            if (stripe.sessions.remove(token) == null) {
+                return false;
+            }
+            stripe.invalidations++;
+            return true;
+        }
+    }
+
+    /**
+     * Ends every session of a user.
+     *
+     * @return the number of sessions ended
+     */
+    public int revokeUser(int userId) {
+        return revokeUsers(Set.of(userId));
+    }
+
+    /**
+     * Ends every session of the given users. Scans all sessions once, which
+     * is fine for the rare writes that call it.
+     *
+     * @return the number of sessions ended
+     */
+    public int revokeUsers(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> users = userIds instanceof Set ? (Set<Integer>) userIds : new HashSet<>(userIds);
+        int revoked = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Session> it = stripe.sessions.values().iterator();
+                while (it.hasNext()) {
+                    if (users.contains(it.next().userId)) {
+                        it.remove();
+                        stripe.invalidations++;
+                        revoked++;
+                    }
+                }
+            }
+        }
+        return revoked;
+    }
+
+    /**
+     * Ends every session, for user writes whose affected users are not known.
+     */
+    public void revokeAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.invalidations += stripe.sessions.size();
+                stripe.sessions.clear();
+            }
+        }
+    }
+
+    /**
+     * Removes the expired sessions. Costs the number of sessions removed,
+     * plus one per stripe.
+     *
+     * @return the number of sessions removed
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                removed += stripe.sweep(now);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of sessions held, expired ones not yet swept included
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.sessions.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the counters summed over the stripes; hits and misses are
+     * token lookups, evictions sessions dropped to stay within the limit,
+     * expirations idle sessions removed and invalidations revoked sessions.
+     */
+    public CacheStats getStats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long expirations = 0;
+        long invalidations = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                hits += stripe.hits;
+                misses += stripe.misses;
+                evictions += stripe.evictions;
+                expirations += stripe.expirations;
+                invalidations += stripe.invalidations;
+            }
+        }
+        return new CacheStats(name, size(), hits, misses, evictions, expirations, invalidations);
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastUsedAt >= idleMillis;
+    }
+
+    private Stripe stripeOf(String token) {
+        int hash = token.hashCode();
+        return stripes[((hash >>> 16 ^ hash) & 0x7FFFFFFF) % stripes.length];
+    }
+
+    /**
+     * Sessions of one stripe, least recently used first. Guarded by its own monitor.
+     */
+    private final class Stripe {
+        private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+        private long invalidations;
+
+        /**
+         * Removes expired sessions from the front of the LRU order, stopping
+         * at the first live one: sessions behind it were used later.
+         */
+        int sweep(long now) {
+            int removed = 0;
+            Iterator<Session> it = sessions.values().iterator();
+            while (it.hasNext() && isExpired(it.next(), now)) {
+                it.remove();
+                removed++;
+            }
+            expirations += removed;
+            return removed;
+        }
+
+        void evictOverflow() {
+            Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+            while (sessions.size() > maxPerStripe && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+}
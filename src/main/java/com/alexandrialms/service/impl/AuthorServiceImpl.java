@@ -1,33 +1,102 @@
 package com.alexandrialms.service.impl;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import com.alexandrialms.dao.impl.AuthorDAO;
 import com.alexandrialms.exception.ValidationException;
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.search.AuthorDirectory;
+import com.alexandrialms.search.CatalogueAuthorSource;
+import com.alexandrialms.search.NameMatch;
+import com.alexandrialms.search.SearchIndexes;
 import com.alexandrialms.service.interfaces.AuthorServiceInterface;
 import com.alexandrialms.util.ValidationHelper;
 
 public class AuthorServiceImpl implements AuthorServiceInterface {
+    private static final int MAX_SIMILAR_AUTHORS = 10;
+
     private final AuthorDAO authorDAO;
+    private final CatalogueAuthorSource authorSource;
 
     public AuthorServiceImpl(AuthorDAO authorDAO) {
         this.authorDAO = authorDAO;
+        this.authorSource = new CatalogueAuthorSource(authorDAO);
     }
 
     @Override
     public Author createAuthor(Author author) {
+        return createAuthor(author, false);
+    }
+
+    @Override
+    public Author createAuthor(Author author, boolean allowSimilarNames) {
         ValidationHelper.validateAuthor(author);
         if (authorExists(author.getAuthorID())) {
             throw new ValidationException("authorID", "AUTHOR_ALREADY_EXISTS",
                     "The author already exists");
         }
+        AuthorDirectory directory = SearchIndexes.authors();
+        if (!directory.refresh(authorSource)) {
+            // Directory disabled or never loaded: exact, case-insensitive check only
+            if (authorDAO.existsByFullName(author.getFirstName(), author.getLastName())) {
+                throw new ValidationException("lastName", "DUPLICATE_AUTHOR",
+                        "An author with the same name already exists");
+            }
+        } else {
+            List<NameMatch> similar = directory.findSimilar(author.getFirstName(), author.getLastName(),
+                    MAX_SIMILAR_AUTHORS);
+            for (NameMatch match : similar) {
+                if (match.getDistance() == 0) {
+                    throw new ValidationException("lastName", "DUPLICATE_AUTHOR",
+                            "An author with the same name already exists (ID " + match.getAuthorId() + ")");
+                }
+            }
+            if (!allowSimilarNames && !similar.isEmpty()) {
+                throw new ValidationException("lastName", "SIMILAR_AUTHOR_EXISTS",
+                        "Authors with a similar name already exist: " + describe(similar));
+            }
+        }
         authorDAO.insert(author);
         return author;
 
     }
 
+    @Override
+    public List<Author> findSimilarAuthors(String firstName, String lastName) {
+        if (!ValidationHelper.isValidString(firstName, 1) && !ValidationHelper.isValidString(lastName, 1)) {
+            throw new ValidationException("name", "INVALID_NAME", "The name cannot be empty");
+        }
+        AuthorDirectory directory = SearchIndexes.authors();
+        List<Author> authors = new ArrayList<>();
+        if (!directory.refresh(authorSource)) {
+            if (ValidationHelper.isValidString(firstName, 1) && ValidationHelper.isValidString(lastName, 1)) {
+                authors.addAll(authorDAO.findByFullName(firstName, lastName));
+            }
+            return authors;
+        }
+        for (NameMatch match : directory.findSimilar(firstName, lastName, MAX_SIMILAR_AUTHORS)) {
+            Author author = authorDAO.findById(match.getAuthorId());
+            if (author != null) {
+                authors.add(author);
+            }
+        }
+        return authors;
+    }
+
+    private static String describe(List<NameMatch> matches) {
+        StringBuilder description = new StringBuilder();
+        for (NameMatch match : matches) {
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(match.getName()).append(" (ID ").append(match.getAuthorId()).append(')');
+        }
+        return description.toString();
+    }
+
     @Override
     public Optional<Author> findAuthorById(int authorId) {
         return Optional.ofNullable(authorDAO.findById(authorId));
@@ -89,14 +158,23 @@ public class AuthorServiceImpl implements AuthorServiceInterface {
 
     @Override
     public int countAuthors() {
-        return authorDAO.findAll().size();
+        return authorDAO.countAllAuthors();
     }
 
     @Override
     public List<Author> findAuthorsWithBooks() {
         return authorDAO.findAuthorsWithBooks();
     }
+
+    @Override
+    public List<Author> findMostBorrowedAuthors(int limit, PopularityWindow window) {
+        ValidationHelper.validateLimit(limit);
+        ValidationHelper.validatePopularityWindow(window);
+        return authorDAO.findMostBorrowedAuthors(limit, window);
+    }
+
     public AuthorServiceImpl() {
-        this.authorDAO = new AuthorDAO();}
+        this.authorDAO = new AuthorDAO();
+        this.authorSource = new CatalogueAuthorSource(authorDAO);}
 
 }
@@ -1,6 +1,9 @@
 package com.alexandrialms.service.impl;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -10,14 +13,30 @@ import com.alexandrialms.dao.impl.BookDAO;
 import com.alexandrialms.dao.impl.CategoryDAO;
 import com.alexandrialms.exception.ValidationException;
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.Book;
+import com.alexandrialms.model.BookDetails;
+import com.alexandrialms.model.Category;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.search.BookSearchIndex;
+import com.alexandrialms.search.CatalogueDocumentSource;
+import com.alexandrialms.search.SearchHit;
+import com.alexandrialms.search.SearchIndexes;
+import com.alexandrialms.search.Suggestion;
+import com.alexandrialms.search.Typeahead;
 import com.alexandrialms.service.interfaces.BookServiceInterface;
+import com.alexandrialms.util.BatchValidationContext;
+import com.alexandrialms.util.IsbnParser;
 import com.alexandrialms.util.ValidationHelper;
+import com.alexandrialms.util.collections.LongIntHashMap;
+import com.alexandrialms.util.pagination.Page;
+import com.alexandrialms.util.pagination.PageToken;
 
 public class BookServiceImpl implements BookServiceInterface {
     private BookDAO bookDAO = new BookDAO();
     private CategoryDAO categoryDAO = new CategoryDAO();
     private AuthorDAO authorDAO = new AuthorDAO();
+    private CatalogueDocumentSource searchSource;
 
     @Override
     public Optional<Book> createBook(Book book) throws ValidationException {
@@ -180,6 +199,42 @@ public Optional<Book> getBookById(int bookId) throws ValidationException {
         return bookDAO.findAllPaginated(limit, offset);
     }
 
+    @Override
+    public Page<Book> getAllBooksPage(int pageSize, String pageToken) throws ValidationException {
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "books.all", 1);
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        List<Book> books = bookDAO.findAllAfter(afterId, pageSize + 1);
+        return Page.of(books, pageSize, last -> PageToken.encode("books.all", last.getBookID()));
+    }
+
+    @Override
+    public Page<Book> getBooksByTitlePage(String title, int pageSize, String pageToken) throws ValidationException {
+        if (!ValidationHelper.isValidString(title, 3)) {
+            throw new ValidationException("Title cannot be null or empty and at least 3 characters long");
+        }
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "books.title", 2);
+        String afterTitle = after == null ? null : after[1];
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        List<Book> books = bookDAO.findByTitleAfter(title, afterTitle, afterId, pageSize + 1);
+        return Page.of(books, pageSize,
+                last -> PageToken.encode("books.title", last.getBookID(), last.getTitle()));
+    }
+
+    @Override
+    public Page<Book> getBooksByCategoryPage(int categoryId, int pageSize, String pageToken)
+            throws ValidationException {
+        if (!ValidationHelper.isValidCategoryID(categoryId, categoryDAO)) {
+            throw new ValidationException("Invalid category ID: " + categoryId);
+        }
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "books.category", 1);
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        List<Book> books = bookDAO.findByCategoryAfter(categoryId, afterId, pageSize + 1);
+        return Page.of(books, pageSize, last -> PageToken.encode("books.category", last.getBookID()));
+    }
+
     @Override
     public int getBooksCountByCategory(int categoryId) throws ValidationException {
         if (!ValidationHelper.isValidCategoryID(categoryId, categoryDAO)) {
@@ -245,6 +300,14 @@ public Optional<Book> getBookById(int bookId) throws ValidationException {
         return bookDAO.getAvailableCopiesCount(bookId) != 0;
     }
 
+    @Override
+    public Map<Integer, Integer> getAvailableCopiesCounts(List<Integer> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return bookDAO.getAvailableCopiesCounts(bookIds);
+    }
+
     @Override
     public List<Book> getMostBorrowedBooks(int limit) throws ValidationException {
         if (limit <= 0) {
@@ -253,6 +316,13 @@ public Optional<Book> getBookById(int bookId) throws ValidationException {
         return bookDAO.findMostBorrowedBooks(limit);
     }
 
+    @Override
+    public List<Book> getMostBorrowedBooks(int limit, PopularityWindow window) throws ValidationException {
+        ValidationHelper.validateLimit(limit);
+        ValidationHelper.validatePopularityWindow(window);
+        return bookDAO.findMostBorrowedBooks(limit, window);
+    }
+
     @Override
     public List<Book> getRecentlyAddedBooks(int limit) throws ValidationException {
         if (limit <= 0) {
@@ -366,6 +436,94 @@ public boolean addAuthorToBook(int bookId, int authorId) throws ValidationExcept
         return bookDAO.searchBooksWithAuthors(searchTerm.trim());
     }
 
+    @Override
+    public List<BookDetails> getBookDetails(List<Book> books) {
+        List<BookDetails> details = new ArrayList<>(books.size());
+        if (books.isEmpty()) {
+            return details;
+        }
+        LinkedHashSet<Integer> bookIds = new LinkedHashSet<>();
+        LinkedHashSet<Integer> categoryIds = new LinkedHashSet<>();
+        for (Book book : books) {
+            bookIds.add(book.getBookID());
+            categoryIds.add(book.getCategoryId());
+        }
+        Map<Integer, List<Author>> authorsByBook = bookDAO.getAuthorsForBooks(bookIds);
+        Map<Integer, Category> categories = categoryDAO.findByIds(categoryIds);
+        for (Book book : books) {
+            details.add(new BookDetails(book, categories.get(book.getCategoryId()),
+                    authorsByBook.getOrDefault(book.getBookID(), List.of())));
+        }
+        return details;
+    }
+
+    @Override
+    public List<BookDetails> searchBookDetails(String searchTerm) throws ValidationException {
+        return getBookDetails(searchBooksWithAuthors(searchTerm));
+    }
+
+    @Override
+    public List<BookDetails> getBookDetailsByCategory(int categoryId) throws ValidationException {
+        return getBookDetails(getBooksByCategory(categoryId));
+    }
+
+    @Override
+    public List<BookDetails> searchCatalogue(String query, int limit) throws ValidationException {
+        if (!ValidationHelper.isValidString(query, 1)) {
+            throw new ValidationException("query", "INVALID_SEARCH_TERM", "Search query cannot be empty");
+        }
+        ValidationHelper.validatePageSize(limit);
+
+        BookSearchIndex index = SearchIndexes.books();
+        if (!index.refresh(searchSource)) {
+            // Index disabled or never loaded: fall back to the LIKE search, unranked
+            List<Book> books = bookDAO.searchBooksWithAuthors(query.trim());
+            return getBookDetails(books.subList(0, Math.min(limit, books.size())));
+        }
+        List<Book> books = new ArrayList<>();
+        for (SearchHit hit : index.search(query, limit)) {
+            Book book = bookDAO.findById(hit.getBookId());
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return getBookDetails(books);
+    }
+
+    @Override
+    public Optional<String> suggestCorrection(String query) throws ValidationException {
+        if (!ValidationHelper.isValidString(query, 1)) {
+            throw new ValidationException("query", "INVALID_SEARCH_TERM", "Search query cannot be empty");
+        }
+        BookSearchIndex index = SearchIndexes.books();
+        if (!index.refresh(searchSource)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index.suggestCorrection(query));
+    }
+
+    @Override
+    public int rebuildSearchIndex() {
+        SearchIndexes.typeahead().rebuild(searchSource, searchSource);
+        return SearchIndexes.books().rebuild(searchSource);
+    }
+
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) throws ValidationException {
+        if (!ValidationHelper.isValidString(prefix, 1)) {
+            throw new ValidationException("prefix", "INVALID_SEARCH_TERM", "Prefix cannot be empty");
+        }
+        if (limit <= 0 || limit > Typeahead.MAX_SUGGESTIONS) {
+            throw new ValidationException("limit", "INVALID_LIMIT",
+                    "Limit must be between 1 and " + Typeahead.MAX_SUGGESTIONS);
+        }
+        Typeahead typeahead = SearchIndexes.typeahead();
+        if (!typeahead.refresh(searchSource, searchSource)) {
+            return new ArrayList<>();
+        }
+        return typeahead.suggest(prefix, limit);
+    }
+
     @Override
     public boolean bookExistsByISBN(String isbn) {
         if (!ValidationHelper.isValidISBN(isbn)) {
@@ -382,7 +540,17 @@ public boolean addAuthorToBook(int bookId, int authorId) throws ValidationExcept
         if (year < 500 || year > java.time.Year.now().getValue()) {
             return false;
         }
-        return bookDAO.existsByTitleAndYear(title, year);
+        BookSearchIndex index = SearchIndexes.books();
+        if (!index.refresh(searchSource)) {
+            return bookDAO.existsByTitleAndYear(title, year);
+        }
+        for (Integer bookId : index.findByTitle(title)) {
+            Book book = bookDAO.findById(bookId);
+            if (book != null && book.getPubYear() == year) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -430,15 +598,91 @@ public boolean addAuthorToBook(int bookId, int authorId) throws ValidationExcept
         return bookDAO.deleteBooksWithNoCopies();
     }
 
+    @Override
+    public int backfillIsbnKeys() {
+        return bookDAO.backfillIsbn13();
+    }
+
     public BookServiceImpl(BookDAO bookDAO, AuthorDAO authorDAO, CategoryDAO categoryDAO) {
         this.bookDAO = bookDAO;
         this.authorDAO = authorDAO;
         this.categoryDAO = categoryDAO;
+        this.searchSource = new CatalogueDocumentSource(bookDAO, categoryDAO);
     }
     
     public BookServiceImpl() {
         this.bookDAO = new BookDAO();
         this.authorDAO = new AuthorDAO();
         this.categoryDAO = new CategoryDAO();
+        this.searchSource = new CatalogueDocumentSource(bookDAO, categoryDAO);
+    }
+
+    @Override
+    public BatchResult<Book> importBooks(List<Book> books) {
+        BatchResult<Book> result = new BatchResult<>(books.size());
+        List<Book> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        LongIntHashMap isbnsInBatch = new LongIntHashMap(books.size());
+        BatchValidationContext context = BatchValidationContext.forBooks(books, bookDAO, categoryDAO);
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            try {
+                ValidationHelper.validateBookForInsert(book, context);
+                // ISBN-10 and ISBN-13 forms of the same book share one key
+                int firstRow = isbnsInBatch.putIfAbsent(IsbnParser.parse(book.getIsbn()), i, -1);
+                if (firstRow >= 0) {
+                    throw new ValidationException("isbn", "DUPLICATE_ISBN",
+                            "ISBN " + book.getIsbn() + " appears more than once in this import (first at row "
+                                    + firstRow + ")");
+                }
+                valid.add(book);
+                validIndexes.add(i);
+            } catch (ValidationException e) {
+                result.addError(i, e);
+            }
+        }
+
+        bookDAO.insertAll(valid);
+        for (int j = 0; j < valid.size(); j++) {
+            Book book = valid.get(j);
+            if (book.getBookID() > 0) {
+                result.addSucceeded(book);
+            } else {
+                result.addError(validIndexes.get(j), "book", "DATABASE_ERROR", "Book could not be inserted");
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult<Book> updateBooks(List<Book> books) {
+        BatchResult<Book> result = new BatchResult<>(books.size());
+        List<Book> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            try {
+                if (book == null) {
+                    throw new ValidationException("book", "BOOK_NULL", "Book cannot be null");
+                }
+                ValidationHelper.validateBookForUpdate(book.getBookID(), book, bookDAO);
+                valid.add(book);
+                validIndexes.add(i);
+            } catch (ValidationException e) {
+                result.addError(i, e);
+            }
+        }
+
+        boolean[] written = bookDAO.updateEach(valid);
+        for (int j = 0; j < valid.size(); j++) {
+            if (written[j]) {
+                result.addSucceeded(valid.get(j));
+            } else {
+                result.addError(validIndexes.get(j), "book", "DATABASE_ERROR", "Book could not be updated");
+            }
+        }
+        return result;
     }
 }
@@ -7,6 +7,7 @@ import java.util.Optional;
 import com.alexandrialms.dao.impl.CategoryDAO;
 import com.alexandrialms.exception.ValidationException;
 import com.alexandrialms.model.Category;
+import com.alexandrialms.model.PopularityWindow;
 import com.alexandrialms.service.interfaces.CategoryServiceInterface;
 import com.alexandrialms.util.ValidationHelper;
 
@@ -141,6 +142,13 @@ public Category createCategory(Category category) throws ValidationException {
         return categories;
     }
 
+    @Override
+    public List<Category> getMostBorrowedCategories(int limit, PopularityWindow window) throws ValidationException {
+        ValidationHelper.validateLimit(limit);
+        ValidationHelper.validatePopularityWindow(window);
+        return categoryDAO.findMostBorrowedCategories(limit, window);
+    }
+
     @Override
     public int getTotalCategoriesCount() {
         int count = categoryDAO.countAllCategories();
@@ -1,14 +1,21 @@
 package com.alexandrialms.service.impl;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import com.alexandrialms.dao.impl.BookDAO;
 import com.alexandrialms.dao.impl.CopyDAO;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.Copy;
 import com.alexandrialms.service.interfaces.CopyServiceInterface;
+import com.alexandrialms.util.BatchValidationContext;
 import com.alexandrialms.util.ValidationHelper;
+import com.alexandrialms.util.pagination.Page;
+import com.alexandrialms.util.pagination.PageToken;
 
 public class CopyServiceImpl implements CopyServiceInterface {
     CopyDAO copyDAO = new CopyDAO();
@@ -274,10 +281,83 @@ public boolean setCopyStatus(int copyId, String status) throws ValidationExcepti
         return copies;
     }
 
+    @Override
+    public Page<Copy> getCopiesByBookPage(int bookId, int pageSize, String pageToken) throws ValidationException {
+        if (!ValidationHelper.isValidBookID(bookId, bookDAO)) {
+            throw new ValidationException("Invalid book ID: " + bookId);
+        }
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "copies.book", 1);
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        List<Copy> copies = copyDAO.findByBookIdAfter(bookId, afterId, pageSize + 1);
+        return Page.of(copies, pageSize, last -> PageToken.encode("copies.book", last.getCopyID()));
+    }
+
     @Override
     public List<Copy> getAvailableCopiesPaginated(int limit, int offset) throws ValidationException {
         List<Copy> copies = copyDAO.findAvailableCopiesPaginated(limit, offset);
         return copies;
     }
-    
+
+    @Override
+    public BatchResult<Copy> importCopies(List<Copy> copies) {
+        BatchResult<Copy> result = new BatchResult<>(copies.size());
+        List<Copy> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        Set<String> codesInBatch = new HashSet<>();
+        BatchValidationContext context = BatchValidationContext.forCopies(copies, copyDAO, bookDAO);
+
+        for (int i = 0; i < copies.size(); i++) {
+            Copy copy = copies.get(i);
+            try {
+                ValidationHelper.validateCopyForInsert(copy, context);
+                if (!codesInBatch.add(copy.getInternal_code())) {
+                    throw new ValidationException("internal_code", "DUPLICATE_INTERNAL_CODE",
+                            "Internal code '" + copy.getInternal_code() + "' appears more than once in this import");
+                }
+                valid.add(copy);
+                validIndexes.add(i);
+            } catch (ValidationException e) {
+                result.addError(i, e);
+            }
+        }
+
+        copyDAO.insertAll(valid);
+        for (int j = 0; j < valid.size(); j++) {
+            Copy copy = valid.get(j);
+            if (copy.getCopyID() > 0) {
+                result.addSucceeded(copy);
+            } else {
+                result.addError(validIndexes.get(j), "copy", "DATABASE_ERROR", "Copy could not be inserted");
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult<Copy> updateCopies(List<Copy> copies) {
+        BatchResult<Copy> result = new BatchResult<>(copies.size());
+        List<Copy> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < copies.size(); i++) {
+            try {
+                ValidationHelper.validateCopyForUpdate(copies.get(i), copyDAO, bookDAO);
+                valid.add(copies.get(i));
+                validIndexes.add(i);
+            } catch (ValidationException e) {
+                result.addError(i, e);
+            }
+        }
+
+        boolean[] written = copyDAO.updateEach(valid);
+        for (int j = 0; j < valid.size(); j++) {
+            if (written[j]) {
+                result.addSucceeded(valid.get(j));
+            } else {
+                result.addError(validIndexes.get(j), "copy", "DATABASE_ERROR", "Copy could not be updated");
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,160 @@
+package com.alexandrialms.service.impl;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.alexandrialms.dao.impl.PasswordDAO;
+import com.alexandrialms.dao.impl.UserDAO;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Password;
+import com.alexandrialms.model.User;
+import com.alexandrialms.security.Credentials;
+import com.alexandrialms.security.PasswordHasher;
+import com.alexandrialms.security.SessionStore;
+import com.alexandrialms.service.interfaces.CredentialServiceInterface;
+import com.alexandrialms.util.ValidationHelper;
+
+/**
+ * Password checks and changes.
+ * <p>
+ * Passwords are stored as PBKDF2 hashes (see {@link PasswordHasher}), one
+ * row of {@code passwords} per password a user has had; the newest row is
+ * the current one. Every hash and check runs on the bounded pool of
+ * {@link Credentials}, so a burst of logins queues there instead of taking
+ * the CPU from circulation; when the pool is saturated the call fails with
+ * {@code CREDENTIALS_BUSY}. A correct password whose hash was made with an
+ * older cost is rehashed in the background after the check returns.
+ * </p>
+ * <p>
+ * {@link #login} pays for one password check and returns a session token;
+ * later requests present the token to {@link #getSession}, answered from
+ * the {@link SessionStore} without touching the database.
+ * </p>
+ */
+public class CredentialServiceImpl implements CredentialServiceInterface {
+    PasswordDAO passwordDAO = new PasswordDAO();
+    UserDAO userDAO = new UserDAO();
+
+    @Override
+    public Optional<User> authenticate(String email, String password) throws ValidationException {
+        if (!ValidationHelper.isValidEmail(email)) {
+            throw new ValidationException("email", "INVALID_EMAIL", "The provided email is not valid.");
+        }
+        requirePassword(password);
+
+        User user;
+        try {
+            user = userDAO.findByEmail(email);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+        if (user == null) {
+            // Same work as a wrong password, so response times do not reveal which emails exist
+            PasswordHasher hasher = Credentials.hasher();
+            onKdfPool(() -> hasher.verify(password, null));
+            return Optional.empty();
+        }
+        boolean matches = checkPassword(user.getUserID(), password);
+        return matches && user.isActive() ? Optional.of(user) : Optional.empty();
+    }
+
+    @Override
+    public boolean verifyPassword(int userId, String password) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        requirePassword(password);
+        return checkPassword(userId, password);
+    }
+
+    @Override
+    public Optional<String> login(String email, String password) throws ValidationException {
+        return authenticate(email, password)
+                .map(user -> Credentials.sessions().create(user.getUserID(), user.getRole()));
+    }
+
+    @Override
+    public Optional<SessionStore.Session> getSession(String token) {
+        return Optional.ofNullable(Credentials.sessions().validate(token));
+    }
+
+    @Override
+    public boolean logout(String token) {
+        return Credentials.sessions().revoke(token);
+    }
+
+    @Override
+    public boolean changePassword(int userId, String newPassword) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        ValidationHelper.validatePassword(newPassword);
+        try {
+            if (userDAO.findById(userId) == null) {
+                throw new ValidationException("userId", "USER_NOT_FOUND", "User with ID " + userId + " not found.");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        PasswordHasher hasher = Credentials.hasher();
+        int historySize = Credentials.passwordHistory();
+        if (historySize > 0) {
+            List<Password> history = passwordDAO.getPasswordHistory(userId);
+            List<Password> recent = history.subList(0, Math.min(historySize, history.size()));
+            boolean reused = onKdfPool(() -> {
+                for (Password previous : recent) {
+                    if (hasher.verify(newPassword, previous.getPasswordHash())) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            if (reused) {
+                throw new ValidationException("password", "PASSWORD_REUSED",
+                        "The new password must differ from the last " + historySize + " passwords.");
+            }
+        }
+
+        String hash = onKdfPool(() -> hasher.hash(newPassword));
+        LocalDateTime now = LocalDateTime.now();
+        return passwordDAO.insert(new Password(0, userId, hash, now, now));
+    }
+
+    /**
+     * Checks {@code password} against the current password of a user, and
+     * queues a rehash if it matches a hash made with an older cost.
+     */
+    private boolean checkPassword(int userId, String password) {
+        PasswordHasher hasher = Credentials.hasher();
+        Password stored = passwordDAO.findByUserID(userId);
+        String encoded = stored != null ? stored.getPasswordHash() : null;
+        boolean matches = onKdfPool(() -> hasher.verify(password, encoded));
+        if (matches && hasher.needsRehash(encoded)) {
+            // Updates the row in place: the password is the same, only its hash changes
+            Credentials.executor().rehashLater(() -> {
+                stored.setPasswordHash(hasher.hash(password));
+                stored.setUpdatedAt(LocalDateTime.now());
+                passwordDAO.update(stored);
+            });
+        }
+        return matches;
+    }
+
+    private static <T> T onKdfPool(Callable<T> task) {
+        try {
+            return Credentials.executor().run(task);
+        } catch (RejectedExecutionException e) {
+            throw new ValidationException("password", "CREDENTIALS_BUSY",
+                    "Too many password checks in progress, try again shortly.");
+        }
+    }
+
+    private static void requirePassword(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new ValidationException("password", "INVALID_PASSWORD", "The provided password is not valid.");
+        }
+    }
+}
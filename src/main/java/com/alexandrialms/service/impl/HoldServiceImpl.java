@@ -0,0 +1,113 @@
+package com.alexandrialms.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.alexandrialms.dao.impl.HoldDAO;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.CirculationResult;
+import com.alexandrialms.model.Hold;
+import com.alexandrialms.service.interfaces.HoldServiceInterface;
+import com.alexandrialms.util.ValidationHelper;
+
+/**
+ * Holds on books with every copy out.
+ * <p>
+ * A placed hold waits in the queue of its book; when a copy is checked in
+ * through {@code LoanServiceImpl#checkin} it is kept for the oldest waiting
+ * hold, which becomes {@code READY}, and only that patron can borrow it
+ * until the pickup deadline. See {@link HoldDAO} for the transactions.
+ * </p>
+ */
+public class HoldServiceImpl implements HoldServiceInterface {
+    HoldDAO holdDAO = new HoldDAO();
+
+    @Override
+    public Hold placeHold(int userId, int bookId) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        validateBookId(bookId);
+
+        CirculationResult result = holdDAO.place(userId, bookId, LocalDateTime.now());
+        return unwrap(result, "placeHold");
+    }
+
+    @Override
+    public Hold cancelHold(int holdId) throws ValidationException {
+        validateHoldId(holdId);
+
+        CirculationResult result = holdDAO.cancel(holdId, LocalDate.now());
+        return unwrap(result, "cancelHold");
+    }
+
+    @Override
+    public int expireUncollectedHolds() {
+        return holdDAO.expireUncollected(LocalDate.now());
+    }
+
+    @Override
+    public Optional<Hold> getHoldById(int holdId) {
+        if (holdId <= 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(holdDAO.findById(holdId));
+    }
+
+    @Override
+    public List<Hold> getHoldsByUser(int userId) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        return holdDAO.findByUser(userId);
+    }
+
+    @Override
+    public List<Hold> getWaitingHolds(int bookId) throws ValidationException {
+        validateBookId(bookId);
+        return holdDAO.findWaitingByBook(bookId);
+    }
+
+    private static void validateBookId(int bookId) {
+        if (bookId <= 0) {
+            throw new ValidationException("bookId", "INVALID_BOOK_ID", "Book ID must be greater than 0");
+        }
+    }
+
+    private static void validateHoldId(int holdId) {
+        if (holdId <= 0) {
+            throw new ValidationException("holdId", "INVALID_HOLD_ID", "Hold ID must be greater than 0");
+        }
+    }
+
+    /**
+     * Returns the hold of a successful result, or turns the rejection reason
+     * into a {@link ValidationException} whose error code is the status name.
+     */
+    private static Hold unwrap(CirculationResult result, String operation) {
+        if (result == null) {
+            throw new ValidationException(operation, "DATABASE_ERROR",
+                    "Database error during " + operation);
+        }
+        switch (result.getStatus()) {
+            case OK:
+                return result.getHold();
+            case USER_NOT_FOUND:
+                throw new ValidationException("userId", "USER_NOT_FOUND", "User not found");
+            case USER_INACTIVE:
+                throw new ValidationException("userId", "USER_INACTIVE", "User account is not active");
+            case BOOK_NOT_FOUND:
+                throw new ValidationException("bookId", "BOOK_NOT_FOUND", "Book not found");
+            case BOOK_AVAILABLE:
+                throw new ValidationException("bookId", "BOOK_AVAILABLE",
+                        "Book has a copy available; borrow it instead of placing a hold");
+            case HOLD_ALREADY_PLACED:
+                throw new ValidationException("bookId", "HOLD_ALREADY_PLACED",
+                        "User already has an active hold on this book");
+            case HOLD_NOT_FOUND:
+                throw new ValidationException("holdId", "HOLD_NOT_FOUND", "Hold not found");
+            case HOLD_NOT_ACTIVE:
+                throw new ValidationException("holdId", "HOLD_NOT_ACTIVE", "Hold is no longer active");
+            default:
+                throw new ValidationException(operation, result.getStatus().name(), "Operation rejected");
+        }
+    }
+}
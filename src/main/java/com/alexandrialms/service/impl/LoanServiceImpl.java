@@ -0,0 +1,119 @@
+package com.alexandrialms.service.impl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import com.alexandrialms.dao.impl.LoanDAO;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.CirculationResult;
+import com.alexandrialms.model.Loan;
+import com.alexandrialms.service.interfaces.LoanServiceInterface;
+import com.alexandrialms.util.ValidationHelper;
+
+/**
+ * Circulation desk operations.
+ * <p>
+ * {@link #checkout(int, int)} and {@link #checkin(int)} replace the sequence
+ * {@code canUserBorrowMore} + {@code isCopyAvailable} + {@code LoanDAO.insert}
+ * + {@code setCopyStatus}: eligibility is checked and the copy and loan rows
+ * are written in a single locked transaction in {@link LoanDAO}.
+ * </p>
+ * <p>
+ * Checkout sets the due date from the borrower's {@code LibraryRole} loan
+ * period; {@link #renew(int)} extends it up to the role's renewal limit.
+ * </p>
+ */
+public class LoanServiceImpl implements LoanServiceInterface {
+    LoanDAO loanDAO = new LoanDAO();
+
+    @Override
+    public Loan checkout(int userId, int copyId) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        validateCopyId(copyId);
+
+        CirculationResult result = loanDAO.checkout(userId, copyId, LocalDate.now());
+        return unwrap(result, "checkout");
+    }
+
+    @Override
+    public Loan checkin(int copyId) throws ValidationException {
+        validateCopyId(copyId);
+
+        CirculationResult result = loanDAO.checkin(copyId, LocalDate.now());
+        return unwrap(result, "checkin");
+    }
+
+    @Override
+    public Loan renew(int copyId) throws ValidationException {
+        validateCopyId(copyId);
+
+        CirculationResult result = loanDAO.renew(copyId, LocalDate.now());
+        return unwrap(result, "renew");
+    }
+
+    @Override
+    public Optional<Loan> getLoanById(int loanId) {
+        if (loanId <= 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(loanDAO.findById(loanId));
+    }
+
+    @Override
+    public List<Loan> getActiveLoans() {
+        return loanDAO.findActiveLoans();
+    }
+
+    @Override
+    public List<Loan> getLoansByUser(int userId) throws ValidationException {
+        ValidationHelper.validateUserId(userId);
+        return loanDAO.findByUser(userId);
+    }
+
+    @Override
+    public List<Loan> getOverdueLoans() {
+        return loanDAO.findOverdueLoans();
+    }
+
+    private static void validateCopyId(int copyId) {
+        if (copyId <= 0) {
+            throw new ValidationException("copyId", "INVALID_COPY_ID", "Copy ID must be greater than 0");
+        }
+    }
+
+    /**
+     * Returns the loan of a successful result, or turns the rejection reason
+     * into a {@link ValidationException} whose error code is the status name.
+     */
+    private static Loan unwrap(CirculationResult result, String operation) {
+        if (result == null) {
+            throw new ValidationException(operation, "DATABASE_ERROR",
+                    "Database error during " + operation);
+        }
+        switch (result.getStatus()) {
+            case OK:
+                return result.getLoan();
+            case USER_NOT_FOUND:
+                throw new ValidationException("userId", "USER_NOT_FOUND", "User not found");
+            case USER_INACTIVE:
+                throw new ValidationException("userId", "USER_INACTIVE", "User account is not active");
+            case LOAN_LIMIT_REACHED:
+                throw new ValidationException("userId", "LOAN_LIMIT_REACHED",
+                        "User has reached the loan limit for their role");
+            case COPY_NOT_FOUND:
+                throw new ValidationException("copyId", "COPY_NOT_FOUND", "Copy not found");
+            case COPY_NOT_AVAILABLE:
+                throw new ValidationException("copyId", "COPY_NOT_AVAILABLE", "Copy is not available for loan");
+            case NO_ACTIVE_LOAN:
+                throw new ValidationException("copyId", "NO_ACTIVE_LOAN", "Copy has no active loan");
+            case LOAN_OVERDUE:
+                throw new ValidationException("copyId", "LOAN_OVERDUE", "Overdue loans cannot be renewed");
+            case RENEWAL_LIMIT_REACHED:
+                throw new ValidationException("copyId", "RENEWAL_LIMIT_REACHED",
+                        "Loan has reached the renewal limit for the borrower's role");
+            default:
+                throw new ValidationException(operation, result.getStatus().name(), "Operation rejected");
+        }
+    }
+}
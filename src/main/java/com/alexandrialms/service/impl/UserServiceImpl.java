@@ -4,20 +4,30 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.alexandrialms.dao.impl.UserDAO;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.User;
 import com.alexandrialms.service.interfaces.UserServiceInterface;
+import com.alexandrialms.util.BatchValidationContext;
+import com.alexandrialms.util.ProgressListener;
 import com.alexandrialms.util.ValidationHelper;
+import com.alexandrialms.util.pagination.Page;
+import com.alexandrialms.util.pagination.PageToken;
 
 public class UserServiceImpl implements UserServiceInterface {
     UserDAO userDAO = new UserDAO();
+    CredentialServiceImpl credentialService = new CredentialServiceImpl();
 
     @Override
     public Optional<User> createUser(User user) throws ValidationException {
@@ -193,6 +203,35 @@ public class UserServiceImpl implements UserServiceInterface {
         }
     }
 
+    @Override
+    public Page<User> getAllUsersPage(int pageSize, String pageToken) throws ValidationException {
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "users.all", 1);
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        try {
+            List<User> users = userDAO.findAllAfter(afterId, pageSize + 1);
+            return Page.of(users, pageSize, last -> PageToken.encode("users.all", last.getUserID()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Page.empty();
+        }
+    }
+
+    @Override
+    public Page<User> getUsersByRolePage(String role, int pageSize, String pageToken) throws ValidationException {
+        ValidationHelper.validateUserRole(role);
+        ValidationHelper.validatePageSize(pageSize);
+        String[] after = PageToken.decode(pageToken, "users.role", 1);
+        int afterId = after == null ? 0 : PageToken.intKey(after[0]);
+        try {
+            List<User> users = userDAO.findByRoleAfter(role, afterId, pageSize + 1);
+            return Page.of(users, pageSize, last -> PageToken.encode("users.role", last.getUserID()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Page.empty();
+        }
+    }
+
     @Override
     public int getUsersCountByRole(String role) throws ValidationException {
         ValidationHelper.validateUserRole(role);
@@ -408,6 +447,11 @@ public boolean deactivateUser(int userId) throws ValidationException {
         }
     }
 
+    @Override
+    public List<BatchResult.RowError> validateUsers(Collection<User> users) {
+        return ValidationHelper.validateAll(users);
+    }
+
     @Override
     public boolean isUserEligibleForLoan(int userId) throws ValidationException {
         ValidationHelper.validateUserId(userId);
@@ -424,39 +468,19 @@ public boolean deactivateUser(int userId) throws ValidationException {
             return false;
         }
     }
-    // TODO Security & Access Operations
-  /*  @Override
+
+    @Override
     public boolean validateUserCredentials(String email, String password) throws ValidationException {
-        if (!ValidationHelper.isValidEmail(email)) {
-            throw new ValidationException("email", "INVALID_EMAIL", "The provided email is not valid.");
-        }
-        if (password == null || password.isEmpty()) {
-            throw new ValidationException("password", "INVALID_PASSWORD", "The provided password is not valid.");
-        }
-        try {
-            User user = userDAO.findByEmail(email);
-            if (user == null) {
-                return false;
-            }
-            return user.getPassword().equals(password);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return credentialService.authenticate(email, password).isPresent();
     }
 
     @Override
     public boolean changeUserPassword(int userId, String newPassword) throws ValidationException {
-        ValidationHelper.validateUserId(userId);
-        ValidationHelper.validatePassword(newPassword);
-        try {
-            return userDAO.updateUserPassword(userId, newPassword);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return credentialService.changePassword(userId, newPassword);
     }
 
+    // TODO resetUserPassword needs a way to deliver the new password to the user
+    /*
     @Override
     public boolean resetUserPassword(int userId) throws ValidationException {
         // Auto-generated method stub
@@ -476,9 +500,15 @@ public boolean deactivateUser(int userId) throws ValidationException {
 
     @Override
     public int updateUsersRole(List<Integer> userIds, String newRole) throws ValidationException {
+        return updateUsersRole(userIds, newRole, ProgressListener.NONE);
+    }
+
+    @Override
+    public int updateUsersRole(List<Integer> userIds, String newRole, ProgressListener listener)
+            throws ValidationException {
         ValidationHelper.validateUserRole(newRole);
         try {
-            return userDAO.updateUserRole(userIds, newRole);
+            return userDAO.updateUserRole(validateUserIds(userIds), newRole, listenerOrNone(listener));
         } catch (SQLException e) {
             e.printStackTrace();
             throw new ValidationException("updateUsersRole", "DATABASE_ERROR",
@@ -488,8 +518,13 @@ public boolean deactivateUser(int userId) throws ValidationException {
 
     @Override
     public int bulkDeactivateUsers(List<Integer> userIds) throws ValidationException {
+        return bulkDeactivateUsers(userIds, ProgressListener.NONE);
+    }
+
+    @Override
+    public int bulkDeactivateUsers(List<Integer> userIds, ProgressListener listener) throws ValidationException {
         try {
-            return userDAO.bulkDeactivateUsers(userIds);
+            return userDAO.bulkDeactivateUsers(validateUserIds(userIds), listenerOrNone(listener));
         } catch (SQLException e) {
             e.printStackTrace();
             throw new ValidationException("bulkDeactivateUsers", "DATABASE_ERROR",
@@ -497,6 +532,78 @@ public boolean deactivateUser(int userId) throws ValidationException {
         }
     }
 
+    @Override
+    public int bulkActivateUsers(List<Integer> userIds) throws ValidationException {
+        return bulkActivateUsers(userIds, ProgressListener.NONE);
+    }
+
+    @Override
+    public int bulkActivateUsers(List<Integer> userIds, ProgressListener listener) throws ValidationException {
+        try {
+            return userDAO.bulkActivateUsers(validateUserIds(userIds), listenerOrNone(listener));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new ValidationException("bulkActivateUsers", "DATABASE_ERROR",
+                    "Error bulk activating users: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public BatchResult<User> importUsers(List<User> users) throws ValidationException {
+        if (users == null) {
+            throw new ValidationException("users", "REQUIRED", "User list is required");
+        }
+        BatchResult<User> result = new BatchResult<>(users.size());
+        BatchValidationContext context = BatchValidationContext.forUsers(users, userDAO);
+        Set<String> emailsInBatch = new HashSet<>();
+        Set<String> phonesInBatch = new HashSet<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                ValidationHelper.validateUserForInsert(user, context);
+                if (!emailsInBatch.add(user.getEmail().toLowerCase(Locale.ROOT))) {
+                    throw new ValidationException("email", "DUPLICATE_EMAIL",
+                            "Email '" + user.getEmail() + "' appears more than once in this import");
+                }
+                if (user.getPhone() != null && !user.getPhone().isEmpty() && !phonesInBatch.add(user.getPhone())) {
+                    throw new ValidationException("phone", "DUPLICATE_PHONE",
+                            "Phone '" + user.getPhone() + "' appears more than once in this import");
+                }
+            } catch (ValidationException e) {
+                result.addError(i, e);
+                continue;
+            }
+            if (userDAO.insert(user)) {
+                result.addSucceeded(user);
+            } else {
+                result.addError(i, "user", "DATABASE_ERROR", "User could not be inserted");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks a list of IDs for a bulk operation and drops duplicates, keeping order.
+     */
+    private List<Integer> validateUserIds(List<Integer> userIds) {
+        if (userIds == null) {
+            throw new ValidationException("userIds", "REQUIRED", "User ID list is required");
+        }
+        List<Integer> distinct = userIds.stream().distinct().collect(Collectors.toList());
+        for (Integer userId : distinct) {
+            if (userId == null) {
+                throw new ValidationException("userId", "INVALID_USER_ID", "User ID must be greater than 0");
+            }
+            ValidationHelper.validateUserId(userId);
+        }
+        return distinct;
+    }
+
+    private static ProgressListener listenerOrNone(ProgressListener listener) {
+        return listener != null ? listener : ProgressListener.NONE;
+    }
+
 @Override
 public int notifyUsersWithOverdueLoans() throws ValidationException {
     try {
@@ -1,6 +1,7 @@
 package com.alexandrialms.service.interfaces;
 
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.PopularityWindow;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,13 +25,29 @@ public interface AuthorServiceInterface {
     /**
      * Creates and persists a new author in the system.
      * Validates author data before creation and checks for duplicates.
+     * Names are compared ignoring case and accents, and names a few typos
+     * away from an existing author are rejected as well.
      *
      * @param author the {@link Author} entity to be created
      * @return the created {@link Author} with its generated ID
      * @throws ValidationException if author data is invalid or author already exists
+     *         ({@code DUPLICATE_AUTHOR}) or has a similar name ({@code SIMILAR_AUTHOR_EXISTS})
      */
     Author createAuthor(Author author);
 
+    /**
+     * Creates an author like {@link #createAuthor(Author)}; with
+     * {@code allowSimilarNames} only names equal once case and accents are
+     * ignored count as duplicates, e.g. after the user has confirmed that a
+     * similar author is a different person.
+     *
+     * @param author            the {@link Author} entity to be created
+     * @param allowSimilarNames whether names a few typos away from an existing author are accepted
+     * @return the created {@link Author} with its generated ID
+     * @throws ValidationException if author data is invalid or author already exists
+     */
+    Author createAuthor(Author author, boolean allowSimilarNames);
+
     /**
      * Finds an author by its unique identifier.
      *
@@ -55,6 +72,18 @@ public interface AuthorServiceInterface {
      */
     List<Author> findAuthorsByName(String name);
 
+    /**
+     * Finds authors whose full name is equal or close to the given one,
+     * ignoring case and accents and tolerating a few typos ("did you mean").
+     * The number of typos tolerated grows with the length of the name.
+     *
+     * @param firstName the first name, may be empty
+     * @param lastName  the last name, may be empty
+     * @return the matching {@link Author} entities, closest first
+     * @throws ValidationException if both names are empty
+     */
+    List<Author> findSimilarAuthors(String firstName, String lastName);
+
     /**
      * Finds authors by their nationality.
      * Performs case-insensitive search for exact matches.
@@ -107,6 +136,17 @@ public interface AuthorServiceInterface {
      */
     List<Author> findAuthorsWithBooks();
 
+    /**
+     * Finds the authors whose books were borrowed the most in the given
+     * period. A loan of a book with several authors counts for each of them.
+     *
+     * @param limit  the maximum number of authors to return
+     * @param window the period whose loans are counted
+     * @return the {@link Author} entities, most borrowed first and ties by ID
+     * @throws ValidationException if the limit is not positive or the window is null
+     */
+    List<Author> findMostBorrowedAuthors(int limit, PopularityWindow window);
+
     /**
      * Deletes authors that have no associated books in the system.
      * This is a maintenance operation to clean up orphaned author records.
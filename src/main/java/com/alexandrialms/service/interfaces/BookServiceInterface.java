@@ -1,8 +1,13 @@
 package com.alexandrialms.service.interfaces;
 
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.Book;
+import com.alexandrialms.model.BookDetails;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.search.Suggestion;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.util.pagination.Page;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,6 +38,11 @@ public interface BookServiceInterface {
     List<Book> getBooksByTitlePaginated(String title, int limit, int offset) throws ValidationException;
     List<Book> getBooksByCategoryPaginated(int categoryId, int limit, int offset) throws ValidationException;
     List<Book> getAllBooksPaginated(int limit, int offset) throws ValidationException;
+
+    // KEYSET PAGINATION OPERATIONS (pageToken null = first page)
+    Page<Book> getAllBooksPage(int pageSize, String pageToken) throws ValidationException;
+    Page<Book> getBooksByTitlePage(String title, int pageSize, String pageToken) throws ValidationException;
+    Page<Book> getBooksByCategoryPage(int categoryId, int pageSize, String pageToken) throws ValidationException;
     
     // STATISTICS OPERATIONS
     int getBooksCountByCategory(int categoryId) throws ValidationException;
@@ -47,9 +57,11 @@ public interface BookServiceInterface {
     int getAvailableCopiesCount(int bookId) throws ValidationException;
     int getTotalCopiesCount(int bookId) throws ValidationException;
     boolean isBookAvailable(int bookId) throws ValidationException;
+    Map<Integer, Integer> getAvailableCopiesCounts(List<Integer> bookIds); // Bulk version for result lists; unknown books count 0
     
     // POPULARITY OPERATIONS
     List<Book> getMostBorrowedBooks(int limit) throws ValidationException;
+    List<Book> getMostBorrowedBooks(int limit, PopularityWindow window) throws ValidationException; // Most loans in the window, ties by book_id
     List<Book> getRecentlyAddedBooks(int limit) throws ValidationException;
     
     // AUTHOR RELATIONSHIP MANAGEMENT
@@ -67,9 +79,22 @@ public interface BookServiceInterface {
     List<Book> getBooksByMultipleAuthors(List<Integer> authorIds) throws ValidationException;
     List<Book> searchBooksWithAuthors(String searchTerm) throws ValidationException;
     
+    // HYDRATED RESULTS (book + category + authors in at most 3 queries)
+    List<BookDetails> getBookDetails(List<Book> books);
+    List<BookDetails> searchBookDetails(String searchTerm) throws ValidationException;
+    List<BookDetails> getBookDetailsByCategory(int categoryId) throws ValidationException;
+    
+    // RANKED SEARCH (in-memory inverted index over titles, ISBNs, authors and categories)
+    List<BookDetails> searchCatalogue(String query, int limit) throws ValidationException; // Best match first; last word matches as a prefix
+    Optional<String> suggestCorrection(String query) throws ValidationException; // "Did you mean": misspelled words replaced by the closest indexed terms
+    int rebuildSearchIndex(); // Warm-up at startup or after bulk changes made outside the DAOs; also rebuilds suggestions
+    
+    // TYPEAHEAD (titles and author names by prefix, most borrowed first)
+    List<Suggestion> suggest(String prefix, int limit) throws ValidationException; // Empty if suggestions are disabled
+    
     // VALIDATION OPERATIONS
     boolean bookExistsByISBN(String isbn);
-    boolean bookExistsByTitleAndYear(String title, int year);
+    boolean bookExistsByTitleAndYear(String title, int year); // Title compared ignoring case, accents and punctuation
     boolean bookHasAuthor(int bookId, int authorId) throws ValidationException;
     int getBooksCountByAuthor(int authorId) throws ValidationException;
     
@@ -77,4 +102,9 @@ public interface BookServiceInterface {
     int deleteBooksByCategory(int categoryId) throws ValidationException;
     int updateBooksCategory(int oldCategoryId, int newCategoryId) throws ValidationException;
     int deleteBooksWithNoCopies() throws ValidationException;
+    int backfillIsbnKeys();
+    
+    // BULK IMPORT OPERATIONS (invalid rows are reported, the rest are written)
+    BatchResult<Book> importBooks(List<Book> books);
+    BatchResult<Book> updateBooks(List<Book> books);
 }
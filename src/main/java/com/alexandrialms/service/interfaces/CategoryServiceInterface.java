@@ -1,6 +1,7 @@
 package com.alexandrialms.service.interfaces;
 
 import com.alexandrialms.model.Category;
+import com.alexandrialms.model.PopularityWindow;
 import com.alexandrialms.exception.ValidationException;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ public interface CategoryServiceInterface {
     List<Category> getCategoriesWithBooks();
     List<Category> getEmptyCategories();
     List<Category> getMostPopularCategories(int limit) throws ValidationException;
+    List<Category> getMostBorrowedCategories(int limit, PopularityWindow window) throws ValidationException; // Loans of the category's books in the window
     int getTotalCategoriesCount();
 
     // VALIDATION OPERATIONS
@@ -1,7 +1,9 @@
 package com.alexandrialms.service.interfaces;
 
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.Copy;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.util.pagination.Page;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,4 +55,9 @@ public interface CopyServiceInterface {
     // PAGINATION OPERATIONS
     List<Copy> getCopiesByBookPaginated(int bookId, int limit, int offset) throws ValidationException;
     List<Copy> getAvailableCopiesPaginated(int limit, int offset) throws ValidationException;
-}
\ No newline at end of file
+    Page<Copy> getCopiesByBookPage(int bookId, int pageSize, String pageToken) throws ValidationException; // Keyset, pageToken null = first page
+
+    // BULK IMPORT OPERATIONS (invalid rows are reported, the rest are written)
+    BatchResult<Copy> importCopies(List<Copy> copies);
+    BatchResult<Copy> updateCopies(List<Copy> copies);
+}
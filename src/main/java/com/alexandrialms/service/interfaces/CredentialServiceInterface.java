@@ -0,0 +1,21 @@
+package com.alexandrialms.service.interfaces;
+
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.User;
+import com.alexandrialms.security.SessionStore;
+import java.util.Optional;
+
+public interface CredentialServiceInterface {
+
+    // AUTHENTICATION
+    Optional<User> authenticate(String email, String password) throws ValidationException; // Empty for unknown email, wrong password or inactive user
+    boolean verifyPassword(int userId, String password) throws ValidationException; // Upgrades an outdated stored hash in the background
+
+    // SESSIONS
+    Optional<String> login(String email, String password) throws ValidationException; // Token of a new session, empty if authentication fails
+    Optional<SessionStore.Session> getSession(String token); // Extends the session; no database access
+    boolean logout(String token);
+
+    // PASSWORD MANAGEMENT
+    boolean changePassword(int userId, String newPassword) throws ValidationException; // Kept as a new row; may not repeat recent passwords; ends the user's sessions
+}
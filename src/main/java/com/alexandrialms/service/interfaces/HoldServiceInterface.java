@@ -0,0 +1,19 @@
+package com.alexandrialms.service.interfaces;
+
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Hold;
+import java.util.List;
+import java.util.Optional;
+
+public interface HoldServiceInterface {
+
+    // CIRCULATION
+    Hold placeHold(int userId, int bookId) throws ValidationException; // Only for books with no copy available
+    Hold cancelHold(int holdId) throws ValidationException; // A kept copy passes to the next hold in the queue
+    int expireUncollectedHolds(); // READY holds past their pickup deadline; run daily
+
+    // QUERIES
+    Optional<Hold> getHoldById(int holdId);
+    List<Hold> getHoldsByUser(int userId) throws ValidationException;
+    List<Hold> getWaitingHolds(int bookId) throws ValidationException; // Queue of a book, next to be served first
+}
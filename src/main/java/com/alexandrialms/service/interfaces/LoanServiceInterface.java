@@ -0,0 +1,20 @@
+package com.alexandrialms.service.interfaces;
+
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Loan;
+import java.util.List;
+import java.util.Optional;
+
+public interface LoanServiceInterface {
+
+    // CIRCULATION
+    Loan checkout(int userId, int copyId) throws ValidationException;
+    Loan checkin(int copyId) throws ValidationException;
+    Loan renew(int copyId) throws ValidationException; // Due date moved one loan period of the borrower's role from today
+
+    // QUERIES
+    Optional<Loan> getLoanById(int loanId);
+    List<Loan> getActiveLoans();
+    List<Loan> getLoansByUser(int userId) throws ValidationException;
+    List<Loan> getOverdueLoans(); // Open loans past their due date, by loan ID
+}
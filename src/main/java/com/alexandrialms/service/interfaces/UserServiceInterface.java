@@ -1,7 +1,11 @@
 package com.alexandrialms.service.interfaces;
 
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.User;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.util.ProgressListener;
+import com.alexandrialms.util.pagination.Page;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,6 +34,10 @@ public interface UserServiceInterface {
     List<User> getUsersByNamePaginated(String name, int limit, int offset) throws ValidationException;
     List<User> getUsersByRolePaginated(String role, int limit, int offset) throws ValidationException;
     List<User> getAllUsersPaginated(int limit, int offset) throws ValidationException;
+
+    // KEYSET PAGINATION OPERATIONS (pageToken null = first page)
+    Page<User> getAllUsersPage(int pageSize, String pageToken) throws ValidationException;
+    Page<User> getUsersByRolePage(String role, int pageSize, String pageToken) throws ValidationException;
     
     // STATISTICS OPERATIONS
     int getUsersCountByRole(String role) throws ValidationException;
@@ -57,17 +65,25 @@ public interface UserServiceInterface {
     boolean userExistsByPhone(String phone);
     boolean userHasActiveLoans(int userId) throws ValidationException;
     boolean isUserEligibleForLoan(int userId) throws ValidationException;
+    List<BatchResult.RowError> validateUsers(Collection<User> users);
     
     // SECURITY & ACCESS OPERATIONS
-    //boolean validateUserCredentials(String email, String password) throws ValidationException;
-    //boolean changeUserPassword(int userId, String newPassword) throws ValidationException;
+    boolean validateUserCredentials(String email, String password) throws ValidationException; // Delegates to CredentialServiceImpl
+    boolean changeUserPassword(int userId, String newPassword) throws ValidationException;
     //boolean resetUserPassword(int userId) throws ValidationException;
     
     // BATCH OPERATIONS
     int deactivateInactiveUsers() throws ValidationException;
     int updateUsersRole(List<Integer> userIds, String newRole) throws ValidationException;
+    int updateUsersRole(List<Integer> userIds, String newRole, ProgressListener listener) throws ValidationException;
     int bulkDeactivateUsers(List<Integer> userIds) throws ValidationException;
+    int bulkDeactivateUsers(List<Integer> userIds, ProgressListener listener) throws ValidationException;
+    int bulkActivateUsers(List<Integer> userIds) throws ValidationException;
+    int bulkActivateUsers(List<Integer> userIds, ProgressListener listener) throws ValidationException;
     int notifyUsersWithOverdueLoans() throws ValidationException;
+
+    // BULK IMPORT OPERATIONS (invalid rows are reported, the rest are written)
+    BatchResult<User> importUsers(List<User> users) throws ValidationException;
     
     // MAINTENANCE OPERATIONS
     int cleanupInactiveUsers() throws ValidationException;
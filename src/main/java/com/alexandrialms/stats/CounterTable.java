@@ -0,0 +1,183 @@
+package com.alexandrialms.stats;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.alexandrialms.cache.CacheStats;
+
+/**
+ * Materialized {@code GROUP BY ... COUNT(*)}: one {@link LongAdder} per
+ * group key, adjusted by the DAOs after each write.
+ * <p>
+ * The first {@link #read(Supplier)} runs the aggregate query given by the
+ * DAO; from then on reads copy the counters without touching the database,
+ * and writes from many threads add to them without contending on a lock.
+ * {@link #reconcile()} (run periodically by {@link LibraryStatistics}) runs
+ * the query again and corrects any drift, such as rows written by another
+ * process. Writes whose effect on the groups is unknown call
+ * {@link #markStale()} and the next read reloads the table.
+ * </p>
+ */
+public class CounterTable<K> {
+
+    private final String name;
+    private final boolean enabled;
+    private final ConcurrentHashMap<K, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleMarks = new LongAdder();
+
+    private final Object reconcileMonitor = new Object();
+    private volatile Supplier<Map<K, Integer>> source;
+    private volatile boolean loaded;
+    private volatile boolean stale;
+    private volatile long reconciliations;
+    private volatile long corrections;
+    /** Differences seen by the last reconciliation, applied if the next one sees them again. */
+    private Map<K, Long> pendingDrifts = new HashMap<>();
+
+    /**
+     * @param name    name reported in {@link CacheStats}
+     * @param enabled false makes every read run the query
+     */
+    public CounterTable(String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the counts per key, without the keys whose count is 0.
+     *
+     * @param loader runs the aggregate query; returns {@code null} on a
+     *               database error. Kept for later reconciliations.
+     * @return a new mutable map, or {@code null} if the table is not loaded
+     *         and the query failed
+     */
+    public Map<K, Integer> read(Supplier<Map<K, Integer>> loader) {
+        if (!enabled) {
+            misses.increment();
+            return loader.get();
+        }
+        source = loader;
+        if ((!loaded || stale) && !reconcile()) {
+            misses.increment();
+            return loaded ? snapshot() : null;
+        }
+        hits.increment();
+        return snapshot();
+    }
+
+    /**
+     * Adds {@code delta} to the count of {@code key}; a {@code null} key is ignored.
+     */
+    public void add(K key, int delta) {
+        if (key == null || delta == 0) {
+            return;
+        }
+        counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Makes the next read run the query again, for writes that affect an
+     * unknown set of groups.
+     */
+    public void markStale() {
+        stale = true;
+        staleMarks.increment();
+    }
+
+    /**
+     * Runs the query of the last read and corrects the counters. Does
+     * nothing if the table has never been read.
+     * <p>
+     * A stale or unloaded table takes the query result as is. Otherwise a
+     * count is only corrected when it did not change while the query ran
+     * and differs from the result by the same amount on two passes in a
+     * row: a row that is committed but not yet counted by the DAO that wrote
+     * it shows up as a difference on one pass only, while drift from
+     * writes the DAOs never saw persists.
+     * </p>
+     *
+     * @return true if the query ran
+     */
+    public boolean reconcile() {
+        synchronized (reconcileMonitor) {
+            Supplier<Map<K, Integer>> loader = source;
+            if (!enabled || loader == null) {
+                return false;
+            }
+            boolean wasStale = stale;
+            stale = false;
+            Map<K, Long> before = sums();
+            Map<K, Integer> actual = loader.get();
+            if (actual == null) {
+                stale = stale || wasStale;
+                return false;
+            }
+            Map<K, Long> after = sums();
+            boolean reload = !loaded || wasStale;
+            Map<K, Long> drifts = new HashMap<>();
+            Set<K> keys = new HashSet<>(after.keySet());
+            keys.addAll(actual.keySet());
+            for (K key : keys) {
+                if (key == null) {
+                    continue;
+                }
+                long count = after.getOrDefault(key, 0L);
+                long drift = actual.getOrDefault(key, 0) - count;
+                if (drift == 0 || (!reload && before.getOrDefault(key, 0L) != count)) {
+                    // Matches, or written while the query ran: compare again on the next pass
+                    continue;
+                }
+                if (reload || Long.valueOf(drift).equals(pendingDrifts.get(key))) {
+                    counts.computeIfAbsent(key, k -> new LongAdder()).add(drift);
+                    if (!reload) {
+                        corrections++;
+                    }
+                } else {
+                    drifts.put(key, drift);
+                }
+            }
+            pendingDrifts = drifts;
+            loaded = true;
+            reconciliations++;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the read counters: reads answered from the counters are hits,
+     * reads that ran the query because the table was disabled or could not
+     * be loaded are misses. Reconciliations are reported as expirations,
+     * stale marks as invalidations and the number of counters corrected by a
+     * reconciliation as evictions.
+     */
+    public CacheStats getStats() {
+        return new CacheStats(name, counts.size(), hits.sum(), misses.sum(), corrections, reconciliations,
+                staleMarks.sum());
+    }
+
+    private Map<K, Long> sums() {
+        Map<K, Long> result = new HashMap<>();
+        for (Map.Entry<K, LongAdder> entry : counts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    private Map<K, Integer> snapshot() {
+        Map<K, Integer> result = new HashMap<>();
+        for (Map.Entry<K, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count != 0) {
+                result.put(entry.getKey(), (int) count);
+            }
+        }
+        return result;
+    }
+}
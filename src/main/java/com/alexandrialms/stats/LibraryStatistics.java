@@ -0,0 +1,214 @@
+package com.alexandrialms.stats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.model.Book;
+import com.alexandrialms.model.User;
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Dashboard aggregates kept as {@link CounterTable}s: books per publication
+ * year and per category, active users per role and active users per
+ * registration month.
+ * <p>
+ * {@code BookDAO}, {@code UserDAO} and {@code CategoryDAO} read them instead
+ * of running the {@code GROUP BY} queries, and report their writes through
+ * the {@code book*} and {@code user*} methods. A daemon thread reconciles
+ * every table that has been read against the database every
+ * {@code stats.reconcileSeconds} (default 300, 0 disables it);
+ * {@code stats.enabled=false} makes every read query the database.
+ * </p>
+ * <p>
+ * Also holds the {@link LoanRankings} behind the most borrowed books,
+ * categories and authors ({@code stats.rankings.enabled}, reloaded every
+ * {@code stats.rankings.reloadSeconds}, default 3600).
+ * </p>
+ */
+public final class LibraryStatistics {
+
+    private static final int DEFAULT_RECONCILE_SECONDS = 300;
+    private static final int DEFAULT_RANKINGS_RELOAD_SECONDS = 3600;
+
+    private static final CounterTable<Integer> BOOKS_BY_YEAR;
+    private static final CounterTable<Integer> BOOKS_BY_CATEGORY;
+    private static final CounterTable<String> ACTIVE_USERS_BY_ROLE;
+    private static final CounterTable<Integer> ACTIVE_USERS_BY_MONTH;
+    private static final LoanRankings LOAN_RANKINGS;
+
+    static {
+        Properties properties = DBConnection.getProperties();
+        boolean enabled = !"false".equalsIgnoreCase(properties.getProperty("stats.enabled", "true").trim());
+        BOOKS_BY_YEAR = new CounterTable<>("stats.booksByYear", enabled);
+        BOOKS_BY_CATEGORY = new CounterTable<>("stats.booksByCategory", enabled);
+        ACTIVE_USERS_BY_ROLE = new CounterTable<>("stats.activeUsersByRole", enabled);
+        ACTIVE_USERS_BY_MONTH = new CounterTable<>("stats.activeUsersByMonth", enabled);
+        boolean rankingsEnabled = enabled
+                && !"false".equalsIgnoreCase(properties.getProperty("stats.rankings.enabled", "true").trim());
+        LOAN_RANKINGS = new LoanRankings("stats.loanRankings", rankingsEnabled,
+                intProperty(properties, "stats.rankings.reloadSeconds", DEFAULT_RANKINGS_RELOAD_SECONDS) * 1000L);
+
+        int reconcileSeconds = intProperty(properties, "stats.reconcileSeconds", DEFAULT_RECONCILE_SECONDS);
+        if (enabled && reconcileSeconds > 0) {
+            ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "alexandria-stats-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reconciler.scheduleWithFixedDelay(LibraryStatistics::reconcileAll, reconcileSeconds, reconcileSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    private LibraryStatistics() {
+    }
+
+    public static CounterTable<Integer> booksByYear() {
+        return BOOKS_BY_YEAR;
+    }
+
+    public static CounterTable<Integer> booksByCategory() {
+        return BOOKS_BY_CATEGORY;
+    }
+
+    /**
+     * Active users per {@code LibraryRole} name.
+     */
+    public static CounterTable<String> activeUsersByRole() {
+        return ACTIVE_USERS_BY_ROLE;
+    }
+
+    /**
+     * Active users per registration month, keyed by {@link #monthKey(int, int)}.
+     */
+    public static CounterTable<Integer> activeUsersByMonth() {
+        return ACTIVE_USERS_BY_MONTH;
+    }
+
+    /**
+     * Most borrowed books, categories and authors per {@code PopularityWindow}.
+     */
+    public static LoanRankings loanRankings() {
+        return LOAN_RANKINGS;
+    }
+
+    /**
+     * @return {@code year * 100 + month}, e.g. 202503 for March 2025
+     */
+    public static int monthKey(int year, int month) {
+        return year * 100 + month;
+    }
+
+    public static void bookAdded(Book book) {
+        countBook(book, 1);
+    }
+
+    public static void bookRemoved(Book book) {
+        countBook(book, -1);
+    }
+
+    /**
+     * @param before the row as it was before the update, or {@code null} if it did not exist
+     */
+    public static void bookChanged(Book before, Book after) {
+        if (before != null) {
+            countBook(before, -1);
+            countBook(after, 1);
+        }
+    }
+
+    /**
+     * Schedules a reload of the book tables, for writes that affect an unknown set of books.
+     */
+    public static void allBooksChanged() {
+        BOOKS_BY_YEAR.markStale();
+        BOOKS_BY_CATEGORY.markStale();
+    }
+
+    /**
+     * Counts {@code user} if it is active.
+     */
+    public static void userAdded(User user) {
+        countUser(user, 1);
+    }
+
+    /**
+     * Uncounts {@code user} if it was active.
+     */
+    public static void userRemoved(User user) {
+        countUser(user, -1);
+    }
+
+    /**
+     * @param before the row as it was before the update, or {@code null} if it did not exist
+     */
+    public static void userChanged(User before, User after) {
+        if (before != null) {
+            countUser(before, -1);
+            countUser(after, 1);
+        }
+    }
+
+    /**
+     * Schedules a reload of the user tables, for writes that affect an unknown set of users.
+     */
+    public static void allUsersChanged() {
+        ACTIVE_USERS_BY_ROLE.markStale();
+        ACTIVE_USERS_BY_MONTH.markStale();
+    }
+
+    /**
+     * Reconciles every table that has been read; called by the background thread.
+     */
+    public static void reconcileAll() {
+        for (CounterTable<?> table : List.of(BOOKS_BY_YEAR, BOOKS_BY_CATEGORY, ACTIVE_USERS_BY_ROLE,
+                ACTIVE_USERS_BY_MONTH)) {
+            try {
+                table.reconcile();
+            } catch (RuntimeException e) {
+                // Keep the thread alive; the table is retried on the next pass
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static List<CacheStats> getStats() {
+        return List.of(BOOKS_BY_YEAR.getStats(), BOOKS_BY_CATEGORY.getStats(), ACTIVE_USERS_BY_ROLE.getStats(),
+                ACTIVE_USERS_BY_MONTH.getStats(), LOAN_RANKINGS.getStats());
+    }
+
+    private static void countBook(Book book, int delta) {
+        BOOKS_BY_YEAR.add(book.getPubYear(), delta);
+        BOOKS_BY_CATEGORY.add(book.getCategoryId(), delta);
+    }
+
+    private static void countUser(User user, int delta) {
+        if (!user.isActive()) {
+            return;
+        }
+        if (user.getRole() != null) {
+            ACTIVE_USERS_BY_ROLE.add(user.getRole().name(), delta);
+        }
+        LocalDateTime registered = user.getRegistrationDate();
+        if (registered != null) {
+            ACTIVE_USERS_BY_MONTH.add(monthKey(registered.getYear(), registered.getMonthValue()), delta);
+        }
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.alexandrialms.stats;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.alexandrialms.cache.CacheStats;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.util.collections.LongIntHashMap;
+
+/**
+ * Most borrowed books, categories and authors over each
+ * {@link PopularityWindow}, kept in memory.
+ * <p>
+ * Loans are counted per book in one bucket per day, for as many days as
+ * the longest window. Each window keeps its totals per book, category and
+ * author in a ranking ordered by loan count, so the top {@code N} is read
+ * straight from the front of the ranking. A new loan adds one to the
+ * totals of every window it falls in; when the day changes, the bucket
+ * that leaves each window is subtracted from it. Categories and authors are
+ * credited through the book of the lent copy.
+ * </p>
+ * <p>
+ * Complete like {@code AvailabilityIndex}: the first ranking loads the
+ * loan history, copies, categories and authorship, and {@code LoanDAO},
+ * {@code CopyDAO} and {@code BookDAO} report their writes from then on.
+ * Writes that would move past loans to another book, category or author
+ * drop the rankings and the next read reloads them, as does reaching the
+ * reload interval. Rankings return {@code null} when the engine is
+ * disabled or could not be loaded; callers then query the database.
+ * </p>
+ */
+public class LoanRankings {
+
+    /**
+     * Loan history and catalogue links as read by the loader; owned by the
+     * rankings once returned.
+     */
+    public static final class Snapshot {
+        private final LongIntHashMap bookByCopy = new LongIntHashMap();
+        private final LongIntHashMap categoryByBook = new LongIntHashMap();
+        private final Map<Integer, int[]> authorsByBook = new HashMap<>();
+        private final Map<Long, Map<Integer, Integer>> loansByDay = new HashMap<>();
+        private final Map<Integer, Integer> allTimeByBook = new HashMap<>();
+
+        public void addCopy(int copyId, int bookId) {
+            bookByCopy.put(copyId, bookId, 0);
+        }
+
+        public void addBook(int bookId, int categoryId) {
+            categoryByBook.put(bookId, categoryId, 0);
+        }
+
+        public void addAuthor(int bookId, int authorId) {
+            int[] authors = authorsByBook.get(bookId);
+            int[] extended = authors == null ? new int[1] : Arrays.copyOf(authors, authors.length + 1);
+            extended[extended.length - 1] = authorId;
+            authorsByBook.put(bookId, extended);
+        }
+
+        /**
+         * Loans of a book made on {@code day}. Days older than the longest
+         * window are ignored.
+         */
+        public void addLoans(int bookId, LocalDate day, int loans) {
+            loansByDay.computeIfAbsent(day.toEpochDay(), d -> new HashMap<>()).merge(bookId, loans, Integer::sum);
+        }
+
+        public void addAllTimeLoans(int bookId, int loans) {
+            allTimeByBook.merge(bookId, loans, Integer::sum);
+        }
+    }
+
+    private static final PopularityWindow[] WINDOWS = PopularityWindow.values();
+    private static final int LONGEST_WINDOW_DAYS = longestWindowDays();
+
+    private final String name;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private State state;
+    private long loadedAt;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private long invalidations;
+
+    /**
+     * @param name      name reported in {@link CacheStats}
+     * @param enabled   false makes every ranking return {@code null}
+     * @param ttlMillis time before a full reload; 0 means never
+     */
+    public LoanRankings(String name, boolean enabled, long ttlMillis) {
+        this(name, enabled, ttlMillis, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock gives the current day, which decides the loans in each window
+     */
+    public LoanRankings(String name, boolean enabled, long ttlMillis, Clock clock) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Rankings TTL cannot be negative");
+        }
+        this.name = name;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the IDs of up to {@code limit} books with the most loans in
+     *         {@code window}, most borrowed first (ties by ID), or {@code null}
+     */
+    public int[] topBooks(PopularityWindow window, int limit, Supplier<Snapshot> loader) {
+        return read(loader, s -> s.books[window.ordinal()].top(limit));
+    }
+
+    /**
+     * Same as {@link #topBooks}, each loan credited to the category of its book.
+     */
+    public int[] topCategories(PopularityWindow window, int limit, Supplier<Snapshot> loader) {
+        return read(loader, s -> s.categories[window.ordinal()].top(limit));
+    }
+
+    /**
+     * Same as {@link #topBooks}, each loan credited to every author of its book.
+     */
+    public int[] topAuthors(PopularityWindow window, int limit, Supplier<Snapshot> loader) {
+        return read(loader, s -> s.authors[window.ordinal()].top(limit));
+    }
+
+    /**
+     * Counts a new loan of {@code copyId} made on {@code loanDate}.
+     */
+    public synchronized void loanRecorded(int copyId, LocalDate loanDate) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        int bookId = state.bookByCopy.get(copyId, 0);
+        if (bookId == 0) {
+            // Copy written by another process: reload everything
+            dropState();
+            return;
+        }
+        state.advanceTo(today());
+        state.addLoans(bookId, loanDate.toEpochDay(), 1);
+    }
+
+    /**
+     * Records the book of an inserted or updated copy. Moving a copy to
+     * another book would move its past loans, so the rankings are reloaded.
+     */
+    public synchronized void copyWritten(int copyId, int bookId) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        int previous = state.bookByCopy.put(copyId, bookId, 0);
+        if (previous != 0 && previous != bookId) {
+            dropState();
+        }
+    }
+
+    /**
+     * Records the category of an inserted or updated book. A book with
+     * loans that changes category takes them along, so the rankings are
+     * reloaded.
+     */
+    public synchronized void bookWritten(int bookId, int categoryId) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        int previous = state.categoryByBook.put(bookId, categoryId, 0);
+        if (previous != 0 && previous != categoryId && state.hasLoans(bookId)) {
+            dropState();
+        }
+    }
+
+    public synchronized void authorAdded(int bookId, int authorId) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        int[] authors = state.authorsByBook.getOrDefault(bookId, new int[0]);
+        for (int existing : authors) {
+            if (existing == authorId) {
+                return;
+            }
+        }
+        int[] extended = Arrays.copyOf(authors, authors.length + 1);
+        extended[authors.length] = authorId;
+        setAuthors(bookId, extended);
+    }
+
+    public synchronized void authorRemoved(int bookId, int authorId) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        int[] authors = state.authorsByBook.getOrDefault(bookId, new int[0]);
+        setAuthors(bookId, Arrays.stream(authors).filter(id -> id != authorId).toArray());
+    }
+
+    /**
+     * Records the full author list of a book, replacing the previous one.
+     */
+    public synchronized void authorsSet(int bookId, Collection<Integer> authorIds) {
+        generation++;
+        if (state == null) {
+            return;
+        }
+        setAuthors(bookId, authorIds.stream().mapToInt(Integer::intValue).distinct().toArray());
+    }
+
+    /**
+     * Drops the rankings; the next read reloads them.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        dropState();
+    }
+
+    /**
+     * @return the number of books with at least one loan, 0 if not loaded
+     */
+    public synchronized int size() {
+        return state == null ? 0 : state.books[PopularityWindow.ALL_TIME.ordinal()].size();
+    }
+
+    /**
+     * Returns the read counters; rankings answered from the database are
+     * reported as misses and full reloads as expirations.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, size(), hits, misses, 0, reloads, invalidations);
+    }
+
+    /**
+     * Runs {@code query} on the current rankings, loading them with
+     * {@code loader} if needed. The loader runs outside the lock and returns
+     * {@code null} on failure.
+     */
+    private <T> T read(Supplier<Snapshot> loader, Function<State, T> query) {
+        long loadGeneration;
+        synchronized (this) {
+            if (!enabled) {
+                return null;
+            }
+            if (state != null && !isExpired()) {
+                hits++;
+                state.advanceTo(today());
+                return query.apply(state);
+            }
+            loadGeneration = generation;
+        }
+
+        Snapshot loaded = loader.get();
+        synchronized (this) {
+            if (loaded == null || generation != loadGeneration) {
+                // Load failed, or a write happened while loading; try again on the next read
+                misses++;
+                return null;
+            }
+            state = new State(loaded, today());
+            loadedAt = System.currentTimeMillis();
+            reloads++;
+            return query.apply(state);
+        }
+    }
+
+    /**
+     * Changing the authors of a book with loans would move those loans
+     * between authors, so the rankings are reloaded instead.
+     */
+    private void setAuthors(int bookId, int[] authorIds) {
+        int[] previous = state.authorsByBook.getOrDefault(bookId, new int[0]);
+        if (Arrays.equals(previous, authorIds)) {
+            return;
+        }
+        if (state.hasLoans(bookId)) {
+            dropState();
+        } else if (authorIds.length == 0) {
+            state.authorsByBook.remove(bookId);
+        } else {
+            state.authorsByBook.put(bookId, authorIds);
+        }
+    }
+
+    private void dropState() {
+        if (state != null) {
+            invalidations++;
+        }
+        state = null;
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private static int longestWindowDays() {
+        int longest = 0;
+        for (PopularityWindow window : PopularityWindow.values()) {
+            longest = Math.max(longest, window.getDays());
+        }
+        return longest;
+    }
+
+    /**
+     * Loaded rankings. Guarded by the {@link LoanRankings} monitor.
+     */
+    private static final class State {
+        private final LongIntHashMap bookByCopy;
+        private final LongIntHashMap categoryByBook;
+        private final Map<Integer, int[]> authorsByBook;
+        /** Epoch day to loans per book, for the days of the longest window. */
+        private final Map<Long, Map<Integer, Integer>> loansByDay = new HashMap<>();
+        private final Ranking[] books = new Ranking[WINDOWS.length];
+        private final Ranking[] categories = new Ranking[WINDOWS.length];
+        private final Ranking[] authors = new Ranking[WINDOWS.length];
+        /** Day up to which the windows have been moved. */
+        private long day;
+
+        State(Snapshot snapshot, long today) {
+            bookByCopy = snapshot.bookByCopy;
+            categoryByBook = snapshot.categoryByBook;
+            authorsByBook = snapshot.authorsByBook;
+            for (int i = 0; i < WINDOWS.length; i++) {
+                books[i] = new Ranking();
+                categories[i] = new Ranking();
+                authors[i] = new Ranking();
+            }
+            day = today;
+            int allTime = PopularityWindow.ALL_TIME.ordinal();
+            for (Map.Entry<Integer, Integer> loans : snapshot.allTimeByBook.entrySet()) {
+                credit(allTime, loans.getKey(), loans.getValue());
+            }
+            for (Map.Entry<Long, Map<Integer, Integer>> bucket : snapshot.loansByDay.entrySet()) {
+                if (bucket.getKey() > today - LONGEST_WINDOW_DAYS) {
+                    for (Map.Entry<Integer, Integer> loans : bucket.getValue().entrySet()) {
+                        addToWindows(loans.getKey(), bucket.getKey(), loans.getValue());
+                    }
+                    loansByDay.put(bucket.getKey(), bucket.getValue());
+                }
+            }
+        }
+
+        /**
+         * Adds loans made on {@code loanDay} to the all-time totals, to its
+         * day bucket and to every window it falls in.
+         */
+        void addLoans(int bookId, long loanDay, int loans) {
+            credit(PopularityWindow.ALL_TIME.ordinal(), bookId, loans);
+            if (loanDay > day - LONGEST_WINDOW_DAYS) {
+                loansByDay.computeIfAbsent(loanDay, d -> new HashMap<>()).merge(bookId, loans, Integer::sum);
+                addToWindows(bookId, loanDay, loans);
+            }
+        }
+
+        boolean hasLoans(int bookId) {
+            return books[PopularityWindow.ALL_TIME.ordinal()].totals.get(bookId, 0) > 0;
+        }
+
+        /**
+         * Moves every window forward to {@code today}: the bucket of each
+         * day that leaves a window is subtracted from it.
+         */
+        void advanceTo(long today) {
+            while (day < today) {
+                day++;
+                for (PopularityWindow window : WINDOWS) {
+                    if (window.getDays() == 0) {
+                        continue;
+                    }
+                    Map<Integer, Integer> expired = loansByDay.get(day - window.getDays());
+                    if (expired != null) {
+                        for (Map.Entry<Integer, Integer> loans : expired.entrySet()) {
+                            credit(window.ordinal(), loans.getKey(), -loans.getValue());
+                        }
+                    }
+                }
+                loansByDay.remove(day - LONGEST_WINDOW_DAYS);
+            }
+        }
+
+        private void addToWindows(int bookId, long loanDay, int loans) {
+            for (PopularityWindow window : WINDOWS) {
+                if (window.getDays() > 0 && loanDay > day - window.getDays()) {
+                    credit(window.ordinal(), bookId, loans);
+                }
+            }
+        }
+
+        private void credit(int window, int bookId, int loans) {
+            books[window].add(bookId, loans);
+            int categoryId = categoryByBook.get(bookId, 0);
+            if (categoryId != 0) {
+                categories[window].add(categoryId, loans);
+            }
+            int[] authorIds = authorsByBook.get(bookId);
+            if (authorIds != null) {
+                for (int authorId : authorIds) {
+                    authors[window].add(authorId, loans);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loan totals per ID, ordered by total (highest first, then lowest ID).
+     */
+    private static final class Ranking {
+        private final LongIntHashMap totals = new LongIntHashMap();
+        /** {@code (Integer.MAX_VALUE - total) << 32 | id}, so ascending order is the ranking order. */
+        private final TreeSet<Long> order = new TreeSet<>();
+
+        void add(int id, int loans) {
+            int total = totals.get(id, 0);
+            if (total > 0) {
+                order.remove(rankKey(total, id));
+            }
+            total += loans;
+            if (total > 0) {
+                totals.put(id, total, 0);
+                order.add(rankKey(total, id));
+            } else {
+                totals.remove(id, 0);
+            }
+        }
+
+        int[] top(int limit) {
+            int[] ids = new int[Math.min(limit, order.size())];
+            Iterator<Long> ranked = order.iterator();
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = (int) (ranked.next() & 0xFFFFFFFFL);
+            }
+            return ids;
+        }
+
+        int size() {
+            return totals.size();
+        }
+
+        private static long rankKey(int total, int id) {
+            return (long) (Integer.MAX_VALUE - total) << 32 | (id & 0xFFFFFFFFL);
+        }
+    }
+}
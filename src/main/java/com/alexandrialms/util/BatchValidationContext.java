@@ -0,0 +1,167 @@
+package com.alexandrialms.util;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.alexandrialms.dao.impl.BookDAO;
+import com.alexandrialms.dao.impl.CategoryDAO;
+import com.alexandrialms.dao.impl.CopyDAO;
+import com.alexandrialms.dao.impl.UserDAO;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Book;
+import com.alexandrialms.model.Category;
+import com.alexandrialms.model.Copy;
+import com.alexandrialms.model.User;
+
+/**
+ * Existence data preloaded for validating a batch of inserts.
+ * <p>
+ * The single-row {@code ValidationHelper.validate*ForInsert} methods run one
+ * query per uniqueness or foreign-key check. For imports, the
+ * {@code for*} factories collect the keys of the whole batch and load the
+ * ones that already exist with one {@code IN (...)} query per key type (per
+ * 500 values), so the {@code ValidationHelper} overloads that take a context
+ * answer every check from memory.
+ * </p>
+ * <p>
+ * The context is a snapshot taken before the batch is written: it does not
+ * see rows inserted afterwards, so duplicates inside the batch must still be
+ * checked by the caller. Emails, internal codes and category names are
+ * compared case-insensitively, like the database collation does.
+ * </p>
+ */
+public final class BatchValidationContext {
+
+    private Set<String> emails;
+    private Set<String> phones;
+    private Set<String> internalCodes;
+    private Set<String> categoryNames;
+    private Set<Integer> bookIds;
+    private Set<Integer> categoryIds;
+    private Set<Long> isbn13Keys;
+
+    private BatchValidationContext() {
+    }
+
+    /**
+     * Preloads the emails and phones of {@code users} that are already registered.
+     */
+    public static BatchValidationContext forUsers(Collection<User> users, UserDAO userDAO)
+            throws ValidationException {
+        BatchValidationContext context = new BatchValidationContext();
+        try {
+            context.emails = lowerCase(userDAO.findExistingEmails(keys(users, User::getEmail)));
+            context.phones = userDAO.findExistingPhones(keys(users, User::getPhone));
+        } catch (SQLException e) {
+            throw new ValidationException("email", "DATABASE_ERROR",
+                    "Error checking user uniqueness: " + e.getMessage());
+        }
+        return context;
+    }
+
+    /**
+     * Preloads the ISBN-13 keys and category IDs referenced by {@code books} that exist.
+     */
+    public static BatchValidationContext forBooks(Collection<Book> books, BookDAO bookDAO, CategoryDAO categoryDAO) {
+        BatchValidationContext context = new BatchValidationContext();
+        Set<Long> keys = new HashSet<>();
+        Set<Integer> categories = new HashSet<>();
+        for (Book book : books) {
+            if (book == null) {
+                continue;
+            }
+            long key = IsbnParser.parse(book.getIsbn());
+            if (key != IsbnParser.INVALID) {
+                keys.add(key);
+            }
+            categories.add(book.getCategoryId());
+        }
+        context.isbn13Keys = bookDAO.findExistingIsbn13(keys);
+        context.categoryIds = new HashSet<>(categoryDAO.findByIds(categories).keySet());
+        return context;
+    }
+
+    /**
+     * Preloads the internal codes of {@code copies} already in use and the book IDs they reference that exist.
+     */
+    public static BatchValidationContext forCopies(Collection<Copy> copies, CopyDAO copyDAO, BookDAO bookDAO) {
+        BatchValidationContext context = new BatchValidationContext();
+        context.internalCodes = lowerCase(copyDAO.findExistingInternalCodes(keys(copies, Copy::getInternal_code)));
+        context.bookIds = bookDAO.findExistingIds(keys(copies, Copy::getBook_id));
+        return context;
+    }
+
+    /**
+     * Preloads the names of {@code categories} that are already taken.
+     */
+    public static BatchValidationContext forCategories(Collection<Category> categories, CategoryDAO categoryDAO) {
+        BatchValidationContext context = new BatchValidationContext();
+        context.categoryNames = lowerCase(categoryDAO.findExistingNames(keys(categories, Category::getName)));
+        return context;
+    }
+
+    public boolean emailExists(String email) {
+        return email != null && loaded(emails, "emails").contains(email.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean phoneExists(String phone) {
+        return phone != null && loaded(phones, "phones").contains(phone);
+    }
+
+    public boolean internalCodeExists(String internalCode) {
+        return internalCode != null
+                && loaded(internalCodes, "internal codes").contains(internalCode.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean categoryNameExists(String name) {
+        return name != null && loaded(categoryNames, "category names").contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return true if a book with the same ISBN-13 key exists, whatever notation {@code isbn} uses
+     */
+    public boolean isbnExists(String isbn) {
+        long key = IsbnParser.parse(isbn);
+        return key != IsbnParser.INVALID && loaded(isbn13Keys, "ISBNs").contains(key);
+    }
+
+    public boolean bookExists(int bookId) {
+        return loaded(bookIds, "book IDs").contains(bookId);
+    }
+
+    public boolean categoryExists(int categoryId) {
+        return loaded(categoryIds, "category IDs").contains(categoryId);
+    }
+
+    private static <T> Set<T> loaded(Set<T> values, String what) {
+        if (values == null) {
+            throw new IllegalStateException("This validation context was not loaded with " + what);
+        }
+        return values;
+    }
+
+    private static <E, K> Set<K> keys(Collection<E> entities, Function<E, K> key) {
+        Set<K> keys = new HashSet<>();
+        for (E entity : entities) {
+            if (entity != null) {
+                K value = key.apply(entity);
+                if (value != null) {
+                    keys.add(value);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static Set<String> lowerCase(Set<String> values) {
+        Set<String> lowered = new HashSet<>(values.size() * 2);
+        for (String value : values) {
+            lowered.add(value.toLowerCase(Locale.ROOT));
+        }
+        return lowered;
+    }
+}
@@ -2,14 +2,14 @@
 
     import java.io.InputStream;
     import java.sql.Connection;
-    import java.sql.DriverManager;
     import java.sql.SQLException;
     import java.util.Properties;
 
+    import com.alexandrialms.util.db.ConnectionProvider;
+
 
     public class DBConnection {
 
-        private static Connection connection;
         private static Properties properties;
         private DBConnection() { }
         
@@ -25,31 +25,23 @@
             }
         }
 
+        /**
+         * Returns a copy of the properties loaded from {@code db.properties}.
+         */
+        public static Properties getProperties() {
+            Properties copy = new Properties();
+            copy.putAll(properties);
+            return copy;
+        }
+
+        // Ya no se mantiene una única conexión estática: se delega en el pool compartido y al cerrar
+        // la conexión se devuelve al pool en lugar de cerrar el socket.
         public static Connection getConnection() throws SQLException {
-            if (connection == null || connection.isClosed()) {
-                String url = properties.getProperty("db.url");
-                String user = properties.getProperty("db.user");
-                String password = properties.getProperty("db.password");
-                try {
-                    Class.forName("org.mariadb.jdbc.Driver");
-
-                    connection = DriverManager.getConnection(url,user,password);
-                    System.out.println("Stablished connection to the database. ");
-                } catch (ClassNotFoundException e) {
-                    throw new SQLException("MariaDB driver not found.", e);
-                }
-            }
-            return connection;
+            return ConnectionProvider.getConnection();
         }
 
         public static void closeConnection() {
-            if (connection != null) {
-                try {
-                    connection.close();
-                    System.out.println("Conexión a la base de datos cerrada. ");
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
-            }
+            ConnectionProvider.shutdownDefault();
+            System.out.println("Conexión a la base de datos cerrada. ");
         }
     }
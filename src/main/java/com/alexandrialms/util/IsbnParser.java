@@ -0,0 +1,227 @@
+package com.alexandrialms.util;
+
+/**
+ * Single-pass, regex-free ISBN parser.
+ * <p>
+ * Accepts ISBN-10 and ISBN-13 written the way they appear on forms, labels
+ * and import files: an optional {@code ISBN}, {@code ISBN-10} or
+ * {@code ISBN-13} prefix (any case, optional colon), digits grouped with
+ * hyphens or single spaces, and a trailing uppercase {@code X} check
+ * character for ISBN-10. An {@code ISBN-10} or {@code ISBN-13} prefix must
+ * match the number of digits that follow it. The check digit is verified
+ * while the characters are read.
+ * </p>
+ * <p>
+ * Every valid ISBN is packed into a {@code long} key holding its 13-digit
+ * ISBN-13 form (e.g. {@code 9780306406157}), so an ISBN-10 and its ISBN-13
+ * equivalent get the same key. {@link #parse(CharSequence)},
+ * {@link #isValid(CharSequence)} and {@link #isbn10To13(CharSequence)} do
+ * not allocate; only the methods that return a {@code String} do.
+ * </p>
+ */
+public final class IsbnParser {
+
+    /** Returned by {@link #parse(CharSequence)} when the input is not a valid ISBN. */
+    public static final long INVALID = -1L;
+
+    private static final long ISBN13_978_BASE = 9_780_000_000_000L;
+
+    private IsbnParser() {
+    }
+
+    /**
+     * Parses an ISBN-10 or ISBN-13 and returns its packed ISBN-13 key.
+     *
+     * @param isbn the text to parse, may be {@code null}
+     * @return the ISBN-13 as a 13-digit {@code long}, or {@link #INVALID}
+     */
+    public static long parse(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        int length = isbn.length();
+        int pos = skipSpaces(isbn, 0, length);
+        int expectedDigits = prefixDigits(isbn, pos, length);
+        pos = skipPrefix(isbn, pos, length);
+        int end = length;
+        while (end > pos && isSpace(isbn.charAt(end - 1))) {
+            end--;
+        }
+        if (pos >= end) {
+            return INVALID;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        boolean checkX = false;
+        boolean lastWasSeparator = true;
+
+        for (int i = pos; i < end; i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (checkX || digits == 13) {
+                    return INVALID;
+                }
+                int digit = c - '0';
+                value = value * 10 + digit;
+                if (digits < 9) {
+                    sum10 += digit * (digits + 1);
+                }
+                sum13 += (digits & 1) == 0 ? digit : digit * 3;
+                digits++;
+                lastWasSeparator = false;
+            } else if (c == 'X') {
+                if (digits != 9) {
+                    return INVALID;
+                }
+                checkX = true;
+                digits++;
+                lastWasSeparator = false;
+            } else if (c == '-' || c == ' ') {
+                if (lastWasSeparator) {
+                    return INVALID;
+                }
+                lastWasSeparator = true;
+            } else {
+                return INVALID;
+            }
+        }
+        if (lastWasSeparator || (expectedDigits != 0 && digits != expectedDigits)) {
+            return INVALID;
+        }
+
+        if (digits == 10) {
+            long first9 = checkX ? value : value / 10;
+            int control = checkX ? 10 : (int) (value % 10);
+            return sum10 % 11 == control ? isbn13From9(first9) : INVALID;
+        }
+        if (digits == 13) {
+            long prefix = value / 10_000_000_000L;
+            if (prefix != 978 && prefix != 979) {
+                return INVALID;
+            }
+            // sum13 includes the check digit with weight 1, so a valid code sums to a multiple of 10
+            return sum13 % 10 == 0 ? value : INVALID;
+        }
+        return INVALID;
+    }
+
+    /**
+     * @return true if {@code isbn} is a well-formed ISBN-10 or ISBN-13 with a correct check digit
+     */
+    public static boolean isValid(CharSequence isbn) {
+        return parse(isbn) != INVALID;
+    }
+
+    /**
+     * Converts an ISBN (either form) to its packed ISBN-13 key. Alias of
+     * {@link #parse(CharSequence)} kept for readability at call sites that
+     * deal with legacy ISBN-10 data.
+     */
+    public static long isbn10To13(CharSequence isbn) {
+        return parse(isbn);
+    }
+
+    /**
+     * Returns the 13-digit ISBN-13 for any valid input, or {@code null}.
+     */
+    public static String toIsbn13(CharSequence isbn) {
+        long key = parse(isbn);
+        return key == INVALID ? null : format(key);
+    }
+
+    /**
+     * Formats a packed key as 13 digits without separators.
+     */
+    public static String format(long key) {
+        if (key < ISBN13_978_BASE || key > 9_799_999_999_999L) {
+            throw new IllegalArgumentException("Not a packed ISBN-13 key: " + key);
+        }
+        return Long.toString(key);
+    }
+
+    /**
+     * Strips the {@code ISBN}/{@code ISBN-10}/{@code ISBN-13} prefix and every
+     * hyphen and whitespace character, without validating the result.
+     *
+     * @return the bare digits (and {@code X}), or {@code ""} for {@code null}
+     */
+    public static String clean(CharSequence isbn) {
+        if (isbn == null) {
+            return "";
+        }
+        int length = isbn.length();
+        int pos = skipPrefix(isbn, skipSpaces(isbn, 0, length), length);
+        StringBuilder cleaned = new StringBuilder(length - pos);
+        for (int i = pos; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && !Character.isWhitespace(c)) {
+                cleaned.append(c);
+            }
+        }
+        return cleaned.toString();
+    }
+
+    private static long isbn13From9(long first9) {
+        long body = ISBN13_978_BASE / 10 + first9;
+        int sum = 0;
+        long rest = body;
+        // Weights alternate 3,1 from the right-most of the 12 body digits
+        for (int i = 0; i < 12; i++) {
+            int digit = (int) (rest % 10);
+            sum += (i & 1) == 0 ? digit * 3 : digit;
+            rest /= 10;
+        }
+        return body * 10 + (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Skips {@code ISBN}, {@code ISBN-10} or {@code ISBN-13} (any case), an
+     * optional colon and the spaces that follow. Returns {@code pos} unchanged
+     * if there is no prefix.
+     */
+    private static int skipPrefix(CharSequence s, int pos, int length) {
+        if (pos + 4 > length || !regionMatchesIsbn(s, pos)) {
+            return pos;
+        }
+        int i = pos + 4;
+        if (prefixDigits(s, pos, length) != 0) {
+            i += 3;
+        }
+        if (i < length && s.charAt(i) == ':') {
+            i++;
+        }
+        return skipSpaces(s, i, length);
+    }
+
+    /**
+     * @return 10 or 13 if the text at {@code pos} starts with {@code ISBN-10}
+     *         or {@code ISBN-13} (any case), 0 for a bare {@code ISBN} or no prefix
+     */
+    private static int prefixDigits(CharSequence s, int pos, int length) {
+        int i = pos + 4;
+        if (i + 2 >= length || !regionMatchesIsbn(s, pos) || s.charAt(i) != '-' || s.charAt(i + 1) != '1') {
+            return 0;
+        }
+        char last = s.charAt(i + 2);
+        return last == '0' ? 10 : last == '3' ? 13 : 0;
+    }
+
+    private static boolean regionMatchesIsbn(CharSequence s, int pos) {
+        return (s.charAt(pos) | 0x20) == 'i' && (s.charAt(pos + 1) | 0x20) == 's'
+                && (s.charAt(pos + 2) | 0x20) == 'b' && (s.charAt(pos + 3) | 0x20) == 'n';
+    }
+
+    private static int skipSpaces(CharSequence s, int pos, int length) {
+        while (pos < length && isSpace(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
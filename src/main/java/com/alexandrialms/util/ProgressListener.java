@@ -0,0 +1,19 @@
+package com.alexandrialms.util;
+
+/**
+ * Receives progress updates from long-running bulk operations, once per
+ * processed chunk.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (processed, total, affected) -> {
+    };
+
+    /**
+     * @param processed number of input items handled so far
+     * @param total     number of input items
+     * @param affected  rows changed so far
+     */
+    void onProgress(int processed, int total, int affected);
+}
@@ -4,9 +4,16 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Year;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import com.alexandrialms.dao.impl.AuthorDAO;
 import com.alexandrialms.dao.impl.BookDAO;
 import com.alexandrialms.dao.impl.CategoryDAO;
@@ -16,11 +23,13 @@ import com.alexandrialms.dao.impl.PasswordDAO;
 import com.alexandrialms.dao.impl.UserDAO;
 import com.alexandrialms.exception.ValidationException;
 import com.alexandrialms.model.Author;
+import com.alexandrialms.model.BatchResult;
 import com.alexandrialms.model.Book;
 import com.alexandrialms.model.Category;
 import com.alexandrialms.model.Copy;
 import com.alexandrialms.model.CopyStatus;
 import com.alexandrialms.model.LibraryRole;
+import com.alexandrialms.model.PopularityWindow;
 import com.alexandrialms.model.User;
 
 /**
@@ -30,6 +39,10 @@ import com.alexandrialms.model.User;
  * Implements fail-fast validation pattern with detailed error messages.
  */
 public class ValidationHelper {
+
+    /** Collections at least this large are checked on a parallel stream by {@link #validateAll(Collection)}. */
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 10_000;
+
     // =========================================================================
     // USER MODEL VALIDATIONS
     // =========================================================================
@@ -41,62 +54,125 @@ public class ValidationHelper {
      * @throws ValidationException if user data is invalid
      */
     public static void validateUser(User user) throws ValidationException {
+        checkUser(user, (field, errorCode, message) -> {
+            throw new ValidationException(field, errorCode, message);
+        });
+    }
+
+    /**
+     * Receives the violations found by {@link #checkUser(User, ViolationSink)}.
+     */
+    @FunctionalInterface
+    private interface ViolationSink {
+        void violation(String field, String errorCode, String message);
+    }
+
+    /**
+     * Runs every user field check, reporting each violation to {@code sink}.
+     * {@link #validateUser(User)} throws on the first one; {@link #validateAll(Collection)}
+     * collects them all. Uses no shared state, so it can run on parallel streams.
+     */
+    private static void checkUser(User user, ViolationSink sink) {
         if (user == null) {
-            throw new ValidationException("user", "USER_NULL", "User cannot be null");
+            sink.violation("user", "USER_NULL", "User cannot be null");
+            return;
         }
 
         // Validate name fields
         if (!isValidString(user.getFirstName(), 2)) {
-            throw new ValidationException("firstName", "INVALID_FIRST_NAME",
+            sink.violation("firstName", "INVALID_FIRST_NAME",
                     "First name must be at least 2 characters long");
-        }
-
-        if (user.getFirstName().length() > 50) {
-            throw new ValidationException("firstName", "FIRST_NAME_TOO_LONG",
+        } else if (user.getFirstName().length() > 50) {
+            sink.violation("firstName", "FIRST_NAME_TOO_LONG",
                     "First name cannot exceed 50 characters");
         }
 
         if (!isValidString(user.getLastName(), 2)) {
-            throw new ValidationException("lastName", "INVALID_LAST_NAME",
+            sink.violation("lastName", "INVALID_LAST_NAME",
                     "Last name must be at least 2 characters long");
-        }
-
-        if (user.getLastName().length() > 50) {
-            throw new ValidationException("lastName", "LAST_NAME_TOO_LONG",
+        } else if (user.getLastName().length() > 50) {
+            sink.violation("lastName", "LAST_NAME_TOO_LONG",
                     "Last name cannot exceed 50 characters");
         }
 
         // Validate email
         if (!isValidEmail(user.getEmail())) {
-            throw new ValidationException("email", "INVALID_EMAIL",
+            sink.violation("email", "INVALID_EMAIL",
                     "Valid email address is required");
         }
 
         // Validate phone (optional but must be valid if provided)
         if (user.getPhone() != null && !user.getPhone().isEmpty() && !isValidPhone(user.getPhone())) {
-            throw new ValidationException("phone", "INVALID_PHONE",
+            sink.violation("phone", "INVALID_PHONE",
                     "Phone number format is invalid");
         }
 
         // Validate address (optional but must not exceed limit if provided)
         if (user.getAddress() != null && user.getAddress().length() > 200) {
-            throw new ValidationException("address", "ADDRESS_TOO_LONG",
+            sink.violation("address", "ADDRESS_TOO_LONG",
                     "Address cannot exceed 200 characters");
         }
 
         // Validate role
         if (user.getRole() == null) {
-            throw new ValidationException("role", "INVALID_ROLE",
+            sink.violation("role", "INVALID_ROLE",
                     "User role is required");
         }
 
         // Validate registration date (should not be in future)
         if (user.getRegistrationDate() != null && user.getRegistrationDate().isAfter(LocalDateTime.now())) {
-            throw new ValidationException("registrationDate", "FUTURE_REGISTRATION_DATE",
+            sink.violation("registrationDate", "FUTURE_REGISTRATION_DATE",
                     "Registration date cannot be in the future");
         }
     }
 
+    /**
+     * Validates a whole collection of users (e.g. a patron sync) and returns
+     * every violation instead of stopping at the first one.
+     * <p>
+     * Field checks run on a parallel stream for large inputs; e-mail addresses
+     * repeated inside the collection are then reported as
+     * {@code DUPLICATE_EMAIL} on every occurrence after the first. No database
+     * checks are made.
+     * </p>
+     *
+     * @param users the users to check, in input order
+     * @return the violations ordered by position in {@code users}; empty if all are valid
+     */
+    public static List<BatchResult.RowError> validateAll(Collection<User> users) {
+        if (users == null || users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        User[] rows = users.toArray(new User[0]);
+        IntStream indexes = IntStream.range(0, rows.length);
+        if (rows.length >= PARALLEL_VALIDATION_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        List<BatchResult.RowError> violations = indexes
+                .mapToObj(i -> {
+                    List<BatchResult.RowError> found = new ArrayList<>(0);
+                    checkUser(rows[i], (field, errorCode, message) -> found
+                            .add(new BatchResult.RowError(i, field, errorCode, message)));
+                    return found;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        Map<String, Integer> firstByEmail = new HashMap<>();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null || rows[i].getEmail() == null) {
+                continue;
+            }
+            Integer first = firstByEmail.putIfAbsent(rows[i].getEmail().toLowerCase(Locale.ROOT), i);
+            if (first != null) {
+                violations.add(new BatchResult.RowError(i, "email", "DUPLICATE_EMAIL",
+                        "Email '" + rows[i].getEmail() + "' is also used at row " + first));
+            }
+        }
+        violations.sort(Comparator.comparingInt(BatchResult.RowError::getIndex));
+        return violations;
+    }
+
     /**
      * Validates user for insertion including business rules and uniqueness.
      * 
@@ -143,6 +219,42 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Validates user for insertion as part of a batch, answering the
+     * uniqueness checks from a preloaded context instead of the database.
+     * 
+     * @param user    the user to validate
+     * @param context existence data from {@link BatchValidationContext#forUsers}
+     * @throws ValidationException if user data is invalid or duplicate exists
+     */
+    public static void validateUserForInsert(User user, BatchValidationContext context) throws ValidationException {
+        validateUser(user);
+
+        if (context.emailExists(user.getEmail())) {
+            throw new ValidationException("email", "DUPLICATE_EMAIL",
+                    "A user with email '" + user.getEmail() + "' already exists");
+        }
+
+        if (user.getPhone() != null && !user.getPhone().isEmpty()) {
+            if (!isValidPhone(user.getPhone())) {
+                throw new ValidationException("phone", "INVALID_PHONE",
+                        "Phone number format is invalid");
+            }
+            if (context.phoneExists(user.getPhone())) {
+                throw new ValidationException("phone", "DUPLICATE_PHONE",
+                        "A user with phone '" + user.getPhone() + "' already exists");
+            }
+        }
+
+        if (user.getRegistrationDate() == null) {
+            user.setRegistrationDate(LocalDateTime.now());
+        }
+
+        if (!user.isActive()) {
+            user.setActive(true);
+        }
+    }
+
     /**
      * Validates user for update including existence and uniqueness checks.
      * 
@@ -213,6 +325,32 @@ public class ValidationHelper {
         }
     }
 
+    public static final int MIN_PASSWORD_LENGTH = 8;
+    public static final int MAX_PASSWORD_LENGTH = 128;
+
+    /**
+     * Validates a new password before it is hashed.
+     *
+     * @param password the password to validate
+     * @throws ValidationException if password is invalid
+     */
+    public static void validatePassword(String password) throws ValidationException {
+        if (password == null || password.isBlank()) {
+            throw new ValidationException("password", "INVALID_PASSWORD",
+                    "Password is required");
+        }
+
+        if (password.length() < MIN_PASSWORD_LENGTH) {
+            throw new ValidationException("password", "PASSWORD_TOO_SHORT",
+                    "Password must be at least " + MIN_PASSWORD_LENGTH + " characters long");
+        }
+
+        if (password.length() > MAX_PASSWORD_LENGTH) {
+            throw new ValidationException("password", "PASSWORD_TOO_LONG",
+                    "Password cannot exceed " + MAX_PASSWORD_LENGTH + " characters");
+        }
+    }
+
     /**
      * Validates search term for user searches.
      * 
@@ -295,6 +433,24 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Maximum page size accepted by the keyset pagination operations.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Validates the page size of a keyset-paginated request.
+     * 
+     * @param pageSize the requested number of items
+     * @throws ValidationException if the page size is out of range
+     */
+    public static void validatePageSize(int pageSize) throws ValidationException {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("pageSize", "INVALID_PAGE_SIZE",
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
     // =========================================================================
     // COPY MODEL VALIDATIONS
     // =========================================================================
@@ -358,6 +514,28 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Validates copy for insertion as part of a batch, answering the book and
+     * internal code checks from a preloaded context.
+     * 
+     * @param copy    the copy to validate
+     * @param context existence data from {@link BatchValidationContext#forCopies}
+     * @throws ValidationException if copy data is invalid or duplicate exists
+     */
+    public static void validateCopyForInsert(Copy copy, BatchValidationContext context) throws ValidationException {
+        validateCopy(copy);
+
+        if (!context.bookExists(copy.getBook_id())) {
+            throw new ValidationException("book_id", "BOOK_NOT_FOUND",
+                    "Book with ID " + copy.getBook_id() + " does not exist");
+        }
+
+        if (context.internalCodeExists(copy.getInternal_code())) {
+            throw new ValidationException("internal_code", "DUPLICATE_INTERNAL_CODE",
+                    "A copy with internal code '" + copy.getInternal_code() + "' already exists");
+        }
+    }
+
     /**
      * Validates copy for update including existence and uniqueness checks.
      * 
@@ -487,6 +665,24 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Validates category for insertion as part of a batch, answering the name
+     * check from a preloaded context.
+     * 
+     * @param category the category to validate
+     * @param context  existence data from {@link BatchValidationContext#forCategories}
+     * @throws ValidationException if category data is invalid or duplicate exists
+     */
+    public static void validateCategoryForInsert(Category category, BatchValidationContext context)
+            throws ValidationException {
+        validateCategory(category);
+
+        if (context.categoryNameExists(category.getName())) {
+            throw new ValidationException("name", "DUPLICATE_CATEGORY_NAME",
+                    "A category with name '" + category.getName() + "' already exists");
+        }
+    }
+
     /**
      * Validates category for update including existence and uniqueness checks.
      * 
@@ -582,6 +778,32 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Validates book for insertion as part of a batch, answering the ISBN and
+     * category checks from a preloaded context.
+     * 
+     * @param book    the book to validate
+     * @param context existence data from {@link BatchValidationContext#forBooks}
+     * @throws ValidationException if book data is invalid, the ISBN exists or the category does not
+     */
+    public static void validateBookForInsert(Book book, BatchValidationContext context) throws ValidationException {
+        if (book == null) {
+            throw new ValidationException("book", "BOOK_NULL", "Book cannot be null");
+        }
+
+        validateBook(book);
+
+        if (context.isbnExists(book.getIsbn())) {
+            throw new ValidationException("isbn", "DUPLICATE_ISBN",
+                    "A book with ISBN " + book.getIsbn() + " already exists");
+        }
+
+        if (!context.categoryExists(book.getCategoryId())) {
+            throw new ValidationException("categoryId", "CATEGORY_NOT_FOUND",
+                    "Category with ID " + book.getCategoryId() + " does not exist");
+        }
+    }
+
     /**
      * Validates basic book entity constraints.
      * 
@@ -661,70 +883,14 @@ public class ValidationHelper {
 
     /**
      * Validates ISBN format and control digit.
+     * Delegates to {@link IsbnParser}, which checks format and check digit in
+     * one pass without regular expressions or allocations.
      * 
      * @param isbn the ISBN to validate
      * @return true if ISBN is valid, false otherwise
      */
     public static boolean isValidISBN(String isbn) {
-        if (isbn == null)
-            return false;
-        String isbn10Regex = "^(?:ISBN(?:-10)?:? )?(?=[0-9X]{10}$|(?=(?:[0-9]+[- ]){3})[- 0-9X]{13}$)[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9X]$";
-        String isbn13Regex = "^(?:ISBN(?:-13)?:? )?(?=[0-9]{13}$|(?=(?:[0-9]+[- ]){4})[- 0-9]{17}$)97[89][- ]?[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9]$";
-        Pattern pattern10 = Pattern.compile(isbn10Regex);
-        Matcher matcher10 = pattern10.matcher(isbn);
-        Pattern pattern13 = Pattern.compile(isbn13Regex);
-        Matcher matcher13 = pattern13.matcher(isbn);
-
-        return (matcher10.matches() || matcher13.matches()) && validateControlDigitISBN(isbn);
-    }
-
-    /**
-     * Validates ISBN-13 control digit.
-     * 
-     * @param isbn13 the ISBN-13 to validate
-     * @return true if control digit is valid, false otherwise
-     */
-    private static boolean validateISBN13(String isbn13) {
-        int sum = 0;
-        for (int i = 0; i < 12; i++) {
-            char c = isbn13.charAt(i);
-            if (!Character.isDigit(c))
-                return false;
-            int digit = c - '0';
-            sum += (i % 2 == 0) ? digit : digit * 3;
-        }
-
-        int expectedControl = (10 - (sum % 10)) % 10;
-        int actualControl = isbn13.charAt(12) - '0';
-        return expectedControl == actualControl;
-    }
-
-    /**
-     * Validates ISBN-10 control digit.
-     * 
-     * @param isbn10 the ISBN-10 to validate
-     * @return true if control digit is valid, false otherwise
-     */
-    private static boolean validateISBN10(String isbn10) {
-        int sum = 0;
-        for (int i = 0; i < 9; i++) {
-            char c = isbn10.charAt(i);
-            if (!Character.isDigit(c))
-                return false;
-            sum += (c - '0') * (i + 1);
-        }
-
-        char last = isbn10.charAt(9);
-        int control;
-        if (last == 'X' || last == 'x') {
-            control = 10;
-        } else if (Character.isDigit(last)) {
-            control = last - '0';
-        } else {
-            return false;
-        }
-
-        return sum % 11 == control;
+        return IsbnParser.isValid(isbn);
     }
 
     /**
@@ -734,12 +900,7 @@ public class ValidationHelper {
      * @return true if control digit is valid, false otherwise
      */
     public static boolean validateControlDigitISBN(String isbn) {
-        isbn = cleanISBN(isbn);
-        if (isbn.length() == 10)
-            return validateISBN10(isbn);
-        if (isbn.length() == 13)
-            return validateISBN13(isbn);
-        return false;
+        return IsbnParser.isValid(isbn);
     }
 
     /**
@@ -748,11 +909,8 @@ public class ValidationHelper {
      * @param isbn the ISBN to clean
      * @return cleaned ISBN string
      */
-    private static String cleanISBN(String isbn) {
-        if (isbn == null)
-            return "";
-        return isbn.replaceAll("(?i)ISBN(?:-1[03])?:?", "")
-                .replaceAll("[-\\s]", "");
+    public static String cleanISBN(String isbn) {
+        return IsbnParser.clean(isbn);
     }
 
     // =========================================================================
@@ -878,10 +1036,45 @@ public class ValidationHelper {
     public static boolean isValidEmail(String email) {
         if (email == null)
             return false;
-        String regex = "^[a-zA-Z0-9_!#$%&'*+/=?`{|}~^.-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(email);
-        return matcher.matches();
+        // Same rules as ^[a-zA-Z0-9_!#$%&'*+/=?`{|}~^.-]+@[a-zA-Z0-9.-]+\.[a-zA-Z]{2,}$, without regex
+        int at = email.indexOf('@');
+        int length = email.length();
+        if (at <= 0) {
+            return false;
+        }
+        for (int i = 0; i < at; i++) {
+            if (!isEmailLocalChar(email.charAt(i))) {
+                return false;
+            }
+        }
+        int lastDot = -1;
+        for (int i = at + 1; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+            } else if (!isAsciiLetterOrDigit(c) && c != '-') {
+                return false;
+            }
+        }
+        // At least one domain character before the last dot and two letters after it
+        if (lastDot <= at + 1 || length - lastDot - 1 < 2) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < length; i++) {
+            char c = email.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmailLocalChar(char c) {
+        return isAsciiLetterOrDigit(c) || "_!#$%&'*+/=?`{|}~^.-".indexOf(c) >= 0;
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
     }
 
     /**
@@ -891,12 +1084,11 @@ public class ValidationHelper {
      * @return true if phone number is valid, false otherwise
      */
     public static boolean isValidPhone(String phone) {
-        if (phone != null) {
-            boolean validNumber = phone.startsWith("6") || phone.startsWith("7");
-            boolean validLength = phone.length() == 9;
-            return validNumber && validLength;
+        if (phone == null || phone.length() != 9) {
+            return false;
         }
-        return false;
+        char first = phone.charAt(0);
+        return first == '6' || first == '7';
     }
 
     /**
@@ -926,6 +1118,19 @@ public class ValidationHelper {
         }
     }
 
+    /**
+     * Validates the period of a most borrowed ranking.
+     * 
+     * @param window the window to validate
+     * @throws ValidationException if window is null
+     */
+    public static void validatePopularityWindow(PopularityWindow window) throws ValidationException {
+        if (window == null) {
+            throw new ValidationException("window", "INVALID_WINDOW",
+                    "Popularity window is required");
+        }
+    }
+
     // =========================================================================
     // STRING VALIDATION UTILITIES
     // =========================================================================
@@ -948,6 +1153,18 @@ public class ValidationHelper {
      * @return true if string is valid, false otherwise
      */
     public static boolean isValidString(String value, int minLength) {
-        return isValidString(value) && value.trim().length() >= minLength;
+        if (value == null) {
+            return false;
+        }
+        // Same as value.trim().length() >= minLength (and not blank), without the copy
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end > start && end - start >= minLength;
     }
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+package com.alexandrialms.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative {@code int}s.
+ * <p>
+ * Values are split into chunks of 65536 on their high 16 bits. A chunk
+ * holding at most {@value #ARRAY_MAX} values stores their low 16 bits as a
+ * sorted {@code char[]} (2 bytes per value); a denser chunk switches to a
+ * 8 KB {@code long[]} bit set, where membership is one word test. Sparse
+ * and dense ID ranges therefore both stay compact, and set operations on
+ * dense chunks run 64 values per instruction.
+ * </p>
+ * <p>
+ * Not thread-safe; callers that share an instance must synchronize.
+ * </p>
+ */
+public class IntBitmap {
+
+    /** Above this many values a chunk is stored as a bit set. */
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private int[] highs = new int[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount;
+    private int cardinality;
+
+    /**
+     * @return true if {@code value} was not already present
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("IntBitmap only holds non-negative values: " + value);
+        }
+        int index = indexOf(value >>> 16);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, value >>> 16, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        if (!chunk.add((char) value)) {
+            return false;
+        }
+        if (chunk instanceof ArrayChunk && chunk.cardinality() > ARRAY_MAX) {
+            chunks[index] = ((ArrayChunk) chunk).toBitmap();
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @return true if {@code value} was present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf(value >>> 16);
+        if (index < 0 || !chunks[index].remove((char) value)) {
+            return false;
+        }
+        Chunk chunk = chunks[index];
+        if (chunk.cardinality() == 0) {
+            removeChunk(index);
+        } else if (chunk instanceof BitmapChunk && chunk.cardinality() <= ARRAY_MAX) {
+            chunks[index] = ((BitmapChunk) chunk).toArray();
+        }
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf(value >>> 16);
+        return index >= 0 && chunks[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int offset = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            offset = chunks[i].copyTo(values, offset, highs[i] << 16);
+        }
+        return values;
+    }
+
+    /**
+     * @return a new bitmap with the values of this one that are not in {@code other}
+     */
+    public IntBitmap andNot(IntBitmap other) {
+        IntBitmap result = new IntBitmap();
+        for (int i = 0; i < chunkCount; i++) {
+            int otherIndex = other.indexOf(highs[i]);
+            Chunk chunk = otherIndex < 0 ? chunks[i].copy() : chunks[i].andNot(other.chunks[otherIndex]);
+            if (chunk.cardinality() > 0) {
+                result.insertChunk(result.chunkCount, highs[i], chunk);
+                result.cardinality += chunk.cardinality();
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(int high) {
+        return Arrays.binarySearch(highs, 0, chunkCount, high);
+    }
+
+    private void insertChunk(int index, int high, Chunk chunk) {
+        if (chunkCount == highs.length) {
+            highs = Arrays.copyOf(highs, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(highs, index, highs, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        highs[index] = high;
+        chunks[index] = chunk;
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(highs, index + 1, highs, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    private abstract static class Chunk {
+
+        abstract boolean add(char low);
+
+        abstract boolean remove(char low);
+
+        abstract boolean contains(char low);
+
+        abstract int cardinality();
+
+        /**
+         * Writes the values, offset by {@code base}, from {@code offset}.
+         *
+         * @return the offset after the last value written
+         */
+        abstract int copyTo(int[] values, int offset, int base);
+
+        abstract Chunk copy();
+
+        Chunk andNot(Chunk other) {
+            ArrayChunk result = new ArrayChunk();
+            int[] values = new int[cardinality()];
+            int count = copyTo(values, 0, 0);
+            for (int i = 0; i < count; i++) {
+                if (!other.contains((char) values[i])) {
+                    // Ascending input, so every add appends
+                    result.add((char) values[i]);
+                }
+            }
+            return result.size > ARRAY_MAX ? result.toBitmap() : result;
+        }
+    }
+
+    private static final class ArrayChunk extends Chunk {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        boolean add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        int copyTo(int[] out, int offset, int base) {
+            for (int i = 0; i < size; i++) {
+                out[offset++] = base | values[i];
+            }
+            return offset;
+        }
+
+        @Override
+        Chunk copy() {
+            ArrayChunk copy = new ArrayChunk();
+            copy.values = Arrays.copyOf(values, Math.max(4, size));
+            copy.size = size;
+            return copy;
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        @Override
+        boolean add(char low) {
+            long bit = 1L << low;
+            int word = low >>> 6;
+            if ((words[word] & bit) != 0) {
+                return false;
+            }
+            words[word] |= bit;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            long bit = 1L << low;
+            int word = low >>> 6;
+            if ((words[word] & bit) == 0) {
+                return false;
+            }
+            words[word] &= ~bit;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int copyTo(int[] out, int offset, int base) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    out[offset++] = base | (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        Chunk copy() {
+            BitmapChunk copy = new BitmapChunk();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            if (!(other instanceof BitmapChunk)) {
+                BitmapChunk result = (BitmapChunk) copy();
+                int[] values = new int[other.cardinality()];
+                int count = other.copyTo(values, 0, 0);
+                for (int i = 0; i < count; i++) {
+                    result.remove((char) values[i]);
+                }
+                return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+            }
+            BitmapChunk result = new BitmapChunk();
+            long[] otherWords = ((BitmapChunk) other).words;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                result.words[word] = words[word] & ~otherWords[word];
+                result.cardinality += Long.bitCount(result.words[word]);
+            }
+            return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        ArrayChunk toArray() {
+            ArrayChunk array = new ArrayChunk();
+            array.values = new char[Math.max(4, cardinality)];
+            int[] values = new int[cardinality];
+            copyTo(values, 0, 0);
+            for (int i = 0; i < cardinality; i++) {
+                array.values[i] = (char) values[i];
+            }
+            array.size = cardinality;
+            return array;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.alexandrialms.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of {@code int} IDs scheduled at whole ticks
+ * (days, for loans).
+ * <p>
+ * Three wheels of 64 slots cover 64, 4096 and 262144 ticks ahead; an ID is
+ * kept in the slot of the smallest wheel whose range contains its deadline,
+ * and deadlines further away wait in an overflow list. Scheduling is O(1).
+ * Advancing one tick fires the slot of the first wheel, and each time a
+ * wheel completes a turn the next slot of the wheel above is moved down, so
+ * an ID is handled at most once per wheel and advancing never scans IDs
+ * that are not due yet.
+ * </p>
+ * <p>
+ * There is no cancellation: IDs whose deadline changed are scheduled again
+ * and the caller ignores the stale firing, which it recognises by the
+ * deadline passed to {@link Expiry#expired}.
+ * </p>
+ * <p>
+ * Not thread-safe; callers that share an instance must synchronize.
+ * </p>
+ */
+public class TimingWheel {
+
+    /**
+     * Receives the IDs that reach their deadline.
+     */
+    @FunctionalInterface
+    public interface Expiry {
+        void expired(int id, long deadline);
+    }
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    /** {@code wheels[level][slot]}: packed {@code deadline << 32 | id} entries. */
+    private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+    private final Bucket overflow = new Bucket();
+    private long now;
+    private int size;
+
+    /**
+     * @param now the current tick; deadlines at or before it are already due
+     */
+    public TimingWheel(long now) {
+        this.now = now;
+        for (Bucket[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[slot] = new Bucket();
+            }
+        }
+    }
+
+    public long now() {
+        return now;
+    }
+
+    /**
+     * @return the number of scheduled entries, stale ones included
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code id} to fire when the wheel reaches {@code deadline}.
+     *
+     * @return false, without scheduling anything, if {@code deadline} is not
+     *         after the current tick
+     */
+    public boolean schedule(int id, long deadline) {
+        if (deadline <= now) {
+            return false;
+        }
+        if (deadline >= 1L << 31) {
+            throw new IllegalArgumentException("Deadline out of range: " + deadline);
+        }
+        place(deadline << 32 | (id & 0xFFFFFFFFL));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward tick by tick until {@code time}, passing every
+     * ID whose deadline is reached to {@code expiry}. Does nothing if
+     * {@code time} is not after the current tick.
+     */
+    public void advanceTo(long time, Expiry expiry) {
+        while (now < time) {
+            now++;
+            if ((now & SLOT_MASK) == 0) {
+                cascade();
+            }
+            Bucket due = wheels[0][(int) (now & SLOT_MASK)];
+            long[] entries = due.takeAll();
+            int count = due.drainedSize;
+            size -= count;
+            for (int i = 0; i < count; i++) {
+                expiry.expired((int) entries[i], entries[i] >>> 32);
+            }
+        }
+    }
+
+    /**
+     * Called when the first wheel starts a new turn: moves down the slot of
+     * each upper wheel whose turn starts at {@code now}, highest first.
+     */
+    private void cascade() {
+        int level = 1;
+        while (level < LEVELS && (now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+            level++;
+        }
+        // level - 1 is the highest wheel starting a new slot at this tick
+        if (level == LEVELS && (now & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            replace(overflow);
+        }
+        for (int upper = level - 1; upper >= 1; upper--) {
+            replace(wheels[upper][(int) ((now >>> (SLOT_BITS * upper)) & SLOT_MASK)]);
+        }
+    }
+
+    private void replace(Bucket bucket) {
+        long[] entries = bucket.takeAll();
+        int count = bucket.drainedSize;
+        for (int i = 0; i < count; i++) {
+            place(entries[i]);
+        }
+    }
+
+    /**
+     * Puts an entry in the smallest wheel whose current turn contains its
+     * deadline; the deadline is always after {@code now}.
+     */
+    private void place(long entry) {
+        long deadline = entry >>> 32;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if (deadline >>> shift == now >>> shift) {
+                wheels[level][(int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK)].add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private static final class Bucket {
+        private static final long[] EMPTY = new long[0];
+
+        private long[] entries = EMPTY;
+        private int size;
+        /** Size of the array returned by the last {@link #takeAll()}. */
+        private int drainedSize;
+
+        void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(4, size * 2));
+            }
+            entries[size++] = entry;
+        }
+
+        /**
+         * Empties the bucket and returns its previous array, valid up to
+         * {@link #drainedSize}.
+         */
+        long[] takeAll() {
+            long[] taken = entries;
+            drainedSize = size;
+            entries = EMPTY;
+            size = 0;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.alexandrialms.util.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Executes one INSERT or UPDATE statement for many rows with JDBC batching.
+ * <p>
+ * Rows are sent in chunks of {@code db.batch.size} (default 500) with
+ * {@code addBatch}/{@code executeBatch}, one transaction per chunk, so a bulk
+ * import costs one round trip and one commit per chunk instead of per row.
+ * When generated keys are requested they are read back in row order and
+ * handed to a {@link KeySetter}.
+ * </p>
+ * <p>
+ * If a chunk fails (for example one row violates a unique key) the chunk is
+ * rolled back and its rows are retried one by one, so a single bad row does
+ * not discard the rest of the chunk. Rows that still fail are logged and
+ * reported per row: {@link #update} returns whether each row was written,
+ * and rows that could not be inserted keep an ID of 0.
+ * </p>
+ */
+public final class BatchWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Sets the parameters of the statement for one row.
+     */
+    @FunctionalInterface
+    public interface Binder<T> {
+        void bind(PreparedStatement pstm, T row) throws SQLException;
+    }
+
+    /**
+     * Stores the generated key of an inserted row.
+     */
+    @FunctionalInterface
+    public interface KeySetter<T> {
+        void setKey(T row, int key);
+    }
+
+    private BatchWriter() {
+    }
+
+    /**
+     * Batch size configured with {@code db.batch.size}.
+     */
+    public static int configuredBatchSize() {
+        String value = DBConnection.getProperties().getProperty("db.batch.size");
+        if (value == null || value.isBlank()) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        try {
+            int size = Integer.parseInt(value.trim());
+            return size > 0 ? size : DEFAULT_BATCH_SIZE;
+        } catch (NumberFormatException e) {
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    /**
+     * Inserts every row, storing generated keys through {@code keySetter}.
+     *
+     * @return number of rows inserted
+     */
+    public static <T> int insert(String sql, Collection<T> rows, int batchSize, Binder<T> binder,
+            KeySetter<T> keySetter) {
+        return count(execute(sql, rows, batchSize, binder, keySetter));
+    }
+
+    /**
+     * Runs an UPDATE (or any statement without generated keys) for every row.
+     *
+     * @return whether each row was written, in the iteration order of {@code rows};
+     *         false for rows the database rejected or that matched nothing
+     */
+    public static <T> boolean[] update(String sql, Collection<T> rows, int batchSize, Binder<T> binder) {
+        return execute(sql, rows, batchSize, binder, null);
+    }
+
+    /**
+     * @return the number of rows {@link #update} reported as written
+     */
+    public static int count(boolean[] written) {
+        int count = 0;
+        for (boolean rowWritten : written) {
+            if (rowWritten) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static <T> boolean[] execute(String sql, Collection<T> rows, int batchSize, Binder<T> binder,
+            KeySetter<T> keySetter) {
+        boolean[] written = new boolean[rows.size()];
+        if (rows.isEmpty()) {
+            return written;
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        List<T> all = new ArrayList<>(rows);
+        try (Connection conn = ConnectionProvider.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < all.size(); from += batchSize) {
+                    List<T> chunk = all.subList(from, Math.min(from + batchSize, all.size()));
+                    writeChunk(conn, sql, chunk, binder, keySetter, written, from);
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return written;
+    }
+
+    /**
+     * Writes one chunk, marking its rows in {@code written} from {@code offset}.
+     */
+    private static <T> void writeChunk(Connection conn, String sql, List<T> chunk, Binder<T> binder,
+            KeySetter<T> keySetter, boolean[] written, int offset) throws SQLException {
+        try (PreparedStatement pstm = prepare(conn, sql, keySetter)) {
+            for (T row : chunk) {
+                binder.bind(pstm, row);
+                pstm.addBatch();
+            }
+            int[] counts = pstm.executeBatch();
+            if (keySetter != null) {
+                readKeys(pstm, chunk, keySetter);
+            }
+            conn.commit();
+            for (int i = 0; i < chunk.size(); i++) {
+                written[offset + i] = i >= counts.length || isWritten(counts[i]);
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            // One bad row fails the whole chunk: find it by retrying row by row
+            e.printStackTrace();
+            writeRowByRow(conn, sql, chunk, binder, keySetter, written, offset);
+        }
+    }
+
+    private static <T> void writeRowByRow(Connection conn, String sql, List<T> chunk, Binder<T> binder,
+            KeySetter<T> keySetter, boolean[] written, int offset) throws SQLException {
+        try (PreparedStatement pstm = prepare(conn, sql, keySetter)) {
+            for (int i = 0; i < chunk.size(); i++) {
+                T row = chunk.get(i);
+                try {
+                    binder.bind(pstm, row);
+                    written[offset + i] = pstm.executeUpdate() > 0;
+                    if (keySetter != null) {
+                        readKeys(pstm, List.of(row), keySetter);
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, KeySetter<?> keySetter)
+            throws SQLException {
+        return keySetter != null
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql);
+    }
+
+    private static <T> void readKeys(PreparedStatement pstm, List<T> rows, KeySetter<T> keySetter)
+            throws SQLException {
+        try (ResultSet keys = pstm.getGeneratedKeys()) {
+            for (T row : rows) {
+                if (!keys.next()) {
+                    break;
+                }
+                keySetter.setKey(row, keys.getInt(1));
+            }
+        }
+    }
+
+    private static boolean isWritten(int count) {
+        // El driver no informa de filas por sentencia en modo bulk
+        return count == Statement.SUCCESS_NO_INFO || count > 0;
+    }
+}
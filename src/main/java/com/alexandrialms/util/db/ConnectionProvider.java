@@ -0,0 +1,369 @@
+package com.alexandrialms.util.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alexandrialms.util.DBConnection;
+
+/**
+ * Bounded, thread-safe JDBC connection pool shared by every DAO.
+ * <p>
+ * Connections are borrowed with {@link #getConnection()} and returned by
+ * simply closing them, which keeps the existing try-with-resources blocks in
+ * {@code dao.impl} unchanged. The pool provides:
+ * </p>
+ * <ul>
+ * <li>a hard upper bound ({@code db.pool.maxSize}) enforced with a fair
+ * semaphore, so waiting threads are served in arrival order;</li>
+ * <li>an acquire timeout after which an
+ * {@link SQLTransientConnectionException} is thrown instead of blocking
+ * forever;</li>
+ * <li>validation on borrow for connections that have been idle longer than
+ * {@code db.pool.validationIntervalMs};</li>
+ * <li>a maximum connection lifetime and idle eviction performed by a
+ * background housekeeping thread, which also keeps {@code db.pool.minIdle}
+ * connections warm;</li>
+ * <li>a per-connection {@link StatementCache} (LRU, {@code db.pool.statementCacheSize}
+ * entries) so constant DAO SQL is prepared once per physical connection;</li>
+ * <li>counters exposed through {@link #getStats()}.</li>
+ * </ul>
+ */
+public class ConnectionProvider implements AutoCloseable {
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile ConnectionProvider defaultProvider;
+
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Object idleLock = new Object();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger threadsAwaiting = new AtomicInteger();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsDestroyed = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionProvider(PoolConfig config) {
+        config.validate();
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxPoolSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alexandria-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.getHousekeepingIntervalMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    // ||--------------------------- SHARED INSTANCE ----------------------------||
+
+    /**
+     * Borrows a connection from the application-wide pool.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection could be obtained in time
+     */
+    public static Connection getConnection() throws SQLException {
+        return getDefault().borrow();
+    }
+
+    /**
+     * Returns the application-wide pool, creating it from {@code db.properties}
+     * on first use.
+     */
+    public static ConnectionProvider getDefault() {
+        ConnectionProvider provider = defaultProvider;
+        if (provider == null) {
+            synchronized (DEFAULT_LOCK) {
+                provider = defaultProvider;
+                if (provider == null) {
+                    provider = new ConnectionProvider(PoolConfig.fromProperties(DBConnection.getProperties()));
+                    defaultProvider = provider;
+                }
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Replaces the application-wide pool, closing the previous one. Used by
+     * harnesses that run the DAOs against a database other than the one in
+     * {@code db.properties}.
+     */
+    public static void installDefault(ConnectionProvider provider) {
+        synchronized (DEFAULT_LOCK) {
+            if (defaultProvider != null && defaultProvider != provider) {
+                defaultProvider.close();
+            }
+            defaultProvider = provider;
+        }
+    }
+
+    /**
+     * Closes the application-wide pool. A later call to {@link #getConnection()}
+     * creates a new one.
+     */
+    public static void shutdownDefault() {
+        synchronized (DEFAULT_LOCK) {
+            if (defaultProvider != null) {
+                defaultProvider.close();
+                defaultProvider = null;
+            }
+        }
+    }
+
+    // ||--------------------------- POOL OPERATIONS ----------------------------||
+
+    /**
+     * Borrows a connection, waiting at most {@code db.pool.acquireTimeoutMs}.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if the pool is closed, the wait timed out or a new
+     *                      connection could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        threadsAwaiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            threadsAwaiting.decrementAndGet();
+        }
+        if (!acquired) {
+            acquireTimeouts.incrementAndGet();
+            throw new SQLTransientConnectionException("Timed out after " + config.getAcquireTimeoutMs()
+                    + " ms waiting for a database connection (" + getStats() + ")");
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (isExpired(pooled, System.currentTimeMillis()) || !isUsable(pooled)) {
+                    destroy(pooled);
+                    continue;
+                }
+                borrowCount.incrementAndGet();
+                return pooled.lease();
+            }
+            pooled = create();
+            borrowCount.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Called by the connection proxy when the caller closes it.
+     */
+    void release(PooledConnection pooled) {
+        try {
+            boolean keep = !closed && !isExpired(pooled, System.currentTimeMillis())
+                    && totalConnections.get() <= config.getMaxPoolSize();
+            if (keep) {
+                try {
+                    pooled.reset();
+                } catch (SQLException e) {
+                    keep = false;
+                }
+            }
+            if (keep) {
+                pooled.markReturned();
+                synchronized (idleLock) {
+                    idle.addFirst(pooled);
+                }
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     */
+    public PoolStats getStats() {
+        int idleCount;
+        int cachedStatements = 0;
+        synchronized (idleLock) {
+            idleCount = idle.size();
+            for (PooledConnection pooled : idle) {
+                cachedStatements += pooled.cachedStatementCount();
+            }
+        }
+        int total = totalConnections.get();
+        return new PoolStats(total, Math.max(0, total - idleCount), idleCount, threadsAwaiting.get(),
+                connectionsCreated.get(), connectionsDestroyed.get(), borrowCount.get(), acquireTimeouts.get(),
+                validationFailures.get(), statementCacheHits.get(), statementCacheMisses.get(),
+                statementCacheEvictions.get(), cachedStatements);
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeping thread.
+     * Connections currently borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> drained;
+        synchronized (idleLock) {
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : drained) {
+            destroy(pooled);
+        }
+    }
+
+    // ||--------------------------- INTERNALS ----------------------------||
+
+    private PooledConnection pollIdle() {
+        synchronized (idleLock) {
+            return idle.pollFirst();
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        try {
+            Class.forName("org.mariadb.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MariaDB driver not found.", e);
+        }
+        Properties info = new Properties();
+        if (config.getUser() != null) {
+            info.setProperty("user", config.getUser());
+        }
+        if (config.getPassword() != null) {
+            info.setProperty("password", config.getPassword());
+        }
+        if (config.isUseServerPrepStmts()) {
+            info.setProperty("useServerPrepStmts", "true");
+        }
+        Connection physical = DriverManager.getConnection(config.getUrl(), info);
+        totalConnections.incrementAndGet();
+        connectionsCreated.incrementAndGet();
+        StatementCache cache = config.getStatementCacheSize() > 0
+                ? new StatementCache(physical, config.getStatementCacheSize(), statementCacheHits,
+                        statementCacheMisses, statementCacheEvictions)
+                : null;
+        return new PooledConnection(this, physical, cache);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        connectionsDestroyed.incrementAndGet();
+        pooled.closePhysical();
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return config.getMaxLifetimeMs() > 0 && now - pooled.getCreatedAt() >= config.getMaxLifetimeMs();
+    }
+
+    /**
+     * Validates a connection unless it was returned very recently, in which case
+     * the round trip is skipped.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.getLastReturnedAt() < config.getValidationIntervalMs()) {
+            return true;
+        }
+        try {
+            if (pooled.getPhysical().isValid(config.getValidationTimeoutSeconds())) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // Treated as a failed validation below
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Evicts expired and long-idle connections, then tops the pool up to
+     * {@code db.pool.minIdle}.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idleLock) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean idleTooLong = config.getIdleTimeoutMs() > 0
+                        && now - pooled.getLastReturnedAt() >= config.getIdleTimeoutMs()
+                        && idle.size() - evicted.size() > config.getMinIdle();
+                if (isExpired(pooled, now) || idleTooLong) {
+                    it.remove();
+                    evicted.add(pooled);
+                }
+            }
+        }
+        for (PooledConnection pooled : evicted) {
+            destroy(pooled);
+        }
+
+        // Each connection is opened under a permit, like in borrow(), so the
+        // two can never open more than db.pool.maxPoolSize between them; if
+        // every permit is taken the pool is busy and needs no idle top-up
+        while (!closed && idleCount() < config.getMinIdle()
+                && totalConnections.get() < config.getMaxPoolSize() && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = create();
+                synchronized (idleLock) {
+                    idle.addLast(pooled);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private int idleCount() {
+        synchronized (idleLock) {
+            return idle.size();
+        }
+    }
+}
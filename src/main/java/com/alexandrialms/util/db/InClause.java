@@ -0,0 +1,90 @@
+package com.alexandrialms.util.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for queries with a variable {@code IN (?, ?, ...)} list.
+ * <p>
+ * Large ID sets are split into chunks of at most {@link #DEFAULT_CHUNK_SIZE}
+ * values so each statement stays well under the server's placeholder and
+ * packet limits, and so the number of distinct SQL strings (and therefore
+ * cached prepared statements) stays small.
+ * </p>
+ */
+public final class InClause {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private InClause() {
+    }
+
+    /**
+     * Returns {@code "?, ?, ?"} with {@code count} placeholders.
+     */
+    public static String placeholders(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("An IN list needs at least one value");
+        }
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes nulls and duplicates (keeping the first-seen order) and splits the
+     * values into chunks of at most {@code chunkSize}.
+     */
+    public static <T> List<List<T>> chunks(Collection<T> values, int chunkSize) {
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        distinct.removeIf(v -> v == null);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+        }
+        return chunks;
+    }
+
+    public static <T> List<List<T>> chunks(Collection<T> values) {
+        return chunks(values, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Runs {@code sqlTemplate} once per chunk of {@code values} and collects
+     * the first column of every row. The template must select a single
+     * column and contain one {@code %s} where the placeholder list goes, e.g.
+     * {@code SELECT email FROM users WHERE email IN (%s)}.
+     *
+     * @return the values found, as read from the database
+     */
+    public static <T> Set<T> selectExisting(Connection conn, String sqlTemplate, Collection<T> values,
+            Class<T> type) throws SQLException {
+        Set<T> found = new HashSet<>();
+        for (List<T> chunk : chunks(values)) {
+            try (PreparedStatement pstm = conn.prepareStatement(
+                    String.format(sqlTemplate, placeholders(chunk.size())))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstm.setObject(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstm.executeQuery();
+                while (rs.next()) {
+                    found.add(rs.getObject(1, type));
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,234 @@
+package com.alexandrialms.util.db;
+
+import java.util.Properties;
+
+/**
+ * Tuning parameters for {@link ConnectionProvider}.
+ * <p>
+ * Every value can be overridden from {@code db.properties} using the
+ * {@code db.pool.*} keys documented in {@code db.properties.example}.
+ * Missing or malformed values fall back to the defaults below.
+ * </p>
+ */
+public class PoolConfig {
+
+    private String url;
+    private String user;
+    private String password;
+
+    private int maxPoolSize = 10;
+    private int minIdle = 2;
+    private long acquireTimeoutMs = 5_000;
+    private long idleTimeoutMs = 300_000;
+    private long maxLifetimeMs = 1_800_000;
+    private long validationIntervalMs = 500;
+    private int validationTimeoutSeconds = 2;
+    private long housekeepingIntervalMs = 30_000;
+    private int statementCacheSize = 256;
+    private boolean useServerPrepStmts = true;
+
+    public PoolConfig() {
+    }
+
+    public PoolConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Builds a configuration from the application properties.
+     *
+     * @param properties the loaded {@code db.properties}
+     * @return a configuration with the connection data and pool settings
+     */
+    public static PoolConfig fromProperties(Properties properties) {
+        PoolConfig config = new PoolConfig(
+                properties.getProperty("db.url"),
+                properties.getProperty("db.user"),
+                properties.getProperty("db.password"));
+        config.maxPoolSize = intProperty(properties, "db.pool.maxSize", config.maxPoolSize);
+        config.minIdle = intProperty(properties, "db.pool.minIdle", config.minIdle);
+        config.acquireTimeoutMs = longProperty(properties, "db.pool.acquireTimeoutMs", config.acquireTimeoutMs);
+        config.idleTimeoutMs = longProperty(properties, "db.pool.idleTimeoutMs", config.idleTimeoutMs);
+        config.maxLifetimeMs = longProperty(properties, "db.pool.maxLifetimeMs", config.maxLifetimeMs);
+        config.validationIntervalMs = longProperty(properties, "db.pool.validationIntervalMs",
+                config.validationIntervalMs);
+        config.validationTimeoutSeconds = intProperty(properties, "db.pool.validationTimeoutSeconds",
+                config.validationTimeoutSeconds);
+        config.housekeepingIntervalMs = longProperty(properties, "db.pool.housekeepingIntervalMs",
+                config.housekeepingIntervalMs);
+        config.statementCacheSize = intProperty(properties, "db.pool.statementCacheSize", config.statementCacheSize);
+        String serverPrep = properties.getProperty("db.pool.useServerPrepStmts");
+        if (serverPrep != null && !serverPrep.isBlank()) {
+            config.useServerPrepStmts = Boolean.parseBoolean(serverPrep.trim());
+        }
+        config.validate();
+        return config;
+    }
+
+    /**
+     * Checks that the settings are coherent.
+     *
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public void validate() {
+        if (maxPoolSize <= 0) {
+            throw new IllegalArgumentException("db.pool.maxSize must be greater than 0");
+        }
+        if (minIdle < 0 || minIdle > maxPoolSize) {
+            throw new IllegalArgumentException("db.pool.minIdle must be between 0 and db.pool.maxSize");
+        }
+        if (acquireTimeoutMs <= 0) {
+            throw new IllegalArgumentException("db.pool.acquireTimeoutMs must be greater than 0");
+        }
+        if (housekeepingIntervalMs <= 0) {
+            throw new IllegalArgumentException("db.pool.housekeepingIntervalMs must be greater than 0");
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("db.pool.statementCacheSize cannot be negative");
+        }
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long longProperty(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public long getMaxLifetimeMs() {
+        return maxLifetimeMs;
+    }
+
+    public void setMaxLifetimeMs(long maxLifetimeMs) {
+        this.maxLifetimeMs = maxLifetimeMs;
+    }
+
+    public long getValidationIntervalMs() {
+        return validationIntervalMs;
+    }
+
+    public void setValidationIntervalMs(long validationIntervalMs) {
+        this.validationIntervalMs = validationIntervalMs;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getHousekeepingIntervalMs() {
+        return housekeepingIntervalMs;
+    }
+
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) {
+        this.housekeepingIntervalMs = housekeepingIntervalMs;
+    }
+
+    /**
+     * Maximum prepared statements cached per physical connection; 0 disables the cache.
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Whether connections are opened with {@code useServerPrepStmts=true} so
+     * cached statements keep a server-side handle.
+     */
+    public boolean isUseServerPrepStmts() {
+        return useServerPrepStmts;
+    }
+
+    public void setUseServerPrepStmts(boolean useServerPrepStmts) {
+        this.useServerPrepStmts = useServerPrepStmts;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig [url=" + url + ", user=" + user + ", maxPoolSize=" + maxPoolSize + ", minIdle=" + minIdle
+                + ", acquireTimeoutMs=" + acquireTimeoutMs + ", idleTimeoutMs=" + idleTimeoutMs
+                + ", maxLifetimeMs=" + maxLifetimeMs + ", statementCacheSize=" + statementCacheSize + "]";
+    }
+}
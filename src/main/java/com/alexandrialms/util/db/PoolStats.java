@@ -0,0 +1,113 @@
+package com.alexandrialms.util.db;
+
+/**
+ * Immutable snapshot of the {@link ConnectionProvider} counters.
+ */
+public class PoolStats {
+
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int threadsAwaiting;
+    private final long connectionsCreated;
+    private final long connectionsDestroyed;
+    private final long borrowCount;
+    private final long acquireTimeouts;
+    private final long validationFailures;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+    private final int idleCachedStatements;
+
+    public PoolStats(int totalConnections, int activeConnections, int idleConnections, int threadsAwaiting,
+            long connectionsCreated, long connectionsDestroyed, long borrowCount, long acquireTimeouts,
+            long validationFailures, long statementCacheHits, long statementCacheMisses,
+            long statementCacheEvictions, int idleCachedStatements) {
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.threadsAwaiting = threadsAwaiting;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsDestroyed = connectionsDestroyed;
+        this.borrowCount = borrowCount;
+        this.acquireTimeouts = acquireTimeouts;
+        this.validationFailures = validationFailures;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+        this.idleCachedStatements = idleCachedStatements;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getThreadsAwaiting() {
+        return threadsAwaiting;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public long getConnectionsDestroyed() {
+        return connectionsDestroyed;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions;
+    }
+
+    /**
+     * Number of prepared statements currently cached on idle connections.
+     */
+    public int getIdleCachedStatements() {
+        return idleCachedStatements;
+    }
+
+    /**
+     * Fraction of {@code prepareStatement} calls answered from the statement cache.
+     */
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats [total=" + totalConnections + ", active=" + activeConnections + ", idle="
+                + idleConnections + ", awaiting=" + threadsAwaiting + ", created=" + connectionsCreated
+                + ", destroyed=" + connectionsDestroyed + ", borrows=" + borrowCount + ", timeouts="
+                + acquireTimeouts + ", validationFailures=" + validationFailures + ", stmtCacheHits="
+                + statementCacheHits + ", stmtCacheMisses=" + statementCacheMisses + ", stmtCacheEvictions="
+                + statementCacheEvictions + "]";
+    }
+}
@@ -0,0 +1,168 @@
+package com.alexandrialms.util.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A physical connection owned by {@link ConnectionProvider}.
+ * <p>
+ * Callers never see this object directly: each borrow hands out a fresh
+ * {@link Connection} proxy whose {@code close()} returns the physical
+ * connection to the pool instead of closing the socket. Statements opened
+ * through a lease are tracked and closed when the lease ends, so DAO methods
+ * that forget to close a {@code PreparedStatement} do not leak cursors on the
+ * shared connection.
+ * </p>
+ * <p>
+ * When statement caching is enabled, {@code prepareStatement(sql)} and
+ * {@code prepareStatement(sql, autoGeneratedKeys)} are answered from a
+ * {@link StatementCache} that lives as long as the physical connection.
+ * </p>
+ */
+final class PooledConnection {
+
+    private final ConnectionProvider owner;
+    private final Connection physical;
+    private final StatementCache statementCache;
+    private final long createdAt;
+    private volatile long lastReturnedAt;
+
+    PooledConnection(ConnectionProvider owner, Connection physical, StatementCache statementCache) {
+        this.owner = owner;
+        this.physical = physical;
+        this.statementCache = statementCache;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    void markReturned() {
+        lastReturnedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates the proxy handed out for one borrow.
+     */
+    Connection lease() {
+        Lease lease = new Lease();
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, lease);
+        lease.proxy = proxy;
+        return proxy;
+    }
+
+    /**
+     * Restores the default session state before the connection goes back to the pool.
+     */
+    void reset() throws SQLException {
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+    }
+
+    int cachedStatementCount() {
+        return statementCache == null ? 0 : statementCache.size();
+    }
+
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private Connection proxy;
+        private boolean closed;
+        private final List<Statement> openStatements = new ArrayList<>();
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        closeOpenStatements();
+                        owner.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (closed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (statementCache != null && isCacheablePrepare(method, args)) {
+                int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                PreparedStatement statement = statementCache.prepare((String) args[0], keys);
+                openStatements.add(statement);
+                return statement;
+            }
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                openStatements.add((Statement) result);
+            }
+            return result;
+        }
+
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            if (!"prepareStatement".equals(method.getName()) || args == null) {
+                return false;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            return (types.length == 1 && types[0] == String.class)
+                    || (types.length == 2 && types[0] == String.class && types[1] == int.class);
+        }
+
+        private void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    if (!statement.isClosed()) {
+                        statement.close();
+                    }
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            openStatements.clear();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.alexandrialms.util.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an entity. DAO
+ * {@code mapResultSet} methods satisfy this interface by method reference.
+ *
+ * @param <T> the entity type
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(ResultSet rs) throws SQLException;
+}
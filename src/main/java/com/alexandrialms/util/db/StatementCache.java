@@ -0,0 +1,232 @@
+package com.alexandrialms.util.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements bound to one physical connection.
+ * <p>
+ * DAO methods call {@code conn.prepareStatement(sql)} with constant SQL on
+ * every invocation. When the connection comes from {@link ConnectionProvider}
+ * those calls are answered from this cache: the first call prepares the
+ * statement on the server, later calls reuse the same handle. Closing the
+ * returned statement only clears its parameters and open result sets,
+ * restores the fetch size, row limit and query timeout it was prepared with,
+ * and hands it back to the cache. The cached handles are closed for real
+ * when the entry is evicted or the physical connection is destroyed.
+ * </p>
+ * <p>
+ * A connection is only used by one thread at a time, so the cache itself is
+ * not synchronized. If the same SQL is prepared twice while the first
+ * statement is still open, the second one is prepared outside the cache.
+ * </p>
+ */
+final class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached statement for {@code sql}, preparing it on a miss.
+     *
+     * @param sql               the statement text
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or
+     *                          {@link Statement#NO_GENERATED_KEYS}
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.statement.isClosed()) {
+            // Closed after a failed reset: replace it rather than serve this SQL uncached from now on
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+            return entry.checkout();
+        }
+        misses.incrementAndGet();
+        PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            // Same SQL already checked out by this lease: serve it uncached.
+            return statement;
+        }
+        evictIfFull();
+        try {
+            entry = new Entry(statement);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            throw e;
+        }
+        entries.put(key, entry);
+        return entry.checkout();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is destroyed.
+     */
+    void closeAll() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    private void evictIfFull() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            evictions.incrementAndGet();
+            closeQuietly(eldest.statement);
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Entry {
+        private final PreparedStatement statement;
+        // Driver defaults, restored when a caller that changed them gives the statement back
+        private final int fetchSize;
+        private final int maxRows;
+        private final int queryTimeout;
+        private boolean inUse;
+
+        private Entry(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        private void resetLimits() throws SQLException {
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+        }
+
+        private PreparedStatement checkout() {
+            inUse = true;
+            Checkout handler = new Checkout(this);
+            PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, handler);
+            handler.proxy = proxy;
+            return proxy;
+        }
+    }
+
+    /**
+     * Handler for one logical use of a cached statement.
+     */
+    private static final class Checkout implements InvocationHandler {
+        private final Entry entry;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private PreparedStatement proxy;
+        private boolean closed;
+
+        private Checkout(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void giveBack() throws SQLException {
+            try {
+                for (ResultSet rs : openResults) {
+                    if (!rs.isClosed()) {
+                        rs.close();
+                    }
+                }
+                openResults.clear();
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+                entry.resetLimits();
+            } catch (SQLException e) {
+                // A statement that cannot be reset is not reusable.
+                entry.statement.close();
+                throw e;
+            } finally {
+                entry.inUse = false;
+            }
+        }
+    }
+}
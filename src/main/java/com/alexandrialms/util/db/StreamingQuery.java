@@ -0,0 +1,135 @@
+package com.alexandrialms.util.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a query and exposes its rows as a lazily mapped {@link Stream}.
+ * <p>
+ * The statement is forward-only and read-only with a fetch size hint, so the
+ * driver reads the result in chunks instead of buffering the whole table.
+ * The pooled connection stays borrowed until the stream is closed or fully
+ * consumed, so callers must close it, typically with try-with-resources:
+ * </p>
+ *
+ * <pre>
+ * try (Stream&lt;Loan&gt; loans = loanDAO.streamAll()) {
+ *     loans.forEach(exporter::write);
+ * }
+ * </pre>
+ * <p>
+ * A {@link SQLException} raised while iterating is rethrown as
+ * {@link UncheckedSQLException}.
+ * </p>
+ */
+public final class StreamingQuery {
+
+    /**
+     * Rows requested per round trip when no fetch size is given.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private StreamingQuery() {
+    }
+
+    public static <T> Stream<T> stream(String sql, RowMapper<T> mapper) throws SQLException {
+        return stream(sql, mapper, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param sql       the query, without parameters
+     * @param mapper    maps each row; usually the DAO's {@code mapResultSet}
+     * @param fetchSize rows the driver fetches per round trip
+     * @return a sequential stream that must be closed by the caller
+     * @throws SQLException if the query could not be executed
+     */
+    public static <T> Stream<T> stream(String sql, RowMapper<T> mapper, int fetchSize) throws SQLException {
+        Connection conn = ConnectionProvider.getConnection();
+        PreparedStatement pstm = null;
+        ResultSet rs;
+        try {
+            pstm = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstm.setFetchSize(fetchSize);
+            rs = pstm.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(null, pstm, conn);
+            throw e;
+        }
+        Cursor<T> cursor = new Cursor<>(conn, pstm, rs, mapper);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    private static void closeQuietly(ResultSet rs, PreparedStatement pstm, Connection conn) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        try {
+            if (pstm != null) {
+                pstm.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Spliterator over an open result set. Releases the connection as soon as
+     * the last row has been read, and again (idempotently) on stream close.
+     */
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final PreparedStatement pstm;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        private Cursor(Connection conn, PreparedStatement pstm, ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.pstm = pstm;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new UncheckedSQLException(e);
+            }
+        }
+
+        private void close() {
+            if (!closed) {
+                closed = true;
+                closeQuietly(rs, pstm, conn);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.alexandrialms.util.db;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps a {@link SQLException} raised while a {@link StreamingQuery} stream is
+ * being consumed, where checked exceptions cannot cross the
+ * {@link java.util.stream.Stream} API.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,63 @@
+package com.alexandrialms.util.pagination;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated query.
+ * <p>
+ * {@link #getNextPageToken()} is an opaque token that encodes the sort key of
+ * the last item; passing it back to the same service method returns the next
+ * page. It is {@code null} on the last page.
+ * </p>
+ *
+ * @param <T> the item type
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * Builds a page from a query that fetched {@code pageSize + 1} rows. The
+     * extra row only signals that another page exists and is dropped.
+     *
+     * @param fetched  rows returned by the DAO, at most {@code pageSize + 1}
+     * @param pageSize the requested page size
+     * @param tokenFor builds the continuation token from the last item kept
+     */
+    public static <T> Page<T> of(List<T> fetched, int pageSize, Function<T, String> tokenFor) {
+        if (fetched.size() <= pageSize) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, pageSize);
+        return new Page<>(items, tokenFor.apply(items.get(pageSize - 1)));
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page [items=" + items.size() + ", hasNext=" + hasNext() + "]";
+    }
+}
@@ -0,0 +1,83 @@
+package com.alexandrialms.util.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+import com.alexandrialms.exception.ValidationException;
+
+/**
+ * Encodes and decodes the continuation tokens returned in {@link Page}.
+ * <p>
+ * A token is the URL-safe Base64 form of a scope name followed by the sort
+ * key values of the last row served, e.g. {@code books.title|42|Dune}. The
+ * scope stops a token issued by one listing from being replayed against a
+ * different one. Clients must treat tokens as opaque.
+ * </p>
+ */
+public final class PageToken {
+
+    private static final char SEPARATOR = '\u001F';
+    private static final Pattern SPLITTER = Pattern.compile(Pattern.quote(String.valueOf(SEPARATOR)));
+
+    private PageToken() {
+    }
+
+    /**
+     * @param scope identifies the listing, e.g. {@code "books.all"}
+     * @param keys  the sort key of the last row; a free-text key (such as a
+     *              title) must come last so it may contain any character
+     */
+    public static String encode(String scope, Object... keys) {
+        StringBuilder sb = new StringBuilder(scope);
+        for (Object key : keys) {
+            sb.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode(String, Object...)}.
+     *
+     * @param token     the token received from the client, {@code null} for the first page
+     * @param scope     the listing the token must belong to
+     * @param keyCount  number of sort key values expected
+     * @return the sort key values, or {@code null} when {@code token} is null or blank
+     * @throws ValidationException if the token is malformed or belongs to another listing
+     */
+    public static String[] decode(String token, String scope, int keyCount) throws ValidationException {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        String[] parts = SPLITTER.split(decoded, keyCount + 1);
+        if (parts.length != keyCount + 1 || !parts[0].equals(scope)) {
+            throw invalid();
+        }
+        String[] keys = new String[keyCount];
+        System.arraycopy(parts, 1, keys, 0, keyCount);
+        return keys;
+    }
+
+    /**
+     * Parses an integer key value from a decoded token.
+     */
+    public static int intKey(String value) throws ValidationException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static ValidationException invalid() {
+        return new ValidationException("pageToken", "INVALID_PAGE_TOKEN",
+                "Page token is not valid for this listing");
+    }
+}
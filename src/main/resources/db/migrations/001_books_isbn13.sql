@@ -0,0 +1,16 @@
+-- Canonical ISBN-13 key for books (MariaDB)
+--
+-- isbn13 holds the 13-digit ISBN-13 as a number, so "978-84-376-0494-7",
+-- "9788437604947" and the ISBN-10 "84-376-0494-X" share one key. BookDAO
+-- fills it on every insert/update; findByISBN and existsByISBN query it.
+--
+-- After running this script, populate existing rows from the application:
+--     new BookServiceImpl().backfillIsbnKeys();
+-- (ISBN-10 to ISBN-13 conversion and check digit validation are done in Java;
+-- rows whose ISBN does not parse keep a NULL key.)
+
+ALTER TABLE books
+    ADD COLUMN isbn13 BIGINT NULL AFTER isbn;
+
+-- Not UNIQUE: existing data may hold the same book under both notations.
+CREATE INDEX idx_books_isbn13 ON books (isbn13);
@@ -0,0 +1,22 @@
+-- Due dates and renewals for loans (MariaDB)
+--
+-- LoanDAO.checkout sets due_date to loan_date plus the loan period of the
+-- borrower's LibraryRole (READER 14 days, LIBRARIAN and ADMIN 30 days), and
+-- LoanDAO.renew moves it and counts the renewal. Overdue loans are open
+-- loans whose due_date is before today.
+
+ALTER TABLE loans
+    ADD COLUMN due_date DATE NULL AFTER loan_date,
+    ADD COLUMN renewals INT NOT NULL DEFAULT 0 AFTER returned;
+
+-- Open loans written before this migration get the due date they would
+-- have had; closed loans keep a NULL due date.
+UPDATE loans l
+JOIN users u ON u.user_id = l.user_id
+SET l.due_date = DATE_ADD(l.loan_date, INTERVAL CASE u.role
+        WHEN 'READER' THEN 14
+        ELSE 30
+    END DAY)
+WHERE l.returned = false AND l.due_date IS NULL;
+
+CREATE INDEX idx_loans_due_date ON loans (returned, due_date);
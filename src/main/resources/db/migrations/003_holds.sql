@@ -0,0 +1,29 @@
+-- Holds on books (MariaDB)
+--
+-- HoldDAO.place inserts a WAITING hold. When a copy of the book is checked
+-- in, LoanDAO.checkin keeps it (copies.status = 'RESERVED') for the oldest
+-- WAITING hold of an active user, which becomes READY with copy_id,
+-- ready_date and pickup_deadline set. Checking the copy out to that user
+-- makes the hold FULFILLED; a READY hold not collected by its
+-- pickup_deadline becomes EXPIRED, and one withdrawn CANCELLED.
+
+CREATE TABLE holds (
+    hold_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT NOT NULL,
+    user_id INT NOT NULL,
+    copy_id INT NULL,
+    status VARCHAR(20) NOT NULL,
+    placed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ready_date DATE NULL,
+    pickup_deadline DATE NULL,
+    CONSTRAINT fk_holds_book FOREIGN KEY (book_id) REFERENCES books (book_id),
+    CONSTRAINT fk_holds_user FOREIGN KEY (user_id) REFERENCES users (user_id),
+    CONSTRAINT fk_holds_copy FOREIGN KEY (copy_id) REFERENCES copies (copy_id)
+);
+
+-- Queue of a book in order (hold_id grows with placed_at)
+CREATE INDEX idx_holds_book_status ON holds (book_id, status, hold_id);
+CREATE INDEX idx_holds_user_status ON holds (user_id, status);
+-- READY hold of a copy at checkout, and expiry of uncollected holds
+CREATE INDEX idx_holds_copy_status ON holds (copy_id, status);
+CREATE INDEX idx_holds_status_deadline ON holds (status, pickup_deadline);
@@ -10,13 +10,26 @@ import org.junit.jupiter.api.DisplayName;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class AuthorServiceIntegrationTest {
 
+    // Names are deduplicated, so authors created by these tests get a suffix unique to the run
+    private static final String RUN_SUFFIX = randomLetters(8);
+
     private AuthorServiceImpl authorService;
 
+    private static String randomLetters(int length) {
+        StringBuilder letters = new StringBuilder();
+        Random random = new Random();
+        for (int i = 0; i < length; i++) {
+            letters.append((char) ('a' + random.nextInt(26)));
+        }
+        return letters.toString();
+    }
+
     @BeforeEach
     void setUp() {
         authorService = new AuthorServiceImpl(); 
@@ -205,7 +218,7 @@ class AuthorServiceIntegrationTest {
     @DisplayName("Should create author with valid data")
     void createAuthor_ValidData_CreatesSuccessfully() throws ValidationException {
         // Arrange
-        Author author = new Author("Test", "Author", "TestNationality", LocalDate.of(1980, 1, 1));
+        Author author = new Author("Test", "Author" + RUN_SUFFIX, "TestNationality", LocalDate.of(1980, 1, 1));
         
         // Act
         Author result = authorService.createAuthor(author);
@@ -214,14 +227,14 @@ class AuthorServiceIntegrationTest {
         assertNotNull(result);
         assertTrue(result.getAuthorID() > 0);
         assertEquals("Test", result.getFirstName());
-        assertEquals("Author", result.getLastName());
+        assertEquals("Author" + RUN_SUFFIX, result.getLastName());
     }
 
     @Test
     @DisplayName("Should find author by existing ID")
     void findAuthorById_ExistingId_ReturnsAuthor() throws ValidationException {
         // Arrange - primero crear un autor
-        Author author = new Author("Find", "Me", "Test", LocalDate.of(1970, 1, 1));
+        Author author = new Author("Find", "Me" + RUN_SUFFIX, "Test", LocalDate.of(1970, 1, 1));
         Author created = authorService.createAuthor(author);
         
         // Act
@@ -230,6 +243,35 @@ class AuthorServiceIntegrationTest {
         // Assert
         assertTrue(result.isPresent());
         assertEquals("Find", result.get().getFirstName());
-        assertEquals("Me", result.get().getLastName());
+        assertEquals("Me" + RUN_SUFFIX, result.get().getLastName());
+    }
+
+    @Test
+    @DisplayName("Should reject an author whose name only differs in accents and case")
+    void createAuthor_AccentVariantOfExistingName_ThrowsDuplicate() throws ValidationException {
+        // Arrange
+        authorService.createAuthor(new Author("Gabriél", "Márquez" + RUN_SUFFIX, "Colombian", LocalDate.of(1927, 3, 6)));
+        Author variant = new Author("GABRIEL", "Marquez" + RUN_SUFFIX, "Colombian", LocalDate.of(1927, 3, 6));
+
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> authorService.createAuthor(variant));
+
+        assertEquals("DUPLICATE_AUTHOR", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should find an existing author from a misspelled name")
+    void findSimilarAuthors_Typo_ReturnsAuthor() throws ValidationException {
+        // Arrange
+        Author created = authorService.createAuthor(
+            new Author("Isabel", "Allende" + RUN_SUFFIX, "Chilean", LocalDate.of(1942, 8, 2)));
+
+        // Act
+        List<Author> result = authorService.findSimilarAuthors("Isabel", "Alende" + RUN_SUFFIX);
+
+        // Assert
+        assertFalse(result.isEmpty());
+        assertEquals(created.getAuthorID(), result.get(0).getAuthorID());
     }
 }
\ No newline at end of file
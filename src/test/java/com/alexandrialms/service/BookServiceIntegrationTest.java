@@ -2,13 +2,21 @@ package com.alexandrialms.service;
 
 import com.alexandrialms.service.impl.BookServiceImpl;
 import com.alexandrialms.model.Book;
+import com.alexandrialms.model.BookDetails;
+import com.alexandrialms.model.PopularityWindow;
+import com.alexandrialms.search.Suggestion;
 import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.util.pagination.Page;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,6 +119,54 @@ class BookServiceIntegrationTest {
         assertNotNull(result);
     }
 
+    @Test
+    @DisplayName("Available and unavailable books should not overlap")
+    void getAvailableBooks_DisjointFromUnavailable() {
+        // Act
+        List<Book> available = bookService.getAvailableBooks();
+        List<Book> unavailable = bookService.getUnavailableBooks();
+
+        // Assert
+        Set<Integer> availableIds = new HashSet<>();
+        available.forEach(book -> availableIds.add(book.getBookID()));
+        unavailable.forEach(book -> assertFalse(availableIds.contains(book.getBookID())));
+    }
+
+    @Test
+    @DisplayName("Bulk available copy counts should match the single-book counts")
+    void getAvailableCopiesCounts_MatchesSingleCounts() throws ValidationException {
+        // Arrange
+        List<Integer> bookIds = new ArrayList<>();
+        bookService.getAllBooksPaginated(10, 0).forEach(book -> bookIds.add(book.getBookID()));
+
+        // Act
+        Map<Integer, Integer> counts = bookService.getAvailableCopiesCounts(bookIds);
+
+        // Assert
+        for (Integer bookId : bookIds) {
+            assertEquals(bookService.getAvailableCopiesCount(bookId), counts.get(bookId).intValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Should rank fewer books over a shorter window, and all time by default")
+    void getMostBorrowedBooks_Window_IsSubsetOfAllTime() throws ValidationException {
+        // Act
+        List<Book> allTime = bookService.getMostBorrowedBooks(1000, PopularityWindow.ALL_TIME);
+        List<Book> lastWeek = bookService.getMostBorrowedBooks(1000, PopularityWindow.LAST_7_DAYS);
+        List<Book> byDefault = bookService.getMostBorrowedBooks(1000);
+
+        // Assert
+        Set<Integer> allTimeIds = new HashSet<>();
+        allTime.forEach(book -> allTimeIds.add(book.getBookID()));
+        lastWeek.forEach(book -> assertTrue(allTimeIds.contains(book.getBookID())));
+        assertEquals(allTime.size(), byDefault.size());
+        for (int i = 0; i < allTime.size(); i++) {
+            assertEquals(allTime.get(i).getBookID(), byDefault.get(i).getBookID());
+        }
+        assertThrows(ValidationException.class, () -> bookService.getMostBorrowedBooks(5, null));
+    }
+
     @Test
     @DisplayName("Should validate pagination parameters - negative limit")
     void getAllBooksPaginated_NegativeLimit_ThrowsException() {
@@ -142,6 +198,64 @@ class BookServiceIntegrationTest {
         assertTrue(result.size() <= 10);
     }
 
+    @Test
+    @DisplayName("Should validate page size in keyset pagination")
+    void getAllBooksPage_InvalidPageSize_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> bookService.getAllBooksPage(0, null));
+        
+        assertEquals("INVALID_PAGE_SIZE", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed page token")
+    void getAllBooksPage_MalformedToken_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> bookService.getAllBooksPage(10, "not a token!"));
+        
+        assertEquals("INVALID_PAGE_TOKEN", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should walk the catalogue with continuation tokens without repeating books")
+    void getAllBooksPage_FollowTokens_NoDuplicates() throws ValidationException {
+        // Arrange
+        java.util.Set<Integer> seen = new java.util.HashSet<>();
+        String token = null;
+        
+        // Act
+        do {
+            Page<Book> page = bookService.getAllBooksPage(2, token);
+            assertTrue(page.getItems().size() <= 2);
+            for (Book book : page.getItems()) {
+                // Assert
+                assertTrue(seen.add(book.getBookID()), "Book repeated across pages: " + book.getBookID());
+            }
+            token = page.getNextPageToken();
+        } while (token != null);
+        
+        assertEquals(bookService.getTotalBooksCount(), seen.size());
+    }
+
+    @Test
+    @DisplayName("Should hydrate every book of a page with its authors list")
+    void getBookDetails_Page_ReturnsOneEntryPerBook() throws ValidationException {
+        // Arrange
+        List<Book> books = bookService.getAllBooksPaginated(10, 0);
+        
+        // Act
+        List<BookDetails> details = bookService.getBookDetails(books);
+        
+        // Assert
+        assertEquals(books.size(), details.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(books.get(i).getBookID(), details.get(i).getBook().getBookID());
+            assertNotNull(details.get(i).getAuthors());
+        }
+    }
+
     @Test
     @DisplayName("Should return false for invalid ISBN format in existence check")
     void bookExistsByISBN_InvalidFormat_ReturnsFalse() {
@@ -152,6 +266,42 @@ class BookServiceIntegrationTest {
         assertFalse(result);
     }
 
+    @Test
+    @DisplayName("Should reject ISBN with wrong check digit in existence check")
+    void bookExistsByISBN_WrongCheckDigit_ReturnsFalse() {
+        // Act
+        boolean result = bookService.bookExistsByISBN("978-0-306-40615-8");
+        
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    @DisplayName("Should reject a prefix that does not match the ISBN length and a lowercase check character")
+    void getBookByISBN_MismatchedPrefixOrLowercaseX_ThrowsException() {
+        // Arrange
+        List<String> invalid = List.of("ISBN-13: 080442957X", "ISBN-10: 978-0-306-40615-7", "080442957x");
+
+        // Act & Assert
+        for (String isbn : invalid) {
+            assertThrows(ValidationException.class, () -> bookService.getBookByISBN(isbn), isbn);
+            assertFalse(bookService.bookExistsByISBN(isbn), isbn);
+        }
+        assertDoesNotThrow(() -> bookService.getBookByISBN("ISBN-10: 080442957X"));
+        assertDoesNotThrow(() -> bookService.getBookByISBN("ISBN-13: 978-0-306-40615-7"));
+    }
+
+    @Test
+    @DisplayName("Should resolve ISBN-10 and ISBN-13 notations to the same book")
+    void getBookByISBN_Isbn10AndIsbn13_ReturnSameBook() {
+        // Act
+        Optional<Integer> byIsbn10 = bookService.getBookByISBN("0-306-40615-2").map(Book::getBookID);
+        Optional<Integer> byIsbn13 = bookService.getBookByISBN("978-0-306-40615-7").map(Book::getBookID);
+        
+        // Assert
+        assertEquals(byIsbn13, byIsbn10);
+    }
+
     @Test
     @DisplayName("Should validate title in existence check")
     void bookExistsByTitleAndYear_InvalidTitle_ReturnsFalse() {
@@ -171,4 +321,59 @@ class BookServiceIntegrationTest {
         // Assert
         assertFalse(result);
     }
+
+    @Test
+    @DisplayName("Should reject an empty catalogue search query")
+    void searchCatalogue_BlankQuery_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> bookService.searchCatalogue("   ", 10));
+
+        assertEquals("INVALID_SEARCH_TERM", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should return ranked catalogue results within the limit")
+    void searchCatalogue_ValidQuery_ReturnsAtMostLimit() throws ValidationException {
+        // Act
+        List<BookDetails> result = bookService.searchCatalogue("the", 5);
+
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.size() <= 5);
+    }
+
+    @Test
+    @DisplayName("Should reject an empty query when suggesting a correction")
+    void suggestCorrection_BlankQuery_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> bookService.suggestCorrection(" "));
+
+        assertEquals("INVALID_SEARCH_TERM", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject an empty typeahead prefix")
+    void suggest_BlankPrefix_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> bookService.suggest("  ", 5));
+
+        assertEquals("INVALID_SEARCH_TERM", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should return typeahead suggestions within the limit, most borrowed first")
+    void suggest_ValidPrefix_ReturnsRankedSuggestions() throws ValidationException {
+        // Act
+        List<Suggestion> result = bookService.suggest("the", 5);
+
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.size() <= 5);
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1).getPopularity() >= result.get(i).getPopularity());
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.alexandrialms.service;
+
+import com.alexandrialms.service.impl.CredentialServiceImpl;
+import com.alexandrialms.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialServiceIntegrationTest {
+
+    private CredentialServiceImpl credentialService;
+
+    @BeforeEach
+    void setUp() {
+        credentialService = new CredentialServiceImpl();
+    }
+
+    @Test
+    @DisplayName("Should validate email format when logging in")
+    void login_InvalidEmail_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> credentialService.login("invalid-email", "secret-password"));
+
+        assertEquals("INVALID_EMAIL", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should not find a session for an unknown token")
+    void getSession_UnknownToken_IsEmpty() {
+        // Act & Assert
+        assertTrue(credentialService.getSession("unknown-token").isEmpty());
+        assertFalse(credentialService.logout("unknown-token"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.alexandrialms.service;
+
+import com.alexandrialms.service.impl.CopyServiceImpl;
+import com.alexandrialms.service.impl.HoldServiceImpl;
+import com.alexandrialms.service.impl.LoanServiceImpl;
+import com.alexandrialms.service.impl.UserServiceImpl;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Copy;
+import com.alexandrialms.model.Hold;
+import com.alexandrialms.model.HoldStatus;
+import com.alexandrialms.model.Loan;
+import com.alexandrialms.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class HoldServiceIntegrationTest {
+
+    private HoldServiceImpl holdService;
+    private LoanServiceImpl loanService;
+    private CopyServiceImpl copyService;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        holdService = new HoldServiceImpl();
+        loanService = new LoanServiceImpl();
+        copyService = new CopyServiceImpl();
+        userService = new UserServiceImpl();
+    }
+
+    @Test
+    @DisplayName("Should validate book ID when placing a hold")
+    void placeHold_InvalidBookId_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> holdService.placeHold(1, 0));
+
+        assertEquals("INVALID_BOOK_ID", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject a hold for non-existent user")
+    void placeHold_NonExistentUser_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> holdService.placeHold(999999, 1));
+
+        assertEquals("USER_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject cancelling a non-existent hold")
+    void cancelHold_NonExistentHold_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> holdService.cancelHold(999999));
+
+        assertEquals("HOLD_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should list the waiting holds of a book oldest first")
+    void getWaitingHolds_AreWaitingAndInOrder() {
+        // Act
+        List<Hold> holds = holdService.getWaitingHolds(1);
+
+        // Assert
+        assertNotNull(holds);
+        for (int i = 0; i < holds.size(); i++) {
+            assertEquals(HoldStatus.WAITING, holds.get(i).getStatus());
+            assertEquals(1, holds.get(i).getBookID());
+            if (i > 0) {
+                assertTrue(holds.get(i - 1).getHoldID() < holds.get(i).getHoldID());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a returned copy for the oldest waiting hold")
+    void checkin_WithWaitingHolds_OldestHoldBecomesReady() throws ValidationException {
+        // Arrange: a lent copy of a book with no copy on the shelf and nobody waiting
+        Loan loan = null;
+        int bookId = 0;
+        for (Loan active : loanService.getActiveLoans()) {
+            Copy copy = copyService.getCopyById(active.getCopyID()).orElse(null);
+            if (copy != null && copyService.getAvailableCopiesByBook(copy.getBook_id()).isEmpty()
+                    && holdService.getWaitingHolds(copy.getBook_id()).isEmpty()) {
+                loan = active;
+                bookId = copy.getBook_id();
+                break;
+            }
+        }
+        assumeTrue(loan != null, "No lent copy of a fully borrowed book without holds");
+
+        List<User> patrons = new ArrayList<>();
+        for (User user : userService.getActiveUsers()) {
+            if (user.getUserID() != loan.getUserID() && hasNoActiveHold(user.getUserID(), bookId)) {
+                patrons.add(user);
+            }
+            if (patrons.size() == 2) {
+                break;
+            }
+        }
+        assumeTrue(patrons.size() == 2, "Fewer than two active patrons free to place a hold");
+
+        Hold first = holdService.placeHold(patrons.get(0).getUserID(), bookId);
+        Hold second = holdService.placeHold(patrons.get(1).getUserID(), bookId);
+
+        try {
+            // Act
+            loanService.checkin(loan.getCopyID());
+
+            // Assert
+            Hold ready = holdService.getHoldById(first.getHoldID()).orElseThrow();
+            assertEquals(HoldStatus.READY, ready.getStatus());
+            assertEquals(Integer.valueOf(loan.getCopyID()), ready.getCopyID());
+            assertNotNull(ready.getPickupDeadline());
+
+            Hold waiting = holdService.getHoldById(second.getHoldID()).orElseThrow();
+            assertEquals(HoldStatus.WAITING, waiting.getStatus());
+            assertNull(waiting.getCopyID());
+        } finally {
+            // The copy goes back on the shelf once both holds are withdrawn
+            holdService.cancelHold(second.getHoldID());
+            holdService.cancelHold(first.getHoldID());
+        }
+    }
+
+    private boolean hasNoActiveHold(int userId, int bookId) throws ValidationException {
+        for (Hold hold : holdService.getHoldsByUser(userId)) {
+            if (hold.getBookID() == bookId && hold.getStatus().isActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package com.alexandrialms.service;
+
+import com.alexandrialms.service.impl.LoanServiceImpl;
+import com.alexandrialms.exception.ValidationException;
+import com.alexandrialms.model.Loan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanServiceIntegrationTest {
+
+    private LoanServiceImpl loanService;
+
+    @BeforeEach
+    void setUp() {
+        loanService = new LoanServiceImpl();
+    }
+
+    @Test
+    @DisplayName("Should validate user ID on checkout")
+    void checkout_InvalidUserId_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> loanService.checkout(-1, 1));
+
+        assertEquals("INVALID_USER_ID", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should validate copy ID on checkout")
+    void checkout_InvalidCopyId_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> loanService.checkout(1, 0));
+
+        assertEquals("INVALID_COPY_ID", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject checkout for non-existent user")
+    void checkout_NonExistentUser_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> loanService.checkout(999999, 1));
+
+        assertEquals("USER_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject checkin for non-existent copy")
+    void checkin_NonExistentCopy_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> loanService.checkin(999999));
+
+        assertEquals("COPY_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should reject renewal for non-existent copy")
+    void renew_NonExistentCopy_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> loanService.renew(999999));
+
+        assertEquals("COPY_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should only list open loans past their due date as overdue")
+    void getOverdueLoans_AreOpenAndPastDue() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+
+        // Act
+        List<Loan> overdue = loanService.getOverdueLoans();
+
+        // Assert
+        for (Loan loan : overdue) {
+            assertTrue(loan.isOverdue(today));
+        }
+    }
+
+    @Test
+    @DisplayName("Should list active loans once each, open and by loan ID")
+    void getActiveLoans_AreOpenAndOrdered() {
+        // Act
+        List<Loan> active = loanService.getActiveLoans();
+
+        // Assert
+        for (int i = 0; i < active.size(); i++) {
+            assertFalse(active.get(i).isReturned());
+            if (i > 0) {
+                assertTrue(active.get(i - 1).getLoanID() < active.get(i).getLoanID());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should return empty optional for invalid loan ID")
+    void getLoanById_InvalidId_ReturnsEmpty() {
+        // Act & Assert
+        assertTrue(loanService.getLoanById(-1).isEmpty());
+    }
+}
@@ -1,6 +1,8 @@
 package com.alexandrialms.service;
 
 import com.alexandrialms.service.impl.UserServiceImpl;
+import com.alexandrialms.model.BatchResult;
+import com.alexandrialms.model.LibraryRole;
 import com.alexandrialms.model.User;
 import com.alexandrialms.exception.ValidationException;
 import org.junit.jupiter.api.Test;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -131,6 +134,20 @@ class UserServiceIntegrationTest {
         assertTrue(result >= 0);
     }
 
+    @Test
+    @DisplayName("Users counted by role should add up to the active users count")
+    void getUsersCountByRole_MatchesActiveUsersCount() {
+        // Act
+        Map<String, Integer> byRole = userService.getUsersCountByRole();
+        int active = userService.getActiveUsersCount();
+
+        // Assert
+        assertEquals(active, byRole.values().stream().mapToInt(Integer::intValue).sum());
+        for (LibraryRole role : LibraryRole.values()) {
+            assertTrue(byRole.containsKey(role.name()));
+        }
+    }
+
     @Test
     @DisplayName("Should validate pagination parameters - negative limit")
     void getAllUsersPaginated_NegativeLimit_ThrowsException() {
@@ -247,4 +264,109 @@ class UserServiceIntegrationTest {
         
         assertTrue(exception.getMessage().contains("future"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should report every violation when validating users in bulk")
+    void validateUsers_InvalidAndDuplicateRows_ReturnsAllViolations() {
+        // Arrange
+        User valid = new User();
+        valid.setFirstName("Ana");
+        valid.setLastName("Lopez");
+        valid.setEmail("ana@alexandria.test");
+        valid.setRole(LibraryRole.READER);
+
+        User invalid = new User();
+        invalid.setFirstName("A");
+        invalid.setLastName("Lopez");
+        invalid.setEmail("not-an-email");
+        invalid.setPhone("12345");
+        invalid.setRole(LibraryRole.READER);
+
+        User duplicate = new User();
+        duplicate.setFirstName("Ana");
+        duplicate.setLastName("Garcia");
+        duplicate.setEmail("ANA@alexandria.test");
+        duplicate.setRole(LibraryRole.READER);
+
+        // Act
+        List<BatchResult.RowError> violations = userService.validateUsers(List.of(valid, invalid, duplicate));
+
+        // Assert
+        assertEquals(4, violations.size());
+        assertEquals(List.of("INVALID_FIRST_NAME", "INVALID_EMAIL", "INVALID_PHONE", "DUPLICATE_EMAIL"),
+            violations.stream().map(BatchResult.RowError::getErrorCode).toList());
+        assertEquals(2, violations.get(3).getIndex());
+    }
+
+    @Test
+    @DisplayName("Should accept 9-character phones starting with 6 or 7, separators included")
+    void validateUsers_PhoneWithSeparators_IsValid() {
+        // Arrange
+        User spaced = new User();
+        spaced.setFirstName("Ana");
+        spaced.setLastName("Lopez");
+        spaced.setEmail("ana.phone@alexandria.test");
+        spaced.setPhone("6123 4567");
+        spaced.setRole(LibraryRole.READER);
+
+        User dashed = new User();
+        dashed.setFirstName("Luis");
+        dashed.setLastName("Garcia");
+        dashed.setEmail("luis.phone@alexandria.test");
+        dashed.setPhone("7-1234567");
+        dashed.setRole(LibraryRole.READER);
+
+        // Act
+        List<BatchResult.RowError> violations = userService.validateUsers(List.of(spaced, dashed));
+
+        // Assert
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should report invalid rows of a user import without inserting them")
+    void importUsers_InvalidRows_ReportsErrorsPerRow() throws ValidationException {
+        // Arrange
+        User badEmail = new User();
+        badEmail.setFirstName("Ana");
+        badEmail.setLastName("Lopez");
+        badEmail.setEmail("not-an-email");
+        badEmail.setRole(LibraryRole.READER);
+
+        User badPhone = new User();
+        badPhone.setFirstName("Luis");
+        badPhone.setLastName("Garcia");
+        badPhone.setEmail("luis.import@alexandria.test");
+        badPhone.setPhone("12345");
+        badPhone.setRole(LibraryRole.READER);
+
+        // Act
+        BatchResult<User> result = userService.importUsers(List.of(badEmail, badPhone));
+
+        // Assert
+        assertTrue(result.getSucceeded().isEmpty());
+        assertEquals(List.of("INVALID_EMAIL", "INVALID_PHONE"),
+            result.getErrors().stream().map(BatchResult.RowError::getErrorCode).toList());
+        assertEquals(1, result.getErrors().get(1).getIndex());
+    }
+
+    @Test
+    @DisplayName("Should reject a too short password before hashing it")
+    void changeUserPassword_TooShort_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> userService.changeUserPassword(1, "short"));
+
+        assertEquals("PASSWORD_TOO_SHORT", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Should require a list of users to import")
+    void importUsers_NullList_ThrowsException() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+            () -> userService.importUsers(null));
+
+        assertEquals("REQUIRED", exception.getErrorCode());
+    }
+}